@@ -28,7 +28,7 @@ import javax.sound.sampled.SourceDataLine;
  */
 final class Playback implements Closeable
 {
-    /** Audio input. */
+    /** Audio input, <code>null</code> if played from decoded sample. */
     private final AudioInputStream input;
     /** Audio data. */
     private final SourceDataLine dataLine;
@@ -36,7 +36,7 @@ final class Playback implements Closeable
     /**
      * Create playback.
      * 
-     * @param input The audio input.
+     * @param input The audio input, <code>null</code> if played from decoded sample.
      * @param dataLine The audio data.
      */
     Playback(AudioInputStream input, SourceDataLine dataLine)
@@ -48,7 +48,7 @@ final class Playback implements Closeable
     /**
      * Get the audio stream.
      * 
-     * @return The audio stream.
+     * @return The audio stream, <code>null</code> if played from decoded sample.
      */
     public AudioInputStream getAudioInputStream()
     {
@@ -74,6 +74,9 @@ final class Playback implements Closeable
     {
         dataLine.flush();
         dataLine.close();
-        input.close();
+        if (input != null)
+        {
+            input.close();
+        }
     }
 }
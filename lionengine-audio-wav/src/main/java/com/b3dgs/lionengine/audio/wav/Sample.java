@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.audio.wav;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Decoded sound, as signed 16 bits little endian PCM frames, with one or two interleaved channels.
+ */
+final class Sample
+{
+    /** Sample size in bits. */
+    static final int BITS = 16;
+    /** Read buffer size. */
+    private static final int BUFFER = 8192;
+    /** Decode error. */
+    private static final String ERROR_DECODE = "Unable to decode sound: ";
+
+    /**
+     * Decode the sound.
+     * 
+     * @param media The sound media.
+     * @param direct <code>true</code> to store samples in a direct buffer, <code>false</code> to store them on heap.
+     * @return The decoded sound.
+     * @throws IOException If unable to read or decode the sound.
+     */
+    static Sample decode(Media media, boolean direct) throws IOException
+    {
+        final AudioInputStream input = WavImpl.openStream(media);
+        try
+        {
+            return decode(media, input, direct);
+        }
+        finally
+        {
+            UtilStream.safeClose(input);
+        }
+    }
+
+    /**
+     * Decode the sound from its opened stream, which is not closed.
+     * 
+     * @param media The sound media.
+     * @param input The sound stream.
+     * @param direct <code>true</code> to store samples in a direct buffer, <code>false</code> to store them on heap.
+     * @return The decoded sound.
+     * @throws IOException If unable to read or decode the sound.
+     */
+    static Sample decode(Media media, AudioInputStream input, boolean direct) throws IOException
+    {
+        try
+        {
+            final AudioFormat source = input.getFormat();
+            final int channels = source.getChannels();
+            if (channels < 1 || channels > 2)
+            {
+                throw new IOException(ERROR_DECODE + media.getPath());
+            }
+            final AudioFormat target = new AudioFormat(source.getSampleRate(), BITS, channels, true, false);
+            final AudioInputStream pcm = AudioSystem.getAudioInputStream(target, input);
+            try
+            {
+                final byte[] bytes = read(pcm);
+                final ByteBuffer data;
+                if (direct)
+                {
+                    data = ByteBuffer.allocateDirect(bytes.length);
+                    data.put(bytes);
+                }
+                else
+                {
+                    data = ByteBuffer.wrap(bytes);
+                }
+                return new Sample(data, channels, Math.round(source.getSampleRate()));
+            }
+            finally
+            {
+                UtilStream.safeClose(pcm);
+            }
+        }
+        catch (final IllegalArgumentException exception)
+        {
+            throw new IOException(ERROR_DECODE + media.getPath(), exception);
+        }
+    }
+
+    /**
+     * Get the decoded size of a sound, without decoding it.
+     * 
+     * @param input The sound stream.
+     * @return The decoded size in bytes, negative if unknown.
+     */
+    static long getDecodedSize(AudioInputStream input)
+    {
+        final long frames = input.getFrameLength();
+        if (frames == AudioSystem.NOT_SPECIFIED)
+        {
+            return -1L;
+        }
+        return frames * input.getFormat().getChannels() * (BITS / Byte.SIZE);
+    }
+
+    /**
+     * Read the whole stream.
+     * 
+     * @param input The stream to read.
+     * @return The read bytes.
+     * @throws IOException If error on reading.
+     */
+    private static byte[] read(AudioInputStream input) throws IOException
+    {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[BUFFER];
+        int read;
+        while ((read = input.read(buffer, 0, buffer.length)) > 0)
+        {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    /** Interleaved samples bytes. */
+    private final ByteBuffer data;
+    /** Interleaved samples. */
+    private final ShortBuffer samples;
+    /** Channels number. */
+    private final int channels;
+    /** Sample rate. */
+    private final int rate;
+
+    /**
+     * Create sample.
+     * 
+     * @param data The interleaved samples bytes, as signed 16 bits little endian, from zero to capacity.
+     * @param channels The channels number (1 or 2).
+     * @param rate The sample rate.
+     */
+    Sample(ByteBuffer data, int channels, int rate)
+    {
+        final ByteBuffer buffer = data.duplicate();
+        buffer.clear();
+        this.data = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        samples = this.data.asShortBuffer();
+        this.channels = channels;
+        this.rate = rate;
+    }
+
+    /**
+     * Get the sample value.
+     * 
+     * @param frame The frame index.
+     * @param channel The channel index (mono samples are duplicated on each channel).
+     * @return The sample value.
+     */
+    int get(int frame, int channel)
+    {
+        return samples.get(frame * channels + Math.min(channel, channels - 1));
+    }
+
+    /**
+     * Get the frames number.
+     * 
+     * @return The frames number.
+     */
+    int getFrames()
+    {
+        return samples.capacity() / channels;
+    }
+
+    /**
+     * Get the samples bytes, as a new buffer sharing the content, positioned at zero.
+     * 
+     * @return The samples bytes.
+     */
+    ByteBuffer getData()
+    {
+        return data.duplicate();
+    }
+
+    /**
+     * Get the memory used by samples.
+     * 
+     * @return The samples size in bytes.
+     */
+    int getSize()
+    {
+        return data.capacity();
+    }
+
+    /**
+     * Get the samples format.
+     * 
+     * @return The samples format.
+     */
+    AudioFormat getFormat()
+    {
+        return new AudioFormat(rate, BITS, channels, true, false);
+    }
+
+    /**
+     * Get the channels number.
+     * 
+     * @return The channels number.
+     */
+    int getChannels()
+    {
+        return channels;
+    }
+
+    /**
+     * Get the sample rate.
+     * 
+     * @return The sample rate.
+     */
+    int getRate()
+    {
+        return rate;
+    }
+}
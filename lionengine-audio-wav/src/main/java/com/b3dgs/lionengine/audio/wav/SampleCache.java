@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.audio.wav;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sound.sampled.AudioInputStream;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+
+/**
+ * Decoded sounds cache, keeping the most recently played sounds in memory up to a size budget, so that they are
+ * played without reading and decoding their file again.
+ * <p>
+ * When the cached sounds size exceeds the budget, the least recently played sounds are removed. A sound larger than
+ * the budget is not cached, and is streamed from its file on each play. Decoded samples can be stored in direct
+ * buffers, outside of the heap.
+ * </p>
+ * <p>
+ * Sounds can be preloaded with {@link #preload(Collection)}, typically with the sounds of a level while it is loading.
+ * </p>
+ * <p>
+ * This class is Thread-Safe.
+ * </p>
+ */
+public final class SampleCache
+{
+    /** Default budget in bytes. */
+    public static final int DEFAULT_BUDGET = 16 * 1024 * 1024;
+    /** Preload error. */
+    private static final String ERROR_PRELOAD = "Unable to preload sound !";
+
+    /** Cached samples, from least to most recently used. */
+    private final Map<Media, Sample> samples = new LinkedHashMap<Media, Sample>(16, 0.75F, true);
+    /** Budget in bytes. */
+    private final int budget;
+    /** Direct buffers flag. */
+    private final boolean direct;
+    /** Cached size in bytes. */
+    private int size;
+    /** Hits count. */
+    private long hits;
+    /** Misses count. */
+    private long misses;
+    /** Evictions count. */
+    private long evictions;
+
+    /**
+     * Create a cache with {@link #DEFAULT_BUDGET}, storing samples on heap.
+     */
+    public SampleCache()
+    {
+        this(DEFAULT_BUDGET, false);
+    }
+
+    /**
+     * Create a cache.
+     * 
+     * @param budget The maximum cached size in bytes (superior or equal to 0).
+     * @param direct <code>true</code> to store samples in direct buffers, <code>false</code> to store them on heap.
+     * @throws LionEngineException If invalid budget.
+     */
+    public SampleCache(int budget, boolean direct)
+    {
+        Check.superiorOrEqual(budget, 0);
+
+        this.budget = budget;
+        this.direct = direct;
+    }
+
+    /**
+     * Decode and cache sounds, if not already cached.
+     * 
+     * @param medias The sounds to preload.
+     * @throws LionEngineException If unable to decode a sound.
+     */
+    public void preload(Collection<Media> medias)
+    {
+        for (final Media media : medias)
+        {
+            if (!contains(media))
+            {
+                try
+                {
+                    put(media, Sample.decode(media, direct));
+                }
+                catch (final IOException exception)
+                {
+                    throw new LionEngineException(exception, media, ERROR_PRELOAD);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove sound from cache.
+     * 
+     * @param media The sound to remove.
+     */
+    public synchronized void evict(Media media)
+    {
+        final Sample sample = samples.remove(media);
+        if (sample != null)
+        {
+            size -= sample.getSize();
+        }
+    }
+
+    /**
+     * Remove all sounds from cache. Statistics are kept.
+     */
+    public synchronized void clear()
+    {
+        samples.clear();
+        size = 0;
+    }
+
+    /**
+     * Check if sound is cached.
+     * 
+     * @param media The sound media.
+     * @return <code>true</code> if cached, <code>false</code> else.
+     */
+    public synchronized boolean contains(Media media)
+    {
+        return samples.containsKey(media);
+    }
+
+    /**
+     * Get the number of cached sounds.
+     * 
+     * @return The cached sounds number.
+     */
+    public synchronized int getCount()
+    {
+        return samples.size();
+    }
+
+    /**
+     * Get the cached sounds size.
+     * 
+     * @return The cached size in bytes.
+     */
+    public synchronized int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Get the budget.
+     * 
+     * @return The maximum cached size in bytes.
+     */
+    public int getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * Get the number of plays served from cache.
+     * 
+     * @return The hits count.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Get the number of plays which had to decode the sound.
+     * 
+     * @return The misses count.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Get the number of sounds removed to respect the budget.
+     * 
+     * @return The evictions count.
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Get the cached sample, counted as a hit if found.
+     * 
+     * @param media The sound media.
+     * @return The cached sample, <code>null</code> if not cached.
+     */
+    synchronized Sample getCached(Media media)
+    {
+        final Sample sample = samples.get(media);
+        if (sample != null)
+        {
+            hits++;
+        }
+        return sample;
+    }
+
+    /**
+     * Get the sample, decode and cache it if not cached. Decoding is performed outside of the cache lock.
+     * 
+     * @param media The sound media.
+     * @return The sample.
+     * @throws IOException If unable to decode the sound.
+     */
+    Sample get(Media media) throws IOException
+    {
+        final Sample cached = getCached(media);
+        if (cached != null)
+        {
+            return cached;
+        }
+        synchronized (this)
+        {
+            misses++;
+        }
+        return put(media, Sample.decode(media, direct));
+    }
+
+    /**
+     * Check if a sound can be cached, depending of its size.
+     * 
+     * @param size The decoded sound size in bytes (negative if unknown).
+     * @return <code>true</code> if known and not larger than the budget, <code>false</code> else.
+     */
+    boolean isCacheable(long size)
+    {
+        return size >= 0L && size <= budget;
+    }
+
+    /**
+     * Decode and cache the sample from its opened stream, which is not closed.
+     * 
+     * @param media The sound media.
+     * @param input The sound stream.
+     * @return The sample.
+     * @throws IOException If unable to decode the sound.
+     */
+    Sample get(Media media, AudioInputStream input) throws IOException
+    {
+        synchronized (this)
+        {
+            misses++;
+        }
+        return put(media, Sample.decode(media, input, direct));
+    }
+
+    /**
+     * Cache the decoded sample, unless already cached meanwhile, and remove least recently used samples over budget.
+     * 
+     * @param media The sound media.
+     * @param sample The decoded sample.
+     * @return The cached sample.
+     */
+    private synchronized Sample put(Media media, Sample sample)
+    {
+        final Sample previous = samples.get(media);
+        if (previous != null)
+        {
+            return previous;
+        }
+        if (sample.getSize() <= budget)
+        {
+            samples.put(media, sample);
+            size += sample.getSize();
+
+            final Iterator<Sample> iterator = samples.values().iterator();
+            while (size > budget)
+            {
+                size -= iterator.next().getSize();
+                iterator.remove();
+                evictions++;
+            }
+        }
+        return sample;
+    }
+}
@@ -36,4 +36,13 @@ public interface Wav extends Audio
      * @throws LionEngineException If unable to play sound.
      */
     void play(Align alignment);
+
+    /**
+     * Set the sound priority, used by the software mixer when all voices are playing (see
+     * {@link WavFormat#WavFormat(int)}). A playing sound is replaced by a new one only if its priority is lower or
+     * equal. Ignored without software mixer.
+     * 
+     * @param priority The sound priority.
+     */
+    void setPriority(int priority);
 }
@@ -25,6 +25,8 @@ import java.util.concurrent.ThreadFactory;
 
 import javax.sound.sampled.Mixer;
 
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.Media;
 import com.b3dgs.lionengine.audio.AudioFormat;
 
@@ -62,12 +64,77 @@ public final class WavFormat implements AudioFormat<Wav>
         WavFormat.mixer = mixer;
     }
 
+    /** Decoded sounds cache. */
+    private final SampleCache cache;
+    /** Software mixer, <code>null</code> to play each sound on its own line. */
+    private final WavMixer softwareMixer;
+
     /**
-     * Create a wav format.
+     * Create a wav format, playing each sound on its own line, with a default cache.
      */
     public WavFormat()
+    {
+        this(new SampleCache());
+    }
+
+    /**
+     * Create a wav format, playing each sound on its own line.
+     * 
+     * @param cache The decoded sounds cache.
+     * @throws LionEngineException If invalid argument.
+     */
+    public WavFormat(SampleCache cache)
+    {
+        super();
+
+        Check.notNull(cache);
+
+        this.cache = cache;
+        softwareMixer = null;
+    }
+
+    /**
+     * Create a wav format, mixing sounds by software into a single line.
+     * <p>
+     * Sounds are decoded once on first play and kept in memory. Volume and alignment are applied by the mixer, and the
+     * number of sounds played at the same time is limited to the voices number, the lowest priority sound being
+     * replaced when all voices are playing (see {@link Wav#setPriority(int)}).
+     * </p>
+     * 
+     * @param voices The maximum sounds played at the same time (strictly positive).
+     * @throws LionEngineException If invalid voices number.
+     */
+    public WavFormat(int voices)
+    {
+        this(new SampleCache(), voices);
+    }
+
+    /**
+     * Create a wav format, mixing sounds by software into a single line.
+     * 
+     * @param cache The decoded sounds cache.
+     * @param voices The maximum sounds played at the same time (strictly positive).
+     * @throws LionEngineException If invalid argument.
+     * @see #WavFormat(int)
+     */
+    public WavFormat(SampleCache cache, int voices)
     {
         super();
+
+        Check.notNull(cache);
+
+        this.cache = cache;
+        softwareMixer = new WavMixer(voices);
+    }
+
+    /**
+     * Get the decoded sounds cache, to preload sounds or read its statistics.
+     * 
+     * @return The decoded sounds cache.
+     */
+    public SampleCache getCache()
+    {
+        return cache;
     }
 
     /*
@@ -77,7 +144,11 @@ public final class WavFormat implements AudioFormat<Wav>
     @Override
     public Wav loadAudio(Media media)
     {
-        return new WavImpl(EXECUTOR, media);
+        if (softwareMixer != null)
+        {
+            return new WavMixed(EXECUTOR, cache, softwareMixer, media);
+        }
+        return new WavImpl(EXECUTOR, cache, media);
     }
 
     @Override
@@ -89,6 +160,10 @@ public final class WavFormat implements AudioFormat<Wav>
     @Override
     public void close()
     {
+        if (softwareMixer != null)
+        {
+            softwareMixer.close();
+        }
         EXECUTOR.shutdownNow();
     }
 }
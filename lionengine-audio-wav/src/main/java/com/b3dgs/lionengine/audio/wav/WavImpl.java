@@ -17,7 +17,9 @@
  */
 package com.b3dgs.lionengine.audio.wav;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -41,7 +43,8 @@ import com.b3dgs.lionengine.util.UtilMath;
 import com.b3dgs.lionengine.util.UtilStream;
 
 /**
- * Wav audio implementation.
+ * Wav audio implementation, playing each sound on its own line. Sound is decoded on first play, and played from the
+ * cache while it stays cached. A sound too large to be cached is streamed from its file.
  */
 final class WavImpl implements Wav
 {
@@ -53,16 +56,20 @@ final class WavImpl implements Wav
     /**
      * Play a sound.
      * 
-     * @param media The audio media.
+     * @param input The audio input, <code>null</code> if played from decoded sample.
+     * @param format The audio format.
      * @param alignment The alignment type.
      * @param volume The audio volume value.
      * @return The created and opened playback ready to be played.
      * @throws IOException If playback error.
      */
-    private static Playback createPlayback(Media media, Align alignment, int volume) throws IOException
+    private static Playback createPlayback(AudioInputStream input,
+                                           AudioFormat format,
+                                           Align alignment,
+                                           int volume)
+                                                       throws IOException
     {
-        final AudioInputStream input = openStream(media);
-        final SourceDataLine dataLine = getDataLine(input);
+        final SourceDataLine dataLine = getDataLine(format);
         dataLine.start();
         updateAlignment(dataLine, alignment);
         updateVolume(dataLine, volume);
@@ -78,11 +85,11 @@ final class WavImpl implements Wav
      * @throws IOException If error when reading the audio file.
      * @throws LionEngineException If error when getting the stream.
      */
-    private static AudioInputStream openStream(Media media) throws IOException
+    static AudioInputStream openStream(Media media) throws IOException
     {
         try
         {
-            return AudioSystem.getAudioInputStream(media.getInputStream());
+            return AudioSystem.getAudioInputStream(new BufferedInputStream(media.getInputStream()));
         }
         catch (final UnsupportedAudioFileException exception)
         {
@@ -93,13 +100,12 @@ final class WavImpl implements Wav
     /**
      * Get the audio data line.
      * 
-     * @param input The audio input.
+     * @param format The audio format.
      * @return The audio source data.
      * @throws IOException If no audio line available (may be already opened).
      */
-    private static SourceDataLine getDataLine(AudioInputStream input) throws IOException
+    private static SourceDataLine getDataLine(AudioFormat format) throws IOException
     {
-        final AudioFormat format = input.getFormat();
         try
         {
             final SourceDataLine dataLine;
@@ -166,6 +172,31 @@ final class WavImpl implements Wav
         }
     }
 
+    /**
+     * Play the full sound, directly from its samples if stored on heap, else by buffer.
+     * 
+     * @param sample The decoded sound.
+     * @param dataLine Audio source data.
+     */
+    private static void writeSound(Sample sample, SourceDataLine dataLine)
+    {
+        final ByteBuffer data = sample.getData();
+        if (data.hasArray())
+        {
+            dataLine.write(data.array(), data.arrayOffset(), data.remaining());
+        }
+        else
+        {
+            final byte[] buffer = new byte[Math.min(BUFFER, data.remaining())];
+            while (data.hasRemaining() && dataLine.isOpen())
+            {
+                final int length = Math.min(buffer.length, data.remaining());
+                data.get(buffer, 0, length);
+                dataLine.write(buffer, 0, length);
+            }
+        }
+    }
+
     /**
      * Read the full sound and play it by buffer.
      * 
@@ -184,25 +215,24 @@ final class WavImpl implements Wav
     }
 
     /**
-     * Flush and close audio data and stream.
+     * Flush and close audio data.
      * 
-     * @param input The audio input.
      * @param dataLine Audio source data.
-     * @throws IOException If error on closing.
      */
-    private static void close(AudioInputStream input, DataLine dataLine) throws IOException
+    private static void close(DataLine dataLine)
     {
         dataLine.drain();
         dataLine.flush();
         dataLine.stop();
         dataLine.close();
-        input.close();
     }
 
     /** Opened playback. */
     private final Map<Media, Playback> opened = new ConcurrentHashMap<Media, Playback>();
     /** Tasks executor. */
     private final ExecutorService executor;
+    /** Decoded sounds cache. */
+    private final SampleCache cache;
     /** Sound file reference. */
     private final Media media;
     /** Volume used. */
@@ -214,14 +244,16 @@ final class WavImpl implements Wav
      * Internal constructor.
      * 
      * @param executor Tasks executor.
+     * @param cache The decoded sounds cache.
      * @param media The audio sound media.
      * @throws LionEngineException If media is <code>null</code>
      */
-    WavImpl(ExecutorService executor, Media media)
+    WavImpl(ExecutorService executor, SampleCache cache, Media media)
     {
         Check.notNull(media);
 
         this.executor = executor;
+        this.cache = cache;
         this.media = media;
     }
 
@@ -233,21 +265,39 @@ final class WavImpl implements Wav
      */
     private void play(Media media, Align alignment)
     {
-        Playback playback = null;
         try
         {
-            if (opened.containsKey(media))
+            final Playback previous = opened.get(media);
+            if (previous != null)
             {
-                opened.get(media).close();
+                previous.close();
+            }
+            final Sample cached = cache.getCached(media);
+            if (cached != null)
+            {
+                play(cached, alignment);
+            }
+            else
+            {
+                final AudioInputStream input = openStream(media);
+                if (cache.isCacheable(Sample.getDecodedSize(input)))
+                {
+                    final Sample sample;
+                    try
+                    {
+                        sample = cache.get(media, input);
+                    }
+                    finally
+                    {
+                        UtilStream.safeClose(input);
+                    }
+                    play(sample, alignment);
+                }
+                else
+                {
+                    play(input, alignment);
+                }
             }
-            playback = createPlayback(media, alignment, volume);
-            opened.put(media, playback);
-
-            final AudioInputStream input = openStream(media);
-            final SourceDataLine dataLine = playback.getDataLine();
-            dataLine.start();
-            readSound(input, dataLine);
-            close(input, dataLine);
         }
         catch (final IOException exception)
         {
@@ -256,7 +306,51 @@ final class WavImpl implements Wav
                 Verbose.exception(exception, media.toString());
                 last = exception;
             }
+        }
+    }
+
+    /**
+     * Play decoded sound.
+     * 
+     * @param sample The decoded sound.
+     * @param alignment The sound alignment.
+     * @throws IOException If playback error.
+     */
+    private void play(Sample sample, Align alignment) throws IOException
+    {
+        final Playback playback = createPlayback(null, sample.getFormat(), alignment, volume);
+        opened.put(media, playback);
+
+        final SourceDataLine dataLine = playback.getDataLine();
+        writeSound(sample, dataLine);
+        close(dataLine);
+    }
+
+    /**
+     * Play sound by streaming it, without decoding it fully. Stream is closed once played.
+     * 
+     * @param input The sound stream.
+     * @param alignment The sound alignment.
+     * @throws IOException If playback error.
+     */
+    void play(AudioInputStream input, Align alignment) throws IOException
+    {
+        Playback playback = null;
+        try
+        {
+            playback = createPlayback(input, input.getFormat(), alignment, volume);
+            opened.put(media, playback);
+
+            final SourceDataLine dataLine = playback.getDataLine();
+            readSound(input, dataLine);
+            close(dataLine);
+            input.close();
+        }
+        catch (final IOException exception)
+        {
             UtilStream.safeClose(playback);
+            UtilStream.safeClose(input);
+            throw exception;
         }
     }
 
@@ -283,6 +377,12 @@ final class WavImpl implements Wav
         });
     }
 
+    @Override
+    public void setPriority(int priority)
+    {
+        // Each sound has its own line, no voice limit
+    }
+
     @Override
     public void stop()
     {
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.audio.wav;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import javax.sound.sampled.AudioInputStream;
+
+import com.b3dgs.lionengine.Align;
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Wav audio played by the software mixer. Sound is decoded on first play, and played from the cache while it stays
+ * cached. A sound too large to be cached is streamed on its own line instead.
+ */
+final class WavMixed implements Wav
+{
+    /** Tasks executor. */
+    private final ExecutorService executor;
+    /** Decoded sounds cache. */
+    private final SampleCache cache;
+    /** Software mixer. */
+    private final WavMixer mixer;
+    /** Streamed playback, used for sounds too large to be cached. */
+    private final WavImpl streamed;
+    /** Sound file reference. */
+    private final Media media;
+    /** Volume used. */
+    private volatile int volume = VOLUME_MAX;
+    /** Priority used. */
+    private volatile int priority;
+    /** Stop requests count, guarded by this, used to cancel decoding plays. */
+    private int stops;
+    /** Exception flag. */
+    private IOException last;
+
+    /**
+     * Internal constructor.
+     * 
+     * @param executor Tasks executor, used to decode sound.
+     * @param cache The decoded sounds cache.
+     * @param mixer The software mixer.
+     * @param media The audio sound media.
+     * @throws LionEngineException If media is <code>null</code>
+     */
+    WavMixed(ExecutorService executor, SampleCache cache, WavMixer mixer, Media media)
+    {
+        Check.notNull(media);
+
+        this.executor = executor;
+        this.cache = cache;
+        this.mixer = mixer;
+        this.media = media;
+        streamed = new WavImpl(executor, cache, media);
+    }
+
+    /**
+     * Decode sound and play it, unless stopped meanwhile.
+     * 
+     * @param alignment The sound alignment.
+     * @param stopsBefore The stop requests count when play was requested.
+     */
+    private void decode(Align alignment, int stopsBefore)
+    {
+        try
+        {
+            final AudioInputStream input = WavImpl.openStream(media);
+            if (cache.isCacheable(Sample.getDecodedSize(input)))
+            {
+                final Sample sample;
+                try
+                {
+                    sample = cache.get(media, input);
+                }
+                finally
+                {
+                    UtilStream.safeClose(input);
+                }
+                synchronized (this)
+                {
+                    if (stops == stopsBefore)
+                    {
+                        mixer.play(this, sample, volume, alignment, priority);
+                    }
+                }
+            }
+            else
+            {
+                stream(input, alignment, stopsBefore);
+            }
+        }
+        catch (final IOException exception)
+        {
+            if (last == null || !exception.getMessage().equals(last.getMessage()))
+            {
+                Verbose.exception(exception, media.toString());
+                last = exception;
+            }
+        }
+    }
+
+    /**
+     * Stream sound on its own line, unless stopped meanwhile.
+     * 
+     * @param input The sound stream, closed once played.
+     * @param alignment The sound alignment.
+     * @param stopsBefore The stop requests count when play was requested.
+     * @throws IOException If playback error.
+     */
+    private void stream(AudioInputStream input, Align alignment, int stopsBefore) throws IOException
+    {
+        synchronized (this)
+        {
+            if (stops != stopsBefore)
+            {
+                input.close();
+                return;
+            }
+        }
+        streamed.setVolume(volume);
+        streamed.play(input, alignment);
+    }
+
+    /*
+     * Wav
+     */
+
+    @Override
+    public void play()
+    {
+        play(Align.CENTER);
+    }
+
+    @Override
+    public void play(final Align alignment)
+    {
+        mixer.start();
+        final Sample sample = cache.getCached(media);
+        if (sample != null)
+        {
+            mixer.play(this, sample, volume, alignment, priority);
+        }
+        else
+        {
+            final int stopsBefore;
+            synchronized (this)
+            {
+                stopsBefore = stops;
+            }
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    decode(alignment, stopsBefore);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void setPriority(int priority)
+    {
+        this.priority = priority;
+    }
+
+    @Override
+    public void stop()
+    {
+        synchronized (this)
+        {
+            stops++;
+            mixer.stop(this);
+        }
+        streamed.stop();
+    }
+
+    @Override
+    public void setVolume(int volume)
+    {
+        Check.superiorOrEqual(volume, 0);
+        Check.inferiorOrEqual(volume, 100);
+
+        this.volume = volume;
+    }
+}
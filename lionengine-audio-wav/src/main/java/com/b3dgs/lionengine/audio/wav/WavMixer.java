@@ -0,0 +1,538 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.audio.wav;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import com.b3dgs.lionengine.Align;
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Verbose;
+
+/**
+ * Software mixer, mixing sounds voices into a single line on a dedicated thread.
+ * <p>
+ * Sounds are played from their decoded {@link Sample}. Play and stop requests are queued and applied at the start of
+ * the next mixing period, so a sound starts at most one period ({@link #PERIOD} frames) after being played. When all
+ * voices are used, the voice with the lowest priority (the oldest one for equal priorities) is stolen if its priority
+ * is not greater than the new sound one, else the new sound is dropped.
+ * </p>
+ * <p>
+ * Mixing thread stops when mixer is closed or line cannot be opened, and is started again on next {@link #start()}.
+ * Closing waits for the mixing thread end and drops the pending requests. When line cannot be opened, only the last
+ * requests (up to the voices number) are kept for the next start.
+ * </p>
+ */
+final class WavMixer implements Closeable
+{
+    /** Output sample rate. */
+    static final int RATE = 44100;
+    /** Output channels number. */
+    static final int CHANNELS = 2;
+    /** Frames mixed per period. */
+    static final int PERIOD = 512;
+    /** Bytes per output frame. */
+    static final int FRAME_BYTES = CHANNELS * Sample.BITS / Byte.SIZE;
+    /** Line buffer in periods. */
+    private static final int LINE_PERIODS = 4;
+    /** Gain precision. */
+    private static final int GAIN_SHIFT = 8;
+    /** Position precision. */
+    private static final int POSITION_SHIFT = 16;
+    /** Line error. */
+    private static final String ERROR_LINE = "Unable to open mixer line !";
+
+    /**
+     * Get the channel gain.
+     * 
+     * @param volume The volume value.
+     * @param alignment The sound alignment.
+     * @param channel The channel index (0 for left, 1 for right).
+     * @return The channel gain.
+     * @throws LionEngineException If unknown alignment.
+     */
+    static int getGain(int volume, Align alignment, int channel)
+    {
+        final int gain = (volume << GAIN_SHIFT) / Wav.VOLUME_MAX;
+        switch (alignment)
+        {
+            case CENTER:
+                return gain;
+            case LEFT:
+                return channel == 0 ? gain : 0;
+            case RIGHT:
+                return channel == 0 ? 0 : gain;
+            default:
+                throw new LionEngineException(alignment);
+        }
+    }
+
+    /**
+     * Clamp value to sample range.
+     * 
+     * @param value The value to clamp.
+     * @return The clamped value.
+     */
+    private static int clamp(int value)
+    {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    /** Pending requests. */
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<Request>();
+    /** Voices. */
+    private final Voice[] voices;
+    /** Left channel accumulator. */
+    private final int[] left = new int[PERIOD];
+    /** Right channel accumulator. */
+    private final int[] right = new int[PERIOD];
+    /** Output buffer. */
+    private final byte[] output = new byte[PERIOD * FRAME_BYTES];
+    /** Closed flag. */
+    private volatile boolean closed;
+    /** Mixing thread, <code>null</code> if not started (guarded by this). */
+    private Thread thread;
+    /** Played sounds count, used to find the oldest voice. */
+    private long played;
+
+    /**
+     * Create mixer. Line is opened on first play.
+     * 
+     * @param voices The maximum sounds played at the same time (strictly positive).
+     * @throws LionEngineException If invalid argument.
+     */
+    WavMixer(int voices)
+    {
+        Check.superiorStrict(voices, 0);
+
+        this.voices = new Voice[voices];
+        for (int i = 0; i < voices; i++)
+        {
+            this.voices[i] = new Voice();
+        }
+    }
+
+    /**
+     * Start the mixing thread if not started, reopening mixer if closed. Line is opened by the mixing thread, which
+     * stops if unavailable.
+     */
+    void start()
+    {
+        synchronized (this)
+        {
+            closed = false;
+            if (thread == null)
+            {
+                startThread();
+            }
+        }
+    }
+
+    /**
+     * Check if mixing thread is running.
+     * 
+     * @return <code>true</code> if running, <code>false</code> else.
+     */
+    boolean isStarted()
+    {
+        synchronized (this)
+        {
+            return thread != null;
+        }
+    }
+
+    /**
+     * Request a sound play, at the next mixing period.
+     * 
+     * @param owner The sound owner, used to stop it.
+     * @param sample The sound sample.
+     * @param volume The sound volume.
+     * @param alignment The sound alignment.
+     * @param priority The sound priority.
+     * @throws LionEngineException If unknown alignment.
+     */
+    void play(Object owner, Sample sample, int volume, Align alignment, int priority)
+    {
+        if (!closed)
+        {
+            requests.add(new Request(owner,
+                                     sample,
+                                     getGain(volume, alignment, 0),
+                                     getGain(volume, alignment, 1),
+                                     priority));
+        }
+    }
+
+    /**
+     * Request to stop the owner sounds, at the next mixing period.
+     * 
+     * @param owner The sounds owner.
+     */
+    void stop(Object owner)
+    {
+        requests.add(new Request(owner, null, 0, 0, 0));
+    }
+
+    /**
+     * Apply pending requests, and mix voices. Called on each period by the mixing thread.
+     * 
+     * @param out The output buffer, as signed 16 bits little endian interleaved stereo frames.
+     * @param frames The frames number to mix (up to {@link #PERIOD}).
+     * @return The number of bytes written.
+     */
+    int mix(byte[] out, int frames)
+    {
+        Request request;
+        while ((request = requests.poll()) != null)
+        {
+            apply(request);
+        }
+
+        for (int i = 0; i < frames; i++)
+        {
+            left[i] = 0;
+            right[i] = 0;
+        }
+        for (final Voice voice : voices)
+        {
+            if (voice.sample != null)
+            {
+                voice.mix(left, right, frames);
+            }
+        }
+
+        int index = 0;
+        for (int i = 0; i < frames; i++)
+        {
+            final int l = clamp(left[i]);
+            final int r = clamp(right[i]);
+            out[index++] = (byte) l;
+            out[index++] = (byte) (l >> Byte.SIZE);
+            out[index++] = (byte) r;
+            out[index++] = (byte) (r >> Byte.SIZE);
+        }
+        return index;
+    }
+
+    /**
+     * Get the number of playing voices. Must be called from the mixing thread, or when not started.
+     * 
+     * @return The number of playing voices.
+     */
+    int getPlaying()
+    {
+        int count = 0;
+        for (final Voice voice : voices)
+        {
+            if (voice.sample != null)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Apply request.
+     * 
+     * @param request The request to apply.
+     */
+    private void apply(Request request)
+    {
+        if (request.sample == null)
+        {
+            for (final Voice voice : voices)
+            {
+                if (voice.owner == request.owner)
+                {
+                    voice.clear();
+                }
+            }
+        }
+        else
+        {
+            final Voice voice = getVoice(request.priority);
+            if (voice != null)
+            {
+                voice.start(request, played++);
+            }
+        }
+    }
+
+    /**
+     * Get a free voice, or the voice to steal.
+     * 
+     * @param priority The new sound priority.
+     * @return The voice to use, <code>null</code> if none available.
+     */
+    private Voice getVoice(int priority)
+    {
+        Voice victim = null;
+        for (final Voice voice : voices)
+        {
+            if (voice.sample == null)
+            {
+                return voice;
+            }
+            if (victim == null
+                || voice.priority < victim.priority
+                || voice.priority == victim.priority && voice.order < victim.order)
+            {
+                victim = voice;
+            }
+        }
+        if (victim != null && victim.priority <= priority)
+        {
+            return victim;
+        }
+        return null;
+    }
+
+    /**
+     * Start a new mixing thread. Must be called with the lock held.
+     */
+    private void startThread()
+    {
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                output();
+            }
+        }, WavMixer.class.getSimpleName());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Mix and write to line until closed. A new thread is started if mixer has been started again while stopping.
+     */
+    private void output()
+    {
+        boolean failed = true;
+        final AudioFormat format = new AudioFormat(RATE, Sample.BITS, CHANNELS, true, false);
+        SourceDataLine line = null;
+        try
+        {
+            if (WavFormat.mixer != null)
+            {
+                line = AudioSystem.getSourceDataLine(format, WavFormat.mixer);
+            }
+            else
+            {
+                line = AudioSystem.getSourceDataLine(format);
+            }
+            line.open(format, output.length * LINE_PERIODS);
+            line.start();
+            while (!closed)
+            {
+                line.write(output, 0, mix(output, PERIOD));
+            }
+            failed = false;
+        }
+        catch (final LineUnavailableException exception)
+        {
+            Verbose.exception(exception, ERROR_LINE);
+        }
+        catch (final IllegalArgumentException exception)
+        {
+            Verbose.exception(exception, ERROR_LINE);
+        }
+        finally
+        {
+            if (line != null)
+            {
+                line.stop();
+                line.close();
+            }
+            for (final Voice voice : voices)
+            {
+                voice.clear();
+            }
+            synchronized (this)
+            {
+                thread = null;
+                if (failed)
+                {
+                    while (requests.size() > voices.length)
+                    {
+                        requests.poll();
+                    }
+                }
+                else if (!closed)
+                {
+                    startThread();
+                }
+            }
+        }
+    }
+
+    /*
+     * Closeable
+     */
+
+    @Override
+    public void close()
+    {
+        final Thread current;
+        synchronized (this)
+        {
+            closed = true;
+            requests.clear();
+            current = thread;
+        }
+        if (current != null && current != Thread.currentThread())
+        {
+            try
+            {
+                current.join();
+            }
+            catch (final InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                Verbose.exception(exception);
+            }
+        }
+    }
+
+    /**
+     * Play or stop request.
+     */
+    private static final class Request
+    {
+        /** Sound owner. */
+        private final Object owner;
+        /** Sound sample, <code>null</code> to stop owner sounds. */
+        private final Sample sample;
+        /** Left gain. */
+        private final int gainLeft;
+        /** Right gain. */
+        private final int gainRight;
+        /** Sound priority. */
+        private final int priority;
+
+        /**
+         * Create request.
+         * 
+         * @param owner The sound owner.
+         * @param sample The sound sample, <code>null</code> to stop owner sounds.
+         * @param gainLeft The left gain.
+         * @param gainRight The right gain.
+         * @param priority The sound priority.
+         */
+        Request(Object owner, Sample sample, int gainLeft, int gainRight, int priority)
+        {
+            this.owner = owner;
+            this.sample = sample;
+            this.gainLeft = gainLeft;
+            this.gainRight = gainRight;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Mixer voice.
+     */
+    private static final class Voice
+    {
+        /** Sound owner. */
+        private Object owner;
+        /** Played sample, <code>null</code> if free. */
+        private Sample sample;
+        /** Position in frames, fixed point. */
+        private long position;
+        /** Position step per output frame, fixed point. */
+        private long step;
+        /** Left gain. */
+        private int gainLeft;
+        /** Right gain. */
+        private int gainRight;
+        /** Sound priority. */
+        private int priority;
+        /** Play order. */
+        private long order;
+
+        /**
+         * Create voice.
+         */
+        Voice()
+        {
+            super();
+        }
+
+        /**
+         * Start playing.
+         * 
+         * @param request The play request.
+         * @param order The play order.
+         */
+        void start(Request request, long order)
+        {
+            owner = request.owner;
+            sample = request.sample;
+            gainLeft = request.gainLeft;
+            gainRight = request.gainRight;
+            priority = request.priority;
+            this.order = order;
+            position = 0L;
+            step = ((long) sample.getRate() << POSITION_SHIFT) / RATE;
+        }
+
+        /**
+         * Mix voice in accumulators. Voice is cleared once sample is fully played.
+         * 
+         * @param left The left accumulator.
+         * @param right The right accumulator.
+         * @param frames The frames number.
+         */
+        void mix(int[] left, int[] right, int frames)
+        {
+            final int total = sample.getFrames();
+            for (int i = 0; i < frames; i++)
+            {
+                final int frame = (int) (position >> POSITION_SHIFT);
+                if (frame >= total)
+                {
+                    clear();
+                    return;
+                }
+                left[i] += sample.get(frame, 0) * gainLeft >> GAIN_SHIFT;
+                right[i] += sample.get(frame, 1) * gainRight >> GAIN_SHIFT;
+                position += step;
+            }
+        }
+
+        /**
+         * Stop playing.
+         */
+        void clear()
+        {
+            owner = null;
+            sample = null;
+        }
+    }
+}
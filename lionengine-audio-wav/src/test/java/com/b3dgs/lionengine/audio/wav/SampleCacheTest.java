@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.audio.wav;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+
+/**
+ * Test decoded sounds cache.
+ */
+public class SampleCacheTest
+{
+    /** Sound frames. */
+    private static final int FRAMES = 100;
+    /** Sound size in bytes. */
+    private static final int SIZE = FRAMES * 2;
+    /** First sound. */
+    private static Media sound1;
+    /** Second sound. */
+    private static Media sound2;
+    /** Third sound. */
+    private static Media sound3;
+
+    /**
+     * Prepare the test.
+     * 
+     * @throws IOException If error.
+     */
+    @BeforeClass
+    public static void prepareTest() throws IOException
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+        sound1 = create("sound1.wav", 1);
+        sound2 = create("sound2.wav", 2);
+        sound3 = create("sound3.wav", 3);
+    }
+
+    /**
+     * Clean up tests.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Assert.assertTrue(sound1.getFile().delete());
+        Assert.assertTrue(sound2.getFile().delete());
+        Assert.assertTrue(sound3.getFile().delete());
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    /**
+     * Create a mono 16 bits sound file.
+     * 
+     * @param name The file name.
+     * @param value The samples value.
+     * @return The sound media.
+     * @throws IOException If error.
+     */
+    private static Media create(String name, int value) throws IOException
+    {
+        final byte[] data = new byte[SIZE];
+        for (int i = 0; i < FRAMES; i++)
+        {
+            data[i * 2] = (byte) value;
+        }
+        final AudioFormat format = new AudioFormat(22050, Sample.BITS, 1, true, false);
+        final AudioInputStream input = new AudioInputStream(new ByteArrayInputStream(data), format, FRAMES);
+        final Media media = Medias.create(name);
+        AudioSystem.write(input, AudioFileFormat.Type.WAVE, media.getFile());
+        return media;
+    }
+
+    /**
+     * Test with invalid budget.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidBudget()
+    {
+        Assert.assertNotNull(new SampleCache(-1, false));
+    }
+
+    /**
+     * Test hits and misses.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testStatistics() throws IOException
+    {
+        final SampleCache cache = new SampleCache();
+
+        Assert.assertNull(cache.getCached(sound1));
+
+        final Sample sample = cache.get(sound1);
+
+        Assert.assertEquals(FRAMES, sample.getFrames());
+        Assert.assertEquals(1, sample.get(0, 0));
+        Assert.assertEquals(22050, sample.getRate());
+        Assert.assertSame(sample, cache.get(sound1));
+        Assert.assertSame(sample, cache.getCached(sound1));
+        Assert.assertEquals(2L, cache.getHits());
+        Assert.assertEquals(1L, cache.getMisses());
+        Assert.assertEquals(1, cache.getCount());
+        Assert.assertEquals(SIZE, cache.getSize());
+
+        cache.evict(sound1);
+
+        Assert.assertFalse(cache.contains(sound1));
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Test least recently used eviction.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testBudget() throws IOException
+    {
+        final SampleCache cache = new SampleCache(SIZE * 2, true);
+        cache.preload(Arrays.asList(sound1, sound2));
+
+        Assert.assertEquals(0L, cache.getMisses());
+        Assert.assertEquals(2, cache.get(sound2).get(FRAMES - 1, 1));
+        Assert.assertEquals(1, cache.get(sound1).get(0, 0));
+
+        cache.get(sound3);
+
+        Assert.assertTrue(cache.contains(sound1));
+        Assert.assertFalse(cache.contains(sound2));
+        Assert.assertTrue(cache.contains(sound3));
+        Assert.assertEquals(1L, cache.getEvictions());
+        Assert.assertEquals(SIZE * 2, cache.getSize());
+
+        final SampleCache small = new SampleCache(SIZE - 1, false);
+
+        Assert.assertNotNull(small.get(sound1));
+        Assert.assertEquals(0, small.getCount());
+
+        cache.clear();
+
+        Assert.assertEquals(0, cache.getCount());
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Test sound larger than budget is detected before decoding it.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testCacheable() throws IOException
+    {
+        final SampleCache cache = new SampleCache(SIZE, false);
+        final AudioInputStream input = WavImpl.openStream(sound1);
+        try
+        {
+            Assert.assertEquals(SIZE, Sample.getDecodedSize(input));
+            Assert.assertTrue(cache.isCacheable(Sample.getDecodedSize(input)));
+            Assert.assertFalse(cache.isCacheable(SIZE + 1));
+            Assert.assertFalse(cache.isCacheable(-1));
+
+            Assert.assertEquals(1, cache.get(sound1, input).get(0, 0));
+            Assert.assertSame(cache.getCached(sound1), cache.get(sound1));
+            Assert.assertEquals(1L, cache.getMisses());
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Test preload with invalid sound.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testPreloadInvalid()
+    {
+        new SampleCache().preload(Arrays.asList(Medias.create("invalid.wav")));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.audio.wav;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.util.UtilReflection;
+
+/**
+ * Test wav played by software mixer.
+ */
+public class WavMixedTest
+{
+    /** Sound frames. */
+    private static final int FRAMES = 100;
+    /** Sound file. */
+    private static Media sound;
+
+    /**
+     * Prepare the test.
+     * 
+     * @throws IOException If error.
+     */
+    @BeforeClass
+    public static void prepareTest() throws IOException
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+        final byte[] data = new byte[FRAMES * 2];
+        final AudioFormat format = new AudioFormat(WavMixer.RATE, Sample.BITS, 1, true, false);
+        final AudioInputStream input = new AudioInputStream(new ByteArrayInputStream(data), format, FRAMES);
+        sound = Medias.create("mixed.wav");
+        AudioSystem.write(input, AudioFileFormat.Type.WAVE, sound.getFile());
+    }
+
+    /**
+     * Clean up tests.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Assert.assertTrue(sound.getFile().delete());
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    /**
+     * Create a mixer without mixing thread, mixed manually. A thread which is never started is set as the mixing one.
+     * 
+     * @return The created mixer.
+     */
+    private static WavMixer createMixer()
+    {
+        final WavMixer mixer = new WavMixer(2);
+        try
+        {
+            final Field field = WavMixer.class.getDeclaredField("thread");
+            UtilReflection.setAccessible(field, true);
+            field.set(mixer, new Thread());
+        }
+        catch (final NoSuchFieldException exception)
+        {
+            throw new LionEngineException(exception);
+        }
+        catch (final IllegalAccessException exception)
+        {
+            throw new LionEngineException(exception);
+        }
+        return mixer;
+    }
+
+    /**
+     * Play sound with decoding delayed until latch is released.
+     * 
+     * @param executor The decoding executor.
+     * @param wav The sound to play.
+     * @param stop <code>true</code> to stop sound before decoding, <code>false</code> else.
+     * @throws InterruptedException If interrupted.
+     */
+    private static void play(ExecutorService executor, Wav wav, boolean stop) throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    latch.await();
+                }
+                catch (final InterruptedException exception)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        wav.play();
+        if (stop)
+        {
+            wav.stop();
+        }
+        latch.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5L, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test play once decoded.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testPlay() throws InterruptedException
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final WavMixer mixer = createMixer();
+        play(executor, new WavMixed(executor, new SampleCache(), mixer, sound), false);
+        mixer.mix(new byte[WavMixer.PERIOD * WavMixer.FRAME_BYTES], 1);
+
+        Assert.assertEquals(1, mixer.getPlaying());
+    }
+
+    /**
+     * Test stop before play decoding is done.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testStopBeforeDecoded() throws InterruptedException
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final WavMixer mixer = createMixer();
+        play(executor, new WavMixed(executor, new SampleCache(), mixer, sound), true);
+        mixer.mix(new byte[WavMixer.PERIOD * WavMixer.FRAME_BYTES], 1);
+
+        Assert.assertEquals(0, mixer.getPlaying());
+    }
+}
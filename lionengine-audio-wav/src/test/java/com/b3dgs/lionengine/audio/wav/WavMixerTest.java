@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.audio.wav;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.Mixer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Align;
+import com.b3dgs.lionengine.LionEngineException;
+
+/**
+ * Test wav software mixer.
+ */
+public class WavMixerTest
+{
+    /**
+     * Create a mono sample.
+     * 
+     * @param rate The sample rate.
+     * @param values The sample values.
+     * @return The created sample.
+     */
+    private static Sample createSamples(int rate, int... values)
+    {
+        final ByteBuffer data = ByteBuffer.allocate(values.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (final int value : values)
+        {
+            data.putShort((short) value);
+        }
+        return new Sample(data, 1, rate);
+    }
+
+    /**
+     * Create a constant mono sample.
+     * 
+     * @param value The sample value.
+     * @param frames The frames number.
+     * @param rate The sample rate.
+     * @return The created sample.
+     */
+    private static Sample create(int value, int frames, int rate)
+    {
+        final int[] values = new int[frames];
+        for (int i = 0; i < frames; i++)
+        {
+            values[i] = value;
+        }
+        return createSamples(rate, values);
+    }
+
+    /**
+     * Get the output sample.
+     * 
+     * @param out The output buffer.
+     * @param frame The frame index.
+     * @param channel The channel index.
+     * @return The sample value.
+     */
+    private static int get(byte[] out, int frame, int channel)
+    {
+        final int index = (frame * WavMixer.CHANNELS + channel) * 2;
+        return (short) (out[index] & 0xFF | out[index + 1] << Byte.SIZE);
+    }
+
+    /** Output buffer. */
+    private final byte[] out = new byte[WavMixer.PERIOD * WavMixer.FRAME_BYTES];
+
+    /**
+     * Test with invalid voices number.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidVoices()
+    {
+        Assert.assertNotNull(new WavMixer(0));
+    }
+
+    /**
+     * Test mixing with volume, alignment and resampling.
+     */
+    @Test
+    public void testMix()
+    {
+        final WavMixer mixer = new WavMixer(4);
+        mixer.play(this, createSamples(WavMixer.RATE, 1000, -1000, 2000), 100, Align.CENTER, 0);
+        mixer.play(this, create(400, 2, WavMixer.RATE / 2), 50, Align.LEFT, 0);
+        mixer.play(this, create(800, 1, WavMixer.RATE), 50, Align.RIGHT, 0);
+
+        Assert.assertEquals(out.length, mixer.mix(out, WavMixer.PERIOD));
+
+        Assert.assertEquals(1200, get(out, 0, 0));
+        Assert.assertEquals(1400, get(out, 0, 1));
+        Assert.assertEquals(-800, get(out, 1, 0));
+        Assert.assertEquals(-1000, get(out, 1, 1));
+        Assert.assertEquals(2200, get(out, 2, 0));
+        Assert.assertEquals(2000, get(out, 2, 1));
+        Assert.assertEquals(200, get(out, 3, 0));
+        Assert.assertEquals(0, get(out, 3, 1));
+        Assert.assertEquals(0, get(out, 4, 0));
+        Assert.assertEquals(0, mixer.getPlaying());
+    }
+
+    /**
+     * Test mixing saturation.
+     */
+    @Test
+    public void testClamp()
+    {
+        final WavMixer mixer = new WavMixer(2);
+        mixer.play(this, create(30000, 1, WavMixer.RATE), 100, Align.CENTER, 0);
+        mixer.play(this, create(30000, 1, WavMixer.RATE), 100, Align.LEFT, 0);
+        mixer.mix(out, WavMixer.PERIOD);
+
+        Assert.assertEquals(Short.MAX_VALUE, get(out, 0, 0));
+        Assert.assertEquals(30000, get(out, 0, 1));
+    }
+
+    /**
+     * Test voice stealing by priority.
+     */
+    @Test
+    public void testSteal()
+    {
+        final WavMixer mixer = new WavMixer(2);
+        final int frames = WavMixer.PERIOD * 4;
+        mixer.play(this, create(1, frames, WavMixer.RATE), 100, Align.CENTER, 1);
+        mixer.play(this, create(10, frames, WavMixer.RATE), 100, Align.CENTER, 2);
+        mixer.mix(out, WavMixer.PERIOD);
+
+        Assert.assertEquals(2, mixer.getPlaying());
+        Assert.assertEquals(11, get(out, 0, 0));
+
+        mixer.play(this, create(100, frames, WavMixer.RATE), 100, Align.CENTER, 0);
+        mixer.mix(out, WavMixer.PERIOD);
+
+        Assert.assertEquals(11, get(out, 0, 0));
+
+        mixer.play(this, create(1000, frames, WavMixer.RATE), 100, Align.CENTER, 1);
+        mixer.mix(out, WavMixer.PERIOD);
+
+        Assert.assertEquals(1010, get(out, 0, 0));
+
+        mixer.play(this, create(2000, frames, WavMixer.RATE), 100, Align.CENTER, 1);
+        mixer.mix(out, WavMixer.PERIOD);
+
+        Assert.assertEquals(2010, get(out, 0, 0));
+    }
+
+    /**
+     * Test stop by owner.
+     */
+    @Test
+    public void testStop()
+    {
+        final WavMixer mixer = new WavMixer(2);
+        final Object other = new Object();
+        mixer.play(this, create(1, WavMixer.PERIOD * 2, WavMixer.RATE), 100, Align.CENTER, 0);
+        mixer.play(other, create(10, WavMixer.PERIOD * 4, WavMixer.RATE), 100, Align.CENTER, 0);
+        mixer.mix(out, WavMixer.PERIOD);
+        mixer.stop(this);
+        mixer.mix(out, WavMixer.PERIOD);
+
+        Assert.assertEquals(1, mixer.getPlaying());
+        Assert.assertEquals(10, get(out, 0, 0));
+
+        mixer.close();
+        mixer.play(this, create(1, 1, WavMixer.RATE), 100, Align.CENTER, 0);
+        mixer.mix(out, WavMixer.PERIOD);
+
+        Assert.assertEquals(10, get(out, 0, 0));
+    }
+
+    /**
+     * Test start just after close, with an unavailable line. Close waits for the mixing thread, start reopens mixer
+     * and line failure keeps the last requests.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testCloseStart() throws InterruptedException
+    {
+        WavFormat.setMixer(new Mixer.Info("none", "none", "none", "none")
+        {
+            // Mock
+        });
+        final WavMixer mixer = new WavMixer(2);
+        try
+        {
+            mixer.start();
+            mixer.close();
+
+            Assert.assertFalse(mixer.isStarted());
+
+            mixer.start();
+            mixer.play(this, create(10, 1, WavMixer.RATE), 100, Align.CENTER, 0);
+
+            final long end = System.currentTimeMillis() + 5000L;
+            while (mixer.isStarted() && System.currentTimeMillis() < end)
+            {
+                Thread.sleep(1L);
+            }
+            Assert.assertFalse(mixer.isStarted());
+
+            mixer.mix(out, WavMixer.PERIOD);
+
+            Assert.assertEquals(10, get(out, 0, 0));
+        }
+        finally
+        {
+            mixer.close();
+            WavFormat.setMixer(null);
+        }
+    }
+}
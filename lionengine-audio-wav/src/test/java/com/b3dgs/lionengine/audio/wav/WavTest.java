@@ -135,4 +135,29 @@ public class WavTest
         Thread.sleep(50);
         sound.stop();
     }
+
+    /**
+     * Test wav functions with software mixer.
+     * 
+     * @throws InterruptedException If error.
+     */
+    @Test
+    public void testWavMixer() throws InterruptedException
+    {
+        final WavFormat format = new WavFormat(4);
+        final Wav mixed = format.loadAudio(mediaSound);
+        mixed.setVolume(50);
+        mixed.setPriority(1);
+
+        mixed.play();
+        Thread.sleep(150);
+        mixed.play(Align.LEFT);
+        mixed.play(Align.RIGHT);
+        Thread.sleep(150);
+        mixed.stop();
+
+        final Wav invalid = format.loadAudio(Medias.create("invalid.wav"));
+        invalid.play();
+        Thread.sleep(100);
+    }
 }
@@ -18,53 +18,60 @@
 package com.b3dgs.lionengine.core.filter;
 
 import com.b3dgs.lionengine.Constant;
-import com.b3dgs.lionengine.graphic.Filter;
-import com.b3dgs.lionengine.graphic.Graphics;
-import com.b3dgs.lionengine.graphic.ImageBuffer;
-import com.b3dgs.lionengine.graphic.Transform;
 import com.b3dgs.lionengine.util.UtilMath;
 
 /**
  * Bilinear filter implementation.
  */
-public class FilterBilinear implements Filter
+public class FilterBilinear extends FilterPixels
 {
+    /** Filter radius. */
+    private static final int RADIUS = 1;
+    /** Division table. */
+    private static final int[] DIVIDE = createDivide(RADIUS);
+
+    /**
+     * Create the division table.
+     * 
+     * @param radius The radius used.
+     * @return The division table.
+     */
+    private static int[] createDivide(int radius)
+    {
+        final int tableSize = 2 * radius + 1;
+        final int[] divide = new int[Constant.UNSIGNED_BYTE * tableSize];
+
+        for (int i = 0; i < Constant.UNSIGNED_BYTE * tableSize; i++)
+        {
+            divide[i] = i / tableSize;
+        }
+        return divide;
+    }
+
+    /** Horizontal pass pixels. */
+    private int[] work = new int[0];
+
     /**
      * Create the filter.
      */
     public FilterBilinear()
     {
-        super();
+        super(1);
     }
 
     /*
-     * Filter
+     * FilterPixels
      */
 
     @Override
-    public ImageBuffer filter(ImageBuffer source)
+    protected void compute(int[] src, int[] dst, int width, int height)
     {
-        final int width = source.getWidth();
-        final int height = source.getHeight();
-
-        final int[] inPixels = new int[width * height];
-        final int[] outPixels = new int[width * height];
-        source.getRgb(0, 0, width, height, inPixels, 0, width);
-
-        compute(inPixels, outPixels, width, height, 1);
-        compute(outPixels, inPixels, height, width, 1);
-
-        final ImageBuffer dest = Graphics.createImageBuffer(width, height, source.getTransparency());
-        dest.setRgb(0, 0, width, height, inPixels, 0, width);
-        return dest;
-    }
-
-    @Override
-    public Transform getTransform(double scaleX, double scaleY)
-    {
-        final Transform transform = Graphics.createTransform();
-        transform.scale(scaleX, scaleY);
-        return transform;
+        if (work.length != width * height)
+        {
+            work = new int[width * height];
+        }
+        compute(src, work, width, height, RADIUS);
+        compute(work, dst, height, width, RADIUS);
     }
 
     /**
@@ -79,13 +86,7 @@ public class FilterBilinear implements Filter
     private static void compute(int[] in, int[] out, int width, int height, int radius)
     {
         final int widthMinus1 = width - 1;
-        final int tableSize = 2 * radius + 1;
-        final int[] divide = new int[Constant.UNSIGNED_BYTE * tableSize];
-
-        for (int i = 0; i < Constant.UNSIGNED_BYTE * tableSize; i++)
-        {
-            divide[i] = i / tableSize;
-        }
+        final int[] divide = DIVIDE;
 
         int inIndex = 0;
         for (int y = 0; y < height; y++)
@@ -18,16 +18,13 @@
 package com.b3dgs.lionengine.core.filter;
 
 import com.b3dgs.lionengine.Constant;
-import com.b3dgs.lionengine.graphic.Filter;
-import com.b3dgs.lionengine.graphic.Graphics;
-import com.b3dgs.lionengine.graphic.ImageBuffer;
-import com.b3dgs.lionengine.graphic.Transform;
+import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.util.UtilMath;
 
 /**
  * Blur filter implementation.
  */
-public class FilterBlur implements Filter
+public class FilterBlur extends FilterPixels
 {
     /** Clamp edges. */
     public static final int CLAMP_EDGES = 0;
@@ -36,18 +33,39 @@ public class FilterBlur implements Filter
     /** Default radius. */
     private static final float RADIUS_DEFAULT = 1.5F;
 
+    /** Horizontal pass. */
+    private final Pass horizontal = new Pass();
+    /** Vertical pass. */
+    private final Pass vertical = new Pass();
     /** Current radius. */
     private volatile float radius;
     /** Alpha flag. */
     private volatile boolean alpha;
     /** Edge mode. */
     private volatile int edge;
+    /** Kernel for the current radius. */
+    private Kernel kernel;
+    /** Horizontal pass pixels. */
+    private int[] work = new int[0];
 
     /**
-     * Create the filter.
+     * Create the filter, computed on the calling thread.
      */
     public FilterBlur()
     {
+        this(1);
+    }
+
+    /**
+     * Create the filter.
+     * 
+     * @param bands The maximum bands computed in parallel (<code>1</code> to compute on the calling thread).
+     * @throws LionEngineException If invalid argument.
+     */
+    public FilterBlur(int bands)
+    {
+        super(1, bands);
+
         radius = RADIUS_DEFAULT;
         alpha = true;
         edge = CLAMP_EDGES;
@@ -86,94 +104,33 @@ public class FilterBlur implements Filter
     }
 
     /*
-     * Filter
+     * FilterPixels
      */
 
     @Override
-    public ImageBuffer filter(ImageBuffer source)
+    protected void compute(int[] src, int[] dst, int width, int height)
     {
-        final int width = source.getWidth();
-        final int height = source.getHeight();
-
-        final int[] inPixels = new int[width * height];
-        final int[] outPixels = new int[width * height];
-        source.getRgb(0, 0, width, height, inPixels, 0, width);
-
-        final Kernel kernel = createKernel(radius, width, height);
-        compute(kernel, inPixels, outPixels, width, height, alpha, edge);
-        compute(kernel, outPixels, inPixels, height, width, alpha, edge);
-
-        final ImageBuffer dest = Graphics.createImageBuffer(width, height, source.getTransparency());
-        dest.setRgb(0, 0, width, height, inPixels, 0, width);
-        return dest;
-    }
-
-    @Override
-    public Transform getTransform(double scaleX, double scaleY)
-    {
-        final Transform transform = Graphics.createTransform();
-        transform.scale(scaleX, scaleY);
-        return transform;
-    }
-
-    /**
-     * Compute blur.
-     * 
-     * @param kernel The kernel used.
-     * @param in The source pixels.
-     * @param out The destination pixels.
-     * @param width The image width.
-     * @param height The image height.
-     * @param alpha The alpha flag.
-     * @param edge The edge flag.
-     */
-    private static void compute(Kernel kernel, int[] in, int[] out, int width, int height, boolean alpha, int edge)
-    {
-        final float[] matrix = kernel.getMatrix();
-        final int cols = kernel.getWidth();
-        final int cols2 = cols / 2;
-
-        for (int y = 0; y < height; y++)
+        final float current = radius;
+        if (kernel == null || Float.compare(kernel.getRadius(), current) != 0)
         {
-            int index = y;
-            final int ioffset = y * width;
-            for (int x = 0; x < width; x++)
-            {
-                float r = 0;
-                float g = 0;
-                float b = 0;
-                float a = 0;
-
-                final int moffset = cols2;
-                for (int col = -cols2; col <= cols2; col++)
-                {
-                    final float f = matrix[moffset + col];
-                    if (Double.doubleToRawLongBits(f) != 0L)
-                    {
-                        final int ix = checkEdge(width, x, col, edge);
-                        final int rgb = in[ioffset + ix];
-                        a += f * (rgb >> Constant.BYTE_4 & 0xff);
-                        r += f * (rgb >> Constant.BYTE_3 & 0xff);
-                        g += f * (rgb >> Constant.BYTE_2 & 0xff);
-                        b += f * (rgb & 0xff);
-                    }
-                }
-                final int ia;
-                if (alpha)
-                {
-                    ia = clamp((int) (a + Constant.HALF));
-                }
-                else
-                {
-                    ia = 0xff;
-                }
-                final int ir = clamp((int) (r + 0.5));
-                final int ig = clamp((int) (g + 0.5));
-                final int ib = clamp((int) (b + 0.5));
-                out[index] = ia << Constant.BYTE_4 | ir << Constant.BYTE_3 | ig << Constant.BYTE_2 | ib;
-                index += height;
-            }
+            kernel = createKernel(current);
+        }
+        if (work.length != width * height)
+        {
+            work = new int[width * height];
         }
+        horizontal.prepare(kernel, src, work, width, height);
+        vertical.prepare(kernel, work, dst, height, width);
+        final boolean currentAlpha = alpha;
+        final int currentEdge = edge;
+        horizontal.alpha = currentAlpha;
+        vertical.alpha = currentAlpha;
+        horizontal.edge = currentEdge;
+        vertical.edge = currentEdge;
+
+        // Vertical pass needs all horizontal pass rows
+        computeBands(horizontal, height);
+        computeBands(vertical, width);
     }
 
     /**
@@ -217,11 +174,9 @@ public class FilterBlur implements Filter
      * Create a blur kernel.
      * 
      * @param radius The blur radius.
-     * @param width The image width.
-     * @param height The image height.
      * @return The blur kernel.
      */
-    private static Kernel createKernel(float radius, int width, int height)
+    private static Kernel createKernel(float radius)
     {
         final int r = (int) Math.ceil(radius);
         final int rows = r * 2 + 1;
@@ -255,10 +210,7 @@ public class FilterBlur implements Filter
             }
         }
 
-        final float[] data = new float[width * height];
-        System.arraycopy(matrix, 0, data, 0, rows);
-
-        return new Kernel(rows, data);
+        return new Kernel(radius, rows, matrix);
     }
 
     /**
@@ -277,6 +229,8 @@ public class FilterBlur implements Filter
      */
     private static class Kernel
     {
+        /** Kernel radius. */
+        private final float radius;
         /** Kernel width. */
         private final int width;
         /** Kernel matrix. */
@@ -285,15 +239,27 @@ public class FilterBlur implements Filter
         /**
          * Create the kernel.
          * 
+         * @param radius The kernel radius.
          * @param width The kernel width.
          * @param matrix The kernel matrix.
          */
-        Kernel(int width, float[] matrix)
+        Kernel(float radius, int width, float[] matrix)
         {
+            this.radius = radius;
             this.width = width;
             this.matrix = matrix;
         }
 
+        /**
+         * Get the kernel radius.
+         * 
+         * @return The kernel radius.
+         */
+        public float getRadius()
+        {
+            return radius;
+        }
+
         /**
          * Get the matrix width.
          * 
@@ -314,4 +280,105 @@ public class FilterBlur implements Filter
             return matrix;
         }
     }
+
+    /**
+     * Blur pass, blurring rows and writing them as columns.
+     */
+    private static final class Pass implements Band
+    {
+        /** Kernel used. */
+        private Kernel kernel;
+        /** Source pixels. */
+        private int[] in;
+        /** Destination pixels. */
+        private int[] out;
+        /** Source width. */
+        private int width;
+        /** Source height. */
+        private int height;
+        /** Alpha flag. */
+        private boolean alpha;
+        /** Edge flag. */
+        private int edge;
+
+        /**
+         * Create pass.
+         */
+        Pass()
+        {
+            super();
+        }
+
+        /**
+         * Prepare pass.
+         * 
+         * @param kernel The kernel used.
+         * @param in The source pixels.
+         * @param out The destination pixels.
+         * @param width The source width.
+         * @param height The source height.
+         */
+        void prepare(Kernel kernel, int[] in, int[] out, int width, int height)
+        {
+            this.kernel = kernel;
+            this.in = in;
+            this.out = out;
+            this.width = width;
+            this.height = height;
+        }
+
+        /*
+         * Band
+         */
+
+        @Override
+        public void compute(int start, int end)
+        {
+            final float[] matrix = kernel.getMatrix();
+            final int cols = kernel.getWidth();
+            final int cols2 = cols / 2;
+
+            for (int y = start; y < end; y++)
+            {
+                int index = y;
+                final int ioffset = y * width;
+                for (int x = 0; x < width; x++)
+                {
+                    float r = 0;
+                    float g = 0;
+                    float b = 0;
+                    float a = 0;
+
+                    final int moffset = cols2;
+                    for (int col = -cols2; col <= cols2; col++)
+                    {
+                        final float f = matrix[moffset + col];
+                        if (Double.doubleToRawLongBits(f) != 0L)
+                        {
+                            final int ix = checkEdge(width, x, col, edge);
+                            final int rgb = in[ioffset + ix];
+                            a += f * (rgb >> Constant.BYTE_4 & 0xff);
+                            r += f * (rgb >> Constant.BYTE_3 & 0xff);
+                            g += f * (rgb >> Constant.BYTE_2 & 0xff);
+                            b += f * (rgb & 0xff);
+                        }
+                    }
+                    final int ia;
+                    if (alpha)
+                    {
+                        ia = clamp((int) (a + Constant.HALF));
+                    }
+                    else
+                    {
+                        ia = 0xff;
+                    }
+                    final int ir = clamp((int) (r + 0.5));
+                    final int ig = clamp((int) (g + 0.5));
+                    final int ib = clamp((int) (b + 0.5));
+                    out[index] = ia << Constant.BYTE_4 | ir << Constant.BYTE_3 | ig << Constant.BYTE_2 | ib;
+                    index += height;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.core.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+
+/**
+ * Chain of pixels filters, applied in order, each one filtering the previous one pixels without intermediate images.
+ * The chain scale factor is the product of the filters scale factor.
+ * <p>
+ * Usage: <code>sequence.setFilter(new FilterChain(new FilterHq2x(), new FilterBlur()));</code>
+ * </p>
+ */
+public final class FilterChain extends FilterPixels
+{
+    /**
+     * Get the chain scale factor.
+     * 
+     * @param filters The chained filters.
+     * @return The product of the filters scale factor.
+     * @throws LionEngineException If invalid arguments.
+     */
+    private static int getScale(FilterPixels... filters)
+    {
+        Check.notNull(filters);
+
+        int scale = 1;
+        for (final FilterPixels filter : filters)
+        {
+            Check.notNull(filter);
+            scale *= filter.getScale();
+        }
+        return scale;
+    }
+
+    /** Chained filters. */
+    private final List<FilterPixels> filters = new ArrayList<FilterPixels>();
+
+    /**
+     * Create the chain.
+     * 
+     * @param filters The filters to apply in order.
+     * @throws LionEngineException If invalid arguments.
+     */
+    public FilterChain(FilterPixels... filters)
+    {
+        super(getScale(filters));
+
+        for (final FilterPixels filter : filters)
+        {
+            this.filters.add(filter);
+        }
+    }
+
+    /*
+     * FilterPixels
+     */
+
+    @Override
+    protected void compute(int[] src, int[] dst, int width, int height)
+    {
+        int[] pixels = src;
+        int currentWidth = width;
+        int currentHeight = height;
+        final int count = filters.size();
+        for (int i = 0; i < count; i++)
+        {
+            final FilterPixels filter = filters.get(i);
+            pixels = filter.filter(pixels, currentWidth, currentHeight);
+            currentWidth *= filter.getScale();
+            currentHeight *= filter.getScale();
+        }
+        System.arraycopy(pixels, 0, dst, 0, currentWidth * currentHeight);
+    }
+}
@@ -17,67 +17,67 @@
  */
 package com.b3dgs.lionengine.core.filter;
 
-import com.b3dgs.lionengine.graphic.Filter;
-import com.b3dgs.lionengine.graphic.Graphics;
-import com.b3dgs.lionengine.graphic.ImageBuffer;
-import com.b3dgs.lionengine.graphic.Transform;
-import com.b3dgs.lionengine.graphic.Transparency;
+import com.b3dgs.lionengine.LionEngineException;
 
 /**
  * HQ2X implementation.
- * <p>
- * This class is Thread-Safe.
- * </p>
  */
-public final class FilterHq2x implements Filter
+public final class FilterHq2x extends FilterPixels
 {
     /** Scale factor. */
     public static final int SCALE = 2;
 
+    /** Scaler for the current source size. */
+    private RawScale2x scaler;
+
     /**
-     * Create an Hq2x filter.
+     * Create an Hq2x filter, computed on the calling thread.
      */
     public FilterHq2x()
     {
-        super();
+        super(SCALE);
     }
 
-    /*
-     * Filter
+    /**
+     * Create an Hq2x filter.
+     * 
+     * @param bands The maximum bands computed in parallel (<code>1</code> to compute on the calling thread).
+     * @throws LionEngineException If invalid argument.
      */
-
-    @Override
-    public ImageBuffer filter(ImageBuffer source)
+    public FilterHq2x(int bands)
     {
-        final int width = source.getWidth();
-        final int height = source.getHeight();
-        final int[] srcData = new int[width * height];
-        source.getRgb(0, 0, width, height, srcData, 0, width);
-
-        final RawScale2x scaler = new RawScale2x(width, height);
-        final ImageBuffer image = Graphics.createImageBuffer(width * SCALE, height * SCALE, Transparency.OPAQUE);
-        image.setRgb(0, 0, width * SCALE, height * SCALE, scaler.getScaledData(srcData), 0, width * SCALE);
-
-        return image;
+        super(SCALE, bands);
     }
 
+    /*
+     * FilterPixels
+     */
+
     @Override
-    public Transform getTransform(double scaleX, double scaleY)
+    protected void compute(int[] src, int[] dst, int width, int height)
     {
-        final Transform transform = Graphics.createTransform();
-        transform.scale(scaleX / SCALE, scaleY / SCALE);
-        return transform;
+        if (scaler == null || scaler.width != width || scaler.height != height)
+        {
+            scaler = new RawScale2x(width, height);
+        }
+        scaler.src = src;
+        scaler.dst = dst;
+        computeBands(scaler, height);
     }
 
     /**
      * The raw scale implementation.
      */
-    private static final class RawScale2x
+    private static final class RawScale2x implements Band
     {
         /** Width. */
         private final int width;
         /** Height. */
         private final int height;
+        /** Current source. */
+        private int[] src;
+        /** Current destination. */
+        private int[] dst;
 
         /**
          * Internal constructor.
@@ -167,25 +167,20 @@ public final class FilterHq2x implements Filter
             setDestPixel(dstImage, x * SCALE + 1, y * SCALE + 1, e3);
         }
 
-        /**
-         * Get the scaled data.
-         * 
-         * @param srcImage The image source.
-         * @return The data array.
+        /*
+         * Band
          */
-        public int[] getScaledData(int[] srcImage)
-        {
-            final int[] dstImage = new int[srcImage.length * SCALE * SCALE];
 
-            for (int y = 0; y < height; y++)
+        @Override
+        public void compute(int start, int end)
+        {
+            for (int y = start; y < end; y++)
             {
                 for (int x = 0; x < width; x++)
                 {
-                    process(srcImage, dstImage, x, y);
+                    process(src, dst, x, y);
                 }
             }
-
-            return dstImage;
         }
     }
 }
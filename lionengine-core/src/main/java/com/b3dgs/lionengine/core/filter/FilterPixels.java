@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.core.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.graphic.Filter;
+import com.b3dgs.lionengine.graphic.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Transform;
+import com.b3dgs.lionengine.graphic.Transparency;
+
+/**
+ * Base filter working on pixels arrays.
+ * <p>
+ * The filter owns its source and destination pixels and its output image, which are only reallocated when the source
+ * size (the sequence resolution) changes. The same output image is then returned on each call of
+ * {@link #filter(ImageBuffer)}, and is valid until the next call.
+ * </p>
+ * <p>
+ * Pixels filters can be chained without intermediate images with {@link FilterChain}.
+ * </p>
+ * <p>
+ * Filters computing rows independently can split them in horizontal bands with {@link #computeBands(Band, int)},
+ * processed in parallel by a pool shared by all filters when created with more than one band. Bands read the whole
+ * source, so that rows on band borders see their neighbors, and output is the same as a serial computation.
+ * </p>
+ */
+public abstract class FilterPixels implements Filter
+{
+    /** Minimum rows per band. */
+    private static final int MIN_BAND_ROWS = 8;
+    /** Interrupted error. */
+    private static final String ERROR_INTERRUPTED = "Filter interrupted !";
+    /** Bands workers, shared by all filters. */
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /**
+     * Create the bands workers.
+     * 
+     * @return The bands workers.
+     */
+    private static ExecutorService createExecutor()
+    {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, FilterPixels.class.getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /** Bands tasks. */
+    private final List<BandTask> tasks = new ArrayList<BandTask>();
+    /** Scale factor. */
+    private final int scale;
+    /** Maximum bands count. */
+    private final int bands;
+    /** Source pixels. */
+    private int[] source = new int[0];
+    /** Destination pixels. */
+    private int[] destination = new int[0];
+    /** Output image. */
+    private ImageBuffer output;
+    /** Current source width. */
+    private int width;
+    /** Current source height. */
+    private int height;
+
+    /**
+     * Create serial filter.
+     * 
+     * @param scale The scale factor applied to the source size (strictly positive).
+     * @throws LionEngineException If invalid argument.
+     */
+    protected FilterPixels(int scale)
+    {
+        this(scale, 1);
+    }
+
+    /**
+     * Create filter.
+     * 
+     * @param scale The scale factor applied to the source size (strictly positive).
+     * @param bands The maximum bands computed in parallel (<code>1</code> to compute on the calling thread).
+     * @throws LionEngineException If invalid arguments.
+     */
+    protected FilterPixels(int scale, int bands)
+    {
+        super();
+
+        Check.superiorStrict(scale, 0);
+        Check.superiorStrict(bands, 0);
+
+        this.scale = scale;
+        this.bands = bands;
+        for (int i = 0; i < bands; i++)
+        {
+            tasks.add(new BandTask());
+        }
+    }
+
+    /**
+     * Get the scale factor applied to the source size.
+     * 
+     * @return The scale factor.
+     */
+    public final int getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Apply filter on pixels.
+     * 
+     * @param pixels The source pixels (not modified).
+     * @param width The source width.
+     * @param height The source height.
+     * @return The filtered pixels, sized <code>width * height * scale * scale</code>, owned by the filter and valid
+     *         until the next call.
+     */
+    public final int[] filter(int[] pixels, int width, int height)
+    {
+        prepare(width, height);
+        compute(pixels, destination, width, height);
+        return destination;
+    }
+
+    /**
+     * Get the maximum bands computed in parallel.
+     * 
+     * @return The maximum bands count.
+     */
+    public final int getBands()
+    {
+        return bands;
+    }
+
+    /**
+     * Compute rows, split in bands computed in parallel if filter has more than one band and enough rows.
+     * 
+     * @param band The band computation.
+     * @param rows The number of rows.
+     * @throws LionEngineException If interrupted or computation failed.
+     */
+    protected final void computeBands(Band band, int rows)
+    {
+        final int count = Math.min(bands, rows / MIN_BAND_ROWS);
+        if (count < 2)
+        {
+            band.compute(0, rows);
+            return;
+        }
+        final int size = (rows + count - 1) / count;
+        final List<BandTask> current = tasks.subList(0, count);
+        for (int i = 0; i < count; i++)
+        {
+            final BandTask task = current.get(i);
+            task.band = band;
+            task.start = Math.min(rows, i * size);
+            task.end = Math.min(rows, task.start + size);
+        }
+        try
+        {
+            for (final Future<Void> future : EXECUTOR.invokeAll(current))
+            {
+                future.get();
+            }
+        }
+        catch (final InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new LionEngineException(exception, ERROR_INTERRUPTED);
+        }
+        catch (final ExecutionException exception)
+        {
+            throw new LionEngineException(exception.getCause());
+        }
+    }
+
+    /**
+     * Compute the filter.
+     * 
+     * @param src The source pixels (must not be modified).
+     * @param dst The destination pixels, sized <code>width * height * scale * scale</code>.
+     * @param width The source width.
+     * @param height The source height.
+     */
+    protected abstract void compute(int[] src, int[] dst, int width, int height);
+
+    /**
+     * Allocate pixels buffers if source size changed.
+     * 
+     * @param width The source width.
+     * @param height The source height.
+     */
+    private void prepare(int width, int height)
+    {
+        if (width != this.width || height != this.height)
+        {
+            this.width = width;
+            this.height = height;
+            source = new int[width * height];
+            destination = new int[width * height * scale * scale];
+            output = null;
+        }
+    }
+
+    /*
+     * Filter
+     */
+
+    @Override
+    public ImageBuffer filter(ImageBuffer image)
+    {
+        final int sourceWidth = image.getWidth();
+        final int sourceHeight = image.getHeight();
+        prepare(sourceWidth, sourceHeight);
+
+        final Transparency transparency = image.getTransparency();
+        if (output == null || output.getTransparency() != transparency)
+        {
+            output = Graphics.createImageBuffer(sourceWidth * scale, sourceHeight * scale, transparency);
+        }
+
+        image.getRgb(0, 0, sourceWidth, sourceHeight, source, 0, sourceWidth);
+        compute(source, destination, sourceWidth, sourceHeight);
+        output.setRgb(0, 0, sourceWidth * scale, sourceHeight * scale, destination, 0, sourceWidth * scale);
+        return output;
+    }
+
+    @Override
+    public Transform getTransform(double scaleX, double scaleY)
+    {
+        final Transform transform = Graphics.createTransform();
+        transform.scale(scaleX / scale, scaleY / scale);
+        return transform;
+    }
+
+    /**
+     * Rows computation.
+     */
+    protected interface Band
+    {
+        /**
+         * Compute rows.
+         * 
+         * @param start The first row.
+         * @param end The last row (excluded).
+         */
+        void compute(int start, int end);
+    }
+
+    /**
+     * Band task.
+     */
+    private static final class BandTask implements Callable<Void>
+    {
+        /** Band computation. */
+        private Band band;
+        /** First row. */
+        private int start;
+        /** Last row (excluded). */
+        private int end;
+
+        /**
+         * Create task.
+         */
+        BandTask()
+        {
+            super();
+        }
+
+        /*
+         * Callable
+         */
+
+        @Override
+        public Void call()
+        {
+            band.compute(start, end);
+            return null;
+        }
+    }
+}
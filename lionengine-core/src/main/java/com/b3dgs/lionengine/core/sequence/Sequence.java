@@ -153,7 +153,8 @@ public abstract class Sequence implements Sequencable, Sequencer, ScreenListener
     }
 
     /**
-     * Set the filter to use.
+     * Set the filter to use. Several filters can be applied in order with a
+     * {@link com.b3dgs.lionengine.core.filter.FilterChain}.
      * 
      * @param filter The filter to use (if <code>null</code> then {@link Filter#NO_FILTER} is used).
      */
@@ -20,7 +20,8 @@ package com.b3dgs.lionengine.graphic;
 /**
  * List of supported filters.
  * <p>
- * This class is Thread-Safe.
+ * Implementations may keep their buffers and output image between calls to avoid allocations on each frame, and so a
+ * filter instance must not be used by several renderings at the same time.
  * </p>
  */
 public interface Filter
@@ -76,7 +77,7 @@ public interface Filter
      * Apply a filter to the image source.
      * 
      * @param source The image source.
-     * @return The filtered image.
+     * @return The filtered image (may be reused by the next call).
      */
     ImageBuffer filter(ImageBuffer source);
 
@@ -168,6 +168,17 @@ public final class FileReading implements Closeable
         return in.readUTF();
     }
 
+    /**
+     * Read bytes at once, until array is filled.
+     * 
+     * @param bytes The bytes array to fill.
+     * @throws IOException If read failed or end of file reached before array is filled.
+     */
+    public void readBytes(byte[] bytes) throws IOException
+    {
+        in.readFully(bytes);
+    }
+
     /*
      * Closeable
      */
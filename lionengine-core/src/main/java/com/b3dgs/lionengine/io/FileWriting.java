@@ -168,6 +168,17 @@ public final class FileWriting implements Closeable
         out.writeUTF(s);
     }
 
+    /**
+     * Write bytes at once.
+     * 
+     * @param bytes The bytes to write.
+     * @throws IOException If write failed.
+     */
+    public void writeBytes(byte[] bytes) throws IOException
+    {
+        out.write(bytes);
+    }
+
     /*
      * Closeable
      */
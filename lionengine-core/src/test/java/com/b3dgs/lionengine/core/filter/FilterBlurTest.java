@@ -102,4 +102,17 @@ public class FilterBlurTest
         blur.setRadius(1.0f);
         Assert.assertNotNull(blur.filter(image));
     }
+
+    /**
+     * Test the filter computed in parallel bands, with the same result as serial.
+     */
+    @Test
+    public void testBands()
+    {
+        final FilterBlur filter = new FilterBlur(4);
+
+        Assert.assertEquals(4, filter.getBands());
+
+        UtilFilter.assertBands(new FilterBlur(), filter);
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.core.filter;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.graphic.FactoryGraphicMock;
+import com.b3dgs.lionengine.graphic.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+
+/**
+ * Test the filter chain.
+ */
+public class FilterChainTest
+{
+    /** Image media. */
+    private static Media media;
+
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Medias.setLoadFromJar(FilterChainTest.class);
+        Graphics.setFactoryGraphic(new FactoryGraphicMock());
+
+        media = Medias.create("image.png");
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Medias.setLoadFromJar(null);
+        Graphics.setFactoryGraphic(null);
+    }
+
+    /**
+     * Get image pixels.
+     * 
+     * @param image The image reference.
+     * @return The image pixels.
+     */
+    private static int[] getPixels(ImageBuffer image)
+    {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        return image.getRgb(0, 0, width, height, new int[width * height], 0, width);
+    }
+
+    /**
+     * Test the chain with the same result as filters applied one after the other.
+     */
+    @Test
+    public void testChain()
+    {
+        final ImageBuffer image = Graphics.getImageBuffer(media);
+        int i = 0;
+        for (int y = 0; y < image.getHeight(); y++)
+        {
+            for (int x = 0; x < image.getWidth(); x++)
+            {
+                i++;
+                image.setRgb(x, y, 0xFF000000 | i * 7919 % 0xFFFFFF);
+            }
+        }
+        final FilterChain chain = new FilterChain(new FilterHq2x(), new FilterBlur(), new FilterHq3x());
+        final ImageBuffer filtered = chain.filter(image);
+
+        Assert.assertEquals(6, chain.getScale());
+        Assert.assertNotNull(chain.getTransform(1.0, 1.0));
+        Assert.assertEquals(image.getWidth() * 6, filtered.getWidth());
+        Assert.assertEquals(image.getHeight() * 6, filtered.getHeight());
+
+        final ImageBuffer expected = new FilterHq3x().filter(new FilterBlur().filter(new FilterHq2x().filter(image)));
+        Assert.assertArrayEquals(getPixels(expected), getPixels(filtered));
+
+        Assert.assertSame(filtered, chain.filter(image));
+        Assert.assertArrayEquals(getPixels(expected), getPixels(filtered));
+    }
+
+    /**
+     * Test the chain with <code>null</code> filter.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testNullFilter()
+    {
+        Assert.assertNotNull(new FilterChain(new FilterHq2x(), null));
+    }
+}
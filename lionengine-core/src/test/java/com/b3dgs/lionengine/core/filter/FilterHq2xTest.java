@@ -92,5 +92,19 @@ public class FilterHq2xTest
         Assert.assertNotNull(hq2x.getTransform(1.0, 1.0));
         Assert.assertEquals(image.getWidth() * 2, filtered.getWidth());
         Assert.assertEquals(image.getHeight() * 2, filtered.getHeight());
+        Assert.assertSame(filtered, hq2x.filter(image));
+    }
+
+    /**
+     * Test the filter computed in parallel bands, with the same result as serial.
+     */
+    @Test
+    public void testBands()
+    {
+        final FilterHq2x filter = new FilterHq2x(4);
+
+        Assert.assertEquals(4, filter.getBands());
+
+        UtilFilter.assertBands(new FilterHq2x(), filter);
     }
 }
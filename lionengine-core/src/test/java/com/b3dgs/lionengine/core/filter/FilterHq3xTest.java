@@ -93,4 +93,17 @@ public class FilterHq3xTest
         Assert.assertEquals(image.getWidth() * 3, filtered.getWidth());
         Assert.assertEquals(image.getHeight() * 3, filtered.getHeight());
     }
+
+    /**
+     * Test the filter computed in parallel bands, with the same result as serial.
+     */
+    @Test
+    public void testBands()
+    {
+        final FilterHq3x filter = new FilterHq3x(4);
+
+        Assert.assertEquals(4, filter.getBands());
+
+        UtilFilter.assertBands(new FilterHq3x(), filter);
+    }
 }
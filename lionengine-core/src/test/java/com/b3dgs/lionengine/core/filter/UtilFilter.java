@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.core.filter;
+
+import org.junit.Assert;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.graphic.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Transparency;
+
+/**
+ * Set of utility function related to filter tests.
+ */
+final class UtilFilter
+{
+    /** Test image width. */
+    private static final int WIDTH = 64;
+    /** Test image height, not a multiple of bands number. */
+    private static final int HEIGHT = 67;
+
+    /**
+     * Check that the filter computed in parallel bands gives the same result as the serial one.
+     * 
+     * @param serial The serial filter.
+     * @param bands The filter computed in bands.
+     */
+    static void assertBands(FilterPixels serial, FilterPixels bands)
+    {
+        final ImageBuffer image = Graphics.createImageBuffer(WIDTH, HEIGHT, Transparency.OPAQUE);
+        for (int y = 0; y < HEIGHT; y++)
+        {
+            for (int x = 0; x < WIDTH; x++)
+            {
+                image.setRgb(x, y, 0xFF000000 | (x * 31 + y * 17) % 5 * 0x332211);
+            }
+        }
+        final ImageBuffer expectedImage = serial.filter(image);
+        final ImageBuffer actualImage = bands.filter(image);
+
+        final int[] expected = new int[expectedImage.getWidth() * expectedImage.getHeight()];
+        final int[] actual = new int[actualImage.getWidth() * actualImage.getHeight()];
+        expectedImage.getRgb(0,
+                             0,
+                             expectedImage.getWidth(),
+                             expectedImage.getHeight(),
+                             expected,
+                             0,
+                             expectedImage.getWidth());
+        actualImage.getRgb(0, 0, actualImage.getWidth(), actualImage.getHeight(), actual, 0, actualImage.getWidth());
+
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    /**
+     * Private constructor.
+     */
+    private UtilFilter()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+}
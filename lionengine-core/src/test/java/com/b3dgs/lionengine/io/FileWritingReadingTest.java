@@ -43,6 +43,10 @@ public class FileWritingReadingTest
     private static final long LONG_VALUE = 6L;
     private static final double DOUBLE_VALUE = 7.1;
     private static final String STRING_VALUE = "string";
+    private static final byte[] BYTES_VALUE = new byte[]
+    {
+        8, -9, 10
+    };
 
     /** Default test file data. */
     private Media fileData;
@@ -84,6 +88,7 @@ public class FileWritingReadingTest
             writing.writeLong(LONG_VALUE);
             writing.writeDouble(DOUBLE_VALUE);
             writing.writeString(STRING_VALUE);
+            writing.writeBytes(BYTES_VALUE);
         }
         finally
         {
@@ -112,6 +117,10 @@ public class FileWritingReadingTest
             Assert.assertEquals(LONG_VALUE, reading.readLong());
             Assert.assertEquals(DOUBLE_VALUE, reading.readDouble(), DOUBLE_PRECISION);
             Assert.assertEquals(STRING_VALUE, reading.readString());
+
+            final byte[] bytes = new byte[BYTES_VALUE.length];
+            reading.readBytes(bytes);
+            Assert.assertArrayEquals(BYTES_VALUE, bytes);
         }
         finally
         {
@@ -123,6 +123,12 @@ class WorldClient extends World<NetworkedWorldModelClient> implements NetworkedW
         return networkedWorld.getId();
     }
 
+    @Override
+    public int getSecret()
+    {
+        return networkedWorld.getSecret();
+    }
+
     /*
      * ClientConnectedListener
      */
@@ -17,6 +17,7 @@
  */
 package com.b3dgs.lionengine.game;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,14 +25,42 @@ import com.b3dgs.lionengine.LionEngineException;
 
 /**
  * Features handler representation. Store features by type, allowing quick access from an interface.
+ * <p>
+ * Lookup result of a requested type (found feature or not found) is cached in a per handler open addressing table,
+ * probed by type identity, until a feature is added. No global state is kept, so types are never retained beyond
+ * their handler.
+ * </p>
  */
 public class Features
 {
     /** Feature not found error. */
     private static final String ERROR_FEATURE_NOT_FOUND = "Feature not found: ";
+    /** Not found lookup result. */
+    private static final Object NONE = new Object();
+    /** Initial lookup cache capacity, power of two. */
+    private static final int CACHE_CAPACITY = 8;
+
+    /**
+     * Get the first probed slot of a type.
+     * 
+     * @param type The type reference.
+     * @param mask The table mask.
+     * @return The first slot index.
+     */
+    private static int getSlot(Class<?> type, int mask)
+    {
+        final int hash = System.identityHashCode(type);
+        return (hash ^ hash >>> 16) & mask;
+    }
 
     /** Features handled. */
     private final Map<Class<? extends Feature>, Feature> features;
+    /** Cached types, <code>null</code> for empty slots. */
+    private Class<?>[] types = new Class<?>[CACHE_CAPACITY];
+    /** Lookup results by slot ({@link #NONE} if not found). */
+    private Object[] results = new Object[CACHE_CAPACITY];
+    /** Cached types count. */
+    private int cached;
 
     /**
      * Create features handler.
@@ -48,6 +77,12 @@ public class Features
      */
     public void add(Feature feature)
     {
+        if (cached > 0)
+        {
+            Arrays.fill(types, null);
+            Arrays.fill(results, null);
+            cached = 0;
+        }
         features.put(feature.getClass(), feature);
         for (final Class<?> type : feature.getClass().getInterfaces())
         {
@@ -59,60 +94,125 @@ public class Features
     }
 
     /**
-     * Get a feature from its class or interface.
+     * Get the cached lookup result, resolve it if needed.
      * 
-     * @param <C> The custom feature type.
      * @param feature The feature class or interface.
-     * @return The feature instance.
-     * @throws LionEngineException If the feature was not found.
+     * @return The feature instance, {@link #NONE} if not found.
      */
-    public <C extends Feature> C get(Class<C> feature)
+    private Object lookup(Class<? extends Feature> feature)
     {
-        final C value;
-        if (features.containsKey(feature))
+        final int mask = types.length - 1;
+        int slot = getSlot(feature, mask);
+        while (types[slot] != null)
+        {
+            if (types[slot] == feature)
+            {
+                return results[slot];
+            }
+            slot = slot + 1 & mask;
+        }
+        final Object value = resolve(feature);
+        if ((cached + 1) * 2 > types.length)
         {
-            value = feature.cast(features.get(feature));
+            grow();
+            store(feature, value);
         }
         else
         {
-            for (final Feature current : features.values())
+            types[slot] = feature;
+            results[slot] = value;
+        }
+        cached++;
+        return value;
+    }
+
+    /**
+     * Double the lookup cache capacity, keeping cached results.
+     */
+    private void grow()
+    {
+        final Class<?>[] oldTypes = types;
+        final Object[] oldResults = results;
+        types = new Class<?>[oldTypes.length * 2];
+        results = new Object[oldTypes.length * 2];
+        for (int i = 0; i < oldTypes.length; i++)
+        {
+            if (oldTypes[i] != null)
             {
-                if (feature.isAssignableFrom(current.getClass()))
-                {
-                    return feature.cast(current);
-                }
+                store(oldTypes[i], oldResults[i]);
             }
-            throw new LionEngineException(ERROR_FEATURE_NOT_FOUND, feature.getName());
         }
-        return value;
     }
 
     /**
-     * Check if contains the following feature type.
+     * Store a lookup result in the first free slot of its type.
      * 
-     * @param <C> The custom feature type.
-     * @param feature The feature to check.
-     * @return <code>true</code> if contains, <code>false</code> else.
+     * @param type The type reference.
+     * @param value The lookup result.
      */
-    public <C extends Feature> boolean contains(Class<C> feature)
+    private void store(Class<?> type, Object value)
     {
-        final boolean contains;
-        if (features.containsKey(feature))
+        final int mask = types.length - 1;
+        int slot = getSlot(type, mask);
+        while (types[slot] != null)
         {
-            contains = true;
+            slot = slot + 1 & mask;
         }
-        else
+        types[slot] = type;
+        results[slot] = value;
+    }
+
+    /**
+     * Find the feature from its class or interface.
+     * 
+     * @param feature The feature class or interface.
+     * @return The feature instance, {@link #NONE} if not found.
+     */
+    private Object resolve(Class<? extends Feature> feature)
+    {
+        final Feature value = features.get(feature);
+        if (value != null)
+        {
+            return value;
+        }
+        for (final Feature current : features.values())
         {
-            for (final Feature current : features.values())
+            if (feature.isAssignableFrom(current.getClass()))
             {
-                if (feature.isAssignableFrom(current.getClass()))
-                {
-                    return true;
-                }
+                return current;
             }
-            contains = false;
         }
-        return contains;
+        return NONE;
+    }
+
+    /**
+     * Get a feature from its class or interface.
+     * 
+     * @param <C> The custom feature type.
+     * @param feature The feature class or interface.
+     * @return The feature instance.
+     * @throws LionEngineException If the feature was not found.
+     */
+    public <C extends Feature> C get(Class<C> feature)
+    {
+        final Object value = lookup(feature);
+        if (value == NONE)
+        {
+            throw new LionEngineException(ERROR_FEATURE_NOT_FOUND, feature.getName());
+        }
+        return feature.cast(value);
+    }
+
+    /**
+     * Check if contains the following feature type.
+     * 
+     * @param <C> The custom feature type.
+     * @param feature The feature to check.
+     * @return <code>true</code> if contains, <code>false</code> else.
+     */
+    public <C extends Feature> boolean contains(Class<C> feature)
+    {
+        return lookup(feature) != NONE;
     }
 
     /**
@@ -18,7 +18,9 @@
 package com.b3dgs.lionengine.game;
 
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 
 import com.b3dgs.lionengine.Check;
 import com.b3dgs.lionengine.LionEngineException;
@@ -50,6 +52,10 @@ import com.b3dgs.lionengine.util.UtilReflection;
  * final Camera camera = services.create(Camera.class);
  * final MapTile map = services.create(MapTileGame.class);
  * </pre>
+ * <p>
+ * Services resolved by type are cached until a service is added. A child container, such as one per level, can be
+ * created with {@link #Services(Services)}: its own services are searched first, then the parent ones.
+ * </p>
  */
 public class Services
 {
@@ -59,9 +65,15 @@ public class Services
     private static final String ERROR_SERVICE_NO_CONSTRUCTOR = "No recognized constructor found for: ";
     /** Service get error. */
     private static final String ERROR_SERVICE_GET = "Service not found: ";
+    /** Not found resolution. */
+    private static final Object NONE = new Object();
 
-    /** Services list. */
-    private final Collection<Object> services = new HashSet<Object>();
+    /** Services list, in adding order. */
+    private final Collection<Object> services = new LinkedHashSet<Object>();
+    /** Resolved services by type ({@link #NONE} if not found). */
+    private final Map<Class<?>, Object> resolved = new HashMap<Class<?>, Object>();
+    /** Parent container, <code>null</code> if none. */
+    private final Services parent;
 
     /**
      * Create a services container.
@@ -69,6 +81,53 @@ public class Services
     public Services()
     {
         super();
+
+        parent = null;
+    }
+
+    /**
+     * Create a child services container. Services are searched in the child first, then in the parent. Services added
+     * to the child are not visible from the parent.
+     * 
+     * @param parent The parent container.
+     * @throws LionEngineException If parent is <code>null</code>.
+     */
+    public Services(Services parent)
+    {
+        super();
+
+        Check.notNull(parent);
+
+        this.parent = parent;
+    }
+
+    /**
+     * Find the first service which fit the required type, in this container, then in parent. Result is cached.
+     * 
+     * @param service The service type.
+     * @return The service found, {@link #NONE} if none.
+     */
+    private Object find(Class<?> service)
+    {
+        Object found = resolved.get(service);
+        if (found == null)
+        {
+            found = NONE;
+            for (final Object object : services)
+            {
+                if (service.isAssignableFrom(object.getClass()))
+                {
+                    found = object;
+                    break;
+                }
+            }
+            resolved.put(service, found);
+        }
+        if (found == NONE && parent != null)
+        {
+            return parent.find(service);
+        }
+        return found;
     }
 
     /**
@@ -166,15 +225,31 @@ public class Services
     public <S> S add(S service)
     {
         Check.notNull(service);
-        services.add(service);
+        if (services.add(service))
+        {
+            resolved.clear();
+        }
         return service;
     }
 
+    /**
+     * Check if a service is available.
+     * 
+     * @param service The service type.
+     * @return <code>true</code> if a service fit the required type, <code>false</code> else.
+     * @throws LionEngineException If service is <code>null</code>.
+     */
+    public boolean has(Class<?> service)
+    {
+        Check.notNull(service);
+        return find(service) != NONE || service == getClass();
+    }
+
     /**
      * Get a service from its class.
      * <p>
      * The first instance (previously added with {@link #add(Object)} or {@link #create(Class)}) which fit the required
-     * type is returned.
+     * type is returned, then the first of the parent if none.
      * </p>
      * 
      * <pre>
@@ -192,12 +267,10 @@ public class Services
     public <S> S get(Class<S> service)
     {
         Check.notNull(service);
-        for (final Object object : services)
+        final Object found = find(service);
+        if (found != NONE)
         {
-            if (service.isAssignableFrom(object.getClass()))
-            {
-                return service.cast(object);
-            }
+            return service.cast(found);
         }
         if (service == getClass())
         {
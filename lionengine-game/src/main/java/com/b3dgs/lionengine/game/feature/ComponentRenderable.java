@@ -17,6 +17,8 @@
  */
 package com.b3dgs.lionengine.game.feature;
 
+import java.util.List;
+
 import com.b3dgs.lionengine.graphic.Graphic;
 import com.b3dgs.lionengine.graphic.Renderable;
 
@@ -40,9 +42,11 @@ public class ComponentRenderable implements ComponentRenderer
     @Override
     public void render(Graphic g, Handlables featurables)
     {
-        for (final Renderable renderable : featurables.get(Renderable.class))
+        final List<Renderable> renderables = featurables.get(Renderable.class);
+        final int count = renderables.size();
+        for (int i = 0; i < count; i++)
         {
-            renderable.render(g);
+            renderables.get(i).render(g);
         }
     }
 }
@@ -17,6 +17,8 @@
  */
 package com.b3dgs.lionengine.game.feature;
 
+import java.util.List;
+
 import com.b3dgs.lionengine.Updatable;
 
 /**
@@ -40,9 +42,11 @@ public class ComponentUpdatable implements ComponentUpdater
     @Override
     public void update(double extrp, Handlables featurables)
     {
-        for (final Updatable updatable : featurables.get(Updatable.class))
+        final List<Updatable> updatables = featurables.get(Updatable.class);
+        final int count = updatables.size();
+        for (int i = 0; i < count; i++)
         {
-            updatable.update(extrp);
+            updatables.get(i).update(extrp);
         }
     }
 }
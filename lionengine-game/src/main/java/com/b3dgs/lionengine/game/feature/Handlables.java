@@ -17,6 +17,8 @@
  */
 package com.b3dgs.lionengine.game.feature;
 
+import java.util.List;
+
 import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.game.Featurable;
 
@@ -41,14 +43,14 @@ public interface Handlables
      * 
      * @param <I> The featurable interface type.
      * @param type The expected type.
-     * @return The featurables of this type.
+     * @return The featurables of this type (unmodifiable view, to be iterated by index while not updating the handler).
      */
-    <I> Iterable<I> get(Class<I> type);
+    <I> List<I> get(Class<I> type);
 
     /**
      * Get all featurables.
      * 
-     * @return The featurables.
+     * @return The featurables (unmodifiable view, to be iterated by index while not updating the handler).
      */
-    Iterable<Featurable> values();
+    List<Featurable> values();
 }
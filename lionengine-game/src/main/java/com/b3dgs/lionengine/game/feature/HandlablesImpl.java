@@ -17,11 +17,16 @@
  */
 package com.b3dgs.lionengine.game.feature;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 import com.b3dgs.lionengine.LionEngineException;
@@ -31,16 +36,45 @@ import com.b3dgs.lionengine.util.UtilReflection;
 
 /**
  * Handlables implementation.
+ * <p>
+ * Types of each featurable class and feature class are resolved once. Each type references its items in a dense
+ * array, where removal moves the last item to the removed index. Iteration order is the adding order, until a removal.
+ * Returned lists are unmodifiable views of these arrays.
+ * </p>
  */
 final class HandlablesImpl implements Handlables
 {
     /** Featurable not found error. */
     private static final String ERROR_FEATURABLE_NOT_FOUND = "Featurable not found: ";
+    /** Initial store capacity. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Add class interfaces and its parents interfaces.
+     * 
+     * @param types The types found.
+     * @param type The current class level to check.
+     */
+    private static void addSuperClass(Set<Class<?>> types, Class<?> type)
+    {
+        types.addAll(Arrays.asList(type.getInterfaces()));
+        final Class<?> parent = type.getSuperclass();
+        if (parent != null)
+        {
+            addSuperClass(types, parent);
+        }
+    }
 
     /** List of featurables (key is the featurable ID). */
     private final Map<Integer, Featurable> featurables;
+    /** Featurables in adding order. */
+    private final Store values;
     /** List of typed items (key is the feature type). */
-    private final Map<Class<?>, Set<Object>> items;
+    private final Map<Class<?>, Store> items;
+    /** Resolved types by featurable class. */
+    private final Map<Class<?>, Class<?>[]> featurableTypes;
+    /** Resolved types by feature class. */
+    private final Map<Class<?>, Class<?>[]> featureTypes;
 
     /**
      * Create the handlables.
@@ -48,7 +82,10 @@ final class HandlablesImpl implements Handlables
     HandlablesImpl()
     {
         featurables = new HashMap<Integer, Featurable>();
-        items = new HashMap<Class<?>, Set<Object>>();
+        values = new Store();
+        items = new HashMap<Class<?>, Store>();
+        featurableTypes = new HashMap<Class<?>, Class<?>[]>();
+        featureTypes = new HashMap<Class<?>, Class<?>[]>();
     }
 
     /**
@@ -59,23 +96,20 @@ final class HandlablesImpl implements Handlables
     public void add(Featurable featurable)
     {
         featurables.put(featurable.getFeature(Identifiable.class).getId(), featurable);
+        values.insert(featurable);
 
-        for (final Class<?> type : featurable.getClass().getInterfaces())
+        for (final Class<?> type : getFeaturableTypes(featurable.getClass()))
         {
-            addType(type, featurable);
+            getStore(type).insert(featurable);
         }
-
         for (final Class<? extends Feature> feature : featurable.getFeaturesType())
         {
             final Feature object = featurable.getFeature(feature);
-            addType(feature, object);
-            for (final Class<?> other : UtilReflection.getInterfaces(feature, Feature.class))
+            for (final Class<?> type : getFeatureTypes(feature))
             {
-                addType(other, object);
+                getStore(type).insert(object);
             }
         }
-        addType(featurable.getClass(), featurable);
-        addSuperClass(featurable, featurable.getClass());
     }
 
     /**
@@ -86,25 +120,21 @@ final class HandlablesImpl implements Handlables
      */
     public void remove(Featurable featurable, Integer id)
     {
-        for (final Class<?> type : featurable.getClass().getInterfaces())
+        for (final Class<?> type : getFeaturableTypes(featurable.getClass()))
         {
             remove(type, featurable);
         }
-
         for (final Class<? extends Feature> feature : featurable.getFeaturesType())
         {
             final Feature object = featurable.getFeature(feature);
-            remove(feature, object);
-            for (final Class<?> other : UtilReflection.getInterfaces(feature, Feature.class))
+            for (final Class<?> type : getFeatureTypes(feature))
             {
-                remove(other, object);
+                remove(type, object);
             }
-
         }
-        remove(featurable.getClass(), featurable);
-        removeSuperClass(featurable, featurable.getClass());
 
         featurables.remove(id);
+        values.delete(featurable);
     }
 
     /**
@@ -118,56 +148,60 @@ final class HandlablesImpl implements Handlables
     }
 
     /**
-     * Add a type from its interface.
+     * Get the featurable class types (its interfaces, itself, and its parents interfaces), resolve them if needed.
      * 
-     * @param type The type interface.
-     * @param object The type value.
+     * @param featurable The featurable class.
+     * @return The featurable types.
      */
-    private void addType(Class<?> type, Object object)
+    private Class<?>[] getFeaturableTypes(Class<?> featurable)
     {
-        if (!items.containsKey(type))
+        Class<?>[] types = featurableTypes.get(featurable);
+        if (types == null)
         {
-            items.put(type, new HashSet<Object>());
+            final Set<Class<?>> found = new LinkedHashSet<Class<?>>();
+            found.add(featurable);
+            addSuperClass(found, featurable);
+            types = found.toArray(new Class<?>[found.size()]);
+            featurableTypes.put(featurable, types);
         }
-        items.get(type).add(object);
+        return types;
     }
 
     /**
-     * Add object parent super type.
+     * Get the feature class types (itself and its feature interfaces), resolve them if needed.
      * 
-     * @param object The current object to check.
-     * @param type The current class level to check.
+     * @param feature The feature class.
+     * @return The feature types.
      */
-    private void addSuperClass(Object object, Class<?> type)
+    private Class<?>[] getFeatureTypes(Class<? extends Feature> feature)
     {
-        for (final Class<?> types : type.getInterfaces())
+        Class<?>[] types = featureTypes.get(feature);
+        if (types == null)
         {
-            addType(types, object);
-        }
-        final Class<?> parent = type.getSuperclass();
-        if (parent != null)
-        {
-            addSuperClass(object, parent);
+            final Set<Class<?>> found = new LinkedHashSet<Class<?>>();
+            found.add(feature);
+            found.addAll(UtilReflection.getInterfaces(feature, Feature.class));
+            types = found.toArray(new Class<?>[found.size()]);
+            featureTypes.put(feature, types);
         }
+        return types;
     }
 
     /**
-     * Remove object parent super type.
+     * Get the type store, create it if needed.
      * 
-     * @param object The current object to check.
-     * @param type The current class level to check.
+     * @param type The type reference.
+     * @return The type store.
      */
-    private void removeSuperClass(Object object, Class<?> type)
+    private Store getStore(Class<?> type)
     {
-        for (final Class<?> types : type.getInterfaces())
+        Store store = items.get(type);
+        if (store == null)
         {
-            remove(types, object);
-        }
-        final Class<?> parent = type.getSuperclass();
-        if (parent != null)
-        {
-            removeSuperClass(object, parent);
+            store = new Store();
+            items.put(type, store);
         }
+        return store;
     }
 
     /**
@@ -178,10 +212,10 @@ final class HandlablesImpl implements Handlables
      */
     private void remove(Class<?> type, Object object)
     {
-        final Set<?> set = items.get(type);
-        if (set != null)
+        final Store store = items.get(type);
+        if (store != null)
         {
-            set.remove(object);
+            store.delete(object);
         }
     }
 
@@ -202,19 +236,105 @@ final class HandlablesImpl implements Handlables
 
     @Override
     @SuppressWarnings("unchecked")
-    public <I> Iterable<I> get(Class<I> type)
+    public <I> List<I> get(Class<I> type)
     {
-        final Set<?> featurables = items.get(type);
-        if (featurables != null)
+        final Store store = items.get(type);
+        if (store != null)
         {
-            return (Iterable<I>) featurables;
+            return (List<I>) (List<?>) store;
         }
-        return Collections.emptySet();
+        return Collections.emptyList();
     }
 
     @Override
-    public Iterable<Featurable> values()
+    @SuppressWarnings("unchecked")
+    public List<Featurable> values()
+    {
+        return (List<Featurable>) (List<?>) values;
+    }
+
+    /**
+     * Dense items list, with index by item for removal. Unmodifiable through the {@link List} methods.
+     */
+    private static final class Store extends AbstractList<Object> implements RandomAccess
     {
-        return featurables.values();
+        /** Index by item. */
+        private final Map<Object, Integer> indexes = new IdentityHashMap<Object, Integer>();
+        /** Items. */
+        private Object[] elements = new Object[INITIAL_CAPACITY];
+        /** Number of items. */
+        private int count;
+
+        /**
+         * Create store.
+         */
+        Store()
+        {
+            super();
+        }
+
+        /**
+         * Add item if not already stored.
+         * 
+         * @param object The item to add.
+         * @return <code>true</code> if added, <code>false</code> if already stored.
+         */
+        boolean insert(Object object)
+        {
+            if (indexes.containsKey(object))
+            {
+                return false;
+            }
+            if (count == elements.length)
+            {
+                elements = Arrays.copyOf(elements, count * 2);
+            }
+            indexes.put(object, Integer.valueOf(count));
+            elements[count++] = object;
+            modCount++;
+            return true;
+        }
+
+        /**
+         * Remove item by moving the last one to its index.
+         * 
+         * @param object The item to remove.
+         * @return <code>true</code> if removed, <code>false</code> if not stored.
+         */
+        boolean delete(Object object)
+        {
+            final Integer index = indexes.remove(object);
+            if (index == null)
+            {
+                return false;
+            }
+            count--;
+            final int removed = index.intValue();
+            if (removed < count)
+            {
+                final Object last = elements[count];
+                elements[removed] = last;
+                indexes.put(last, index);
+            }
+            elements[count] = null;
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public Object get(int index)
+        {
+            if (index < 0 || index >= count)
+            {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return elements[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return count;
+        }
     }
 }
@@ -20,6 +20,7 @@ package com.b3dgs.lionengine.game.feature;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 
 import com.b3dgs.lionengine.Updatable;
 import com.b3dgs.lionengine.game.Featurable;
@@ -229,13 +230,13 @@ public class Handler implements Handlables, Updatable, Renderable, IdentifiableL
     }
 
     @Override
-    public <I> Iterable<I> get(Class<I> type)
+    public <I> List<I> get(Class<I> type)
     {
         return featurables.get(type);
     }
 
     @Override
-    public Iterable<Featurable> values()
+    public List<Featurable> values()
     {
         return featurables.values();
     }
@@ -47,20 +47,26 @@ public class CollidableModel extends FeatureModel
                              implements Collidable, Recyclable, TransformableListener, IdentifiableListener
 {
     /**
-     * Check if current rectangle collides other collidable rectangles.
+     * Check if area collides other collidable rectangles.
      * 
-     * @param rectangle The current rectangle.
+     * @param x The area horizontal location.
+     * @param y The area vertical location.
+     * @param width The area width.
+     * @param height The area height.
      * @param other The other collidable.
      * @return <code>true</code> if collide, <code>false</code> else.
      */
-    private static boolean checkCollide(Rectangle rectangle, Collidable other)
+    private static boolean checkCollide(double x, double y, double width, double height, Collidable other)
     {
         final List<Rectangle> others = other.getCollisionBounds();
         final int size = others.size();
         for (int i = 0; i < size; i++)
         {
             final Rectangle current = others.get(i);
-            if (rectangle.intersects(current))
+            if (current.getX() + current.getWidthReal() > x
+                && current.getY() + current.getHeightReal() > y
+                && current.getX() < x + width
+                && current.getY() < y + height)
             {
                 return true;
             }
@@ -197,7 +203,8 @@ public class CollidableModel extends FeatureModel
     }
 
     /**
-     * Check if other collides with collision and its rectangle area.
+     * Check if other collides with collision and its rectangle area, swept from its location to the current
+     * transformable location. Rectangle is not modified, so checks do not depend on their order.
      * 
      * @param other The other collidable to check.
      * @param collision The collision to check with.
@@ -224,13 +231,18 @@ public class CollidableModel extends FeatureModel
             sy = 0;
         }
 
+        final double width = rectangle.getWidthReal();
+        final double height = rectangle.getHeightReal();
+        double x = sh;
+        double y = sv;
         for (int count = 0; count <= norm; count++)
         {
-            if (checkCollide(rectangle, other))
+            if (checkCollide(x, y, width, height, other))
             {
                 return collision;
             }
-            rectangle.translate(sx, sy);
+            x += sx;
+            y += sy;
         }
         return null;
     }
@@ -0,0 +1,512 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.collidable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.b3dgs.lionengine.game.feature.Transformable;
+
+/**
+ * Uniform grid broadphase. Each entry is stored in the cells covered by its location and collidable maximum size.
+ * <p>
+ * Cells are indexed by a <code>long</code> key (<code>cx &lt;&lt; 32 | cy</code>) in an open addressing table. A cell
+ * is removed from the table once empty, and kept in a free list to be reused, so that the table only holds non empty
+ * cells and moving entries do not allocate. An entry membership is only updated when its covered cells change.
+ * </p>
+ * <p>
+ * Candidate pairs are collected in a reusable buffer. A pair sharing several cells is only collected in the first
+ * cell of their overlap, so each pair is collected once.
+ * </p>
+ */
+final class CollisionGrid
+{
+    /** Initial table capacity (power of two). */
+    private static final int INITIAL_TABLE = 64;
+    /** Initial cell capacity. */
+    private static final int INITIAL_CELL = 4;
+    /** Initial pairs capacity. */
+    private static final int INITIAL_PAIRS = 64;
+    /** Hash multiplier. */
+    private static final int HASH = 0x9E3779B9;
+
+    /**
+     * Get the cell key.
+     * 
+     * @param cx The horizontal cell index.
+     * @param cy The vertical cell index.
+     * @return The cell key.
+     */
+    private static long getKey(int cx, int cy)
+    {
+        return (long) cx << Integer.SIZE | cy & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Get the first probed slot of a key.
+     * 
+     * @param key The cell key.
+     * @param mask The table mask.
+     * @return The first slot index.
+     */
+    private static int getSlot(long key, int mask)
+    {
+        return (int) (key ^ key >>> Integer.SIZE) * HASH & mask;
+    }
+
+    /**
+     * Check if first entry accepts the second one group.
+     * 
+     * @param a The first entry.
+     * @param b The second entry.
+     * @return <code>true</code> if accepted, <code>false</code> else.
+     */
+    private static boolean accepts(Entry a, Entry b)
+    {
+        return a.collidable.getAccepted().contains(b.collidable.getGroup());
+    }
+
+    /** Non empty cells. */
+    private final List<Cell> active = new ArrayList<Cell>();
+    /** Removed cells, to be reused. */
+    private final List<Cell> free = new ArrayList<Cell>();
+    /** Cell size. */
+    private final double cellSize;
+    /** Cells key. */
+    private long[] keys = new long[INITIAL_TABLE];
+    /** Cells by key. */
+    private Cell[] cells = new Cell[INITIAL_TABLE];
+    /** Number of cells. */
+    private int size;
+    /** Candidate pairs, two consecutive collidables per pair. */
+    private Collidable[] pairs = new Collidable[INITIAL_PAIRS * 2];
+    /** Number of candidate pairs. */
+    private int pairsCount;
+
+    /**
+     * Create grid.
+     * 
+     * @param cellSize The cell size.
+     */
+    CollisionGrid(int cellSize)
+    {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Add entry.
+     * 
+     * @param collidable The collidable reference.
+     * @param transformable The transformable reference.
+     * @return The created entry.
+     */
+    Entry add(Collidable collidable, Transformable transformable)
+    {
+        final Entry entry = new Entry(collidable, transformable);
+        computeRange(entry);
+        entry.minX = entry.nextMinX;
+        entry.minY = entry.nextMinY;
+        entry.maxX = entry.nextMaxX;
+        entry.maxY = entry.nextMaxY;
+        insert(entry);
+        return entry;
+    }
+
+    /**
+     * Update entry cells after a move. Nothing is done if covered cells did not change.
+     * 
+     * @param entry The entry to update.
+     */
+    void update(Entry entry)
+    {
+        computeRange(entry);
+        if (entry.nextMinX != entry.minX
+            || entry.nextMinY != entry.minY
+            || entry.nextMaxX != entry.maxX
+            || entry.nextMaxY != entry.maxY)
+        {
+            extract(entry);
+            entry.minX = entry.nextMinX;
+            entry.minY = entry.nextMinY;
+            entry.maxX = entry.nextMaxX;
+            entry.maxY = entry.nextMaxY;
+            insert(entry);
+        }
+    }
+
+    /**
+     * Remove entry.
+     * 
+     * @param entry The entry to remove.
+     */
+    void remove(Entry entry)
+    {
+        extract(entry);
+    }
+
+    /**
+     * Collect candidate pairs, where at least one accepts the other group.
+     * 
+     * @return The number of pairs collected.
+     */
+    int collectPairs()
+    {
+        pairsCount = 0;
+        final int activeCount = active.size();
+        for (int c = 0; c < activeCount; c++)
+        {
+            final Cell cell = active.get(c);
+            final Entry[] entries = cell.entries;
+            final int count = cell.count;
+            for (int i = 0; i < count; i++)
+            {
+                final Entry a = entries[i];
+                for (int j = i + 1; j < count; j++)
+                {
+                    final Entry b = entries[j];
+                    if (Math.max(a.minX, b.minX) == cell.cx
+                        && Math.max(a.minY, b.minY) == cell.cy
+                        && (accepts(a, b) || accepts(b, a)))
+                    {
+                        addPair(a.collidable, b.collidable);
+                    }
+                }
+            }
+        }
+        return pairsCount;
+    }
+
+    /**
+     * Get the number of cells in table.
+     * 
+     * @return The cells count.
+     */
+    int getCellsCount()
+    {
+        return size;
+    }
+
+    /**
+     * Get the table capacity.
+     * 
+     * @return The table capacity.
+     */
+    int getCapacity()
+    {
+        return cells.length;
+    }
+
+    /**
+     * Get the first collidable of a collected pair.
+     * 
+     * @param index The pair index.
+     * @return The first collidable.
+     */
+    Collidable getFirst(int index)
+    {
+        return pairs[index * 2];
+    }
+
+    /**
+     * Get the second collidable of a collected pair.
+     * 
+     * @param index The pair index.
+     * @return The second collidable.
+     */
+    Collidable getSecond(int index)
+    {
+        return pairs[index * 2 + 1];
+    }
+
+    /**
+     * Compute the next cells range covered by entry.
+     * 
+     * @param entry The entry reference.
+     */
+    private void computeRange(Entry entry)
+    {
+        final double x = entry.transformable.getX();
+        final double y = entry.transformable.getY();
+        entry.nextMinX = (int) Math.floor(x / cellSize);
+        entry.nextMinY = (int) Math.floor(y / cellSize);
+        entry.nextMaxX = (int) Math.floor((x + entry.collidable.getMaxWidth()) / cellSize);
+        entry.nextMaxY = (int) Math.floor((y + entry.collidable.getMaxHeight()) / cellSize);
+    }
+
+    /**
+     * Insert entry in its current cells range.
+     * 
+     * @param entry The entry reference.
+     */
+    private void insert(Entry entry)
+    {
+        for (int cx = entry.minX; cx <= entry.maxX; cx++)
+        {
+            for (int cy = entry.minY; cy <= entry.maxY; cy++)
+            {
+                final Cell cell = getCell(cx, cy);
+                if (cell.count == 0)
+                {
+                    cell.activeIndex = active.size();
+                    active.add(cell);
+                }
+                cell.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Extract entry from its current cells range.
+     * 
+     * @param entry The entry reference.
+     */
+    private void extract(Entry entry)
+    {
+        for (int cx = entry.minX; cx <= entry.maxX; cx++)
+        {
+            for (int cy = entry.minY; cy <= entry.maxY; cy++)
+            {
+                final Cell cell = getCell(cx, cy);
+                if (cell.remove(entry) && cell.count == 0)
+                {
+                    final Cell last = active.remove(active.size() - 1);
+                    if (last != cell)
+                    {
+                        active.set(cell.activeIndex, last);
+                        last.activeIndex = cell.activeIndex;
+                    }
+                    removeCell(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the cell, create it if needed.
+     * 
+     * @param cx The horizontal cell index.
+     * @param cy The vertical cell index.
+     * @return The cell.
+     */
+    private Cell getCell(int cx, int cy)
+    {
+        final long key = getKey(cx, cy);
+        final int mask = cells.length - 1;
+        int index = getSlot(key, mask);
+        while (cells[index] != null)
+        {
+            if (keys[index] == key)
+            {
+                return cells[index];
+            }
+            index = index + 1 & mask;
+        }
+        final Cell cell;
+        if (free.isEmpty())
+        {
+            cell = new Cell();
+        }
+        else
+        {
+            cell = free.remove(free.size() - 1);
+        }
+        cell.cx = cx;
+        cell.cy = cy;
+        keys[index] = key;
+        cells[index] = cell;
+        size++;
+        if (size * 2 > cells.length)
+        {
+            grow();
+        }
+        return cell;
+    }
+
+    /**
+     * Remove an empty cell from table, shifting back the following cells of its probe sequence, and keep it for reuse.
+     * 
+     * @param cell The cell to remove.
+     */
+    private void removeCell(Cell cell)
+    {
+        final int mask = cells.length - 1;
+        int hole = getSlot(getKey(cell.cx, cell.cy), mask);
+        while (cells[hole] != cell)
+        {
+            hole = hole + 1 & mask;
+        }
+        int index = hole + 1 & mask;
+        while (cells[index] != null)
+        {
+            final int home = getSlot(keys[index], mask);
+            if ((index - home & mask) >= (index - hole & mask))
+            {
+                keys[hole] = keys[index];
+                cells[hole] = cells[index];
+                hole = index;
+            }
+            index = index + 1 & mask;
+        }
+        keys[hole] = 0L;
+        cells[hole] = null;
+        size--;
+        free.add(cell);
+    }
+
+    /**
+     * Double the table capacity.
+     */
+    private void grow()
+    {
+        final Cell[] old = cells;
+        keys = new long[old.length * 2];
+        cells = new Cell[old.length * 2];
+        final int mask = cells.length - 1;
+        for (final Cell cell : old)
+        {
+            if (cell != null)
+            {
+                final long key = getKey(cell.cx, cell.cy);
+                int index = getSlot(key, mask);
+                while (cells[index] != null)
+                {
+                    index = index + 1 & mask;
+                }
+                keys[index] = key;
+                cells[index] = cell;
+            }
+        }
+    }
+
+    /**
+     * Add pair to buffer.
+     * 
+     * @param a The first collidable.
+     * @param b The second collidable.
+     */
+    private void addPair(Collidable a, Collidable b)
+    {
+        if (pairsCount * 2 == pairs.length)
+        {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[pairsCount * 2] = a;
+        pairs[pairsCount * 2 + 1] = b;
+        pairsCount++;
+    }
+
+    /**
+     * Grid entry, with its covered cells range.
+     */
+    static final class Entry
+    {
+        /** Collidable reference. */
+        private final Collidable collidable;
+        /** Transformable reference. */
+        private final Transformable transformable;
+        /** Minimum horizontal cell. */
+        private int minX;
+        /** Minimum vertical cell. */
+        private int minY;
+        /** Maximum horizontal cell. */
+        private int maxX;
+        /** Maximum vertical cell. */
+        private int maxY;
+        /** Next minimum horizontal cell. */
+        private int nextMinX;
+        /** Next minimum vertical cell. */
+        private int nextMinY;
+        /** Next maximum horizontal cell. */
+        private int nextMaxX;
+        /** Next maximum vertical cell. */
+        private int nextMaxY;
+
+        /**
+         * Create entry.
+         * 
+         * @param collidable The collidable reference.
+         * @param transformable The transformable reference.
+         */
+        Entry(Collidable collidable, Transformable transformable)
+        {
+            this.collidable = collidable;
+            this.transformable = transformable;
+        }
+    }
+
+    /**
+     * Grid cell.
+     */
+    private static final class Cell
+    {
+        /** Horizontal cell index. */
+        private int cx;
+        /** Vertical cell index. */
+        private int cy;
+        /** Cell entries. */
+        private Entry[] entries = new Entry[INITIAL_CELL];
+        /** Number of entries. */
+        private int count;
+        /** Index in active cells. */
+        private int activeIndex;
+
+        /**
+         * Create cell.
+         */
+        Cell()
+        {
+            super();
+        }
+
+        /**
+         * Add entry.
+         * 
+         * @param entry The entry to add.
+         */
+        void add(Entry entry)
+        {
+            if (count == entries.length)
+            {
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            entries[count++] = entry;
+        }
+
+        /**
+         * Remove entry, keeping the others order.
+         * 
+         * @param entry The entry to remove.
+         * @return <code>true</code> if removed, <code>false</code> if not found.
+         */
+        boolean remove(Entry entry)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                if (entries[i] == entry)
+                {
+                    System.arraycopy(entries, i + 1, entries, i, count - i - 1);
+                    count--;
+                    entries[count] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -21,192 +21,251 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.game.Featurable;
 import com.b3dgs.lionengine.game.feature.ComponentUpdater;
 import com.b3dgs.lionengine.game.feature.Handlables;
 import com.b3dgs.lionengine.game.feature.HandlerListener;
 import com.b3dgs.lionengine.game.feature.Transformable;
 import com.b3dgs.lionengine.game.feature.TransformableListener;
-import com.b3dgs.lionengine.geom.Point;
 
 /**
  * Default collision component implementation. Designed to check collision between {@link Collidable}.
  * Collision events are notified to {@link CollidableListener}.
+ * <p>
+ * Collidables are stored in a uniform grid, where each one covers the cells of its location and its maximum
+ * collision size. Cells membership is only updated when a move changes the covered cells. Each pair sharing at least
+ * one cell is checked once per update, in both directions.
+ * </p>
+ * <p>
+ * Without workers, each pair is checked and notified in pairs order. With workers, all pairs are checked before any
+ * notification, then notifications are performed on the update thread in pairs order. {@link CollidableModel} checks
+ * do not modify its state, so both modes give the same results.
+ * </p>
  * 
  * @see Collidable
  * @see CollidableListener
  */
 public class ComponentCollision implements ComponentUpdater, HandlerListener, TransformableListener
 {
-    /** Location reduce factor (the higher it is, the lower is the map division per location). */
-    static final double REDUCE_FACTOR = 128.0;
+    /** Default cell size (the higher it is, the lower is the map division per location). */
+    public static final int DEFAULT_CELL_SIZE = 128;
+    /** Location reduce factor, as the default cell size. */
+    static final double REDUCE_FACTOR = DEFAULT_CELL_SIZE;
+    /** Minimum pairs per worker to share checks. */
+    private static final int MIN_PAIRS_PER_WORKER = 64;
+    /** First collides second flag. */
+    private static final byte FIRST = 1;
+    /** Second collides first flag. */
+    private static final byte SECOND = 2;
+    /** Error workers interrupted. */
+    private static final String ERROR_INTERRUPTED = "Collision workers interrupted !";
 
     /**
-     * Check others element at specified point.
+     * Check collision between objects, notify each one accepting the other.
      * 
-     * @param objectA The collidable reference.
-     * @param acceptedElements The current elements to check.
-     * @param point The point to check.
+     * @param objectA The first collidable.
+     * @param objectB The second collidable.
      */
-    private static void checkPoint(Collidable objectA, Map<Point, List<Collidable>> acceptedElements, Point point)
+    static void checkPair(Collidable objectA, Collidable objectB)
     {
-        final List<Collidable> others = acceptedElements.get(point);
-        final int othersLength = others.size();
-
-        for (int k = 0; k < othersLength; k++)
+        if (objectA.collide(objectB) != null)
         {
-            final Collidable objectB = others.get(k);
-            if (objectA.collide(objectB) != null)
-            {
-                objectA.notifyCollided(objectB);
-            }
+            objectA.notifyCollided(objectB);
+        }
+        if (objectB.collide(objectA) != null)
+        {
+            objectB.notifyCollided(objectA);
         }
     }
 
-    /** Mapping reduced. */
-    private final Map<Integer, Map<Point, List<Collidable>>> collidables;
+    /** Grid entries by transformable. */
+    private final Map<Transformable, CollisionGrid.Entry> entries = new HashMap<Transformable, CollisionGrid.Entry>();
+    /** Broadphase grid. */
+    private final CollisionGrid grid;
+    /** Workers tasks, empty if no workers. */
+    private final List<Narrowphase> tasks;
+    /** Workers executor, <code>null</code> if no workers. */
+    private final ExecutorService executor;
+    /** Checks result by pair index. */
+    private byte[] results = new byte[MIN_PAIRS_PER_WORKER];
 
     /**
-     * Create component.
+     * Create component with {@link #DEFAULT_CELL_SIZE}.
      */
     public ComponentCollision()
     {
-        super();
-
-        collidables = new HashMap<Integer, Map<Point, List<Collidable>>>();
+        this(DEFAULT_CELL_SIZE);
     }
 
     /**
-     * Remove point. Remove list of no more collidable.
+     * Create component, without workers.
      * 
-     * @param point The point to remove.
-     * @param collidable The associated collidable.
+     * @param cellSize The grid cell size, should be close to the largest collision size (strictly positive).
+     * @throws LionEngineException If invalid cell size.
      */
-    private void removePoint(Point point, Collidable collidable)
+    public ComponentCollision(int cellSize)
     {
-        final Integer group = collidable.getGroup();
-        if (collidables.containsKey(group))
-        {
-            final Map<Point, List<Collidable>> elements = collidables.get(group);
-            if (elements.containsKey(point))
-            {
-                removePoint(point, collidable, elements, group);
-            }
-        }
+        this(cellSize, 0);
     }
 
     /**
-     * Remove point. Remove list of no more collidable.
+     * Create component.
      * 
-     * @param point The point to remove.
-     * @param collidable The associated collidable.
-     * @param elements The current group elements.
-     * @param group The current group.
+     * @param cellSize The grid cell size, should be close to the largest collision size (strictly positive).
+     * @param workers The workers count sharing the checks (<code>0</code> to check on the update thread).
+     * @throws LionEngineException If invalid arguments.
      */
-    private void removePoint(Point point, Collidable collidable, Map<Point, List<Collidable>> elements, Integer group)
+    public ComponentCollision(int cellSize, int workers)
     {
-        final List<Collidable> points = elements.get(point);
-        points.remove(collidable);
-        if (points.isEmpty())
+        super();
+
+        Check.superiorStrict(cellSize, 0);
+        Check.superiorOrEqual(workers, 0);
+
+        grid = new CollisionGrid(cellSize);
+        tasks = new ArrayList<Narrowphase>(workers);
+        for (int i = 0; i < workers; i++)
         {
-            elements.remove(point);
+            tasks.add(new Narrowphase());
         }
-        if (elements.isEmpty())
+        if (workers > 0)
         {
-            collidables.remove(group);
+            executor = Executors.newFixedThreadPool(workers, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, ComponentCollision.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        else
+        {
+            executor = null;
         }
     }
 
     /**
-     * Add point. Create empty list of not existing.
-     * 
-     * @param point The point to remove.
-     * @param collidable The associated collidable.
+     * Stop the workers. Checks are then performed on the update thread.
      */
-    private void addPoint(Point point, Collidable collidable)
+    public void dispose()
     {
-        final Integer group = collidable.getGroup();
-        if (!collidables.containsKey(group))
+        if (executor != null)
         {
-            collidables.put(group, new HashMap<Point, List<Collidable>>());
+            executor.shutdownNow();
         }
-        final Map<Point, List<Collidable>> elements = collidables.get(group);
-        if (!elements.containsKey(point))
-        {
-            elements.put(point, new ArrayList<Collidable>());
-        }
-        elements.get(point).add(collidable);
+        tasks.clear();
     }
 
-    /*
-     * ComponentUpdater
+    /**
+     * Check pairs in range and store results.
+     * 
+     * @param start The first pair index.
+     * @param end The last pair index (excluded).
      */
-
-    @Override
-    public void update(double extrp, Handlables objects)
+    private void check(int start, int end)
     {
-        for (final Map<Point, List<Collidable>> groups : collidables.values())
+        for (int i = start; i < end; i++)
         {
-            for (final Entry<Point, List<Collidable>> current : groups.entrySet())
+            final Collidable objectA = grid.getFirst(i);
+            final Collidable objectB = grid.getSecond(i);
+            byte result = 0;
+            if (objectA.collide(objectB) != null)
+            {
+                result |= FIRST;
+            }
+            if (objectB.collide(objectA) != null)
             {
-                checkGroup(current);
+                result |= SECOND;
             }
+            results[i] = result;
         }
     }
 
     /**
-     * Check elements in group.
+     * Share the checks between workers and wait for them.
      * 
-     * @param current The elements in group.
+     * @param count The number of pairs.
+     * @throws LionEngineException If interrupted or check failed.
      */
-    private void checkGroup(Entry<Point, List<Collidable>> current)
+    private void checkShared(int count)
     {
-        final List<Collidable> elements = current.getValue();
-        final int length = elements.size();
-        for (int i = 0; i < length; i++)
+        final int workers = tasks.size();
+        final int chunk = (count + workers - 1) / workers;
+        for (int i = 0; i < workers; i++)
         {
-            final Collidable objectA = elements.get(i);
-            checkOthers(objectA, current);
+            final Narrowphase task = tasks.get(i);
+            task.start = Math.min(count, i * chunk);
+            task.end = Math.min(count, task.start + chunk);
         }
-    }
-
-    /**
-     * Check others element.
-     * 
-     * @param objectA The collidable reference.
-     * @param current The current group to check.
-     */
-    private void checkOthers(Collidable objectA, Entry<Point, List<Collidable>> current)
-    {
-        final List<Integer> accepted = objectA.getAccepted();
-        final int acceptedLength = accepted.size();
-        for (int j = 0; j < acceptedLength; j++)
+        try
         {
-            final Integer acceptedGroup = accepted.get(j);
-            // Others to compare only in accepted group
-            if (collidables.containsKey(acceptedGroup))
+            for (final Future<Void> future : executor.invokeAll(tasks))
             {
-                checkOthers(objectA, current, acceptedGroup);
+                future.get();
             }
         }
+        catch (final InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new LionEngineException(exception, ERROR_INTERRUPTED);
+        }
+        catch (final ExecutionException exception)
+        {
+            throw new LionEngineException(exception.getCause());
+        }
     }
 
-    /**
-     * Check others element.
-     * 
-     * @param objectA The collidable reference.
-     * @param current The current group to check.
-     * @param acceptedGroup The accepted group.
+    /*
+     * ComponentUpdater
      */
-    private void checkOthers(Collidable objectA, Entry<Point, List<Collidable>> current, Integer acceptedGroup)
+
+    @Override
+    public void update(double extrp, Handlables objects)
     {
-        final Map<Point, List<Collidable>> acceptedElements = collidables.get(acceptedGroup);
-        final Point point = current.getKey();
-        if (acceptedElements.containsKey(point))
+        final int count = grid.collectPairs();
+        if (tasks.isEmpty())
+        {
+            for (int i = 0; i < count; i++)
+            {
+                checkPair(grid.getFirst(i), grid.getSecond(i));
+            }
+            return;
+        }
+        if (results.length < count)
         {
-            checkPoint(objectA, acceptedElements, point);
+            results = new byte[Math.max(count, results.length * 2)];
+        }
+        if (count < tasks.size() * MIN_PAIRS_PER_WORKER)
+        {
+            check(0, count);
+        }
+        else
+        {
+            checkShared(count);
+        }
+        for (int i = 0; i < count; i++)
+        {
+            final byte result = results[i];
+            if ((result & FIRST) != 0)
+            {
+                grid.getFirst(i).notifyCollided(grid.getSecond(i));
+            }
+            if ((result & SECOND) != 0)
+            {
+                grid.getSecond(i).notifyCollided(grid.getFirst(i));
+            }
         }
     }
 
@@ -220,6 +279,8 @@ public class ComponentCollision implements ComponentUpdater, HandlerListener, Tr
         if (featurable.hasFeature(Collidable.class))
         {
             final Transformable transformable = featurable.getFeature(Transformable.class);
+            final Collidable collidable = featurable.getFeature(Collidable.class);
+            entries.put(transformable, grid.add(collidable, transformable));
             transformable.addListener(this);
         }
     }
@@ -230,11 +291,11 @@ public class ComponentCollision implements ComponentUpdater, HandlerListener, Tr
         if (featurable.hasFeature(Collidable.class))
         {
             final Transformable transformable = featurable.getFeature(Transformable.class);
-            final Collidable collidable = transformable.getFeature(Collidable.class);
-
-            removePoints(transformable.getOldX(), transformable.getOldY(), collidable);
-            removePoints(transformable.getX(), transformable.getY(), collidable);
-
+            final CollisionGrid.Entry entry = entries.remove(transformable);
+            if (entry != null)
+            {
+                grid.remove(entry);
+            }
             transformable.removeListener(this);
         }
     }
@@ -246,73 +307,36 @@ public class ComponentCollision implements ComponentUpdater, HandlerListener, Tr
     @Override
     public void notifyTransformed(Transformable transformable)
     {
-        final Collidable collidable = transformable.getFeature(Collidable.class);
-
-        removePoints(transformable.getOldX(), transformable.getOldY(), collidable);
-        addPoints(transformable.getX(), transformable.getY(), collidable);
-    }
-
-    /**
-     * Remove point and adjacent points depending of the collidable max collision size.
-     * 
-     * @param x The horizontal location.
-     * @param y The vertical location.
-     * @param collidable The collidable reference.
-     */
-    private void removePoints(double x, double y, Collidable collidable)
-    {
-        final int minX = (int) Math.floor(x / REDUCE_FACTOR);
-        final int minY = (int) Math.floor(y / REDUCE_FACTOR);
-        final int maxX = (int) Math.floor((x + collidable.getMaxWidth()) / REDUCE_FACTOR);
-        final int maxY = (int) Math.floor((y + collidable.getMaxHeight()) / REDUCE_FACTOR);
-
-        removePoint(new Point(minX, minY), collidable);
-
-        if (minX != maxX && minY == maxY)
-        {
-            removePoint(new Point(maxX, minY), collidable);
-        }
-        else if (minX == maxX && minY != maxY)
-        {
-            removePoint(new Point(minX, maxY), collidable);
-        }
-        else if (minX != maxX)
+        final CollisionGrid.Entry entry = entries.get(transformable);
+        if (entry != null)
         {
-            removePoint(new Point(minX, maxY), collidable);
-            removePoint(new Point(maxX, minY), collidable);
-            removePoint(new Point(maxX, maxY), collidable);
+            grid.update(entry);
         }
     }
 
     /**
-     * Add point and adjacent points depending of the collidable max collision size.
-     * 
-     * @param x The horizontal location.
-     * @param y The vertical location.
-     * @param collidable The collidable reference.
+     * Worker task, checking a range of pairs.
      */
-    private void addPoints(double x, double y, Collidable collidable)
+    private final class Narrowphase implements Callable<Void>
     {
-        final int minX = (int) Math.floor(x / REDUCE_FACTOR);
-        final int minY = (int) Math.floor(y / REDUCE_FACTOR);
-        final int maxX = (int) Math.floor((x + collidable.getMaxWidth()) / REDUCE_FACTOR);
-        final int maxY = (int) Math.floor((y + collidable.getMaxHeight()) / REDUCE_FACTOR);
-
-        addPoint(new Point(minX, minY), collidable);
+        /** First pair index. */
+        private int start;
+        /** Last pair index (excluded). */
+        private int end;
 
-        if (minX != maxX && minY == maxY)
+        /**
+         * Create task.
+         */
+        Narrowphase()
         {
-            addPoint(new Point(maxX, minY), collidable);
+            super();
         }
-        else if (minX == maxX && minY != maxY)
-        {
-            addPoint(new Point(minX, maxY), collidable);
-        }
-        else if (minX != maxX)
+
+        @Override
+        public Void call()
         {
-            addPoint(new Point(minX, maxY), collidable);
-            addPoint(new Point(maxX, minY), collidable);
-            addPoint(new Point(maxX, maxY), collidable);
+            check(start, end);
+            return null;
         }
     }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.collidable;
+
+import java.util.Arrays;
+
+import com.b3dgs.lionengine.game.Featurable;
+import com.b3dgs.lionengine.game.feature.ComponentUpdater;
+import com.b3dgs.lionengine.game.feature.Handlables;
+import com.b3dgs.lionengine.game.feature.HandlerListener;
+import com.b3dgs.lionengine.game.feature.Transformable;
+
+/**
+ * Sweep and prune collision component implementation. Designed to check collision between {@link Collidable} of very
+ * different sizes and speeds, such as small fast projectiles and large bodies, where {@link ComponentCollision} cells
+ * are not suited. Collision events are notified to {@link CollidableListener}.
+ * <p>
+ * Each collidable is bounded by a swept box, covering its collisions from its old location
+ * ({@link Transformable#getOldX()}, {@link Transformable#getOldY()}) to its current location, so that a fast object
+ * cannot skip a thin one between two updates. Boxes are kept sorted on their horizontal minimum with an insertion
+ * sort, which is close to linear as order changes little between updates. Pairs overlapping on both axis are then
+ * checked with {@link Collidable#collide(Collidable)}, which casts the collision boxes along the move.
+ * </p>
+ * <p>
+ * Usage: <code>handler.addComponent(new ComponentCollisionSweep());</code> instead of {@link ComponentCollision}.
+ * </p>
+ * 
+ * @see Collidable
+ * @see CollidableListener
+ */
+public class ComponentCollisionSweep implements ComponentUpdater, HandlerListener
+{
+    /** Initial entries capacity. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Check if first entry accepts the second one group.
+     * 
+     * @param a The first entry.
+     * @param b The second entry.
+     * @return <code>true</code> if accepted, <code>false</code> else.
+     */
+    private static boolean accepts(Entry a, Entry b)
+    {
+        return a.collidable.getAccepted().contains(b.collidable.getGroup());
+    }
+
+    /** Entries sorted by horizontal minimum. */
+    private Entry[] entries = new Entry[INITIAL_CAPACITY];
+    /** Number of entries. */
+    private int count;
+
+    /**
+     * Create component.
+     */
+    public ComponentCollisionSweep()
+    {
+        super();
+    }
+
+    /**
+     * Sort entries on their horizontal minimum, keeping current order of equal ones.
+     */
+    private void sort()
+    {
+        for (int i = 1; i < count; i++)
+        {
+            final Entry current = entries[i];
+            int j = i - 1;
+            while (j >= 0 && entries[j].minX > current.minX)
+            {
+                entries[j + 1] = entries[j];
+                j--;
+            }
+            entries[j + 1] = current;
+        }
+    }
+
+    /*
+     * ComponentUpdater
+     */
+
+    @Override
+    public void update(double extrp, Handlables objects)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            entries[i].computeBounds();
+        }
+        sort();
+
+        for (int i = 0; i < count; i++)
+        {
+            final Entry a = entries[i];
+            for (int j = i + 1; j < count && entries[j].minX <= a.maxX; j++)
+            {
+                final Entry b = entries[j];
+                if (a.minY <= b.maxY && b.minY <= a.maxY && (accepts(a, b) || accepts(b, a)))
+                {
+                    ComponentCollision.checkPair(a.collidable, b.collidable);
+                }
+            }
+        }
+    }
+
+    /*
+     * HandlerListener
+     */
+
+    @Override
+    public void notifyHandlableAdded(Featurable featurable)
+    {
+        if (featurable.hasFeature(Collidable.class))
+        {
+            if (count == entries.length)
+            {
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            final Entry entry = new Entry(featurable.getFeature(Collidable.class),
+                                          featurable.getFeature(Transformable.class));
+            entry.computeBounds();
+            entries[count++] = entry;
+        }
+    }
+
+    @Override
+    public void notifyHandlableRemoved(Featurable featurable)
+    {
+        if (featurable.hasFeature(Collidable.class))
+        {
+            final Collidable collidable = featurable.getFeature(Collidable.class);
+            for (int i = 0; i < count; i++)
+            {
+                if (entries[i].collidable == collidable)
+                {
+                    System.arraycopy(entries, i + 1, entries, i, count - i - 1);
+                    count--;
+                    entries[count] = null;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Collidable swept box.
+     */
+    private static final class Entry
+    {
+        /** Collidable reference. */
+        private final Collidable collidable;
+        /** Transformable reference. */
+        private final Transformable transformable;
+        /** Horizontal margin around location, covering collisions offset, size, origin and mirror. */
+        private double marginX;
+        /** Vertical margin around location, covering collisions offset, size, origin and mirror. */
+        private double marginY;
+        /** Number of collisions used to compute margins. */
+        private int collisions = -1;
+        /** Horizontal minimum. */
+        private double minX;
+        /** Vertical minimum. */
+        private double minY;
+        /** Horizontal maximum. */
+        private double maxX;
+        /** Vertical maximum. */
+        private double maxY;
+
+        /**
+         * Create entry.
+         * 
+         * @param collidable The collidable reference.
+         * @param transformable The transformable reference.
+         */
+        Entry(Collidable collidable, Transformable transformable)
+        {
+            this.collidable = collidable;
+            this.transformable = transformable;
+        }
+
+        /**
+         * Compute the box covering the move from old location to current location.
+         */
+        void computeBounds()
+        {
+            if (collisions != collidable.getCollisions().size())
+            {
+                computeMargins();
+            }
+            final double oldX = transformable.getOldX();
+            final double oldY = transformable.getOldY();
+            final double x = transformable.getX();
+            final double y = transformable.getY();
+            final double width = Math.max(marginX, collidable.getMaxWidth());
+            final double height = Math.max(marginY, collidable.getMaxHeight());
+            minX = Math.min(oldX, x) - width;
+            minY = Math.min(oldY, y) - height;
+            maxX = Math.max(oldX, x) + width;
+            maxY = Math.max(oldY, y) + height;
+        }
+
+        /**
+         * Compute margins from collisions.
+         */
+        private void computeMargins()
+        {
+            marginX = transformable.getWidth();
+            marginY = transformable.getHeight();
+            collisions = 0;
+            for (final Collision collision : collidable.getCollisions())
+            {
+                marginX = Math.max(marginX, Math.abs(collision.getOffsetX()) + collision.getWidth());
+                marginY = Math.max(marginY, Math.abs(collision.getOffsetY()) + collision.getHeight());
+                collisions++;
+            }
+        }
+    }
+}
@@ -20,16 +20,28 @@ package com.b3dgs.lionengine.game.feature.tile;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.b3dgs.lionengine.Check;
 import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.Media;
-import com.b3dgs.lionengine.core.drawable.Drawable;
 import com.b3dgs.lionengine.graphic.ColorRgba;
-import com.b3dgs.lionengine.graphic.Graphic;
 import com.b3dgs.lionengine.graphic.Graphics;
 import com.b3dgs.lionengine.graphic.ImageBuffer;
 import com.b3dgs.lionengine.graphic.ImageInfo;
-import com.b3dgs.lionengine.graphic.SpriteTiled;
 import com.b3dgs.lionengine.graphic.Transparency;
 import com.b3dgs.lionengine.graphic.UtilColor;
 
@@ -37,6 +49,13 @@ import com.b3dgs.lionengine.graphic.UtilColor;
  * This class allows to extract unique tiles from a level rip.
  * The color [0-128-128] ({@link #IGNORED_COLOR_VALUE}) is ignored (can be used to skip tile, in order to improve
  * performance).
+ * <p>
+ * Level rips are loaded and read as pixels arrays by workers, and split in stripes of tiles rows. Stripes are
+ * processed in parallel, sharing a dedupe map of tiles by content, which keeps the first occurrence of each tile. Found
+ * tiles are then merged on the calling thread in stripes order, so that the extracted tiles order is the same as a
+ * sequential extraction, whatever the workers count. {@link ProgressListener} and {@link Canceler} are only called
+ * from the calling thread.
+ * </p>
  */
 public final class TilesExtractor
 {
@@ -44,6 +63,12 @@ public final class TilesExtractor
     public static final ColorRgba IGNORED_COLOR = new ColorRgba(0, 128, 128);
     /** Ignored color. */
     public static final int IGNORED_COLOR_VALUE = IGNORED_COLOR.getRgba();
+    /** Tiles number per stripe. */
+    private static final int STRIPE_TILES = 1024;
+    /** Delay between two cancel checks when waiting for workers in milli. */
+    private static final long CANCEL_DELAY = 10L;
+    /** Interrupted error. */
+    private static final String ERROR_INTERRUPTED = "Tiles extraction interrupted !";
 
     /**
      * Compare two tiles by checking all pixels.
@@ -77,47 +102,58 @@ public final class TilesExtractor
     }
 
     /**
-     * Check if tile has already been extracted regarding the current tile on level rip.
+     * Compute the tile content hash. Tiles equal with {@link #compareTile(int, int, ImageBuffer, int, int, ImageBuffer,
+     * int, int)} have the same hash.
      * 
-     * @param level The level rip reference.
-     * @param x The current level rip horizontal location.
-     * @param y The current level rip vertical location.
-     * @param tiles The current extracted tiles.
-     * @return <code>true</code> if already extracted, <code>false</code> else.
+     * @param tw The tile width.
+     * @param th The tile height.
+     * @param image The tile image.
+     * @param x The location x.
+     * @param y The location y.
+     * @return The tile hash.
      */
-    private static boolean isExtracted(SpriteTiled level, int x, int y, Collection<ImageBuffer> tiles)
+    public static int hashTile(int tw, int th, ImageBuffer image, int x, int y)
     {
-        final int tw = level.getTileWidth();
-        final int th = level.getTileHeight();
-        final ImageBuffer surface = level.getSurface();
-
-        for (final ImageBuffer tile : tiles)
+        int hash = 1;
+        for (int tx = 0; tx < tw; tx++)
         {
-
-            if (compareTile(tw, th, surface, x, y, tile, 0, 0))
+            for (int ty = 0; ty < th; ty++)
             {
-                return true;
+                hash = 31 * hash + normalize(image.getRgb(tx + x, ty + y));
             }
         }
-        return false;
+        return hash;
+    }
+
+    /**
+     * Get the color used for tiles comparison. Opaque and transparent are considered as equal.
+     * 
+     * @param color The color value.
+     * @return The compared color value.
+     */
+    private static int normalize(int color)
+    {
+        if (color == ColorRgba.TRANSPARENT.getRgba())
+        {
+            return ColorRgba.OPAQUE.getRgba();
+        }
+        return color;
     }
 
     /**
-     * Extract the tile from level.
+     * Create the tile image.
      * 
-     * @param level The level image reference.
-     * @param number The tile number on level.
-     * @return The extracted tile image from level.
+     * @param tw The tile width.
+     * @param th The tile height.
+     * @param transparency The tile transparency.
+     * @param pixels The tile pixels.
+     * @return The tile image.
      */
-    private static ImageBuffer extract(SpriteTiled level, int number)
+    private static ImageBuffer createTile(int tw, int th, Transparency transparency, int[] pixels)
     {
-        final Transparency transparency = level.getSurface().getTransparency();
-        final ImageBuffer tile = Graphics.createImageBuffer(level.getTileWidth(), level.getTileHeight(), transparency);
-        final Graphic g = tile.createGraphic();
-        level.setTile(number);
-        level.render(g);
-        g.dispose();
-        return Graphics.getImageBuffer(tile);
+        final ImageBuffer tile = Graphics.createImageBuffer(tw, th, transparency);
+        tile.setRgb(0, 0, tw, th, pixels, 0, tw);
+        return tile;
     }
 
     /**
@@ -155,13 +191,30 @@ public final class TilesExtractor
 
     /** Progress listener. */
     private final Collection<ProgressListener> listeners = new HashSet<ProgressListener>();
+    /** Workers count. */
+    private final int workers;
 
     /**
-     * Create the extractor.
+     * Create the extractor, with a worker per available processor.
      */
     public TilesExtractor()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create the extractor.
+     * 
+     * @param workers The workers count (<code>0</code> to extract on the calling thread).
+     * @throws LionEngineException If invalid argument.
+     */
+    public TilesExtractor(int workers)
     {
         super();
+
+        Check.superiorOrEqual(workers, 0);
+
+        this.workers = workers;
     }
 
     /**
@@ -202,70 +255,62 @@ public final class TilesExtractor
     {
         final int tilesNumber = getTilesNumber(tw, th, levelRips);
         final Collection<ImageBuffer> tiles = new ArrayList<ImageBuffer>();
-        int checkedTiles = 0;
-        for (final Media levelRip : levelRips)
+        final Extraction extraction = new Extraction(canceler, tw, th);
+        try
         {
-            final SpriteTiled level = Drawable.loadSpriteTiled(levelRip, tw, th);
-            level.load();
-            level.prepare();
-
-            checkedTiles = extract(canceler, level, tilesNumber, tiles, checkedTiles);
-            level.getSurface().dispose();
-            if (checkedTiles < 0)
+            final List<Future<Level>> levels = new ArrayList<Future<Level>>(levelRips.size());
+            for (final Media levelRip : levelRips)
             {
-                break;
+                levels.add(extraction.submit(new Level(levelRip, tw, th)));
             }
-        }
 
-        listeners.clear();
-        return tiles;
-    }
+            final List<Future<Stripe>> stripes = new ArrayList<Future<Stripe>>();
+            int offset = 0;
+            for (final Future<Level> future : levels)
+            {
+                final Level level = extraction.get(future);
+                if (level == null)
+                {
+                    return tiles;
+                }
+                final int rows = Math.max(1, STRIPE_TILES / Math.max(1, level.horizontalTiles));
+                for (int v = 0; v < level.verticalTiles; v += rows)
+                {
+                    final int end = Math.min(level.verticalTiles, v + rows);
+                    stripes.add(extraction.submit(new Stripe(extraction, level, offset, v, end)));
+                }
+                offset += level.horizontalTiles * level.verticalTiles;
+            }
+            levels.clear();
 
-    /**
-     * Proceed the specified level rip.
-     * 
-     * @param canceler The canceler reference (can be <code>null</code>).
-     * @param level The level rip.
-     * @param tilesNumber The total tiles number to extract.
-     * @param tiles The current extracted tiles.
-     * @param checkedTiles The last number of checked tiles.
-     * @return The current number of checked tiles, or -1 if canceled.
-     * @throws LionEngineException If an error occurred when proceeding the image.
-     */
-    private int extract(Canceler canceler,
-                        SpriteTiled level,
-                        int tilesNumber,
-                        Collection<ImageBuffer> tiles,
-                        int checkedTiles)
-    {
-        final int horizontalTiles = level.getTilesHorizontal();
-        final int verticalTiles = level.getTilesVertical();
-        final ImageBuffer surface = level.getSurface();
-
-        final int tw = level.getTileWidth();
-        final int th = level.getTileHeight();
-        int checked = checkedTiles;
-        int oldPercent = 0;
-        for (int v = 0; v < verticalTiles; v++)
-        {
-            for (int h = 0; h < horizontalTiles; h++)
+            int checked = 0;
+            int oldPercent = 0;
+            for (int i = 0; i < stripes.size(); i++)
             {
-                final int x = h * tw;
-                final int y = v * th;
-                if (IGNORED_COLOR_VALUE != surface.getRgb(x, y) && !isExtracted(level, x, y, tiles))
+                final Stripe stripe = extraction.get(stripes.get(i));
+                // Release merged stripe level
+                stripes.set(i, null);
+                if (stripe == null)
                 {
-                    final ImageBuffer tile = extract(level, h + v * horizontalTiles);
-                    tiles.add(tile);
+                    return tiles;
                 }
-                checked++;
-                oldPercent = updateProgress(checked, tilesNumber, oldPercent, tiles);
-                if (canceler != null && canceler.isCanceled())
+                for (final Found found : stripe.founds)
                 {
-                    return -1;
+                    if (found.key.getIndex() == found.index)
+                    {
+                        tiles.add(createTile(tw, th, stripe.level.transparency, found.pixels));
+                    }
                 }
+                checked += stripe.getTilesNumber();
+                oldPercent = updateProgress(checked, tilesNumber, oldPercent, tiles);
             }
+            return tiles;
+        }
+        finally
+        {
+            extraction.dispose();
+            listeners.clear();
         }
-        return checked;
     }
 
     /**
@@ -316,4 +361,433 @@ public final class TilesExtractor
          */
         boolean isCanceled();
     }
+
+    /**
+     * Extraction state, shared by workers.
+     */
+    private final class Extraction
+    {
+        /** Tiles by content, with their first occurrence. */
+        private final ConcurrentMap<TileKey, TileKey> keys = new ConcurrentHashMap<TileKey, TileKey>();
+        /** Canceled flag, read by workers. */
+        private final AtomicBoolean canceled = new AtomicBoolean();
+        /** Canceler reference (can be <code>null</code>). */
+        private final Canceler canceler;
+        /** Workers service, <code>null</code> to extract on the calling thread. */
+        private final ExecutorService executor;
+        /** Tile width. */
+        private final int tw;
+        /** Tile height. */
+        private final int th;
+
+        /**
+         * Create extraction.
+         * 
+         * @param canceler The canceler reference (can be <code>null</code>).
+         * @param tw The tile width.
+         * @param th The tile height.
+         */
+        Extraction(Canceler canceler, int tw, int th)
+        {
+            this.canceler = canceler;
+            this.tw = tw;
+            this.th = th;
+            if (workers > 0)
+            {
+                executor = Executors.newFixedThreadPool(workers, new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable runnable)
+                    {
+                        final Thread thread = new Thread(runnable, TilesExtractor.class.getSimpleName());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            else
+            {
+                executor = null;
+            }
+        }
+
+        /**
+         * Submit task to workers, or run it if no workers.
+         * 
+         * @param <T> The task result type.
+         * @param task The task to submit.
+         * @return The task future.
+         */
+        <T> Future<T> submit(Callable<T> task)
+        {
+            if (executor != null)
+            {
+                return executor.submit(task);
+            }
+            final FutureTask<T> future = new FutureTask<T>(task);
+            if (!isCanceled())
+            {
+                future.run();
+            }
+            return future;
+        }
+
+        /**
+         * Wait for task result, checking the canceler meanwhile.
+         * 
+         * @param <T> The task result type.
+         * @param future The task future.
+         * @return The task result, <code>null</code> if canceled.
+         * @throws LionEngineException If interrupted or task failed.
+         */
+        <T> T get(Future<T> future)
+        {
+            try
+            {
+                while (!isCanceled())
+                {
+                    try
+                    {
+                        return future.get(CANCEL_DELAY, TimeUnit.MILLISECONDS);
+                    }
+                    catch (@SuppressWarnings("unused") final TimeoutException exception)
+                    {
+                        continue;
+                    }
+                }
+                return null;
+            }
+            catch (final InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new LionEngineException(exception, ERROR_INTERRUPTED);
+            }
+            catch (final ExecutionException exception)
+            {
+                throw new LionEngineException(exception.getCause());
+            }
+        }
+
+        /**
+         * Check if extraction is canceled, and notify workers if so.
+         * 
+         * @return <code>true</code> if canceled, <code>false</code> else.
+         */
+        boolean isCanceled()
+        {
+            if (canceler != null && canceler.isCanceled())
+            {
+                canceled.set(true);
+            }
+            return canceled.get();
+        }
+
+        /**
+         * Stop workers.
+         */
+        void dispose()
+        {
+            canceled.set(true);
+            if (executor != null)
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Level rip loading task.
+     */
+    private static final class Level implements Callable<Level>
+    {
+        /** Level rip media. */
+        private final Media media;
+        /** Tile width. */
+        private final int tw;
+        /** Tile height. */
+        private final int th;
+        /** Level pixels, row by row. */
+        private int[] pixels;
+        /** Level width. */
+        private int width;
+        /** Horizontal tiles number. */
+        private int horizontalTiles;
+        /** Vertical tiles number. */
+        private int verticalTiles;
+        /** Level transparency. */
+        private Transparency transparency;
+
+        /**
+         * Create task.
+         * 
+         * @param media The level rip media.
+         * @param tw The tile width.
+         * @param th The tile height.
+         */
+        Level(Media media, int tw, int th)
+        {
+            this.media = media;
+            this.tw = tw;
+            this.th = th;
+        }
+
+        /*
+         * Callable
+         */
+
+        @Override
+        public Level call()
+        {
+            final ImageBuffer surface = Graphics.getImageBuffer(media);
+            width = surface.getWidth();
+            final int height = surface.getHeight();
+            horizontalTiles = width / tw;
+            verticalTiles = height / th;
+            transparency = surface.getTransparency();
+            pixels = surface.getRgb(0, 0, width, height, new int[width * height], 0, width);
+            surface.dispose();
+            return this;
+        }
+    }
+
+    /**
+     * Tiles rows processing task, collecting the tiles first found in this stripe.
+     */
+    private static final class Stripe implements Callable<Stripe>
+    {
+        /** Found tiles in stripe order. */
+        private final List<Found> founds = new ArrayList<Found>();
+        /** Extraction reference. */
+        private final Extraction extraction;
+        /** Level reference. */
+        private final Level level;
+        /** First tile index of level. */
+        private final int offset;
+        /** First tiles row. */
+        private final int start;
+        /** Last tiles row (excluded). */
+        private final int end;
+
+        /**
+         * Create task.
+         * 
+         * @param extraction The extraction reference.
+         * @param level The level reference.
+         * @param offset The first tile index of level.
+         * @param start The first tiles row.
+         * @param end The last tiles row (excluded).
+         */
+        Stripe(Extraction extraction, Level level, int offset, int start, int end)
+        {
+            this.extraction = extraction;
+            this.level = level;
+            this.offset = offset;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Get the number of tiles in stripe.
+         * 
+         * @return The number of tiles.
+         */
+        int getTilesNumber()
+        {
+            return (end - start) * level.horizontalTiles;
+        }
+
+        /**
+         * Copy tile pixels.
+         * 
+         * @param h The horizontal tile.
+         * @param v The vertical tile.
+         * @param pixels The destination pixels.
+         */
+        private void copy(int h, int v, int[] pixels)
+        {
+            final int tw = extraction.tw;
+            final int th = extraction.th;
+            final int first = v * th * level.width + h * tw;
+            for (int y = 0; y < th; y++)
+            {
+                System.arraycopy(level.pixels, first + y * level.width, pixels, y * tw, tw);
+            }
+        }
+
+        /*
+         * Callable
+         */
+
+        @Override
+        public Stripe call()
+        {
+            final int tw = extraction.tw;
+            final int th = extraction.th;
+            final TileKey probe = new TileKey(new int[tw * th], -1);
+            for (int v = start; v < end && !extraction.canceled.get(); v++)
+            {
+                for (int h = 0; h < level.horizontalTiles; h++)
+                {
+                    if (IGNORED_COLOR_VALUE != level.pixels[v * th * level.width + h * tw])
+                    {
+                        final int index = offset + h + v * level.horizontalTiles;
+                        copy(h, v, probe.pixels);
+                        probe.computeHash();
+
+                        final TileKey key = extraction.keys.get(probe);
+                        if (key == null)
+                        {
+                            final TileKey created = new TileKey(probe.pixels.clone(), index);
+                            final TileKey previous = extraction.keys.putIfAbsent(created, created);
+                            if (previous == null)
+                            {
+                                founds.add(new Found(created, index, created.pixels));
+                            }
+                            else if (previous.lower(index))
+                            {
+                                founds.add(new Found(previous, index, created.pixels));
+                            }
+                        }
+                        else if (key.lower(index))
+                        {
+                            founds.add(new Found(key, index, probe.pixels.clone()));
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Tile found in a stripe, kept if still the first occurrence once all previous stripes are processed.
+     */
+    private static final class Found
+    {
+        /** Tile key. */
+        private final TileKey key;
+        /** Tile index. */
+        private final int index;
+        /** Tile pixels. */
+        private final int[] pixels;
+
+        /**
+         * Create found tile.
+         * 
+         * @param key The tile key.
+         * @param index The tile index.
+         * @param pixels The tile pixels.
+         */
+        Found(TileKey key, int index, int[] pixels)
+        {
+            this.key = key;
+            this.index = index;
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * Tile content key, with the tile first occurrence index.
+     */
+    private static final class TileKey
+    {
+        /** First occurrence index. */
+        private final AtomicInteger index;
+        /** Tile pixels. */
+        private final int[] pixels;
+        /** Pixels hash. */
+        private int hash;
+
+        /**
+         * Create key.
+         * 
+         * @param pixels The tile pixels.
+         * @param index The occurrence index.
+         */
+        TileKey(int[] pixels, int index)
+        {
+            this.pixels = pixels;
+            this.index = new AtomicInteger(index);
+            computeHash();
+        }
+
+        /**
+         * Compute pixels hash.
+         */
+        void computeHash()
+        {
+            int result = 1;
+            for (final int pixel : pixels)
+            {
+                result = 31 * result + normalize(pixel);
+            }
+            hash = result;
+        }
+
+        /**
+         * Set the first occurrence index if lower than the current one.
+         * 
+         * @param occurrence The occurrence index.
+         * @return <code>true</code> if lowered, <code>false</code> else.
+         */
+        boolean lower(int occurrence)
+        {
+            int current = index.get();
+            while (occurrence < current)
+            {
+                if (index.compareAndSet(current, occurrence))
+                {
+                    return true;
+                }
+                current = index.get();
+            }
+            return false;
+        }
+
+        /**
+         * Get the first occurrence index.
+         * 
+         * @return The first occurrence index.
+         */
+        int getIndex()
+        {
+            return index.get();
+        }
+
+        /*
+         * Object
+         */
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+            if (object == null || object.getClass() != getClass())
+            {
+                return false;
+            }
+            final TileKey other = (TileKey) object;
+            if (hash != other.hash || pixels.length != other.pixels.length)
+            {
+                return false;
+            }
+            for (int i = 0; i < pixels.length; i++)
+            {
+                if (normalize(pixels[i]) != normalize(other.pixels[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
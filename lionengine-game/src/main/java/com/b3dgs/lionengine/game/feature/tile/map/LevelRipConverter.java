@@ -20,16 +20,19 @@ package com.b3dgs.lionengine.game.feature.tile.map;
 import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.Media;
 import com.b3dgs.lionengine.core.drawable.Drawable;
-import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.TileRef;
 import com.b3dgs.lionengine.game.feature.tile.TilesExtractor;
 import com.b3dgs.lionengine.graphic.ImageBuffer;
 import com.b3dgs.lionengine.graphic.Sprite;
-import com.b3dgs.lionengine.graphic.SpriteTiled;
 
 /**
  * This class allows to convert a map image to a map level format.
  * The color [0-128-128] ({@link TilesExtractor#IGNORED_COLOR_VALUE}) is ignored (can be used to skip tile, in order to
  * improve performance).
+ * <p>
+ * Level rip tiles are searched in the map sheets with a {@link TileSheetsIndex}, which can be saved and reused between
+ * conversions with {@link TileSheetsIndex#create(MapTile, Media)}.
+ * </p>
  */
 public final class LevelRipConverter
 {
@@ -71,6 +74,26 @@ public final class LevelRipConverter
      * @throws LionEngineException If media is <code>null</code> or image cannot be read.
      */
     public static int start(Media levelrip, MapTile map, ProgressListener listener, Canceler canceler)
+    {
+        return start(levelrip, map, new TileSheetsIndex(map), listener, canceler);
+    }
+
+    /**
+     * Run the converter.
+     * 
+     * @param levelrip The file containing the levelrip as an image.
+     * @param map The destination map reference.
+     * @param index The map sheets index.
+     * @param listener The progress listener.
+     * @param canceler The canceler reference.
+     * @return The total number of not found tiles.
+     * @throws LionEngineException If media is <code>null</code> or image cannot be read.
+     */
+    public static int start(Media levelrip,
+                            MapTile map,
+                            TileSheetsIndex index,
+                            ProgressListener listener,
+                            Canceler canceler)
     {
         final Sprite imageMap = Drawable.loadSprite(levelrip);
         imageMap.load();
@@ -90,7 +113,7 @@ public final class LevelRipConverter
         {
             for (int progressTileX = 0; progressTileX < imageTilesInX; progressTileX++)
             {
-                if (!checkPixel(map, tileRef, progressTileX, progressTileY))
+                if (!checkPixel(map, index, tileRef, progressTileX, progressTileY))
                 {
                     errors++;
                 }
@@ -119,12 +142,17 @@ public final class LevelRipConverter
      * Check the pixel by searching tile on sheet.
      * 
      * @param map The destination map reference.
+     * @param index The map sheets index.
      * @param tileRef The tile sheet.
      * @param progressTileX The progress on horizontal tiles.
      * @param progressTileY The progress on vertical tiles.
      * @return <code>true</code> if tile found, <code>false</code> else.
      */
-    private static boolean checkPixel(MapTile map, ImageBuffer tileRef, int progressTileX, int progressTileY)
+    private static boolean checkPixel(MapTile map,
+                                      TileSheetsIndex index,
+                                      ImageBuffer tileRef,
+                                      int progressTileX,
+                                      int progressTileY)
     {
         final int x = progressTileX * map.getTileWidth();
         final int y = progressTileY * map.getTileHeight();
@@ -134,82 +162,17 @@ public final class LevelRipConverter
         if (TilesExtractor.IGNORED_COLOR_VALUE != pixel)
         {
             // Search if tile is on sheet and get it
-            final Tile tile = searchForTile(map, tileRef, progressTileX, progressTileY);
+            final TileRef tile = index.find(tileRef, x, y);
             if (tile == null)
             {
                 return false;
             }
-            map.setTile(tile);
+            final double ty = (map.getInTileHeight() - 1.0 - progressTileY) * map.getTileHeight();
+            map.setTile(map.createTile(tile.getSheet(), tile.getNumber(), x, ty));
         }
         return true;
     }
 
-    /**
-     * Search current tile of image map by checking all surfaces.
-     * 
-     * @param map The destination map reference.
-     * @param tileSprite The tiled sprite
-     * @param x The location x.
-     * @param y The location y.
-     * @return The tile found.
-     */
-    private static Tile searchForTile(MapTile map, ImageBuffer tileSprite, int x, int y)
-    {
-        // Check each tile on each sheet
-        for (final Integer sheet : map.getSheets())
-        {
-            final Tile tile = checkTile(map, tileSprite, sheet, x, y);
-            if (tile != null)
-            {
-                return tile;
-            }
-        }
-
-        // No tile found
-        return null;
-    }
-
-    /**
-     * Check tile of sheet.
-     * 
-     * @param map The destination map reference.
-     * @param tileSprite The tiled sprite
-     * @param sheet The sheet number.
-     * @param x The location x.
-     * @param y The location y.
-     * @return The tile found.
-     */
-    private static Tile checkTile(MapTile map, ImageBuffer tileSprite, Integer sheet, int x, int y)
-    {
-        final int tw = map.getTileWidth();
-        final int th = map.getTileHeight();
-        final SpriteTiled tileSheet = map.getSheet(sheet);
-        final ImageBuffer sheetImage = tileSheet.getSurface();
-        final int tilesInX = tileSheet.getWidth() / tw;
-        final int tilesInY = tileSheet.getHeight() / th;
-
-        for (int surfaceCurrentTileY = 0; surfaceCurrentTileY < tilesInY; surfaceCurrentTileY++)
-        {
-            for (int surfaceCurrentTileX = 0; surfaceCurrentTileX < tilesInX; surfaceCurrentTileX++)
-            {
-                // Tile number on tile sheet
-                final int number = surfaceCurrentTileX + surfaceCurrentTileY * tilesInX;
-
-                // Compare tiles between sheet and image map
-                final int xa = x * tw;
-                final int ya = y * th;
-                final int xb = surfaceCurrentTileX * tw;
-                final int yb = surfaceCurrentTileY * th;
-
-                if (TilesExtractor.compareTile(tw, th, tileSprite, xa, ya, sheetImage, xb, yb))
-                {
-                    return map.createTile(sheet, number, xa, (map.getInTileHeight() - 1.0 - y) * th);
-                }
-            }
-        }
-        return null;
-    }
-
     /**
      * Private constructor.
      */
@@ -172,6 +172,13 @@ public interface MapTile extends SurfaceTile, Featurable
      */
     void removeListener(TileSetListener listener);
 
+    /**
+     * Set the tile loader, called before each tile access to load tiles on demand. Removed on {@link #clear()}.
+     * 
+     * @param loader The loader reference, <code>null</code> if tiles are all set.
+     */
+    void setLoader(TileLoader loader);
+
     /**
      * Set a tile at specified map location.
      * <p>
@@ -22,7 +22,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 
 import com.b3dgs.lionengine.Check;
@@ -44,8 +43,14 @@ import com.b3dgs.lionengine.util.UtilMath;
 import com.b3dgs.lionengine.util.UtilRandom;
 
 /**
- * Abstract representation of a standard tile based map. This class uses a List of List to store tiles, a TreeMap to
- * store sheets references ({@link SpriteTiled}), and collisions.
+ * Abstract representation of a standard tile based map. This class uses a flat array to store tiles, a map to store
+ * sheets references ({@link SpriteTiled}), and collisions.
+ * <p>
+ * Large maps can instead store only the tiles sheet and number in flat primitive arrays
+ * ({@link #MapTileGame(boolean)}). Tiles are then created on access, and their features are shared by all tiles with
+ * the same {@link com.b3dgs.lionengine.game.feature.tile.TileRef}: set tiles are not kept, and features depending on
+ * tile location ({@link TileLocationFeature}) are rejected.
+ * </p>
  * <p>
  * The way to prepare a map is the following:
  * </p>
@@ -74,6 +79,8 @@ public class MapTileGame extends FeaturableModel implements MapTile
     private final Collection<TileSetListener> tileSetListeners = new ArrayList<TileSetListener>();
     /** Sheets list. */
     private final Map<Integer, SpriteTiled> sheets = new HashMap<Integer, SpriteTiled>();
+    /** Tiles storage. */
+    private final MapTileStorage tiles;
     /** Sheet configuration file. */
     private Media sheetsConfig;
     /** Tile width. */
@@ -86,50 +93,48 @@ public class MapTileGame extends FeaturableModel implements MapTile
     private int heightInTile;
     /** Map radius. */
     private int radius;
-    /** Tiles map. */
-    private List<List<Tile>> tiles;
+    /** Created flag. */
+    private boolean created;
+    /** Tile loader, <code>null</code> if none. */
+    private TileLoader loader;
 
     /**
-     * Create a map tile.
+     * Create a map tile, storing tiles objects.
      */
     public MapTileGame()
     {
-        super();
+        this(false);
     }
 
     /**
-     * Resize map with new size.
+     * Create a map tile.
      * 
-     * @param newWidth The new width in tile.
-     * @param newHeight The new height in tile.
+     * @param flat <code>true</code> to store only tiles sheet and number, creating tiles on access with features shared
+     *            by tile reference, <code>false</code> to store tiles objects.
      */
-    private void resize(int newWidth, int newHeight)
+    public MapTileGame(boolean flat)
     {
-        final int oldWidth = widthInTile;
-        final int oldheight = heightInTile;
+        super();
 
-        // Adjust height
-        for (int v = 0; v < newHeight - oldheight; v++)
+        if (flat)
         {
-            tiles.add(new ArrayList<Tile>(newWidth));
+            tiles = new MapTileStorageFlat(this);
         }
-        // Adjust width
-        for (int v = 0; v < newHeight; v++)
+        else
         {
-            final int width;
-            if (v < oldheight)
-            {
-                width = newWidth - oldWidth;
-            }
-            else
-            {
-                width = newWidth;
-            }
-            for (int h = 0; h < width; h++)
-            {
-                tiles.get(v).add(null);
-            }
+            tiles = new MapTileStorageObject();
         }
+    }
+
+    /**
+     * Resize map with new size.
+     * 
+     * @param newWidth The new width in tile.
+     * @param newHeight The new height in tile.
+     */
+    private void resize(int newWidth, int newHeight)
+    {
+        tiles.resize(newWidth, newHeight);
 
         widthInTile = newWidth;
         heightInTile = newHeight;
@@ -162,6 +167,36 @@ public class MapTileGame extends FeaturableModel implements MapTile
         }
     }
 
+    /**
+     * Add the tile at location if not already found. As hit locations are monotonic, a tile can only be found again
+     * from the previous location.
+     * 
+     * @param found The found tiles.
+     * @param last The last hit location index (-1 if none).
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     * @return The hit location index (-1 if outside map).
+     */
+    private int addTileHit(Collection<Tile> found, int last, double x, double y)
+    {
+        final int tx = (int) Math.floor(x / tileWidth);
+        final int ty = (int) Math.floor(y / tileHeight);
+        if (tx < 0 || ty < 0 || tx >= widthInTile || ty >= heightInTile)
+        {
+            return -1;
+        }
+        final int index = tx + ty * widthInTile;
+        if (index != last)
+        {
+            final Tile tile = getTile(tx, ty);
+            if (tile != null)
+            {
+                found.add(tile);
+            }
+        }
+        return index;
+    }
+
     /*
      * MapTile
      */
@@ -182,16 +217,8 @@ public class MapTileGame extends FeaturableModel implements MapTile
         this.heightInTile = heightInTile;
 
         radius = (int) Math.ceil(StrictMath.sqrt(widthInTile * widthInTile + heightInTile * (double) heightInTile));
-        tiles = new ArrayList<List<Tile>>(heightInTile);
-
-        for (int v = 0; v < heightInTile; v++)
-        {
-            tiles.add(v, new ArrayList<Tile>(widthInTile));
-            for (int h = 0; h < widthInTile; h++)
-            {
-                tiles.get(v).add(h, null);
-            }
-        }
+        tiles.create(widthInTile, heightInTile);
+        created = true;
     }
 
     @Override
@@ -356,12 +383,9 @@ public class MapTileGame extends FeaturableModel implements MapTile
     @Override
     public void clear()
     {
-        if (tiles != null)
+        loader = null;
+        if (created)
         {
-            for (final List<Tile> list : tiles)
-            {
-                list.clear();
-            }
             tiles.clear();
             widthInTile = 0;
             heightInTile = 0;
@@ -380,6 +404,12 @@ public class MapTileGame extends FeaturableModel implements MapTile
         tileSetListeners.remove(listener);
     }
 
+    @Override
+    public void setLoader(TileLoader loader)
+    {
+        this.loader = loader;
+    }
+
     @Override
     public void setTile(Tile tile)
     {
@@ -388,7 +418,12 @@ public class MapTileGame extends FeaturableModel implements MapTile
         Check.inferiorStrict(tx, getInTileWidth());
         Check.inferiorStrict(ty, getInTileHeight());
 
-        tiles.get(ty).set(tx, tile);
+        if (loader != null)
+        {
+            loader.load(tx, ty);
+        }
+
+        tiles.set(tile);
 
         for (final TileSetListener listener : tileSetListeners)
         {
@@ -399,11 +434,15 @@ public class MapTileGame extends FeaturableModel implements MapTile
     @Override
     public Tile getTile(int tx, int ty)
     {
-        if (!UtilMath.isBetween(tx, 0, getInTileWidth() - 1) || !UtilMath.isBetween(ty, 0, getInTileHeight() - 1))
+        if (tx < 0 || ty < 0 || tx >= widthInTile || ty >= heightInTile)
         {
             return null;
         }
-        return tiles.get(ty).get(tx);
+        if (loader != null)
+        {
+            loader.load(tx, ty);
+        }
+        return tiles.get(tx, ty);
     }
 
     @Override
@@ -451,21 +490,14 @@ public class MapTileGame extends FeaturableModel implements MapTile
         double v = oy;
 
         final Collection<Tile> found = new ArrayList<Tile>();
+        int last = -1;
         for (int count = 0; count < force.getVelocity(); count++)
         {
             v += sy;
-            Tile tile = getTileAt(UtilMath.getRound(sx, h), UtilMath.getRound(sy, v));
-            if (tile != null && !found.contains(tile))
-            {
-                found.add(tile);
-            }
+            last = addTileHit(found, last, UtilMath.getRound(sx, h), UtilMath.getRound(sy, v));
 
             h += sx;
-            tile = getTileAt(UtilMath.getRound(sx, h), UtilMath.getRound(sy, v));
-            if (tile != null && !found.contains(tile))
-            {
-                found.add(tile);
-            }
+            last = addTileHit(found, last, UtilMath.getRound(sx, h), UtilMath.getRound(sy, v));
         }
         return found;
     }
@@ -518,8 +550,11 @@ public class MapTileGame extends FeaturableModel implements MapTile
         {
             for (int tx = 0; tx < widthInTile; tx++)
             {
-                final Tile tile = getTile(tx, ty);
-                if (tile != null)
+                if (loader != null)
+                {
+                    loader.load(tx, ty);
+                }
+                if (tiles.has(tx, ty))
                 {
                     tilesNumber++;
                 }
@@ -561,7 +596,7 @@ public class MapTileGame extends FeaturableModel implements MapTile
     @Override
     public boolean isCreated()
     {
-        return tiles != null;
+        return created;
     }
 
     /*
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map;
+
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+
+/**
+ * Map tiles storage, accessed by tile location. Locations are expected to be inside the storage size.
+ */
+interface MapTileStorage
+{
+    /**
+     * Allocate an empty storage. Previous tiles are removed.
+     * 
+     * @param widthInTile The number of horizontal tiles.
+     * @param heightInTile The number of vertical tiles.
+     */
+    void create(int widthInTile, int heightInTile);
+
+    /**
+     * Enlarge storage, keeping existing tiles at their location.
+     * 
+     * @param widthInTile The new number of horizontal tiles (superior or equal to current one).
+     * @param heightInTile The new number of vertical tiles (superior or equal to current one).
+     */
+    void resize(int widthInTile, int heightInTile);
+
+    /**
+     * Remove all tiles.
+     */
+    void clear();
+
+    /**
+     * Set tile at its location.
+     * 
+     * @param tile The tile reference.
+     */
+    void set(Tile tile);
+
+    /**
+     * Get tile at location.
+     * 
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     * @return The tile found, <code>null</code> if none.
+     */
+    Tile get(int tx, int ty);
+
+    /**
+     * Check if there is a tile at location.
+     * 
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     * @return <code>true</code> if has tile, <code>false</code> else.
+     */
+    boolean has(int tx, int ty);
+}
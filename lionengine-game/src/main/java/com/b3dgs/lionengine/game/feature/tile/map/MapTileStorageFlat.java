@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.game.Featurable;
+import com.b3dgs.lionengine.game.FeaturableModel;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.TileRef;
+
+/**
+ * Map tiles storage keeping only the tiles sheet and number, in flat arrays row by row. Set tiles are not kept:
+ * {@link TileFlyweight} are created on access, and their features are shared by all tiles with the same
+ * {@link TileRef}. Created tiles are kept in a small direct mapped cache by location, so that repeated accesses to the
+ * same area do not allocate.
+ */
+final class MapTileStorageFlat implements MapTileStorage
+{
+    /** Created tiles cache size (power of two). */
+    private static final int CACHE_SIZE = 1024;
+    /** Created tiles cache mask. */
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+
+    /** Created tiles by location index modulo cache size. */
+    private final TileFlyweight[] cache = new TileFlyweight[CACHE_SIZE];
+    /** Features by tile reference. */
+    private final Map<TileRef, Featurable> features = new HashMap<TileRef, Featurable>();
+    /** Map reference. */
+    private final MapTile map;
+    /** Tiles sheet plus one by location, 0 if no tile. */
+    private short[] sheets = new short[0];
+    /** Tiles number by location. */
+    private int[] numbers = new int[0];
+    /** Number of horizontal tiles. */
+    private int width;
+    /** Number of vertical tiles. */
+    private int height;
+
+    /**
+     * Create storage.
+     * 
+     * @param map The map reference.
+     */
+    MapTileStorageFlat(MapTile map)
+    {
+        super();
+
+        this.map = map;
+    }
+
+    /**
+     * Get the features shared by tiles with the same reference.
+     * 
+     * @param sheet The tile sheet.
+     * @param number The tile number.
+     * @return The shared features.
+     */
+    Featurable getFeatures(Integer sheet, int number)
+    {
+        final TileRef ref = new TileRef(sheet, number);
+        Featurable featurable = features.get(ref);
+        if (featurable == null)
+        {
+            featurable = new FeaturableModel();
+            features.put(ref, featurable);
+        }
+        return featurable;
+    }
+
+    /*
+     * MapTileStorage
+     */
+
+    @Override
+    public void create(int widthInTile, int heightInTile)
+    {
+        sheets = new short[widthInTile * heightInTile];
+        numbers = new int[sheets.length];
+        width = widthInTile;
+        height = heightInTile;
+        features.clear();
+        Arrays.fill(cache, null);
+    }
+
+    @Override
+    public void resize(int widthInTile, int heightInTile)
+    {
+        final short[] oldSheets = sheets;
+        final int[] oldNumbers = numbers;
+        sheets = new short[widthInTile * heightInTile];
+        numbers = new int[sheets.length];
+        for (int ty = 0; ty < height; ty++)
+        {
+            System.arraycopy(oldSheets, ty * width, sheets, ty * widthInTile, width);
+            System.arraycopy(oldNumbers, ty * width, numbers, ty * widthInTile, width);
+        }
+        width = widthInTile;
+        height = heightInTile;
+        Arrays.fill(cache, null);
+    }
+
+    @Override
+    public void clear()
+    {
+        create(0, 0);
+    }
+
+    @Override
+    public void set(Tile tile)
+    {
+        final int sheet = tile.getSheet().intValue();
+        Check.inferiorStrict(sheet, Short.MAX_VALUE);
+
+        final int index = tile.getInTileX() + tile.getInTileY() * width;
+        sheets[index] = (short) (sheet + 1);
+        numbers[index] = tile.getNumber();
+        cache[index & CACHE_MASK] = null;
+    }
+
+    @Override
+    public Tile get(int tx, int ty)
+    {
+        final int index = tx + ty * width;
+        if (sheets[index] == 0)
+        {
+            return null;
+        }
+        final TileFlyweight cached = cache[index & CACHE_MASK];
+        if (cached != null && cached.getInTileX() == tx && cached.getInTileY() == ty)
+        {
+            return cached;
+        }
+        final Integer sheet = Integer.valueOf(sheets[index] - 1);
+        final TileFlyweight tile = new TileFlyweight(this,
+                                                     sheet,
+                                                     numbers[index],
+                                                     tx,
+                                                     ty,
+                                                     map.getTileWidth(),
+                                                     map.getTileHeight());
+        cache[index & CACHE_MASK] = tile;
+        return tile;
+    }
+
+    @Override
+    public boolean has(int tx, int ty)
+    {
+        return sheets[tx + ty * width] != 0;
+    }
+}
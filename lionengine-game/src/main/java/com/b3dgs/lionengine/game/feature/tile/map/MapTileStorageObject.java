@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map;
+
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+
+/**
+ * Map tiles storage keeping the set tiles in a flat array, row by row.
+ */
+final class MapTileStorageObject implements MapTileStorage
+{
+    /** Tiles by location. */
+    private Tile[] tiles = new Tile[0];
+    /** Number of horizontal tiles. */
+    private int width;
+    /** Number of vertical tiles. */
+    private int height;
+
+    /**
+     * Create storage.
+     */
+    MapTileStorageObject()
+    {
+        super();
+    }
+
+    /*
+     * MapTileStorage
+     */
+
+    @Override
+    public void create(int widthInTile, int heightInTile)
+    {
+        tiles = new Tile[widthInTile * heightInTile];
+        width = widthInTile;
+        height = heightInTile;
+    }
+
+    @Override
+    public void resize(int widthInTile, int heightInTile)
+    {
+        final Tile[] old = tiles;
+        tiles = new Tile[widthInTile * heightInTile];
+        for (int ty = 0; ty < height; ty++)
+        {
+            System.arraycopy(old, ty * width, tiles, ty * widthInTile, width);
+        }
+        width = widthInTile;
+        height = heightInTile;
+    }
+
+    @Override
+    public void clear()
+    {
+        create(0, 0);
+    }
+
+    @Override
+    public void set(Tile tile)
+    {
+        tiles[tile.getInTileX() + tile.getInTileY() * width] = tile;
+    }
+
+    @Override
+    public Tile get(int tx, int ty)
+    {
+        return tiles[tx + ty * width];
+    }
+
+    @Override
+    public boolean has(int tx, int ty)
+    {
+        return tiles[tx + ty * width] != null;
+    }
+}
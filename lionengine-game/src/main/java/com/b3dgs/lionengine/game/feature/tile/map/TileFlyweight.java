@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.game.Feature;
+import com.b3dgs.lionengine.game.Featurable;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.TileGame;
+
+/**
+ * Tile created on access from {@link MapTileStorageFlat}. Features are shared by all tiles with the same sheet and
+ * number, and are only retrieved on first feature access, so {@link TileLocationFeature} are not supported. Equality
+ * is the same as {@link TileGame}.
+ */
+final class TileFlyweight implements Tile
+{
+    /** Location feature error. */
+    private static final String ERROR_LOCATION_FEATURE = "Location dependent feature not supported by flat storage: ";
+
+    /**
+     * Check feature does not depend on tile location.
+     * 
+     * @param feature The feature to check.
+     * @throws LionEngineException If feature depends on tile location.
+     */
+    private static void checkShared(Feature feature)
+    {
+        if (feature instanceof TileLocationFeature)
+        {
+            throw new LionEngineException(ERROR_LOCATION_FEATURE, feature.getClass().getName());
+        }
+    }
+
+    /** Storage reference. */
+    private final MapTileStorageFlat storage;
+    /** Tile sheet number where tile is contained. */
+    private final Integer sheet;
+    /** Position number in the tilesheet. */
+    private final int number;
+    /** In tile x. */
+    private final int inTileX;
+    /** In tile y. */
+    private final int inTileY;
+    /** Tile width. */
+    private final int width;
+    /** Tile height. */
+    private final int height;
+    /** Shared features, <code>null</code> until first access. */
+    private Featurable featurable;
+
+    /**
+     * Create a tile.
+     * 
+     * @param storage The storage reference.
+     * @param sheet The sheet number.
+     * @param number The tile number on sheet.
+     * @param inTileX The horizontal location in tile.
+     * @param inTileY The vertical location in tile.
+     * @param width The tile width.
+     * @param height The tile height.
+     */
+    TileFlyweight(MapTileStorageFlat storage,
+                  Integer sheet,
+                  int number,
+                  int inTileX,
+                  int inTileY,
+                  int width,
+                  int height)
+    {
+        super();
+
+        this.storage = storage;
+        this.sheet = sheet;
+        this.number = number;
+        this.inTileX = inTileX;
+        this.inTileY = inTileY;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Get the shared features.
+     * 
+     * @return The shared features.
+     */
+    private Featurable getFeaturable()
+    {
+        if (featurable == null)
+        {
+            featurable = storage.getFeatures(sheet, number);
+        }
+        return featurable;
+    }
+
+    /*
+     * Tile
+     */
+
+    @Override
+    public Integer getSheet()
+    {
+        return sheet;
+    }
+
+    @Override
+    public int getNumber()
+    {
+        return number;
+    }
+
+    @Override
+    public double getX()
+    {
+        return inTileX * (double) width;
+    }
+
+    @Override
+    public double getY()
+    {
+        return inTileY * (double) height;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    public int getInTileX()
+    {
+        return inTileX;
+    }
+
+    @Override
+    public int getInTileY()
+    {
+        return inTileY;
+    }
+
+    @Override
+    public int getInTileWidth()
+    {
+        return 1;
+    }
+
+    @Override
+    public int getInTileHeight()
+    {
+        return 1;
+    }
+
+    /*
+     * Featurable
+     */
+
+    @Override
+    public void addFeature(Feature feature)
+    {
+        checkShared(feature);
+        getFeaturable().addFeature(feature);
+    }
+
+    @Override
+    public <T extends Feature> T addFeatureAndGet(T feature)
+    {
+        checkShared(feature);
+        return getFeaturable().addFeatureAndGet(feature);
+    }
+
+    @Override
+    public void checkListener(Object listener)
+    {
+        getFeaturable().checkListener(listener);
+    }
+
+    @Override
+    public Media getMedia()
+    {
+        return getFeaturable().getMedia();
+    }
+
+    @Override
+    public <C extends Feature> C getFeature(Class<C> feature)
+    {
+        return getFeaturable().getFeature(feature);
+    }
+
+    @Override
+    public Iterable<Feature> getFeatures()
+    {
+        return getFeaturable().getFeatures();
+    }
+
+    @Override
+    public Iterable<Class<? extends Feature>> getFeaturesType()
+    {
+        return getFeaturable().getFeaturesType();
+    }
+
+    @Override
+    public boolean hasFeature(Class<? extends Feature> feature)
+    {
+        return getFeaturable().hasFeature(feature);
+    }
+
+    /*
+     * Object
+     */
+
+    @Override
+    public int hashCode()
+    {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + width;
+        result = prime * result + height;
+        result = prime * result + inTileX;
+        result = prime * result + inTileY;
+        result = prime * result + sheet.hashCode();
+        result = prime * result + number;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object)
+        {
+            return true;
+        }
+        if (object == null || object.getClass() != getClass())
+        {
+            return false;
+        }
+        final TileFlyweight other = (TileFlyweight) object;
+        return number == other.number
+               && width == other.width
+               && height == other.height
+               && inTileX == other.inTileX
+               && inTileY == other.inTileY
+               && sheet.equals(other.sheet);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map;
+
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+
+/**
+ * Map tile loader, allowing tiles to be loaded on demand instead of being all set on map creation.
+ * <p>
+ * It is called before each tile access, and must set the tiles of the requested location with
+ * {@link MapTile#setTile(Tile)} if not already done. It is removed on map {@link MapTile#clear()}.
+ * </p>
+ * 
+ * @see MapTile#setLoader(TileLoader)
+ */
+public interface TileLoader
+{
+    /**
+     * Ensure the tile at location is loaded.
+     * 
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     */
+    void load(int tx, int ty);
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.game.feature.tile.TileRef;
+import com.b3dgs.lionengine.game.feature.tile.TilesExtractor;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.SpriteTiled;
+import com.b3dgs.lionengine.io.FileReading;
+import com.b3dgs.lionengine.io.FileWriting;
+import com.b3dgs.lionengine.util.UtilStream;
+
+/**
+ * Index of the map sheets tiles by content hash ({@link TilesExtractor#hashTile(int, int, ImageBuffer, int, int)}),
+ * allowing to find a tile from its image without comparing it to each sheet tile.
+ * <p>
+ * The index can be saved alongside the sheets configuration, and loaded with {@link #create(MapTile, Media)}. A saved
+ * index is ignored and rebuilt if the tile size or the sheets number or size changed. It must be deleted if sheets
+ * content is edited without changing their size.
+ * </p>
+ */
+public final class TileSheetsIndex
+{
+    /** Index file version. */
+    private static final int VERSION = 1;
+    /** Index saving error. */
+    private static final String ERROR_SAVE = "Unable to save tile sheets index !";
+
+    /**
+     * Load the index from file if valid for the map sheets, else build it and save it to file.
+     * 
+     * @param map The map reference, with loaded sheets.
+     * @param media The index file.
+     * @return The index.
+     * @throws LionEngineException If unable to save the index.
+     */
+    public static TileSheetsIndex create(MapTile map, Media media)
+    {
+        if (media.exists())
+        {
+            final FileReading reading = new FileReading(media);
+            try
+            {
+                final TileSheetsIndex index = new TileSheetsIndex(map, reading);
+                if (index.valid)
+                {
+                    return index;
+                }
+            }
+            catch (@SuppressWarnings("unused") final IOException exception)
+            {
+                // Rebuild index
+            }
+            finally
+            {
+                UtilStream.safeClose(reading);
+            }
+        }
+        final TileSheetsIndex index = new TileSheetsIndex(map);
+        index.save(media);
+        return index;
+    }
+
+    /** Tiles by hash, in sheets order. */
+    private final Map<Integer, List<TileRef>> tiles = new HashMap<Integer, List<TileRef>>();
+    /** Indexed tiles in sheets order. */
+    private final List<TileRef> refs = new ArrayList<TileRef>();
+    /** Indexed tiles hash in sheets order. */
+    private final List<Integer> hashes = new ArrayList<Integer>();
+    /** Map reference. */
+    private final MapTile map;
+    /** Loaded index valid flag. */
+    private final boolean valid;
+
+    /**
+     * Build the index of the map sheets.
+     * 
+     * @param map The map reference, with loaded sheets.
+     */
+    public TileSheetsIndex(MapTile map)
+    {
+        this.map = map;
+
+        final int tw = map.getTileWidth();
+        final int th = map.getTileHeight();
+        for (final Integer sheet : map.getSheets())
+        {
+            final SpriteTiled tileSheet = map.getSheet(sheet);
+            final ImageBuffer surface = tileSheet.getSurface();
+            final int tilesInX = tileSheet.getWidth() / tw;
+            final int tilesInY = tileSheet.getHeight() / th;
+            for (int ty = 0; ty < tilesInY; ty++)
+            {
+                for (int tx = 0; tx < tilesInX; tx++)
+                {
+                    final int hash = TilesExtractor.hashTile(tw, th, surface, tx * tw, ty * th);
+                    add(new TileRef(sheet, tx + ty * tilesInX), Integer.valueOf(hash));
+                }
+            }
+        }
+        valid = true;
+    }
+
+    /**
+     * Load the index of the map sheets.
+     * 
+     * @param map The map reference, with loaded sheets.
+     * @param reading The index file.
+     * @throws IOException If error on reading.
+     */
+    private TileSheetsIndex(MapTile map, FileReading reading) throws IOException
+    {
+        this.map = map;
+
+        valid = readHeader(reading);
+        if (valid)
+        {
+            final int count = reading.readInteger();
+            for (int i = 0; i < count; i++)
+            {
+                final int sheet = reading.readInteger();
+                final int number = reading.readInteger();
+                add(new TileRef(sheet, number), Integer.valueOf(reading.readInteger()));
+            }
+        }
+    }
+
+    /**
+     * Find the sheet tile equal to the image tile, by checking only tiles with the same hash.
+     * 
+     * @param image The image reference.
+     * @param x The tile horizontal location on image.
+     * @param y The tile vertical location on image.
+     * @return The sheet tile found, <code>null</code> if none.
+     */
+    public TileRef find(ImageBuffer image, int x, int y)
+    {
+        final int tw = map.getTileWidth();
+        final int th = map.getTileHeight();
+        final List<TileRef> candidates = tiles.get(Integer.valueOf(TilesExtractor.hashTile(tw, th, image, x, y)));
+        if (candidates != null)
+        {
+            for (final TileRef ref : candidates)
+            {
+                final SpriteTiled sheet = map.getSheet(ref.getSheet());
+                final int tilesInX = sheet.getWidth() / tw;
+                final int xb = ref.getNumber() % tilesInX * tw;
+                final int yb = ref.getNumber() / tilesInX * th;
+                if (TilesExtractor.compareTile(tw, th, image, x, y, sheet.getSurface(), xb, yb))
+                {
+                    return ref;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Save the index to file.
+     * 
+     * @param media The index file.
+     * @throws LionEngineException If error on saving.
+     */
+    public void save(Media media)
+    {
+        final FileWriting writing = new FileWriting(media);
+        try
+        {
+            writing.writeInteger(VERSION);
+            writing.writeInteger(map.getTileWidth());
+            writing.writeInteger(map.getTileHeight());
+            writing.writeInteger(map.getSheetsNumber());
+            for (final Integer sheet : map.getSheets())
+            {
+                final SpriteTiled tileSheet = map.getSheet(sheet);
+                writing.writeInteger(sheet.intValue());
+                writing.writeInteger(tileSheet.getWidth());
+                writing.writeInteger(tileSheet.getHeight());
+            }
+            final int count = refs.size();
+            writing.writeInteger(count);
+            for (int i = 0; i < count; i++)
+            {
+                final TileRef ref = refs.get(i);
+                writing.writeInteger(ref.getSheet().intValue());
+                writing.writeInteger(ref.getNumber());
+                writing.writeInteger(hashes.get(i).intValue());
+            }
+        }
+        catch (final IOException exception)
+        {
+            throw new LionEngineException(exception, media, ERROR_SAVE);
+        }
+        finally
+        {
+            UtilStream.safeClose(writing);
+        }
+    }
+
+    /**
+     * Check if loaded index is valid.
+     * 
+     * @return <code>true</code> if built or loaded with the same tile size and sheets, <code>false</code> else.
+     */
+    public boolean isValid()
+    {
+        return valid;
+    }
+
+    /**
+     * Read header and check that it matches the map sheets.
+     * 
+     * @param reading The index file.
+     * @return <code>true</code> if valid, <code>false</code> else.
+     * @throws IOException If error on reading.
+     */
+    private boolean readHeader(FileReading reading) throws IOException
+    {
+        if (reading.readInteger() != VERSION
+            || reading.readInteger() != map.getTileWidth()
+            || reading.readInteger() != map.getTileHeight()
+            || reading.readInteger() != map.getSheetsNumber())
+        {
+            return false;
+        }
+        for (final Integer sheet : map.getSheets())
+        {
+            final SpriteTiled tileSheet = map.getSheet(sheet);
+            if (reading.readInteger() != sheet.intValue()
+                || reading.readInteger() != tileSheet.getWidth()
+                || reading.readInteger() != tileSheet.getHeight())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add tile to index.
+     * 
+     * @param ref The tile reference.
+     * @param hash The tile hash.
+     */
+    private void add(TileRef ref, Integer hash)
+    {
+        refs.add(ref);
+        hashes.add(hash);
+        List<TileRef> list = tiles.get(hash);
+        if (list == null)
+        {
+            list = new ArrayList<TileRef>(1);
+            tiles.put(hash, list);
+        }
+        list.add(ref);
+    }
+}
@@ -19,7 +19,7 @@ package com.b3dgs.lionengine.game.feature.tile.map.collision;
 
 import java.util.Collection;
 
-import com.b3dgs.lionengine.game.Feature;
+import com.b3dgs.lionengine.game.feature.tile.map.TileLocationFeature;
 
 /**
  * Tile representation with the following data:
@@ -33,7 +33,7 @@ import com.b3dgs.lionengine.game.Feature;
  * 
  * @see CollisionFormula
  */
-public interface TileCollision extends Feature
+public interface TileCollision extends TileLocationFeature
 {
     /**
      * Add a collision formula.
@@ -39,6 +39,21 @@ public final class Astar
         return new PathFinderImpl(map, maxSearchDistance, heuristic);
     }
 
+    /**
+     * Create a path finder using an indexed binary heap and generation stamped nodes. Searches do not allocate
+     * intermediate objects, making it suitable when many objects are searching paths frequently.
+     * 
+     * @param map The map to be searched. Must have the
+     *            {@link com.b3dgs.lionengine.game.feature.tile.map.pathfinding.MapTilePath} feature.
+     * @param maxSearchDistance The maximum depth we'll search before giving up.
+     * @param heuristic The heuristic used to determine the search order of the map.
+     * @return The path finder instance.
+     */
+    public static PathFinder createPathFinderHeap(MapTile map, int maxSearchDistance, Heuristic heuristic)
+    {
+        return new PathFinderHeap(map, maxSearchDistance, heuristic);
+    }
+
     /**
      * Create the closest heuristic.
      * 
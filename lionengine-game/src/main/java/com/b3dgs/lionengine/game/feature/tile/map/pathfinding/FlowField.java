@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Flow field toward a destination, shared by any mover with the same profile.
+ * <p>
+ * The integration field (cost to reach the destination) is computed with a Dijkstra search starting from the
+ * destination, using the tiles categories and mover profile copied on creation, as
+ * {@link MapTilePath#getCost(Pathfindable, int, int)} and
+ * {@link MapTilePath#isBlocked(Pathfindable, int, int, boolean)} (objects references are ignored). No mover reference
+ * is kept. Each reached tile stores the movement to its best neighbor, which can then be read in constant time.
+ * </p>
+ * <p>
+ * The field can be computed over several updates: tiles are settled by increasing cost, and only settled tiles
+ * provide their movement.
+ * </p>
+ */
+public final class FlowField
+{
+    /** No movement. */
+    private static final byte NONE = -1;
+    /** Horizontal offset by movement index. */
+    private static final int[] OFFSET_X =
+    {
+        -1, 0, 1, -1, 1, -1, 0, 1
+    };
+    /** Vertical offset by movement index. */
+    private static final int[] OFFSET_Y =
+    {
+        -1, -1, -1, 0, 0, 1, 1, 1
+    };
+
+    /** Map categories snapshot. */
+    private final PathSnapshot snapshot;
+    /** Mover profile used to compute field. */
+    private final PathProfile profile;
+    /** Cost to destination by tile. */
+    private final double[] costs;
+    /** Movement index by tile. */
+    private final byte[] directions;
+    /** Settled tiles. */
+    private final boolean[] settled;
+    /** Destination horizontal tile. */
+    private final int dtx;
+    /** Destination vertical tile. */
+    private final int dty;
+    /** Map width in tile. */
+    private final int width;
+    /** Map height in tile. */
+    private final int height;
+    /** Open list, <code>null</code> when complete. */
+    private NodeHeap open;
+
+    /**
+     * Create flow field. Nothing is computed until {@link #update(int)}.
+     * 
+     * @param snapshot The map categories snapshot.
+     * @param profile The mover profile, on the snapshot categories.
+     * @param dtx The destination horizontal tile.
+     * @param dty The destination vertical tile.
+     */
+    FlowField(PathSnapshot snapshot, PathProfile profile, int dtx, int dty)
+    {
+        this.snapshot = snapshot;
+        this.profile = profile;
+        this.dtx = dtx;
+        this.dty = dty;
+        width = snapshot.getWidth();
+        height = snapshot.getHeight();
+
+        final int count = width * height;
+        costs = new double[count];
+        directions = new byte[count];
+        settled = new boolean[count];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        Arrays.fill(directions, NONE);
+
+        open = new NodeHeap(count);
+        if (dtx >= 0 && dty >= 0 && dtx < width && dty < height)
+        {
+            final int destination = dty * width + dtx;
+            costs[destination] = 0.0;
+            open.add(destination, 0.0);
+        }
+    }
+
+    /**
+     * Continue field computation.
+     * 
+     * @param budget The maximum number of tiles to settle.
+     * @return The number of tiles settled.
+     */
+    int update(int budget)
+    {
+        int count = 0;
+        while (open != null && count < budget)
+        {
+            if (!open.isEmpty())
+            {
+                final int current = open.poll();
+                settled[current] = true;
+                expand(current);
+                count++;
+            }
+            if (open.isEmpty())
+            {
+                open = null;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Relax the neighbors which can move to the current tile.
+     * 
+     * @param current The current tile index.
+     */
+    private void expand(int current)
+    {
+        final int cx = current % width;
+        final int cy = current / width;
+        for (int i = 0; i < OFFSET_X.length; i++)
+        {
+            final int x = OFFSET_X[i];
+            final int y = OFFSET_Y[i];
+            final int tx = cx - x;
+            final int ty = cy - y;
+            if (tx >= 0 && ty >= 0 && tx < width && ty < height)
+            {
+                final int neighbour = ty * width + tx;
+                final int category = snapshot.getCategory(tx, ty);
+                if (!settled[neighbour] && !profile.isBlocking(category))
+                {
+                    final double cost = costs[current] + profile.getCost(category);
+                    if (cost < costs[neighbour] && profile.isMovementAllowed(category, x, y))
+                    {
+                        costs[neighbour] = cost;
+                        directions[neighbour] = (byte) i;
+                        open.add(neighbour, cost);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the movement to perform from location to get closer to destination.
+     * 
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     * @return The movement, <code>null</code> if destination, unreachable or not computed yet.
+     */
+    public MovementTile getMovement(int tx, int ty)
+    {
+        if (!isReachable(tx, ty))
+        {
+            return null;
+        }
+        final byte direction = directions[ty * width + tx];
+        if (direction == NONE)
+        {
+            return null;
+        }
+        return PathFinderHeap.getMovement(OFFSET_X[direction], OFFSET_Y[direction]);
+    }
+
+    /**
+     * Get the cost to reach the destination from location.
+     * 
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     * @return The cost, {@link Double#POSITIVE_INFINITY} if unreachable or not computed yet.
+     */
+    public double getCost(int tx, int ty)
+    {
+        if (!isReachable(tx, ty))
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return costs[ty * width + tx];
+    }
+
+    /**
+     * Check if destination can be reached from location.
+     * 
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     * @return <code>true</code> if reachable, <code>false</code> if unreachable or not computed yet.
+     */
+    public boolean isReachable(int tx, int ty)
+    {
+        return tx >= 0 && ty >= 0 && tx < width && ty < height && settled[ty * width + tx];
+    }
+
+    /**
+     * Check if field is fully computed.
+     * 
+     * @return <code>true</code> if complete, <code>false</code> else.
+     */
+    public boolean isComplete()
+    {
+        return open == null;
+    }
+
+    /**
+     * Get the destination horizontal tile.
+     * 
+     * @return The destination horizontal tile.
+     */
+    public int getDestinationX()
+    {
+        return dtx;
+    }
+
+    /**
+     * Get the destination vertical tile.
+     * 
+     * @return The destination vertical tile.
+     */
+    public int getDestinationY()
+    {
+        return dty;
+    }
+}
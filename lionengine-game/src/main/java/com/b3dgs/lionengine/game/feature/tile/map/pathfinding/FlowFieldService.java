@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Updatable;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.TileSetListener;
+
+/**
+ * Flow fields provider, for group moves to a shared destination.
+ * <p>
+ * Fields are keyed by destination and mover profile (costs, blocking states and allowed movements of each map path
+ * category), so that any number of movers with the same profile share the same {@link FlowField}. The least recently
+ * used fields are evicted when capacity is reached, and all fields are dropped when a tile is set.
+ * </p>
+ * <p>
+ * A requested field is computed over the next updates, with a maximum number of tiles settled per update shared by
+ * the incomplete fields, most recently requested first.
+ * </p>
+ */
+public class FlowFieldService implements Updatable, TileSetListener
+{
+    /** Default cached fields capacity. */
+    public static final int DEFAULT_CAPACITY = 8;
+    /** Default tiles settled per update. */
+    public static final int DEFAULT_BUDGET = 4096;
+
+    /** Cached fields, least recently used first. */
+    private final Map<Key, FlowField> fields;
+    /** Incomplete fields buffer. */
+    private final List<FlowField> incomplete = new ArrayList<FlowField>();
+    /** Map reference. */
+    private final MapTile map;
+    /** Tiles settled per update. */
+    private final int budget;
+    /** Map categories snapshot shared by fields, <code>null</code> until next request. */
+    private PathSnapshot snapshot;
+
+    /**
+     * Create service with {@link #DEFAULT_CAPACITY} and {@link #DEFAULT_BUDGET}.
+     * <p>
+     * The {@link Services} must provide the following services:
+     * </p>
+     * <ul>
+     * <li>{@link MapTile}</li>
+     * </ul>
+     * <p>
+     * The {@link MapTile} must provide the following features:
+     * </p>
+     * <ul>
+     * <li>{@link MapTilePath}</li>
+     * </ul>
+     * 
+     * @param services The services reference.
+     * @throws LionEngineException If services not found.
+     */
+    public FlowFieldService(Services services)
+    {
+        this(services, DEFAULT_CAPACITY, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Create service.
+     * <p>
+     * The {@link Services} must provide the following services:
+     * </p>
+     * <ul>
+     * <li>{@link MapTile}</li>
+     * </ul>
+     * <p>
+     * The {@link MapTile} must provide the following features:
+     * </p>
+     * <ul>
+     * <li>{@link MapTilePath}</li>
+     * </ul>
+     * 
+     * @param services The services reference.
+     * @param capacity The maximum number of cached fields (strictly positive).
+     * @param budget The maximum number of tiles settled per update (strictly positive).
+     * @throws LionEngineException If services not found or invalid arguments.
+     */
+    public FlowFieldService(Services services, final int capacity, int budget)
+    {
+        super();
+
+        Check.superiorStrict(capacity, 0);
+        Check.superiorStrict(budget, 0);
+
+        this.budget = budget;
+        map = services.get(MapTile.class);
+        map.addListener(this);
+        fields = new LinkedHashMap<Key, FlowField>(capacity, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, FlowField> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the field toward destination for the mover, create it if needed. A created field is computed over the next
+     * updates. The returned field should be kept by the movers using it, instead of calling this each frame.
+     * 
+     * @param mover The mover reference.
+     * @param dtx The destination horizontal tile.
+     * @param dty The destination vertical tile.
+     * @return The flow field (may be incomplete).
+     */
+    public FlowField get(Pathfindable mover, int dtx, int dty)
+    {
+        if (snapshot == null)
+        {
+            snapshot = new PathSnapshot(map, 0);
+        }
+        final PathProfile profile = new PathProfile(mover, snapshot.getCategories());
+        final Key key = new Key(profile, dtx, dty);
+        FlowField field = fields.get(key);
+        if (field == null)
+        {
+            field = new FlowField(snapshot, profile, dtx, dty);
+            fields.put(key, field);
+        }
+        return field;
+    }
+
+    /**
+     * Get the field toward destination for the mover, and complete its computation immediately.
+     * 
+     * @param mover The mover reference.
+     * @param dtx The destination horizontal tile.
+     * @param dty The destination vertical tile.
+     * @return The complete flow field.
+     */
+    public FlowField getComplete(Pathfindable mover, int dtx, int dty)
+    {
+        final FlowField field = get(mover, dtx, dty);
+        field.update(Integer.MAX_VALUE);
+        return field;
+    }
+
+    /**
+     * Get the number of cached fields.
+     * 
+     * @return The number of cached fields.
+     */
+    public int getCount()
+    {
+        return fields.size();
+    }
+
+    /**
+     * Drop all cached fields, such as after a {@link MapTilePath#loadPathfinding(com.b3dgs.lionengine.Media)}.
+     */
+    public void invalidate()
+    {
+        fields.clear();
+        snapshot = null;
+    }
+
+    /*
+     * Updatable
+     */
+
+    /**
+     * Continue incomplete fields computation, most recently requested first, until budget is reached.
+     * 
+     * @param extrp The extrapolation value.
+     */
+    @Override
+    public void update(double extrp)
+    {
+        for (final FlowField field : fields.values())
+        {
+            if (!field.isComplete())
+            {
+                incomplete.add(field);
+            }
+        }
+        int remaining = budget;
+        for (int i = incomplete.size() - 1; i >= 0 && remaining > 0; i--)
+        {
+            remaining -= incomplete.get(i).update(remaining);
+        }
+        incomplete.clear();
+    }
+
+    /*
+     * TileSetListener
+     */
+
+    @Override
+    public void onTileSet(Tile tile)
+    {
+        fields.clear();
+        snapshot = null;
+    }
+
+    /**
+     * Field key.
+     */
+    private static final class Key
+    {
+        /** Mover profile. */
+        private final PathProfile profile;
+        /** Destination horizontal tile. */
+        private final int dtx;
+        /** Destination vertical tile. */
+        private final int dty;
+
+        /**
+         * Create key.
+         * 
+         * @param profile The mover profile.
+         * @param dtx The destination horizontal tile.
+         * @param dty The destination vertical tile.
+         */
+        Key(PathProfile profile, int dtx, int dty)
+        {
+            this.profile = profile;
+            this.dtx = dtx;
+            this.dty = dty;
+        }
+
+        /*
+         * Object
+         */
+
+        @Override
+        public int hashCode()
+        {
+            int result = profile.hashCode();
+            result = 31 * result + dtx;
+            result = 31 * result + dty;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+            if (object == null || object.getClass() != getClass())
+            {
+                return false;
+            }
+            final Key other = (Key) object;
+            return dtx == other.dtx && dty == other.dty && profile.equals(other.profile);
+        }
+    }
+}
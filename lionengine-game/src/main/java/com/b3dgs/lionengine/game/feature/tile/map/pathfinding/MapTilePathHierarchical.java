@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import com.b3dgs.lionengine.game.Feature;
+
+/**
+ * Hierarchical pathfinding (HPA*) layer over {@link MapTilePath}.
+ * <p>
+ * The map is split into square clusters. Entrances between adjacent clusters are computed from tile path categories,
+ * and linked inside each cluster by their local path cost, resulting in an abstract graph. Long range searches are
+ * performed on this graph, and only the local segments between consecutive abstract nodes are refined on tiles.
+ * </p>
+ * <p>
+ * Abstract graphs are built lazily for each mover profile (blocking categories, costs and allowed movements), and only
+ * reflect map tiles (objects references are checked on refinement). A cluster is rebuilt on next search after its
+ * invalidation, which is automatically performed when a tile is set on the map.
+ * </p>
+ * <p>
+ * When present on the map, {@link PathfindableModel} uses this feature as its {@link PathFinder}.
+ * </p>
+ */
+public interface MapTilePathHierarchical extends Feature, PathFinder
+{
+    /**
+     * Invalidate the cluster containing the location, and its neighbors if location is on cluster border.
+     * 
+     * @param tx The horizontal tile index.
+     * @param ty The vertical tile index.
+     */
+    void invalidate(int tx, int ty);
+
+    /**
+     * Invalidate all clusters, such as after a {@link MapTilePath#loadPathfinding(com.b3dgs.lionengine.Media)}.
+     */
+    void invalidate();
+
+    /**
+     * Get the cluster size.
+     * 
+     * @return The cluster size in tile.
+     */
+    int getClusterSize();
+}
@@ -0,0 +1,881 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.FeatureModel;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.TileSetListener;
+import com.b3dgs.lionengine.util.UtilMath;
+
+/**
+ * Map tile hierarchical path model implementation.
+ */
+public class MapTilePathHierarchicalModel extends FeatureModel implements MapTilePathHierarchical, TileSetListener
+{
+    /** Default cluster size in tile. */
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+    /** Entrance length from which a transition is created at each of its ends instead of its middle. */
+    private static final int ENTRANCE_SPLIT = 6;
+    /** No node index. */
+    private static final int NONE = -1;
+    /** Node default capacity per cluster. */
+    private static final int NODES_CAPACITY = 8;
+
+    /** Abstract graphs by mover profile. */
+    private final Map<PathProfile, Graph> graphs = new HashMap<PathProfile, Graph>();
+    /** Sorted map categories, used to compute mover profile. */
+    private final List<String> categories = new ArrayList<String>();
+    /** Heuristic used on abstract graph and local searches. */
+    private final Heuristic heuristic = new HeuristicClosest();
+    /** Map reference. */
+    private final MapTile map;
+    /** Map path reference. */
+    private final MapTilePath mapPath;
+    /** Local search engine, used for refinement and abstract edges. */
+    private final PathFinderHeap local;
+    /** Abstract search open list. */
+    private final NodeHeap open;
+    /** Abstract node costs from start, indexed by tile. */
+    private final double[] costs;
+    /** Abstract node parents, indexed by tile. */
+    private final int[] parents;
+    /** Abstract node visited generation, indexed by tile. */
+    private final int[] visited;
+    /** Cluster size in tile. */
+    private final int clusterSize;
+    /** Number of horizontal clusters. */
+    private final int clustersH;
+    /** Number of vertical clusters. */
+    private final int clustersV;
+    /** Map width in tile. */
+    private final int width;
+    /** Map height in tile. */
+    private final int height;
+    /** Goal cluster nodes cost to goal. */
+    private double[] goalCosts = new double[NODES_CAPACITY];
+    /** Abstract path buffer. */
+    private int[] steps = new int[NODES_CAPACITY];
+    /** Abstract search generation. */
+    private int generation;
+
+    /**
+     * Create a map tile hierarchical path with {@link #DEFAULT_CLUSTER_SIZE}.
+     * <p>
+     * The {@link Services} must provide the following services:
+     * </p>
+     * <ul>
+     * <li>{@link MapTile}</li>
+     * </ul>
+     * <p>
+     * The {@link MapTile} must provide the following features:
+     * </p>
+     * <ul>
+     * <li>{@link MapTilePath}</li>
+     * </ul>
+     * 
+     * @param services The services reference.
+     * @throws LionEngineException If services not found.
+     */
+    public MapTilePathHierarchicalModel(Services services)
+    {
+        this(services, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Create a map tile hierarchical path.
+     * <p>
+     * The {@link Services} must provide the following services:
+     * </p>
+     * <ul>
+     * <li>{@link MapTile}</li>
+     * </ul>
+     * <p>
+     * The {@link MapTile} must be created and provide the following features:
+     * </p>
+     * <ul>
+     * <li>{@link MapTilePath}</li>
+     * </ul>
+     * 
+     * @param services The services reference.
+     * @param clusterSize The cluster size in tile (must be strictly superior to 1).
+     * @throws LionEngineException If services not found or invalid cluster size.
+     */
+    public MapTilePathHierarchicalModel(Services services, int clusterSize)
+    {
+        super();
+
+        Check.superiorStrict(clusterSize, 1);
+
+        this.clusterSize = clusterSize;
+        map = services.get(MapTile.class);
+        mapPath = map.getFeature(MapTilePath.class);
+        width = map.getInTileWidth();
+        height = map.getInTileHeight();
+        clustersH = (width + clusterSize - 1) / clusterSize;
+        clustersV = (height + clusterSize - 1) / clusterSize;
+
+        final int count = width * height;
+        local = new PathFinderHeap(map, count, heuristic);
+        open = new NodeHeap(count);
+        costs = new double[count];
+        parents = new int[count];
+        visited = new int[count];
+
+        map.addListener(this);
+    }
+
+    /**
+     * Get the mover profile, which identifies its abstract graph.
+     * 
+     * @param mover The mover reference.
+     * @return The mover profile.
+     */
+    private PathProfile getProfile(Pathfindable mover)
+    {
+        if (categories.isEmpty())
+        {
+            categories.addAll(mapPath.getCategories());
+            Collections.sort(categories);
+        }
+        return new PathProfile(mover, categories);
+    }
+
+    /**
+     * Get the abstract graph of the mover, create it if needed.
+     * 
+     * @param mover The mover reference.
+     * @return The abstract graph.
+     */
+    private Graph getGraph(Pathfindable mover)
+    {
+        final PathProfile profile = getProfile(mover);
+        Graph graph = graphs.get(profile);
+        if (graph == null)
+        {
+            graph = new Graph(clustersH * clustersV);
+            graphs.put(profile, graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Get the cluster index containing the tile index.
+     * 
+     * @param tile The tile index.
+     * @return The cluster index.
+     */
+    private int getCluster(int tile)
+    {
+        return tile / width / clusterSize * clustersH + tile % width / clusterSize;
+    }
+
+    /**
+     * Get the cluster minimum horizontal tile.
+     * 
+     * @param cluster The cluster index.
+     * @return The minimum horizontal tile.
+     */
+    private int getMinX(int cluster)
+    {
+        return cluster % clustersH * clusterSize;
+    }
+
+    /**
+     * Get the cluster minimum vertical tile.
+     * 
+     * @param cluster The cluster index.
+     * @return The minimum vertical tile.
+     */
+    private int getMinY(int cluster)
+    {
+        return cluster / clustersH * clusterSize;
+    }
+
+    /**
+     * Get the cluster maximum horizontal tile.
+     * 
+     * @param cluster The cluster index.
+     * @return The maximum horizontal tile.
+     */
+    private int getMaxX(int cluster)
+    {
+        return Math.min(getMinX(cluster) + clusterSize, width) - 1;
+    }
+
+    /**
+     * Get the cluster maximum vertical tile.
+     * 
+     * @param cluster The cluster index.
+     * @return The maximum vertical tile.
+     */
+    private int getMaxY(int cluster)
+    {
+        return Math.min(getMinY(cluster) + clusterSize, height) - 1;
+    }
+
+    /**
+     * Check if tile can be walked by the mover, ignoring objects references.
+     * 
+     * @param mover The mover reference.
+     * @param tx The horizontal tile index.
+     * @param ty The vertical tile index.
+     * @return <code>true</code> if walkable, <code>false</code> else.
+     */
+    private boolean isWalkable(Pathfindable mover, int tx, int ty)
+    {
+        return !mapPath.isBlocked(mover, tx, ty, true);
+    }
+
+    /**
+     * Rebuild the cluster if it has been invalidated.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param cluster The cluster index.
+     */
+    private void update(Pathfindable mover, Graph graph, int cluster)
+    {
+        if (graph.dirty[cluster])
+        {
+            build(mover, graph, cluster);
+            graph.dirty[cluster] = false;
+        }
+    }
+
+    /**
+     * Build the cluster entrances and edges.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param cluster The cluster index.
+     */
+    private void build(Pathfindable mover, Graph graph, int cluster)
+    {
+        graph.nodesCount[cluster] = 0;
+        graph.interCount[cluster] = 0;
+
+        final int minX = getMinX(cluster);
+        final int minY = getMinY(cluster);
+        final int maxX = getMaxX(cluster);
+        final int maxY = getMaxY(cluster);
+        final int cx = cluster % clustersH;
+        final int cy = cluster / clustersH;
+
+        if (cx > 0)
+        {
+            scanBorder(mover, graph, cluster, minX, minY, 0, 1, -1, 0, maxY - minY + 1);
+        }
+        if (cx < clustersH - 1)
+        {
+            scanBorder(mover, graph, cluster, maxX, minY, 0, 1, 1, 0, maxY - minY + 1);
+        }
+        if (cy > 0)
+        {
+            scanBorder(mover, graph, cluster, minX, minY, 1, 0, 0, -1, maxX - minX + 1);
+        }
+        if (cy < clustersV - 1)
+        {
+            scanBorder(mover, graph, cluster, minX, maxY, 1, 0, 0, 1, maxX - minX + 1);
+        }
+
+        final int count = graph.nodesCount[cluster];
+        if (graph.intra[cluster].length < count * count)
+        {
+            graph.intra[cluster] = new double[count * count];
+        }
+        final int[] nodes = graph.nodes[cluster];
+        for (int i = 0; i < count; i++)
+        {
+            local.explore(mover, nodes[i] % width, nodes[i] / width, true, minX, minY, maxX, maxY);
+            for (int j = 0; j < count; j++)
+            {
+                graph.intra[cluster][i * count + j] = local.getCost(nodes[j] % width, nodes[j] / width);
+            }
+        }
+    }
+
+    /**
+     * Scan a cluster border to find its entrances.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param cluster The cluster index.
+     * @param x The border first horizontal tile inside cluster.
+     * @param y The border first vertical tile inside cluster.
+     * @param sx The horizontal step along border.
+     * @param sy The vertical step along border.
+     * @param ox The horizontal offset to the neighbor cluster.
+     * @param oy The vertical offset to the neighbor cluster.
+     * @param length The border length.
+     */
+    private void scanBorder(Pathfindable mover,
+                            Graph graph,
+                            int cluster,
+                            int x,
+                            int y,
+                            int sx,
+                            int sy,
+                            int ox,
+                            int oy,
+                            int length)
+    {
+        int run = 0;
+        for (int i = 0; i <= length; i++)
+        {
+            final int tx = x + i * sx;
+            final int ty = y + i * sy;
+            if (i < length && isWalkable(mover, tx, ty) && isWalkable(mover, tx + ox, ty + oy))
+            {
+                run++;
+            }
+            else if (run > 0)
+            {
+                final int first = i - run;
+                if (run < ENTRANCE_SPLIT)
+                {
+                    final int middle = first + run / 2;
+                    addTransition(mover, graph, cluster, x + middle * sx, y + middle * sy, ox, oy);
+                }
+                else
+                {
+                    final int last = i - 1;
+                    addTransition(mover, graph, cluster, x + first * sx, y + first * sy, ox, oy);
+                    addTransition(mover, graph, cluster, x + last * sx, y + last * sy, ox, oy);
+                }
+                run = 0;
+            }
+        }
+    }
+
+    /**
+     * Add a transition to the neighbor cluster.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param cluster The cluster index.
+     * @param tx The horizontal tile inside cluster.
+     * @param ty The vertical tile inside cluster.
+     * @param ox The horizontal offset to the neighbor cluster.
+     * @param oy The vertical offset to the neighbor cluster.
+     */
+    private void addTransition(Pathfindable mover, Graph graph, int cluster, int tx, int ty, int ox, int oy)
+    {
+        final int node = graph.addNode(cluster, ty * width + tx);
+        final Tile tile = map.getTile(tx, ty);
+        final String category = tile.getFeature(TilePath.class).getCategory();
+        if (mover.isMovementAllowed(category, PathFinderHeap.getMovement(ox, oy)))
+        {
+            final double cost = mapPath.getCost(mover, tx, ty);
+            graph.addInter(cluster, node, (ty + oy) * width + tx + ox, cost);
+        }
+    }
+
+    /**
+     * Search the abstract path. The start is expanded as a node when it is an entrance of its cluster, else to the
+     * nodes of its cluster.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param start The start tile index.
+     * @param goal The goal tile index.
+     * @return <code>true</code> if found, <code>false</code> else.
+     */
+    private boolean searchAbstract(Pathfindable mover, Graph graph, int start, int goal)
+    {
+        if (generation == Integer.MAX_VALUE)
+        {
+            Arrays.fill(visited, 0);
+            generation = 0;
+        }
+        generation++;
+        open.clear();
+
+        final int startCluster = getCluster(start);
+        final int goalCluster = getCluster(goal);
+        update(mover, graph, startCluster);
+        update(mover, graph, goalCluster);
+        computeGoalCosts(mover, graph, goalCluster, goal);
+        final boolean startNode = graph.getNode(startCluster, start) != NONE;
+
+        visited[start] = generation;
+        costs[start] = 0.0;
+        parents[start] = NONE;
+        open.add(start, 0.0);
+
+        while (!open.isEmpty())
+        {
+            final int current = open.poll();
+            if (current == goal)
+            {
+                return true;
+            }
+            if (current == start && !startNode)
+            {
+                expandStart(mover, graph, start, goal);
+            }
+            else
+            {
+                expand(mover, graph, current, goal, goalCluster);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compute the cost from each goal cluster node to the goal.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param cluster The goal cluster.
+     * @param goal The goal tile index.
+     */
+    private void computeGoalCosts(Pathfindable mover, Graph graph, int cluster, int goal)
+    {
+        final int count = graph.nodesCount[cluster];
+        if (goalCosts.length < count)
+        {
+            goalCosts = new double[count];
+        }
+        final int gx = goal % width;
+        final int gy = goal / width;
+        for (int i = 0; i < count; i++)
+        {
+            final int node = graph.nodes[cluster][i];
+            final int tx = node % width;
+            final int ty = node / width;
+            if (node == goal)
+            {
+                goalCosts[i] = 0.0;
+            }
+            else if (local.search(mover,
+                                  tx,
+                                  ty,
+                                  gx,
+                                  gy,
+                                  true,
+                                  getMinX(cluster),
+                                  getMinY(cluster),
+                                  getMaxX(cluster),
+                                  getMaxY(cluster)))
+            {
+                goalCosts[i] = local.getCost(gx, gy);
+            }
+            else
+            {
+                goalCosts[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    /**
+     * Expand the start location, which is not a node, to its cluster nodes.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param start The start tile index.
+     * @param goal The goal tile index.
+     */
+    private void expandStart(Pathfindable mover, Graph graph, int start, int goal)
+    {
+        final int cluster = getCluster(start);
+        local.explore(mover,
+                      start % width,
+                      start / width,
+                      true,
+                      getMinX(cluster),
+                      getMinY(cluster),
+                      getMaxX(cluster),
+                      getMaxY(cluster));
+
+        final int count = graph.nodesCount[cluster];
+        for (int i = 0; i < count; i++)
+        {
+            final int node = graph.nodes[cluster][i];
+            relax(start, node, local.getCost(node % width, node / width), goal);
+        }
+    }
+
+    /**
+     * Expand an abstract node to its neighbors.
+     * 
+     * @param mover The mover reference, with the graph profile.
+     * @param graph The graph reference.
+     * @param current The current node tile index.
+     * @param goal The goal tile index.
+     * @param goalCluster The goal cluster index.
+     */
+    private void expand(Pathfindable mover, Graph graph, int current, int goal, int goalCluster)
+    {
+        final int cluster = getCluster(current);
+        update(mover, graph, cluster);
+
+        final int index = graph.getNode(cluster, current);
+        if (index == NONE)
+        {
+            return;
+        }
+        final int count = graph.nodesCount[cluster];
+        for (int i = 0; i < count; i++)
+        {
+            if (i != index)
+            {
+                relax(current, graph.nodes[cluster][i], graph.intra[cluster][index * count + i], goal);
+            }
+        }
+        final int inter = graph.interCount[cluster];
+        for (int i = 0; i < inter; i++)
+        {
+            if (graph.interFrom[cluster][i] == index)
+            {
+                relax(current, graph.interTo[cluster][i], graph.interCost[cluster][i], goal);
+            }
+        }
+        if (cluster == goalCluster)
+        {
+            relax(current, goal, goalCosts[index], goal);
+        }
+    }
+
+    /**
+     * Relax abstract edge.
+     * 
+     * @param from The edge source tile index.
+     * @param to The edge destination tile index.
+     * @param cost The edge cost ({@link Double#POSITIVE_INFINITY} if none).
+     * @param goal The goal tile index.
+     */
+    private void relax(int from, int to, double cost, int goal)
+    {
+        if (Double.isInfinite(cost))
+        {
+            return;
+        }
+        final double next = costs[from] + cost;
+        if (visited[to] != generation || next < costs[to])
+        {
+            visited[to] = generation;
+            costs[to] = next;
+            parents[to] = from;
+            open.add(to, next + heuristic.getCost(to % width, to / width, goal % width, goal / width));
+        }
+    }
+
+    /**
+     * Refine the abstract path found to a tile path.
+     * 
+     * @param mover The mover reference.
+     * @param start The start tile index.
+     * @param goal The goal tile index.
+     * @param ignoreRef The ignore map array reference checking (<code>true</code> to ignore references).
+     * @return The refined path, <code>null</code> if a segment can not be refined.
+     */
+    private Path refine(Pathfindable mover, int start, int goal, boolean ignoreRef)
+    {
+        int count = 0;
+        int node = goal;
+        while (node != NONE)
+        {
+            if (count == steps.length)
+            {
+                steps = Arrays.copyOf(steps, count * 2);
+            }
+            steps[count++] = node;
+            node = parents[node];
+        }
+
+        final Path path = new Path();
+        path.appendStep(start % width, start / width);
+        for (int i = count - 1; i > 0; i--)
+        {
+            final int ax = steps[i] % width;
+            final int ay = steps[i] / width;
+            final int bx = steps[i - 1] % width;
+            final int by = steps[i - 1] / width;
+            final int cluster = getCluster(steps[i - 1]);
+            if (getCluster(steps[i]) != cluster)
+            {
+                if (mapPath.isBlocked(mover, bx, by, ignoreRef))
+                {
+                    return null;
+                }
+                path.appendStep(bx, by);
+            }
+            else if (local.search(mover,
+                                  ax,
+                                  ay,
+                                  bx,
+                                  by,
+                                  ignoreRef,
+                                  getMinX(cluster),
+                                  getMinY(cluster),
+                                  getMaxX(cluster),
+                                  getMaxY(cluster)))
+            {
+                local.appendPath(path, ax, ay, bx, by);
+            }
+            else
+            {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Search path on the whole map without abstraction.
+     * 
+     * @param mover The mover reference.
+     * @param stx The x coordinate of the start location.
+     * @param sty The y coordinate of the start location.
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @param ignoreRef The ignore map array reference checking (<code>true</code> to ignore references).
+     * @return The path found, <code>null</code> if none.
+     */
+    private Path findPathFlat(Pathfindable mover, int stx, int sty, int dtx, int dty, boolean ignoreRef)
+    {
+        if (!local.search(mover, stx, sty, dtx, dty, ignoreRef, 0, 0, width - 1, height - 1))
+        {
+            return null;
+        }
+        final Path path = new Path();
+        path.appendStep(stx, sty);
+        local.appendPath(path, stx, sty, dtx, dty);
+        return path;
+    }
+
+    /*
+     * MapTilePathHierarchical
+     */
+
+    @Override
+    public void invalidate(int tx, int ty)
+    {
+        final int cluster = getCluster(ty * width + tx);
+        final int cx = cluster % clustersH;
+        final int cy = cluster / clustersH;
+        for (final Graph graph : graphs.values())
+        {
+            graph.dirty[cluster] = true;
+            if (tx % clusterSize == 0 && cx > 0)
+            {
+                graph.dirty[cluster - 1] = true;
+            }
+            if (tx % clusterSize == clusterSize - 1 && cx < clustersH - 1)
+            {
+                graph.dirty[cluster + 1] = true;
+            }
+            if (ty % clusterSize == 0 && cy > 0)
+            {
+                graph.dirty[cluster - clustersH] = true;
+            }
+            if (ty % clusterSize == clusterSize - 1 && cy < clustersV - 1)
+            {
+                graph.dirty[cluster + clustersH] = true;
+            }
+        }
+    }
+
+    @Override
+    public void invalidate()
+    {
+        graphs.clear();
+        categories.clear();
+    }
+
+    @Override
+    public int getClusterSize()
+    {
+        return clusterSize;
+    }
+
+    /*
+     * PathFinder
+     */
+
+    @Override
+    public Path findPath(Pathfindable mover, int dtx, int dty, boolean ignoreRef)
+    {
+        final int stx = mover.getInTileX();
+        final int sty = mover.getInTileY();
+
+        if (mapPath.isBlocked(mover, dtx, dty, false) && UtilMath.getDistance(stx, sty, dtx, dty) <= 1)
+        {
+            return null;
+        }
+        if (mapPath.isBlocked(mover, dtx, dty, ignoreRef))
+        {
+            final CoordTile tile = mapPath.getClosestAvailableTile(mover, dtx, dty, stx, sty, map.getInTileRadius());
+            if (tile == null)
+            {
+                return null;
+            }
+            return findPath(mover, tile.getX(), tile.getY(), ignoreRef);
+        }
+
+        final int start = sty * width + stx;
+        final int goal = dty * width + dtx;
+        if (getCluster(start) == getCluster(goal)
+            || Math.max(Math.abs(dtx - stx), Math.abs(dty - sty)) <= clusterSize)
+        {
+            return findPathFlat(mover, stx, sty, dtx, dty, ignoreRef);
+        }
+
+        final Graph graph = getGraph(mover);
+        if (searchAbstract(mover, graph, start, goal))
+        {
+            final Path path = refine(mover, start, goal, ignoreRef);
+            if (path != null)
+            {
+                return path;
+            }
+        }
+        return findPathFlat(mover, stx, sty, dtx, dty, ignoreRef);
+    }
+
+    /*
+     * TileSetListener
+     */
+
+    @Override
+    public void onTileSet(Tile tile)
+    {
+        invalidate(tile.getInTileX(), tile.getInTileY());
+    }
+
+    /**
+     * Abstract graph of a mover profile. Nodes are tile indexes, stored by cluster, with the local costs between nodes
+     * of a same cluster, and the transitions to the neighbor clusters. Clusters are built with the searching mover, as
+     * any mover of the profile gives the same graph, so no mover is kept.
+     */
+    private static final class Graph
+    {
+        /** Cluster invalidated flag. */
+        private final boolean[] dirty;
+        /** Cluster nodes tile index. */
+        private final int[][] nodes;
+        /** Cluster nodes count. */
+        private final int[] nodesCount;
+        /** Cluster local costs between nodes (<code>from * count + to</code>). */
+        private final double[][] intra;
+        /** Cluster transitions source node index. */
+        private final int[][] interFrom;
+        /** Cluster transitions destination tile index. */
+        private final int[][] interTo;
+        /** Cluster transitions cost. */
+        private final double[][] interCost;
+        /** Cluster transitions count. */
+        private final int[] interCount;
+
+        /**
+         * Create graph.
+         * 
+         * @param clusters The number of clusters.
+         */
+        Graph(int clusters)
+        {
+            dirty = new boolean[clusters];
+            nodes = new int[clusters][NODES_CAPACITY];
+            nodesCount = new int[clusters];
+            intra = new double[clusters][0];
+            interFrom = new int[clusters][NODES_CAPACITY];
+            interTo = new int[clusters][NODES_CAPACITY];
+            interCost = new double[clusters][NODES_CAPACITY];
+            interCount = new int[clusters];
+            Arrays.fill(dirty, true);
+        }
+
+        /**
+         * Get the node index in cluster.
+         * 
+         * @param cluster The cluster index.
+         * @param tile The node tile index.
+         * @return The node index in cluster, {@link #NONE} if not a node.
+         */
+        int getNode(int cluster, int tile)
+        {
+            final int count = nodesCount[cluster];
+            for (int i = 0; i < count; i++)
+            {
+                if (nodes[cluster][i] == tile)
+                {
+                    return i;
+                }
+            }
+            return NONE;
+        }
+
+        /**
+         * Add a node to cluster if not already present.
+         * 
+         * @param cluster The cluster index.
+         * @param tile The node tile index.
+         * @return The node index in cluster.
+         */
+        int addNode(int cluster, int tile)
+        {
+            final int existing = getNode(cluster, tile);
+            if (existing != NONE)
+            {
+                return existing;
+            }
+            final int count = nodesCount[cluster];
+            if (count == nodes[cluster].length)
+            {
+                nodes[cluster] = Arrays.copyOf(nodes[cluster], count * 2);
+            }
+            nodes[cluster][count] = tile;
+            nodesCount[cluster]++;
+            return count;
+        }
+
+        /**
+         * Add a transition to neighbor cluster.
+         * 
+         * @param cluster The cluster index.
+         * @param from The source node index in cluster.
+         * @param to The destination tile index in neighbor cluster.
+         * @param cost The transition cost.
+         */
+        void addInter(int cluster, int from, int to, double cost)
+        {
+            final int count = interCount[cluster];
+            if (count == interFrom[cluster].length)
+            {
+                interFrom[cluster] = Arrays.copyOf(interFrom[cluster], count * 2);
+                interTo[cluster] = Arrays.copyOf(interTo[cluster], count * 2);
+                interCost[cluster] = Arrays.copyOf(interCost[cluster], count * 2);
+            }
+            interFrom[cluster][count] = from;
+            interTo[cluster][count] = to;
+            interCost[cluster][count] = cost;
+            interCount[cluster]++;
+        }
+    }
+}
@@ -20,7 +20,9 @@ package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.Media;
@@ -29,6 +31,7 @@ import com.b3dgs.lionengine.game.Tiled;
 import com.b3dgs.lionengine.game.feature.FeatureModel;
 import com.b3dgs.lionengine.game.feature.Identifiable;
 import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.TileRef;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileGroup;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileGroupModel;
@@ -41,6 +44,8 @@ public class MapTilePathModel extends FeatureModel implements MapTilePath
 {
     /** Categories list. */
     private final Map<String, PathCategory> categories = new HashMap<String, PathCategory>();
+    /** Objects ID by tile location index, only for locations with objects. */
+    private final Map<Integer, Set<Integer>> objectsId = new HashMap<Integer, Set<Integer>>();
     /** Map reference. */
     private final MapTile map;
     /** Map group reference. */
@@ -149,6 +154,18 @@ public class MapTilePathModel extends FeatureModel implements MapTilePath
         return null;
     }
 
+    /**
+     * Get the tile location index.
+     * 
+     * @param tx The horizontal tile index.
+     * @param ty The vertical tile index.
+     * @return The location index.
+     */
+    private Integer getIndex(int tx, int ty)
+    {
+        return Integer.valueOf(tx + ty * map.getInTileWidth());
+    }
+
     /*
      * MapTilePath
      */
@@ -162,6 +179,9 @@ public class MapTilePathModel extends FeatureModel implements MapTilePath
         {
             categories.put(category.getName(), category);
         }
+        objectsId.clear();
+
+        final Map<TileRef, TilePath> paths = new HashMap<TileRef, TilePath>();
         for (int ty = 0; ty < map.getInTileHeight(); ty++)
         {
             for (int tx = 0; tx < map.getInTileWidth(); tx++)
@@ -169,10 +189,17 @@ public class MapTilePathModel extends FeatureModel implements MapTilePath
                 final Tile tile = map.getTile(tx, ty);
                 if (tile != null)
                 {
-                    final String group = mapGroup.getGroup(tile);
-                    final String category = getCategory(group);
-                    final TilePath tilePath = new TilePathModel(category);
-                    tile.addFeature(tilePath);
+                    final TileRef ref = new TileRef(tile);
+                    TilePath tilePath = paths.get(ref);
+                    if (tilePath == null)
+                    {
+                        tilePath = new TilePathModel(getCategory(mapGroup.getGroup(tile)));
+                        paths.put(ref, tilePath);
+                    }
+                    if (!tile.hasFeature(TilePath.class) || tile.getFeature(TilePath.class) != tilePath)
+                    {
+                        tile.addFeature(tilePath);
+                    }
                 }
             }
         }
@@ -181,33 +208,47 @@ public class MapTilePathModel extends FeatureModel implements MapTilePath
     @Override
     public void addObjectId(int tx, int ty, Integer id)
     {
-        final Tile tile = map.getTile(tx, ty);
-        if (tile != null)
+        if (map.getTile(tx, ty) != null)
         {
-            final TilePath tilePath = tile.getFeature(TilePath.class);
-            tilePath.addObjectId(id);
+            final Integer index = getIndex(tx, ty);
+            Set<Integer> ids = objectsId.get(index);
+            if (ids == null)
+            {
+                ids = new HashSet<Integer>();
+                objectsId.put(index, ids);
+            }
+            ids.add(id);
         }
     }
 
     @Override
     public void removeObjectId(int tx, int ty, Integer id)
     {
-        final Tile tile = map.getTile(tx, ty);
-        if (tile != null)
+        if (map.getTile(tx, ty) != null)
         {
-            final TilePath tilePath = tile.getFeature(TilePath.class);
-            tilePath.removeObjectId(id);
+            final Integer index = getIndex(tx, ty);
+            final Set<Integer> ids = objectsId.get(index);
+            if (ids != null)
+            {
+                ids.remove(id);
+                if (ids.isEmpty())
+                {
+                    objectsId.remove(index);
+                }
+            }
         }
     }
 
     @Override
     public Collection<Integer> getObjectsId(int tx, int ty)
     {
-        final Tile tile = map.getTile(tx, ty);
-        if (tile != null)
+        if (map.getTile(tx, ty) != null)
         {
-            final TilePath tilePath = tile.getFeature(TilePath.class);
-            return tilePath.getObjectsId();
+            final Set<Integer> ids = objectsId.get(getIndex(tx, ty));
+            if (ids != null)
+            {
+                return ids;
+            }
         }
         return Collections.emptyList();
     }
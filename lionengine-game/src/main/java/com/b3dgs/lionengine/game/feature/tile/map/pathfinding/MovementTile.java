@@ -73,6 +73,26 @@ public enum MovementTile implements Nameable
         return this.sx == sx && this.sy == sy;
     }
 
+    /**
+     * Get the horizontal side.
+     * 
+     * @return The horizontal side.
+     */
+    public int getX()
+    {
+        return sx;
+    }
+
+    /**
+     * Get the vertical side.
+     * 
+     * @return The vertical side.
+     */
+    public int getY()
+    {
+        return sy;
+    }
+
     /**
      * Get movement from tile movement.
      * 
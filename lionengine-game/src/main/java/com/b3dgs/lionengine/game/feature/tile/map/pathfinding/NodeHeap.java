@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min heap of node indexes, with decrease-key support. Nodes are integers in
+ * <code>[0, capacity[</code>. Nodes with the same priority are polled in their insertion (or last update) order.
+ * <p>
+ * Nothing is allocated after construction.
+ * </p>
+ */
+final class NodeHeap
+{
+    /** Not in heap position. */
+    private static final int NONE = -1;
+
+    /** Node priorities. */
+    private final double[] priorities;
+    /** Node insertion order, used to keep first inserted node first on equal priority. */
+    private final int[] orders;
+    /** Node position in heap ({@link #NONE} if not in heap). */
+    private final int[] positions;
+    /** Heap of node indexes. */
+    private final int[] heap;
+    /** Current heap size. */
+    private int size;
+    /** Current insertion order. */
+    private int order;
+
+    /**
+     * Create heap.
+     * 
+     * @param capacity The number of nodes.
+     */
+    NodeHeap(int capacity)
+    {
+        priorities = new double[capacity];
+        orders = new int[capacity];
+        positions = new int[capacity];
+        heap = new int[capacity];
+        Arrays.fill(positions, NONE);
+    }
+
+    /**
+     * Remove all nodes.
+     */
+    void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            positions[heap[i]] = NONE;
+        }
+        size = 0;
+        order = 0;
+    }
+
+    /**
+     * Add a node, or update its priority if already contained.
+     * 
+     * @param node The node index.
+     * @param priority The node priority (lowest first).
+     */
+    void add(int node, double priority)
+    {
+        priorities[node] = priority;
+        orders[node] = order++;
+        if (positions[node] == NONE)
+        {
+            place(node, size);
+            size++;
+            siftUp(size - 1);
+        }
+        else
+        {
+            siftUp(positions[node]);
+            siftDown(positions[node]);
+        }
+    }
+
+    /**
+     * Get the first node without removing it.
+     * 
+     * @return The first node index.
+     */
+    int peek()
+    {
+        return heap[0];
+    }
+
+    /**
+     * Remove and get the first node.
+     * 
+     * @return The first node index.
+     */
+    int poll()
+    {
+        final int first = heap[0];
+        size--;
+        if (size > 0)
+        {
+            place(heap[size], 0);
+            siftDown(0);
+        }
+        positions[first] = NONE;
+        return first;
+    }
+
+    /**
+     * Check if node is in heap.
+     * 
+     * @param node The node index.
+     * @return <code>true</code> if contained, <code>false</code> else.
+     */
+    boolean contains(int node)
+    {
+        return positions[node] != NONE;
+    }
+
+    /**
+     * Check if heap is empty.
+     * 
+     * @return <code>true</code> if empty, <code>false</code> else.
+     */
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Compare two nodes by priority, and by insertion order on equality.
+     * 
+     * @param a The first node index.
+     * @param b The second node index.
+     * @return <code>true</code> if first node must be polled before second node, <code>false</code> else.
+     */
+    private boolean isBefore(int a, int b)
+    {
+        final int compare = Double.compare(priorities[a], priorities[b]);
+        return compare < 0 || compare == 0 && orders[a] < orders[b];
+    }
+
+    /**
+     * Place node at heap position.
+     * 
+     * @param node The node index.
+     * @param position The heap position.
+     */
+    private void place(int node, int position)
+    {
+        heap[position] = node;
+        positions[node] = position;
+    }
+
+    /**
+     * Move node up in heap until its parent is before it.
+     * 
+     * @param position The node heap position.
+     */
+    private void siftUp(int position)
+    {
+        final int node = heap[position];
+        int current = position;
+        while (current > 0)
+        {
+            final int parent = (current - 1) >> 1;
+            if (!isBefore(node, heap[parent]))
+            {
+                break;
+            }
+            place(heap[parent], current);
+            current = parent;
+        }
+        place(node, current);
+    }
+
+    /**
+     * Move node down in heap until its children are after it.
+     * 
+     * @param position The node heap position.
+     */
+    private void siftDown(int position)
+    {
+        final int node = heap[position];
+        int current = position;
+        int child = (current << 1) + 1;
+        while (child < size)
+        {
+            if (child + 1 < size && isBefore(heap[child + 1], heap[child]))
+            {
+                child++;
+            }
+            if (!isBefore(heap[child], node))
+            {
+                break;
+            }
+            place(heap[child], current);
+            current = child;
+            child = (current << 1) + 1;
+        }
+        place(node, current);
+    }
+}
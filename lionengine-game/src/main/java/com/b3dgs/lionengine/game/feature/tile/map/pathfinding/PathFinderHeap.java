@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.Arrays;
+
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.util.UtilMath;
+
+/**
+ * A path finder implementation using the AStar heuristic based algorithm, designed for intensive use.
+ * <p>
+ * Nodes are identified by their tile index (<code>ty * width + tx</code>) and their state is stored in primitive
+ * arrays allocated once. A generation counter is incremented on each search, so that a node is considered as unvisited
+ * when its stamp differs from the current generation: nothing has to be reset between two searches. The open list is
+ * an indexed binary heap supporting decrease-key, and a visited node outside the heap is closed.
+ * </p>
+ * <p>
+ * The search itself does not allocate any object, only the returned {@link Path} is created.
+ * </p>
+ */
+final class PathFinderHeap implements PathFinder
+{
+    /** No node index. */
+    private static final int NONE = -1;
+    /** Movements by neighbor offset, indexed by <code>(y + 1) * 3 + (x + 1)</code>. */
+    private static final MovementTile[] MOVEMENTS = new MovementTile[9];
+
+    static
+    {
+        for (int y = -1; y < 2; y++)
+        {
+            for (int x = -1; x < 2; x++)
+            {
+                MOVEMENTS[(y + 1) * 3 + x + 1] = MovementTile.from(x, y);
+            }
+        }
+    }
+
+    /**
+     * Get the movement from one tile to an adjacent one.
+     * 
+     * @param x The horizontal offset in <code>[-1, 1]</code>.
+     * @param y The vertical offset in <code>[-1, 1]</code>.
+     * @return The movement.
+     */
+    static MovementTile getMovement(int x, int y)
+    {
+        return MOVEMENTS[(y + 1) * 3 + x + 1];
+    }
+
+    /** Open list. */
+    private final NodeHeap open;
+    /** Map reference. */
+    private final MapTile map;
+    /** Map path reference. */
+    private final MapTilePath mapPath;
+    /** Max distance to search. */
+    private final int maxSearchDistance;
+    /** Heuristic used. */
+    private final Heuristic heuristic;
+    /** Map width in tile. */
+    private final int width;
+    /** Map height in tile. */
+    private final int height;
+    /** Node costs from start. */
+    private final double[] costs;
+    /** Node parents index. */
+    private final int[] parents;
+    /** Node depths. */
+    private final int[] depths;
+    /** Node visited generation. */
+    private final int[] visited;
+    /** Path reconstruction buffer. */
+    private final int[] steps;
+    /** Current search generation. */
+    private int generation;
+    /** Current search minimum horizontal tile. */
+    private int minTx;
+    /** Current search minimum vertical tile. */
+    private int minTy;
+    /** Current search maximum horizontal tile. */
+    private int maxTx;
+    /** Current search maximum vertical tile. */
+    private int maxTy;
+    /** Current search has no destination. */
+    private boolean exploring;
+
+    /**
+     * Internal constructor.
+     * 
+     * @param map The map to be searched. Must have the {@link MapTilePath} feature.
+     * @param maxSearchDistance The maximum depth we'll search before giving up.
+     * @param heuristic The heuristic used to determine the search order of the map.
+     */
+    PathFinderHeap(MapTile map, int maxSearchDistance, Heuristic heuristic)
+    {
+        this.map = map;
+        this.maxSearchDistance = maxSearchDistance;
+        this.heuristic = heuristic;
+        mapPath = map.getFeature(MapTilePath.class);
+        width = map.getInTileWidth();
+        height = map.getInTileHeight();
+
+        final int count = width * height;
+        open = new NodeHeap(count);
+        costs = new double[count];
+        parents = new int[count];
+        depths = new int[count];
+        visited = new int[count];
+        steps = new int[count];
+    }
+
+    /**
+     * Search a path between two locations, without leaving the specified area.
+     * 
+     * @param mover The entity that will be moving along the path.
+     * @param stx The x coordinate of the start location.
+     * @param sty The y coordinate of the start location.
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @param ignoreRef The ignore map array reference checking (<code>true</code> to ignore references).
+     * @param minTx The minimum horizontal tile of the area (included).
+     * @param minTy The minimum vertical tile of the area (included).
+     * @param maxTx The maximum horizontal tile of the area (included).
+     * @param maxTy The maximum vertical tile of the area (included).
+     * @return <code>true</code> if destination has been reached, <code>false</code> else.
+     */
+    boolean search(Pathfindable mover,
+                   int stx,
+                   int sty,
+                   int dtx,
+                   int dty,
+                   boolean ignoreRef,
+                   int minTx,
+                   int minTy,
+                   int maxTx,
+                   int maxTy)
+    {
+        final int destination = dty * width + dtx;
+        run(mover, stx, sty, dtx, dty, destination, ignoreRef, minTx, minTy, maxTx, maxTy);
+        return destination != sty * width + stx && isVisited(destination) && parents[destination] != NONE;
+    }
+
+    /**
+     * Compute the cost from a location to any reachable location of the specified area. Costs can then be read with
+     * {@link #getCost(int, int)}.
+     * 
+     * @param mover The entity that will be moving.
+     * @param stx The x coordinate of the start location.
+     * @param sty The y coordinate of the start location.
+     * @param ignoreRef The ignore map array reference checking (<code>true</code> to ignore references).
+     * @param minTx The minimum horizontal tile of the area (included).
+     * @param minTy The minimum vertical tile of the area (included).
+     * @param maxTx The maximum horizontal tile of the area (included).
+     * @param maxTy The maximum vertical tile of the area (included).
+     */
+    void explore(Pathfindable mover, int stx, int sty, boolean ignoreRef, int minTx, int minTy, int maxTx, int maxTy)
+    {
+        run(mover, stx, sty, stx, sty, NONE, ignoreRef, minTx, minTy, maxTx, maxTy);
+    }
+
+    /**
+     * Get the cost to reach the location from the last search start location.
+     * 
+     * @param tx The horizontal tile index.
+     * @param ty The vertical tile index.
+     * @return The cost from last search start, {@link Double#POSITIVE_INFINITY} if not reached.
+     */
+    double getCost(int tx, int ty)
+    {
+        final int node = ty * width + tx;
+        if (isVisited(node))
+        {
+            return costs[node];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Append the last search path steps to path, excluding the start location.
+     * 
+     * @param path The path to fill.
+     * @param stx The x coordinate of the last search start location.
+     * @param sty The y coordinate of the last search start location.
+     * @param dtx The x coordinate of the last search destination location.
+     * @param dty The y coordinate of the last search destination location.
+     */
+    void appendPath(Path path, int stx, int sty, int dtx, int dty)
+    {
+        final int start = sty * width + stx;
+        int count = 0;
+        int node = dty * width + dtx;
+        while (node != start && node != NONE && count < steps.length)
+        {
+            steps[count++] = node;
+            node = parents[node];
+        }
+        for (int i = count - 1; i >= 0; i--)
+        {
+            path.appendStep(steps[i] % width, steps[i] / width);
+        }
+    }
+
+    /**
+     * Run the search until destination is reached, or area is fully explored if no destination.
+     * 
+     * @param mover The entity that will be moving along the path.
+     * @param stx The x coordinate of the start location.
+     * @param sty The y coordinate of the start location.
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @param destination The destination node index ({@link #NONE} to explore the whole area).
+     * @param ignoreRef The ignore map array reference checking (<code>true</code> to ignore references).
+     * @param minTx The minimum horizontal tile of the area (included).
+     * @param minTy The minimum vertical tile of the area (included).
+     * @param maxTx The maximum horizontal tile of the area (included).
+     * @param maxTy The maximum vertical tile of the area (included).
+     */
+    private void run(Pathfindable mover,
+                     int stx,
+                     int sty,
+                     int dtx,
+                     int dty,
+                     int destination,
+                     boolean ignoreRef,
+                     int minTx,
+                     int minTy,
+                     int maxTx,
+                     int maxTy)
+    {
+        nextGeneration();
+        this.minTx = Math.max(0, minTx);
+        this.minTy = Math.max(0, minTy);
+        this.maxTx = Math.min(width - 1, maxTx);
+        this.maxTy = Math.min(height - 1, maxTy);
+        exploring = destination == NONE;
+
+        final int start = sty * width + stx;
+        visited[start] = generation;
+        costs[start] = 0.0;
+        depths[start] = 0;
+        parents[start] = NONE;
+        open.add(start, 0.0);
+
+        int maxDepth = 0;
+        while (maxDepth < maxSearchDistance && !open.isEmpty())
+        {
+            if (open.peek() == destination)
+            {
+                break;
+            }
+            final int current = open.poll();
+            maxDepth = updateList(mover, stx, sty, dtx, dty, ignoreRef, current, maxDepth);
+        }
+    }
+
+    /**
+     * Start a new search generation. Stamps are only cleared when generation counter overflows.
+     */
+    private void nextGeneration()
+    {
+        if (generation == Integer.MAX_VALUE)
+        {
+            Arrays.fill(visited, 0);
+            generation = 0;
+        }
+        generation++;
+        open.clear();
+    }
+
+    /**
+     * Check if node has been visited during current search.
+     * 
+     * @param node The node index.
+     * @return <code>true</code> if visited, <code>false</code> else.
+     */
+    private boolean isVisited(int node)
+    {
+        return visited[node] == generation;
+    }
+
+    /**
+     * Check if a given location is valid for the supplied mover.
+     * 
+     * @param mover The mover that would hold a given location.
+     * @param stx The starting x coordinate.
+     * @param sty The starting y coordinate.
+     * @param dtx The x coordinate of the location to check.
+     * @param dty The y coordinate of the location to check.
+     * @param ignoreRef The ignore map reference array checking.
+     * @return <code>true</code> if the location is valid for the given mover, <code>false</code> else.
+     */
+    private boolean isValidLocation(Pathfindable mover, int stx, int sty, int dtx, int dty, boolean ignoreRef)
+    {
+        boolean invalid = dtx < minTx || dty < minTy || dtx > maxTx || dty > maxTy;
+
+        if (!invalid && (stx != dtx || sty != dty))
+        {
+            invalid = mapPath.isBlocked(mover, dtx, dty, ignoreRef);
+        }
+
+        return !invalid;
+    }
+
+    /**
+     * Update the open list with the current node neighbors.
+     * 
+     * @param mover The entity that will be moving along the path.
+     * @param stx The x coordinate of the start location.
+     * @param sty The y coordinate of the start location.
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @param ignoreRef The ignore map array reference checking (<code>true</code> to ignore references).
+     * @param current The current node index.
+     * @param maxDepth The last max depth.
+     * @return The next max depth.
+     */
+    private int updateList(Pathfindable mover,
+                           int stx,
+                           int sty,
+                           int dtx,
+                           int dty,
+                           boolean ignoreRef,
+                           int current,
+                           int maxDepth)
+    {
+        final int cx = current % width;
+        final int cy = current / width;
+        final Tile tile = map.getTile(cx, cy);
+        if (tile == null)
+        {
+            return maxDepth;
+        }
+        final String category = tile.getFeature(TilePath.class).getCategory();
+        final double nextStepCost = costs[current] + mapPath.getCost(mover, cx, cy);
+
+        int depth = maxDepth;
+        for (int y = -1; y < 2; y++)
+        {
+            for (int x = -1; x < 2; x++)
+            {
+                final int xp = cx + x;
+                final int yp = cy + y;
+                if (!(x == 0 && y == 0)
+                    && mover.isMovementAllowed(category, getMovement(x, y))
+                    && isValidLocation(mover, stx, sty, xp, yp, ignoreRef))
+                {
+                    depth = updateNeighbour(dtx, dty, current, yp * width + xp, nextStepCost, depth);
+                }
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Update the current neighbor on search.
+     * 
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @param current The current node index.
+     * @param neighbour The neighbor node index.
+     * @param nextStepCost The cost to reach the neighbor from current node.
+     * @param maxDepth The last max depth.
+     * @return The next max depth.
+     */
+    private int updateNeighbour(int dtx, int dty, int current, int neighbour, double nextStepCost, int maxDepth)
+    {
+        if (!isVisited(neighbour))
+        {
+            visited[neighbour] = generation;
+        }
+        else if (nextStepCost >= costs[neighbour])
+        {
+            return maxDepth;
+        }
+
+        costs[neighbour] = nextStepCost;
+        parents[neighbour] = current;
+        depths[neighbour] = depths[current] + 1;
+        if (exploring)
+        {
+            open.add(neighbour, nextStepCost);
+        }
+        else
+        {
+            open.add(neighbour, nextStepCost + heuristic.getCost(neighbour % width, neighbour / width, dtx, dty));
+        }
+
+        return Math.max(maxDepth, depths[neighbour]);
+    }
+
+    /*
+     * PathFinder
+     */
+
+    @Override
+    public Path findPath(Pathfindable mover, int dtx, int dty, boolean ignoreRef)
+    {
+        final int stx = mover.getInTileX();
+        final int sty = mover.getInTileY();
+
+        if (mapPath.isBlocked(mover, dtx, dty, false) && UtilMath.getDistance(stx, sty, dtx, dty) <= 1)
+        {
+            return null;
+        }
+        if (mapPath.isBlocked(mover, dtx, dty, ignoreRef))
+        {
+            final CoordTile tile = mapPath.getClosestAvailableTile(mover, dtx, dty, stx, sty, map.getInTileRadius());
+            if (tile == null)
+            {
+                return null;
+            }
+            return findPath(mover, tile.getX(), tile.getY(), ignoreRef);
+        }
+        if (!search(mover, stx, sty, dtx, dty, ignoreRef, 0, 0, width - 1, height - 1))
+        {
+            return null;
+        }
+        final Path path = new Path();
+        path.appendStep(stx, sty);
+        appendPath(path, stx, sty, dtx, dty);
+
+        return path;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.b3dgs.lionengine.LionEngineException;
+
+/**
+ * Immutable copy of a mover costs, blocking states and allowed movements for each category of a list, such as the
+ * {@link PathSnapshot} ones. Two movers with the same profile on the same categories find the same paths.
+ */
+final class PathProfile
+{
+    /** Movements count. */
+    private static final int MOVEMENTS = MovementTile.values().length;
+
+    /** Cost by category index. */
+    private final double[] costs;
+    /** Blocking state by category index. */
+    private final boolean[] blocking;
+    /** Allowed movements by category index (one bit per movement ordinal). */
+    private final int[] movements;
+    /** Cached hash code. */
+    private final int hash;
+
+    /**
+     * Create profile. Must be called from the thread updating the mover.
+     * 
+     * @param mover The mover reference.
+     * @param categories The categories name, by index.
+     */
+    PathProfile(Pathfindable mover, List<String> categories)
+    {
+        final int count = categories.size();
+        costs = new double[count];
+        blocking = new boolean[count];
+        movements = new int[count];
+
+        final MovementTile[] values = MovementTile.values();
+        for (int i = 0; i < count; i++)
+        {
+            final String category = categories.get(i);
+            blocking[i] = mover.isBlocking(category);
+            try
+            {
+                costs[i] = mover.getCost(category);
+                for (int m = 0; m < MOVEMENTS; m++)
+                {
+                    if (mover.isMovementAllowed(category, values[m]))
+                    {
+                        movements[i] |= 1 << m;
+                    }
+                }
+            }
+            catch (@SuppressWarnings("unused") final LionEngineException exception)
+            {
+                costs[i] = 0.0;
+                movements[i] = 0;
+            }
+        }
+        hash = (Arrays.hashCode(costs) * 31 + Arrays.hashCode(blocking)) * 31 + Arrays.hashCode(movements);
+    }
+
+    /**
+     * Check if category is blocking.
+     * 
+     * @param category The category index ({@link PathSnapshot#NONE} is always blocking).
+     * @return <code>true</code> if blocking, <code>false</code> else.
+     */
+    boolean isBlocking(int category)
+    {
+        return category == PathSnapshot.NONE || blocking[category];
+    }
+
+    /**
+     * Get the cost of category.
+     * 
+     * @param category The category index.
+     * @return The category cost, <code>0.0</code> for {@link PathSnapshot#NONE}.
+     */
+    double getCost(int category)
+    {
+        if (category == PathSnapshot.NONE)
+        {
+            return 0.0;
+        }
+        return costs[category];
+    }
+
+    /**
+     * Check if movement is allowed from category.
+     * 
+     * @param category The source category index.
+     * @param x The horizontal offset in <code>[-1, 1]</code>.
+     * @param y The vertical offset in <code>[-1, 1]</code>.
+     * @return <code>true</code> if allowed, <code>false</code> else.
+     */
+    boolean isMovementAllowed(int category, int x, int y)
+    {
+        if (category == PathSnapshot.NONE)
+        {
+            return false;
+        }
+        return (movements[category] & 1 << PathFinderHeap.getMovement(x, y).ordinal()) != 0;
+    }
+
+    /*
+     * Object
+     */
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (object == this)
+        {
+            return true;
+        }
+        if (object == null || object.getClass() != getClass())
+        {
+            return false;
+        }
+        final PathProfile other = (PathProfile) object;
+        return hash == other.hash
+               && Arrays.equals(costs, other.costs)
+               && Arrays.equals(blocking, other.blocking)
+               && Arrays.equals(movements, other.movements);
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Updatable;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.TileSetListener;
+
+/**
+ * Asynchronous path requests service.
+ * <p>
+ * Requests are queued from the update thread, and solved on a worker pool against an immutable snapshot of the map
+ * path categories and of the mover costs. Results are delivered to their {@link PathRequestListener} during
+ * {@link #update(double)}, on the update thread. Identical requests (same mover profile, start and destination) are
+ * solved once, and a new request from a listener replaces its pending one.
+ * </p>
+ * <p>
+ * The time spent each frame in {@link #update(double)} (snapshot refresh, dispatch and delivery) is limited by a
+ * budget. With no worker, requests are solved during {@link #update(double)}, at least one per frame.
+ * </p>
+ * <p>
+ * Objects references are not part of the snapshot: paths are computed as if they were ignored, and
+ * {@link PathfindableModel} avoids objects while moving, as for its first path. The snapshot is refreshed on next
+ * request or update after a tile has been set.
+ * </p>
+ * <p>
+ * When added to the {@link Services} before its creation, {@link PathfindableModel} uses this service for its
+ * destinations, and keeps moving on its previous path until the new one is delivered.
+ * </p>
+ */
+public class PathRequestService implements Updatable, TileSetListener
+{
+    /** Default workers count. */
+    public static final int DEFAULT_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    /** Default budget per frame in milli seconds. */
+    public static final double DEFAULT_BUDGET = 2.0;
+    /** Nano seconds in a milli second. */
+    private static final double NANO_PER_MILLI = 1000000.0;
+
+    /** Pending jobs by key. */
+    private final Map<Key, Job> jobs = new HashMap<Key, Job>();
+    /** Current job by listener. */
+    private final Map<PathRequestListener, Job> requests = new HashMap<PathRequestListener, Job>();
+    /** Jobs waiting to be dispatched. */
+    private final Queue<Job> pending = new LinkedList<Job>();
+    /** Jobs computed, waiting for delivery. */
+    private final Queue<Job> completed = new ConcurrentLinkedQueue<Job>();
+    /** Available solvers. */
+    private final Queue<PathSolver> solvers = new ConcurrentLinkedQueue<PathSolver>();
+    /** Delivery buffer. */
+    private final List<PathRequestListener> delivery = new ArrayList<PathRequestListener>();
+    /** Map reference. */
+    private final MapTile map;
+    /** Workers pool, <code>null</code> to solve on update. */
+    private final ExecutorService executor;
+    /** Budget per frame in nano seconds. */
+    private final long budget;
+    /** Maximum search depth. */
+    private int maxSearchDistance;
+    /** Current snapshot. */
+    private PathSnapshot snapshot;
+    /** Snapshot version. */
+    private int version;
+    /** Snapshot outdated flag. */
+    private boolean dirty = true;
+
+    /**
+     * Create service with {@link #DEFAULT_WORKERS} and {@link #DEFAULT_BUDGET}.
+     * <p>
+     * The {@link Services} must provide the following services:
+     * </p>
+     * <ul>
+     * <li>{@link MapTile}</li>
+     * </ul>
+     * <p>
+     * The {@link MapTile} must provide the following features:
+     * </p>
+     * <ul>
+     * <li>{@link MapTilePath}</li>
+     * </ul>
+     * 
+     * @param services The services reference.
+     * @throws LionEngineException If services not found.
+     */
+    public PathRequestService(Services services)
+    {
+        this(services, DEFAULT_WORKERS, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Create service.
+     * <p>
+     * The {@link Services} must provide the following services:
+     * </p>
+     * <ul>
+     * <li>{@link MapTile}</li>
+     * </ul>
+     * <p>
+     * The {@link MapTile} must provide the following features:
+     * </p>
+     * <ul>
+     * <li>{@link MapTilePath}</li>
+     * </ul>
+     * 
+     * @param services The services reference.
+     * @param workers The workers count (<code>0</code> to solve requests during update).
+     * @param budget The update budget per frame in milli seconds.
+     * @throws LionEngineException If services not found or invalid arguments.
+     */
+    public PathRequestService(Services services, int workers, double budget)
+    {
+        super();
+
+        Check.superiorOrEqual(workers, 0);
+        Check.superiorOrEqual(budget, 0.0);
+
+        map = services.get(MapTile.class);
+        map.getFeature(MapTilePath.class);
+        map.addListener(this);
+        this.budget = (long) (budget * NANO_PER_MILLI);
+        maxSearchDistance = map.getInTileWidth() * map.getInTileHeight();
+
+        if (workers > 0)
+        {
+            executor = Executors.newFixedThreadPool(workers, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, PathRequestService.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        else
+        {
+            executor = null;
+        }
+    }
+
+    /**
+     * Request a path from the mover current location. Any pending request of the listener is replaced, unless
+     * identical. Must be called from the update thread.
+     * 
+     * @param listener The listener notified with the result.
+     * @param mover The mover reference.
+     * @param dtx The horizontal destination tile.
+     * @param dty The vertical destination tile.
+     */
+    public void request(PathRequestListener listener, Pathfindable mover, int dtx, int dty)
+    {
+        refresh();
+
+        final PathProfile profile = new PathProfile(mover, snapshot.getCategories());
+        final Key key = new Key(profile,
+                                version,
+                                mover.getInTileX(),
+                                mover.getInTileY(),
+                                dtx,
+                                dty,
+                                maxSearchDistance);
+        final Job current = requests.get(listener);
+        if (current != null)
+        {
+            if (current.key.equals(key))
+            {
+                return;
+            }
+            cancel(listener);
+        }
+
+        Job job = jobs.get(key);
+        if (job == null)
+        {
+            job = new Job(key, snapshot, solvers, completed);
+            jobs.put(key, job);
+            pending.add(job);
+        }
+        job.listeners.add(listener);
+        requests.put(listener, job);
+    }
+
+    /**
+     * Set the maximum search depth of next requests, as for the synchronous path finder. Default is the map number of
+     * tiles, which does not limit the search.
+     * 
+     * @param maxSearchDistance The maximum depth searched before giving up (strictly superior to 0).
+     * @throws LionEngineException If invalid distance.
+     */
+    public void setMaxSearchDistance(int maxSearchDistance)
+    {
+        Check.superiorStrict(maxSearchDistance, 0);
+
+        this.maxSearchDistance = maxSearchDistance;
+    }
+
+    /**
+     * Cancel the pending request of the listener, its result will not be delivered.
+     * 
+     * @param listener The listener reference.
+     */
+    public void cancel(PathRequestListener listener)
+    {
+        final Job job = requests.remove(listener);
+        if (job != null)
+        {
+            job.listeners.remove(listener);
+            if (job.listeners.isEmpty())
+            {
+                job.cancelled = true;
+                jobs.remove(job.key);
+            }
+        }
+    }
+
+    /**
+     * Check if listener has a pending request.
+     * 
+     * @param listener The listener reference.
+     * @return <code>true</code> if pending, <code>false</code> else.
+     */
+    public boolean isPending(PathRequestListener listener)
+    {
+        return requests.containsKey(listener);
+    }
+
+    /**
+     * Get the number of distinct pending requests.
+     * 
+     * @return The number of pending requests.
+     */
+    public int getPendingCount()
+    {
+        return jobs.size();
+    }
+
+    /**
+     * Invalidate the snapshot, which will be refreshed on next request or update.
+     */
+    public void invalidate()
+    {
+        dirty = true;
+    }
+
+    /**
+     * Stop the workers. Pending requests will not be delivered.
+     */
+    public void dispose()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+        for (final Job job : jobs.values())
+        {
+            job.cancelled = true;
+        }
+        jobs.clear();
+        requests.clear();
+        pending.clear();
+        completed.clear();
+    }
+
+    /**
+     * Refresh the snapshot if outdated.
+     */
+    private void refresh()
+    {
+        if (dirty)
+        {
+            version++;
+            snapshot = new PathSnapshot(map, version);
+            dirty = false;
+        }
+    }
+
+    /**
+     * Deliver the job result to its listeners.
+     * 
+     * @param job The job computed.
+     */
+    private void deliver(Job job)
+    {
+        if (job.cancelled)
+        {
+            return;
+        }
+        jobs.remove(job.key);
+        delivery.addAll(job.listeners);
+        job.listeners.clear();
+
+        final int count = delivery.size();
+        for (int i = 0; i < count; i++)
+        {
+            requests.remove(delivery.get(i));
+        }
+        for (int i = 0; i < count; i++)
+        {
+            delivery.get(i).notifyPathFound(job.path);
+        }
+        delivery.clear();
+    }
+
+    /**
+     * Dispatch the next pending job.
+     * 
+     * @return <code>true</code> if a job has been dispatched, <code>false</code> if none.
+     */
+    private boolean dispatch()
+    {
+        Job job = pending.poll();
+        while (job != null && job.cancelled)
+        {
+            job = pending.poll();
+        }
+        if (job == null)
+        {
+            return false;
+        }
+        if (executor == null)
+        {
+            job.run();
+        }
+        else
+        {
+            executor.execute(job);
+        }
+        return true;
+    }
+
+    /*
+     * Updatable
+     */
+
+    /**
+     * Refresh snapshot, deliver computed paths and dispatch pending requests, until budget is reached.
+     * 
+     * @param extrp The extrapolation value.
+     */
+    @Override
+    public void update(double extrp)
+    {
+        final long start = System.nanoTime();
+        refresh();
+
+        boolean progress;
+        do
+        {
+            progress = false;
+            final Job job = completed.poll();
+            if (job != null)
+            {
+                deliver(job);
+                progress = true;
+            }
+            progress |= dispatch();
+        }
+        while (progress && System.nanoTime() - start < budget);
+    }
+
+    /*
+     * TileSetListener
+     */
+
+    @Override
+    public void onTileSet(Tile tile)
+    {
+        dirty = true;
+    }
+
+    /**
+     * Request key, identifying identical requests.
+     */
+    private static final class Key
+    {
+        /** Mover profile. */
+        private final PathProfile profile;
+        /** Snapshot version. */
+        private final int version;
+        /** Start horizontal tile. */
+        private final int stx;
+        /** Start vertical tile. */
+        private final int sty;
+        /** Destination horizontal tile. */
+        private final int dtx;
+        /** Destination vertical tile. */
+        private final int dty;
+        /** Maximum search depth. */
+        private final int maxSearchDistance;
+
+        /**
+         * Create key.
+         * 
+         * @param profile The mover profile.
+         * @param version The snapshot version.
+         * @param stx The start horizontal tile.
+         * @param sty The start vertical tile.
+         * @param dtx The destination horizontal tile.
+         * @param dty The destination vertical tile.
+         * @param maxSearchDistance The maximum search depth.
+         */
+        Key(PathProfile profile, int version, int stx, int sty, int dtx, int dty, int maxSearchDistance)
+        {
+            this.profile = profile;
+            this.version = version;
+            this.stx = stx;
+            this.sty = sty;
+            this.dtx = dtx;
+            this.dty = dty;
+            this.maxSearchDistance = maxSearchDistance;
+        }
+
+        /*
+         * Object
+         */
+
+        @Override
+        public int hashCode()
+        {
+            int result = profile.hashCode();
+            result = 31 * result + version;
+            result = 31 * result + stx;
+            result = 31 * result + sty;
+            result = 31 * result + dtx;
+            result = 31 * result + dty;
+            result = 31 * result + maxSearchDistance;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (this == object)
+            {
+                return true;
+            }
+            if (object == null || object.getClass() != getClass())
+            {
+                return false;
+            }
+            final Key other = (Key) object;
+            return version == other.version
+                   && stx == other.stx
+                   && sty == other.sty
+                   && dtx == other.dtx
+                   && dty == other.dty
+                   && maxSearchDistance == other.maxSearchDistance
+                   && profile.equals(other.profile);
+        }
+    }
+
+    /**
+     * Path computation, run by a worker.
+     */
+    private static final class Job implements Runnable
+    {
+        /** Waiting listeners, only accessed from update thread. */
+        private final Collection<PathRequestListener> listeners = new ArrayList<PathRequestListener>(1);
+        /** Request key. */
+        private final Key key;
+        /** Snapshot used. */
+        private final PathSnapshot snapshot;
+        /** Available solvers. */
+        private final Queue<PathSolver> solvers;
+        /** Computed jobs. */
+        private final Queue<Job> completed;
+        /** Cancelled flag. */
+        private volatile boolean cancelled;
+        /** Path found, published by {@link #completed}. */
+        private Path path;
+
+        /**
+         * Create job.
+         * 
+         * @param key The request key.
+         * @param snapshot The snapshot used.
+         * @param solvers The available solvers.
+         * @param completed The computed jobs.
+         */
+        Job(Key key, PathSnapshot snapshot, Queue<PathSolver> solvers, Queue<Job> completed)
+        {
+            this.key = key;
+            this.snapshot = snapshot;
+            this.solvers = solvers;
+            this.completed = completed;
+        }
+
+        /*
+         * Runnable
+         */
+
+        @Override
+        public void run()
+        {
+            if (cancelled)
+            {
+                return;
+            }
+            PathSolver solver = solvers.poll();
+            if (solver == null)
+            {
+                solver = new PathSolver();
+            }
+            try
+            {
+                path = solver.solve(snapshot,
+                                    key.profile,
+                                    key.stx,
+                                    key.sty,
+                                    key.dtx,
+                                    key.dty,
+                                    key.maxSearchDistance);
+            }
+            finally
+            {
+                solvers.offer(solver);
+                completed.offer(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+
+/**
+ * Immutable copy of the map tiles path categories, which can be read from any thread.
+ * <p>
+ * Categories are stored as indexes in a flat array (<code>ty * width + tx</code>). Objects references are not part
+ * of the snapshot.
+ * </p>
+ */
+final class PathSnapshot
+{
+    /** No category index (no tile). */
+    static final int NONE = -1;
+
+    /** Categories name by index. */
+    private final List<String> categories;
+    /** Category index by tile. */
+    private final int[] tiles;
+    /** Map width in tile. */
+    private final int width;
+    /** Map height in tile. */
+    private final int height;
+    /** Map radius in tile. */
+    private final int radius;
+    /** Snapshot version. */
+    private final int version;
+
+    /**
+     * Create snapshot. Must be called from the thread updating the map.
+     * 
+     * @param map The map reference (must have the {@link MapTilePath} feature).
+     * @param version The snapshot version.
+     */
+    PathSnapshot(MapTile map, int version)
+    {
+        this.version = version;
+        width = map.getInTileWidth();
+        height = map.getInTileHeight();
+        radius = map.getInTileRadius();
+        tiles = new int[width * height];
+
+        final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        final List<String> names = new ArrayList<String>();
+        for (int ty = 0; ty < height; ty++)
+        {
+            for (int tx = 0; tx < width; tx++)
+            {
+                final Tile tile = map.getTile(tx, ty);
+                if (tile == null)
+                {
+                    tiles[ty * width + tx] = NONE;
+                }
+                else
+                {
+                    final String category = tile.getFeature(TilePath.class).getCategory();
+                    Integer index = indexes.get(category);
+                    if (index == null)
+                    {
+                        index = Integer.valueOf(names.size());
+                        indexes.put(category, index);
+                        names.add(category);
+                    }
+                    tiles[ty * width + tx] = index.intValue();
+                }
+            }
+        }
+        categories = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Get the category index at location.
+     * 
+     * @param tx The horizontal tile index.
+     * @param ty The vertical tile index.
+     * @return The category index, {@link #NONE} if no tile or outside map.
+     */
+    int getCategory(int tx, int ty)
+    {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height)
+        {
+            return NONE;
+        }
+        return tiles[ty * width + tx];
+    }
+
+    /**
+     * Get the categories name, by index.
+     * 
+     * @return The categories name.
+     */
+    List<String> getCategories()
+    {
+        return categories;
+    }
+
+    /**
+     * Get the map width.
+     * 
+     * @return The map width in tile.
+     */
+    int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Get the map height.
+     * 
+     * @return The map height in tile.
+     */
+    int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Get the map radius.
+     * 
+     * @return The map radius in tile.
+     */
+    int getRadius()
+    {
+        return radius;
+    }
+
+    /**
+     * Get the snapshot version.
+     * 
+     * @return The snapshot version.
+     */
+    int getVersion()
+    {
+        return version;
+    }
+}
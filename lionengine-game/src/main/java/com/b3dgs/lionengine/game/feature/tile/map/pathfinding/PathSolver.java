@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.Arrays;
+
+import com.b3dgs.lionengine.util.UtilMath;
+
+/**
+ * AStar search performed on a {@link PathSnapshot} with a {@link PathProfile}, with the same rules as
+ * {@link PathFinderHeap} when objects references are ignored. It does not access the map nor the mover, and can be
+ * run on any thread, but an instance must not be shared between concurrent searches.
+ * <p>
+ * If destination is blocked, the path leads to the closest available location around it, as with
+ * {@link MapTilePath#getClosestAvailableTile(Pathfindable, int, int, int, int, int)}.
+ * </p>
+ */
+final class PathSolver
+{
+    /** No node index. */
+    private static final int NONE = -1;
+
+    /** Heuristic used. */
+    private final Heuristic heuristic = new HeuristicClosest();
+    /** Open list. */
+    private NodeHeap open;
+    /** Node costs from start. */
+    private double[] costs;
+    /** Node parents index. */
+    private int[] parents;
+    /** Node depths. */
+    private int[] depths;
+    /** Node visited generation. */
+    private int[] visited;
+    /** Path reconstruction buffer. */
+    private int[] steps;
+    /** Current nodes capacity. */
+    private int capacity;
+    /** Current search generation. */
+    private int generation;
+
+    /**
+     * Create solver.
+     */
+    PathSolver()
+    {
+        super();
+    }
+
+    /**
+     * Get the closest available location around the destination, the nearest to the start location, searched by
+     * growing square areas up to the map radius.
+     * 
+     * @param snapshot The map snapshot.
+     * @param profile The mover profile.
+     * @param stx The x coordinate of the start location.
+     * @param sty The y coordinate of the start location.
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @return The closest location found, <code>null</code> if none.
+     */
+    private static CoordTile getClosestAvailableTile(PathSnapshot snapshot,
+                                                     PathProfile profile,
+                                                     int stx,
+                                                     int sty,
+                                                     int dtx,
+                                                     int dty)
+    {
+        int closestX = 0;
+        int closestY = 0;
+        double dist = Double.MAX_VALUE;
+        int size = 1;
+        boolean found = false;
+        while (!found)
+        {
+            for (int tx = dtx - size; tx <= dtx + size; tx++)
+            {
+                for (int ty = dty - size; ty <= dty + size; ty++)
+                {
+                    if (!profile.isBlocking(snapshot.getCategory(tx, ty)))
+                    {
+                        final double d = UtilMath.getDistance(tx, ty, 1, 1, stx, sty, 1, 1);
+                        if (d < dist)
+                        {
+                            dist = d;
+                            closestX = tx;
+                            closestY = ty;
+                            found = true;
+                        }
+                    }
+                }
+            }
+            size++;
+            if (size >= snapshot.getRadius())
+            {
+                return null;
+            }
+        }
+        return new CoordTile(closestX, closestY);
+    }
+
+    /**
+     * Search path.
+     * 
+     * @param snapshot The map snapshot.
+     * @param profile The mover profile.
+     * @param stx The x coordinate of the start location.
+     * @param sty The y coordinate of the start location.
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @param maxSearchDistance The maximum depth searched before giving up.
+     * @return The path found, <code>null</code> if none.
+     */
+    Path solve(PathSnapshot snapshot, PathProfile profile, int stx, int sty, int dtx, int dty, int maxSearchDistance)
+    {
+        if (profile.isBlocking(snapshot.getCategory(dtx, dty)))
+        {
+            if (UtilMath.getDistance(stx, sty, dtx, dty) <= 1)
+            {
+                return null;
+            }
+            final CoordTile tile = getClosestAvailableTile(snapshot, profile, stx, sty, dtx, dty);
+            if (tile == null)
+            {
+                return null;
+            }
+            return solve(snapshot, profile, stx, sty, tile.getX(), tile.getY(), maxSearchDistance);
+        }
+        if (stx == dtx && sty == dty)
+        {
+            return null;
+        }
+        final int width = snapshot.getWidth();
+        prepare(width * snapshot.getHeight());
+
+        final int start = sty * width + stx;
+        final int destination = dty * width + dtx;
+        visited[start] = generation;
+        costs[start] = 0.0;
+        depths[start] = 0;
+        parents[start] = NONE;
+        open.add(start, 0.0);
+
+        int maxDepth = 0;
+        while (maxDepth < maxSearchDistance && !open.isEmpty() && open.peek() != destination)
+        {
+            maxDepth = updateList(snapshot, profile, open.poll(), start, dtx, dty, maxDepth);
+        }
+
+        if (visited[destination] != generation)
+        {
+            return null;
+        }
+        return createPath(width, start, destination);
+    }
+
+    /**
+     * Prepare arrays for a new search.
+     * 
+     * @param count The number of nodes.
+     */
+    private void prepare(int count)
+    {
+        if (capacity != count)
+        {
+            capacity = count;
+            open = new NodeHeap(count);
+            costs = new double[count];
+            parents = new int[count];
+            depths = new int[count];
+            visited = new int[count];
+            steps = new int[count];
+            generation = 0;
+        }
+        if (generation == Integer.MAX_VALUE)
+        {
+            Arrays.fill(visited, 0);
+            generation = 0;
+        }
+        generation++;
+        open.clear();
+    }
+
+    /**
+     * Update the open list with the current node neighbors.
+     * 
+     * @param snapshot The map snapshot.
+     * @param profile The mover profile.
+     * @param current The current node index.
+     * @param start The start node index.
+     * @param dtx The x coordinate of the destination location.
+     * @param dty The y coordinate of the destination location.
+     * @param maxDepth The last max depth.
+     * @return The next max depth.
+     */
+    private int updateList(PathSnapshot snapshot,
+                           PathProfile profile,
+                           int current,
+                           int start,
+                           int dtx,
+                           int dty,
+                           int maxDepth)
+    {
+        final int width = snapshot.getWidth();
+        final int cx = current % width;
+        final int cy = current / width;
+        final int category = snapshot.getCategory(cx, cy);
+        if (category == PathSnapshot.NONE)
+        {
+            return maxDepth;
+        }
+        final double nextStepCost = costs[current] + profile.getCost(category);
+
+        int depth = maxDepth;
+
+        for (int y = -1; y < 2; y++)
+        {
+            for (int x = -1; x < 2; x++)
+            {
+                final int xp = cx + x;
+                final int yp = cy + y;
+                final int neighbour = yp * width + xp;
+                if (!(x == 0 && y == 0)
+                    && profile.isMovementAllowed(category, x, y)
+                    && xp >= 0
+                    && yp >= 0
+                    && xp < width
+                    && yp < snapshot.getHeight()
+                    && (neighbour == start || !profile.isBlocking(snapshot.getCategory(xp, yp)))
+                    && (visited[neighbour] != generation || nextStepCost < costs[neighbour]))
+                {
+                    visited[neighbour] = generation;
+                    costs[neighbour] = nextStepCost;
+                    parents[neighbour] = current;
+                    depths[neighbour] = depths[current] + 1;
+                    depth = Math.max(depth, depths[neighbour]);
+                    open.add(neighbour, nextStepCost + heuristic.getCost(xp, yp, dtx, dty));
+                }
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Create the path from parents.
+     * 
+     * @param width The map width.
+     * @param start The start node index.
+     * @param destination The destination node index.
+     * @return The created path.
+     */
+    private Path createPath(int width, int start, int destination)
+    {
+        int count = 0;
+        int node = destination;
+        while (node != start && node != NONE)
+        {
+            steps[count++] = node;
+            node = parents[node];
+        }
+        final Path path = new Path();
+        path.appendStep(start % width, start / width);
+        for (int i = count - 1; i >= 0; i--)
+        {
+            path.appendStep(steps[i] % width, steps[i] / width);
+        }
+        return path;
+    }
+}
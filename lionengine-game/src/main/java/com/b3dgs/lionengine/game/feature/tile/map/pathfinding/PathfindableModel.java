@@ -73,6 +73,17 @@ public class PathfindableModel extends FeatureModel implements Pathfindable, Rec
     private final MapTilePath mapPath;
     /** Pathfinder reference. */
     private final PathFinder pathfinder;
+    /** Path requests service, <code>null</code> to find path synchronously. */
+    private final PathRequestService requests;
+    /** Path requests listener. */
+    private final PathRequestListener requestListener = new PathRequestListener()
+    {
+        @Override
+        public void notifyPathFound(Path found)
+        {
+            onPathRequested(found);
+        }
+    };
     /** List of categories. */
     private final Map<String, PathData> categories;
     /** Transformable model. */
@@ -81,6 +92,8 @@ public class PathfindableModel extends FeatureModel implements Pathfindable, Rec
     private final OrientableModel orientable;
     /** Last valid path found. */
     private Path path;
+    /** Last requested path received, applied on next step. */
+    private Path requested;
     /** Text debug rendering. */
     private Text text;
     /** Current step index on path. */
@@ -137,6 +150,13 @@ public class PathfindableModel extends FeatureModel implements Pathfindable, Rec
      * If the {@link Featurable} is a {@link PathfindableListener}, it will automatically
      * {@link #addListener(PathfindableListener)} on it.
      * </p>
+     * <p>
+     * If the {@link MapTile} provides a {@link MapTilePathHierarchical}, it will be used as {@link PathFinder}.
+     * </p>
+     * <p>
+     * If the {@link Services} provides a {@link PathRequestService}, destinations will be requested asynchronously
+     * with it, and the current path is followed until the new one is received.
+     * </p>
      * 
      * @param services The services reference.
      * @param setup The setup reference.
@@ -153,7 +173,22 @@ public class PathfindableModel extends FeatureModel implements Pathfindable, Rec
 
         final int range = (int) Math.sqrt(map.getInTileWidth() * map.getInTileWidth()
                                           + map.getInTileHeight() * (double) map.getInTileHeight());
-        pathfinder = Astar.createPathFinder(map, range, Astar.createHeuristicClosest());
+        if (map.hasFeature(MapTilePathHierarchical.class))
+        {
+            pathfinder = map.getFeature(MapTilePathHierarchical.class);
+        }
+        else
+        {
+            pathfinder = Astar.createPathFinder(map, range, Astar.createHeuristicClosest());
+        }
+        if (services.has(PathRequestService.class))
+        {
+            requests = services.get(PathRequestService.class);
+        }
+        else
+        {
+            requests = null;
+        }
 
         recycle();
     }
@@ -390,20 +425,94 @@ public class PathfindableModel extends FeatureModel implements Pathfindable, Rec
         return false;
     }
 
+    /**
+     * Called when requested path has been received.
+     * 
+     * @param found The path found, <code>null</code> if none.
+     */
+    private void onPathRequested(Path found)
+    {
+        // Not moving, path can be started now
+        if (path == null)
+        {
+            if (found != null)
+            {
+                final int step = getStepIndex(found);
+                if (step < 0)
+                {
+                    requests.request(requestListener, this, destX, destY);
+                }
+                else
+                {
+                    path = found;
+                    currentStep = step;
+                    pathFoundChanged = false;
+                    destinationReached = false;
+                    for (final PathfindableListener listener : listeners)
+                    {
+                        listener.notifyStartMove();
+                    }
+                }
+            }
+        }
+        // Moving, change takes effect when the object reached a step point
+        else
+        {
+            requested = found;
+            pathFoundChanged = true;
+        }
+    }
+
+    /**
+     * Get the current location index in path.
+     * 
+     * @param candidate The path to check.
+     * @return The step index, <code>-1</code> if current location is not on path.
+     */
+    private int getStepIndex(Path candidate)
+    {
+        final int tx = getInTileX();
+        final int ty = getInTileY();
+        for (int i = 0; i < candidate.getLength(); i++)
+        {
+            if (candidate.getX(i) == tx && candidate.getY(i) == ty)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Check if pathfinder changed.
      */
     private void checkPathfinderChanges()
     {
+        // Requested path computed from a location left since, request again and keep current path
+        if (pathFoundChanged && requested != null && getStepIndex(requested) < 0)
+        {
+            requested = null;
+            pathFoundChanged = false;
+            requests.request(requestListener, this, destX, destY);
+        }
         if (pathFoundChanged)
         {
             if (currentStep < getMaxStep())
             {
                 removeObjectId(path.getX(currentStep), path.getY(currentStep));
             }
-            path = pathfinder.findPath(this, destX, destY, false);
+            if (requests == null)
+            {
+                path = pathfinder.findPath(this, destX, destY, false);
+                currentStep = 0;
+            }
+            else
+            {
+                path = requested;
+                requested = null;
+                currentStep = path == null ? 0 : getStepIndex(path);
+            }
             pathFoundChanged = false;
-            currentStep = 0;
             skip = false;
             reCheckRef = false;
 
@@ -691,6 +800,15 @@ public class PathfindableModel extends FeatureModel implements Pathfindable, Rec
     {
         if (getInTileX() != tx || getInTileY() != ty)
         {
+            // Path will be received later, current path is kept meanwhile
+            if (requests != null)
+            {
+                prepareDestination(tx, ty);
+                requested = null;
+                pathFoundChanged = false;
+                requests.request(requestListener, this, tx, ty);
+                return path == null;
+            }
             // New first path, when object is not moving
             if (path == null)
             {
@@ -868,8 +986,13 @@ public class PathfindableModel extends FeatureModel implements Pathfindable, Rec
         pathFoundChanged = false;
         currentStep = 0;
         path = null;
+        requested = null;
         moveX = 0.0;
         moveY = 0.0;
         sharedPathIds.clear();
+        if (requests != null)
+        {
+            requests.cancel(requestListener);
+        }
     }
 }
@@ -17,43 +17,17 @@
  */
 package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
 
-import java.util.Collection;
-
 import com.b3dgs.lionengine.game.Feature;
 
 /**
- * Tile representation with the following data:
- * <ul>
- * <li><code>objects ID</code> : current objects ID located over the tile</li>
- * <li><code>blocking</code> : flag to know if tile can block path</li>
- * </ul>
+ * Tile representation with its path category, which defines if tile can block path.
  * <p>
- * This allows to know easily which objects are on tile.
+ * It only depends on the tile reference, and can be shared by all tiles with the same sheet and number. Objects
+ * located over tiles are handled by {@link MapTilePath#getObjectsId(int, int)}.
  * </p>
  */
 public interface TilePath extends Feature
 {
-    /**
-     * Add an object ID over this tile.
-     * 
-     * @param id The object ID reference to add.
-     */
-    void addObjectId(Integer id);
-
-    /**
-     * Remove an object ID from this tile.
-     * 
-     * @param id The object ID reference to remove.
-     */
-    void removeObjectId(Integer id);
-
-    /**
-     * Get the objects ID over this tile.
-     * 
-     * @return The objects ID over this tile.
-     */
-    Collection<Integer> getObjectsId();
-
     /**
      * Get the category name.
      * 
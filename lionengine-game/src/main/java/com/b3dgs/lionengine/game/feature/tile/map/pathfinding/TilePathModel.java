@@ -17,10 +17,6 @@
  */
 package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
-
 import com.b3dgs.lionengine.game.feature.FeatureModel;
 
 /**
@@ -28,8 +24,6 @@ import com.b3dgs.lionengine.game.feature.FeatureModel;
  */
 public class TilePathModel extends FeatureModel implements TilePath
 {
-    /** Object id reference. */
-    private final Set<Integer> objectsId = new HashSet<Integer>();
     /** Category name. */
     private final String category;
 
@@ -48,24 +42,6 @@ public class TilePathModel extends FeatureModel implements TilePath
      * TilePath
      */
 
-    @Override
-    public void addObjectId(Integer id)
-    {
-        objectsId.add(id);
-    }
-
-    @Override
-    public void removeObjectId(Integer id)
-    {
-        objectsId.remove(id);
-    }
-
-    @Override
-    public Collection<Integer> getObjectsId()
-    {
-        return objectsId;
-    }
-
     @Override
     public String getCategory()
     {
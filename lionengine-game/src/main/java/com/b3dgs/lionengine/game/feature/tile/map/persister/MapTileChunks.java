@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.persister;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.TileLoader;
+
+/**
+ * Map tiles stored by square chunks, each one being a run length encoded sequence of tiles sheet and number, row by
+ * row. A run is stored this way:
+ * 
+ * <pre>
+ * <code>(short)</code> run length, negative for a run of empty tiles
+ * if positive
+ *   <code>(integer)</code> tiles sheet
+ *   <code>(integer)</code> tiles number
+ * </pre>
+ * <p>
+ * Chunks are decoded when one of their tile is first accessed, so that only the visible or queried parts of a map are
+ * created. Data can be directly read from a memory mapped file.
+ * </p>
+ */
+final class MapTileChunks implements TileLoader
+{
+    /** Error sheet missing message. */
+    private static final String ERROR_SHEET_MISSING = "Sheet missing: ";
+
+    /**
+     * Get the number of chunks needed to cover map.
+     * 
+     * @param map The map reference.
+     * @param chunkSize The chunk size in tile.
+     * @return The chunks number.
+     */
+    static int getChunksNumber(MapTile map, int chunkSize)
+    {
+        final int chunksInX = (map.getInTileWidth() + chunkSize - 1) / chunkSize;
+        final int chunksInY = (map.getInTileHeight() + chunkSize - 1) / chunkSize;
+        return chunksInX * chunksInY;
+    }
+
+    /**
+     * Encode map tiles by chunks.
+     * 
+     * @param map The map reference.
+     * @param chunkSize The chunk size in tile.
+     * @param output The encoded data output.
+     * @param offsets The chunks offset in encoded data, of {@link #getChunksNumber(MapTile, int)} length.
+     * @throws IOException If error on writing.
+     */
+    static void encode(MapTile map, int chunkSize, DataOutputStream output, int[] offsets) throws IOException
+    {
+        final int chunksInX = (map.getInTileWidth() + chunkSize - 1) / chunkSize;
+        for (int i = 0; i < offsets.length; i++)
+        {
+            offsets[i] = output.size();
+
+            final int startX = i % chunksInX * chunkSize;
+            final int startY = i / chunksInX * chunkSize;
+            final int endX = Math.min(startX + chunkSize, map.getInTileWidth());
+            final int endY = Math.min(startY + chunkSize, map.getInTileHeight());
+
+            Tile previous = null;
+            int run = 0;
+            for (int ty = startY; ty < endY; ty++)
+            {
+                for (int tx = startX; tx < endX; tx++)
+                {
+                    final Tile tile = map.getTile(tx, ty);
+                    if (run > 0 && !isSame(previous, tile))
+                    {
+                        writeRun(output, previous, run);
+                        run = 0;
+                    }
+                    previous = tile;
+                    run++;
+                }
+            }
+            writeRun(output, previous, run);
+        }
+    }
+
+    /**
+     * Check if tiles share the same sheet and number.
+     * 
+     * @param a The first tile (can be <code>null</code>).
+     * @param b The second tile (can be <code>null</code>).
+     * @return <code>true</code> if same, <code>false</code> else.
+     */
+    private static boolean isSame(Tile a, Tile b)
+    {
+        if (a == null || b == null)
+        {
+            return a == b;
+        }
+        return a.getSheet().equals(b.getSheet()) && a.getNumber() == b.getNumber();
+    }
+
+    /**
+     * Write a tiles run.
+     * 
+     * @param output The encoded data output.
+     * @param tile The run tile (<code>null</code> if empty).
+     * @param run The run length.
+     * @throws IOException If error on writing.
+     */
+    private static void writeRun(DataOutputStream output, Tile tile, int run) throws IOException
+    {
+        if (tile == null)
+        {
+            output.writeShort(-run);
+        }
+        else
+        {
+            output.writeShort(run);
+            output.writeInt(tile.getSheet().intValue());
+            output.writeInt(tile.getNumber());
+        }
+    }
+
+    /** Map reference. */
+    private final MapTile map;
+    /** Map file. */
+    private final Media media;
+    /** Chunks offset in data. */
+    private final int[] offsets;
+    /** Chunks decoded flag. */
+    private final boolean[] loaded;
+    /** Chunk size in tile. */
+    private final int chunkSize;
+    /** Number of horizontal chunks. */
+    private final int chunksInX;
+    /** Encoded chunks data, <code>null</code> once all decoded. */
+    private ByteBuffer data;
+    /** Number of chunks not yet decoded. */
+    private int remaining;
+
+    /**
+     * Create chunks.
+     * 
+     * @param map The map reference, created with the encoded size.
+     * @param media The map file.
+     * @param data The encoded chunks data.
+     * @param offsets The chunks offset in data.
+     * @param chunkSize The chunk size in tile.
+     */
+    MapTileChunks(MapTile map, Media media, ByteBuffer data, int[] offsets, int chunkSize)
+    {
+        this.map = map;
+        this.media = media;
+        this.data = data;
+        this.offsets = offsets;
+        this.chunkSize = chunkSize;
+        chunksInX = (map.getInTileWidth() + chunkSize - 1) / chunkSize;
+        loaded = new boolean[offsets.length];
+        remaining = offsets.length;
+    }
+
+    /**
+     * Decode all remaining chunks.
+     * 
+     * @throws IOException If invalid data.
+     */
+    void loadAll() throws IOException
+    {
+        for (int i = 0; i < loaded.length; i++)
+        {
+            if (!loaded[i])
+            {
+                decode(i);
+            }
+        }
+    }
+
+    /**
+     * Decode chunk and set its tiles to map. Detached from map once all chunks are decoded.
+     * 
+     * @param index The chunk index.
+     * @throws IOException If invalid data.
+     */
+    private void decode(int index) throws IOException
+    {
+        loaded[index] = true;
+        remaining--;
+
+        final ByteBuffer buffer = data.duplicate();
+        if (remaining == 0)
+        {
+            data = null;
+            map.setLoader(null);
+        }
+        buffer.position(offsets[index]);
+
+        final int tw = map.getTileWidth();
+        final int th = map.getTileHeight();
+        final int startX = index % chunksInX * chunkSize;
+        final int startY = index / chunksInX * chunkSize;
+        final int width = Math.min(startX + chunkSize, map.getInTileWidth()) - startX;
+        final int count = width * (Math.min(startY + chunkSize, map.getInTileHeight()) - startY);
+
+        int i = 0;
+        while (i < count)
+        {
+            final int run = buffer.getShort();
+            if (run < 0)
+            {
+                i -= run;
+            }
+            else
+            {
+                final Integer sheet = Integer.valueOf(buffer.getInt());
+                final int number = buffer.getInt();
+                if (sheet.intValue() > map.getSheetsNumber())
+                {
+                    throw new IOException(ERROR_SHEET_MISSING + Constant.DOUBLE_DOT + sheet);
+                }
+                for (final int end = i + run; i < end; i++)
+                {
+                    final int tx = startX + i % width;
+                    final int ty = startY + i / width;
+                    map.setTile(map.createTile(sheet, number, tx * (double) tw, ty * (double) th));
+                }
+            }
+        }
+    }
+
+    /*
+     * TileLoader
+     */
+
+    @Override
+    public void load(int tx, int ty)
+    {
+        final int index = ty / chunkSize * chunksInX + tx / chunkSize;
+        if (!loaded[index])
+        {
+            try
+            {
+                decode(index);
+            }
+            catch (final IOException exception)
+            {
+                throw new LionEngineException(exception, media);
+            }
+        }
+    }
+}
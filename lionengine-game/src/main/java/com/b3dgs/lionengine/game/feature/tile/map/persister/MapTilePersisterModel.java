@@ -17,10 +17,20 @@
  */
 package com.b3dgs.lionengine.game.feature.tile.map.persister;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import com.b3dgs.lionengine.Check;
 import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.Media;
 import com.b3dgs.lionengine.core.Medias;
 import com.b3dgs.lionengine.game.Services;
 import com.b3dgs.lionengine.game.feature.FeatureModel;
@@ -28,16 +38,100 @@ import com.b3dgs.lionengine.game.feature.tile.Tile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
 import com.b3dgs.lionengine.io.FileReading;
 import com.b3dgs.lionengine.io.FileWriting;
+import com.b3dgs.lionengine.util.UtilStream;
 
 /**
  * Handle the map persistence by providing saving and loading functions.
+ * <p>
+ * Maps are saved in a versioned compact format, where tiles are stored by run length encoded chunks, indexed in
+ * header. Loading from {@link #load(Media)} maps the file in memory and only decodes a chunk when one of its tile is
+ * first accessed. Files saved in the previous format, without version, can still be loaded.
+ * </p>
  */
 public class MapTilePersisterModel extends FeatureModel implements MapTilePersister
 {
     /** Error sheet missing message. */
     private static final String ERROR_SHEET_MISSING = "Sheet missing: ";
-    /** Number of horizontal tiles to make a bloc. Used to reduce saved map file size. */
+    /** Error version message. */
+    private static final String ERROR_VERSION = "Unsupported map version: ";
+    /** Error chunk size message. */
+    private static final String ERROR_CHUNK_SIZE = "Invalid chunk size: ";
+    /** Error truncated message. */
+    private static final String ERROR_TRUNCATED = "Truncated map data: ";
+    /** Number of horizontal tiles to make a bloc in previous format. */
     private static final int BLOC_SIZE = 256;
+    /** Compact format marker, negative to not be confused with the previous format tile width. */
+    private static final int MAGIC = 0xB3D6C0DE;
+    /** Compact format version. */
+    private static final int VERSION = 1;
+    /** Number of tiles on chunk side. */
+    private static final int CHUNK_SIZE = 16;
+
+    /**
+     * Check the compact format version.
+     * 
+     * @param version The read version.
+     * @throws IOException If unsupported version.
+     */
+    private static void checkVersion(int version) throws IOException
+    {
+        if (version != VERSION)
+        {
+            throw new IOException(ERROR_VERSION + version);
+        }
+    }
+
+    /**
+     * Check the compact format chunk size.
+     * 
+     * @param chunkSize The read chunk size.
+     * @return The chunk size.
+     * @throws IOException If invalid chunk size.
+     */
+    private static int checkChunkSize(int chunkSize) throws IOException
+    {
+        if (chunkSize < 1)
+        {
+            throw new IOException(ERROR_CHUNK_SIZE + chunkSize);
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Map file in memory.
+     * 
+     * @param file The file to map.
+     * @return The mapped file.
+     * @throws IOException If error on mapping.
+     */
+    private static ByteBuffer map(File file) throws IOException
+    {
+        final RandomAccessFile access = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = access.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+        }
+        finally
+        {
+            UtilStream.safeClose(access);
+        }
+    }
+
+    /**
+     * Read a string written with {@link FileWriting#writeString(String)}.
+     * 
+     * @param buffer The buffer to read from.
+     * @return The read string.
+     * @throws IOException If error on reading.
+     */
+    private static String readString(ByteBuffer buffer) throws IOException
+    {
+        final int length = buffer.getShort(buffer.position()) & 0xFFFF;
+        final byte[] bytes = new byte[Short.SIZE / Byte.SIZE + length];
+        buffer.get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
 
     /** The services reference. */
     private final MapTile map;
@@ -61,19 +155,22 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
     }
 
     /**
-     * Save tile. Data are saved this way:
+     * Save tile in previous format. Data are saved this way:
      * 
      * <pre>
      * (integer) sheet number
      * (integer) index number inside sheet
-     * (integer) tile location x % MapTile.BLOC_SIZE
+     * (integer) tile location x % BLOC_SIZE
      * (integer tile location y
      * </pre>
      * 
      * @param file The file writer reference.
      * @param tile The tile to save.
      * @throws IOException If error on writing.
+     * @deprecated Not called anymore, as {@link #save(FileWriting)} stores tiles by chunks. Extra tile data should be
+     *             saved after the map with {@link FileWriting}, and loaded back the same way.
      */
+    @Deprecated
     protected void saveTile(FileWriting file, Tile tile) throws IOException
     {
         file.writeInteger(tile.getSheet().intValue());
@@ -83,7 +180,7 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
     }
 
     /**
-     * Load tile. Data are loaded this way:
+     * Load tile from previous format. Data are loaded this way:
      * 
      * <pre>
      * (integer) sheet number
@@ -96,7 +193,10 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
      * @param i The last loaded tile number.
      * @return The loaded tile.
      * @throws IOException If error on reading.
+     * @deprecated Only called when loading a map saved in previous format, as {@link #save(FileWriting)} stores tiles
+     *             by chunks. Maps should be saved again to be loaded in compact format.
      */
+    @Deprecated
     protected Tile loadTile(FileReading file, int i) throws IOException
     {
         Check.notNull(file);
@@ -109,49 +209,135 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
     }
 
     /**
-     * Count the active tiles.
+     * Load map from previous format, after its tile width.
      * 
-     * @param widthInTile The horizontal tiles.
-     * @param step The step number.
-     * @param s The s value.
-     * @return The active tiles.
+     * @param input The input level file.
+     * @param tileWidth The read tile width.
+     * @throws IOException If error on reading.
      */
-    private int countTiles(int widthInTile, int step, int s)
+    private void loadLegacy(FileReading input, int tileWidth) throws IOException
     {
-        int count = 0;
-        for (int tx = 0; tx < widthInTile; tx++)
+        map.create(tileWidth, input.readInteger(), input.readInteger(), input.readInteger());
+        if (input.readBoolean())
         {
-            for (int ty = 0; ty < map.getInTileHeight(); ty++)
+            map.loadSheets(Medias.create(input.readString()));
+        }
+
+        final int t = input.readShort();
+        for (int v = 0; v < t; v++)
+        {
+            final int n = input.readShort();
+            for (int h = 0; h < n; h++)
             {
-                if (map.getTile(tx + s * step, ty) != null)
+                final Tile tile = loadTile(input, v);
+                if (tile.getSheet().intValue() > map.getSheetsNumber())
                 {
-                    count++;
+                    throw new IOException(ERROR_SHEET_MISSING + Constant.DOUBLE_DOT + tile.getSheet());
                 }
+                map.setTile(tile);
             }
         }
-        return count;
     }
 
     /**
-     * Save the active tiles.
+     * Load map from compact format, after its marker. All tiles are loaded.
      * 
-     * @param file The output file.
-     * @param widthInTile The horizontal tiles.
-     * @param step The step number.
-     * @param s The s value.
-     * @throws IOException If error on saving.
+     * @param input The input level file.
+     * @throws IOException If error on reading.
      */
-    private void saveTiles(FileWriting file, int widthInTile, int step, int s) throws IOException
+    private void loadCompact(FileReading input) throws IOException
     {
-        for (int tx = 0; tx < widthInTile; tx++)
+        checkVersion(input.readInteger());
+        map.create(input.readInteger(), input.readInteger(), input.readInteger(), input.readInteger());
+        if (input.readBoolean())
         {
-            for (int ty = 0; ty < map.getInTileHeight(); ty++)
+            map.loadSheets(Medias.create(input.readString()));
+        }
+
+        final int chunkSize = checkChunkSize(input.readInteger());
+        final int[] offsets = new int[MapTileChunks.getChunksNumber(map, chunkSize)];
+        for (int i = 0; i < offsets.length; i++)
+        {
+            offsets[i] = input.readInteger();
+        }
+        final byte[] data = new byte[input.readInteger()];
+        input.readBytes(data);
+        new MapTileChunks(map, null, ByteBuffer.wrap(data), offsets, chunkSize).loadAll();
+    }
+
+    /**
+     * Load map from memory mapped compact format, after its marker. Tiles are loaded on demand.
+     * 
+     * @param media The map file.
+     * @param buffer The mapped file.
+     * @throws IOException If error on reading or truncated data.
+     */
+    private void loadCompact(Media media, ByteBuffer buffer) throws IOException
+    {
+        checkVersion(buffer.getInt());
+        map.create(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        if (buffer.get() != 0)
+        {
+            map.loadSheets(Medias.create(readString(buffer)));
+        }
+
+        final int chunkSize = checkChunkSize(buffer.getInt());
+        final int[] offsets = new int[MapTileChunks.getChunksNumber(map, chunkSize)];
+        for (int i = 0; i < offsets.length; i++)
+        {
+            offsets[i] = buffer.getInt();
+        }
+        final int length = buffer.getInt();
+        final ByteBuffer data = buffer.slice();
+        if (length < 0 || length > data.capacity())
+        {
+            throw new IOException(ERROR_TRUNCATED + media.getPath());
+        }
+        data.limit(length);
+        map.setLoader(new MapTileChunks(map, media, data, offsets, chunkSize));
+    }
+
+    /**
+     * Load a map from file. Tiles are loaded on demand when the file can be memory mapped, else they are all loaded
+     * as with {@link #load(FileReading)}.
+     * 
+     * @param media The map file.
+     * @throws IOException If error on reading or truncated data.
+     */
+    public void load(Media media) throws IOException
+    {
+        final File file = media.getFile();
+        final ByteBuffer buffer;
+        if (file.isFile())
+        {
+            buffer = map(file);
+        }
+        else
+        {
+            buffer = null;
+        }
+
+        if (buffer != null && buffer.remaining() >= Integer.SIZE / Byte.SIZE && buffer.getInt() == MAGIC)
+        {
+            try
             {
-                final Tile tile = map.getTile(tx + s * step, ty);
-                if (tile != null)
-                {
-                    saveTile(file, tile);
-                }
+                loadCompact(media, buffer);
+            }
+            catch (final BufferUnderflowException exception)
+            {
+                throw new IOException(ERROR_TRUNCATED + media.getPath(), exception);
+            }
+        }
+        else
+        {
+            final FileReading input = new FileReading(media);
+            try
+            {
+                load(input);
+            }
+            finally
+            {
+                UtilStream.safeClose(input);
             }
         }
     }
@@ -161,19 +347,23 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
      */
 
     /**
-     * Save map to specified file as binary data. Data are saved this way (using specific types to save space):
+     * Save map to specified file as binary data, in compact format. Data are saved this way:
      * 
      * <pre>
-     * <code>(String)</code> sheets configuration file
-     * <code>(short)</code> width in tiles
-     * <code>(short)</code> height in tiles
-     * <code>(byte)</code> tile width (use of byte because tile width &lt; 255)
-     * <code>(byte)</code> tile height (use of byte because tile height &lt; 255)
-     * <code>(short)</code> number of {@value #BLOC_SIZE} horizontal blocs (widthInTile / {@value #BLOC_SIZE})
-     * for each blocs tile
-     *   <code>(short)</code> number of tiles in this bloc
-     *   for each tile in this bloc
-     *     call tile.save(file)
+     * <code>(integer)</code> format marker
+     * <code>(integer)</code> format version
+     * <code>(integer)</code> tile width
+     * <code>(integer)</code> tile height
+     * <code>(integer)</code> width in tiles
+     * <code>(integer)</code> height in tiles
+     * <code>(boolean)</code> has sheets configuration
+     * <code>(String)</code> sheets configuration file (if has)
+     * <code>(integer)</code> chunk size in tiles
+     * for each chunk, row by row
+     *   <code>(integer)</code> chunk offset in chunks data
+     * <code>(integer)</code> chunks data length
+     * for each chunk
+     *   run length encoded tiles
      * </pre>
      * 
      * @param output The output level file.
@@ -182,12 +372,11 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
     @Override
     public void save(FileWriting output) throws IOException
     {
-        final int widthInTile = map.getInTileWidth();
-
-        // Header
+        output.writeInteger(MAGIC);
+        output.writeInteger(VERSION);
         output.writeInteger(map.getTileWidth());
         output.writeInteger(map.getTileHeight());
-        output.writeInteger(widthInTile);
+        output.writeInteger(map.getInTileWidth());
         output.writeInteger(map.getInTileHeight());
 
         final boolean hasConfig = map.getMedia() != null;
@@ -197,38 +386,37 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
             output.writeString(map.getMedia().getPath());
         }
 
-        final int step = BLOC_SIZE;
-        final int x = Math.min(step, widthInTile);
-        final int t = (int) Math.ceil(widthInTile / (double) step);
+        final int[] offsets = new int[MapTileChunks.getChunksNumber(map, CHUNK_SIZE)];
+        final ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        MapTileChunks.encode(map, CHUNK_SIZE, new DataOutputStream(chunks), offsets);
 
-        output.writeShort((short) t);
-        for (int s = 0; s < t; s++)
+        output.writeInteger(CHUNK_SIZE);
+        for (final int offset : offsets)
         {
-            final int count = countTiles(x, step, s);
-            output.writeShort((short) count);
-            saveTiles(output, Math.min(widthInTile, BLOC_SIZE), step, s);
+            output.writeInteger(offset);
         }
+        output.writeInteger(chunks.size());
+        output.writeBytes(chunks.toByteArray());
     }
 
     /**
-     * Load a map from a specified file as binary data.
+     * Load a map from a specified file as binary data. All tiles are loaded.
      * <p>
-     * Data are loaded this way (see {@link #save(FileWriting)} order):
+     * Data are loaded in compact format (see {@link #save(FileWriting)} order), or in previous format:
      * </p>
      * 
      * <pre>
-     * <code>(String)</code> sheets file configuration
-     * <code>(short)</code> width in tiles
-     * <code>(short)</code> height in tiles
-     * <code>(byte)</code> tile width
-     * <code>(byte)</code> tile height
+     * <code>(integer)</code> tile width
+     * <code>(integer)</code> tile height
+     * <code>(integer)</code> width in tiles
+     * <code>(integer)</code> height in tiles
+     * <code>(boolean)</code> has sheets configuration
+     * <code>(String)</code> sheets configuration file (if has)
      * <code>(short)</code> number of {@value #BLOC_SIZE} horizontal blocs (widthInTile / {@value #BLOC_SIZE})
      * for each blocs tile
      *   <code>(short)</code> number of tiles in this bloc
      *   for each tile in this bloc
-     *     create blank tile
-     *     call load(file)
-     *     call setTile(...) to update map with this new tile
+     *     call loadTile(file, bloc)
      * </pre>
      * 
      * @param input The input level file.
@@ -237,25 +425,14 @@ public class MapTilePersisterModel extends FeatureModel implements MapTilePersis
     @Override
     public void load(FileReading input) throws IOException
     {
-        map.create(input.readInteger(), input.readInteger(), input.readInteger(), input.readInteger());
-        if (input.readBoolean())
+        final int value = input.readInteger();
+        if (value == MAGIC)
         {
-            map.loadSheets(Medias.create(input.readString()));
+            loadCompact(input);
         }
-
-        final int t = input.readShort();
-        for (int v = 0; v < t; v++)
+        else
         {
-            final int n = input.readShort();
-            for (int h = 0; h < n; h++)
-            {
-                final Tile tile = loadTile(input, v);
-                if (tile.getSheet().intValue() > map.getSheetsNumber())
-                {
-                    throw new IOException(ERROR_SHEET_MISSING + Constant.DOUBLE_DOT + tile.getSheet());
-                }
-                map.setTile(tile);
-            }
+            loadLegacy(input, value);
         }
     }
 }
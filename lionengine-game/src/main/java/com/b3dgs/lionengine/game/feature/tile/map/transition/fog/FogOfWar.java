@@ -44,7 +44,7 @@ public class FogOfWar extends FeatureModel implements MapTileRenderer
     /** Hidden map. */
     private final MapTileFog mapHidden = new MapTileFog();
     /** Fogged map. */
-    private final MapTileFog mapFogged = new MapTileFog();
+    private final MapTileFog mapFogged = new MapTileFog(false);
     /** Fog black tile. */
     private SpriteTiled hideTiles;
     /** Fog gray tiles. */
@@ -75,14 +75,14 @@ public class FogOfWar extends FeatureModel implements MapTileRenderer
     }
 
     /**
-     * Update fovable field of view (fog of war).
+     * Update fovable field of view (fog of war). Only the fovables which moved, changed their field of view, or are not
+     * provided anymore since last update are applied.
      * 
      * @param fovables The entities reference.
      */
     public void update(Collection<Fovable> fovables)
     {
         mapHidden.update(fovables);
-        mapFogged.reset();
         mapFogged.update(fovables);
     }
 
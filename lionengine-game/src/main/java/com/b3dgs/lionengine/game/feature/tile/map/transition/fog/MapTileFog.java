@@ -19,7 +19,9 @@ package com.b3dgs.lionengine.game.feature.tile.map.transition.fog;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 import com.b3dgs.lionengine.Media;
 import com.b3dgs.lionengine.game.Services;
@@ -36,6 +38,12 @@ import com.b3dgs.lionengine.util.UtilMath;
 
 /**
  * Designed to handle a fog of war (discovering tile and hiding tile).
+ * <p>
+ * Fog is updated incrementally: each tile has a visibility reference count, changed only by the field of view areas
+ * of the {@link Fovable} which moved or changed their field of view since last update. Only tiles with a changed
+ * visibility and their neighbors are updated. The transition of a fogged tile only depends on its visible neighbors,
+ * so the transitions of each neighborhood are resolved once on creation.
+ * </p>
  */
 public class MapTileFog
 {
@@ -47,25 +55,121 @@ public class MapTileFog
     private static final String FOG_GROUP = "fog";
     /** Transition group. */
     private static final String TRANSITION_GROUP = "transition";
+    /** Neighbors horizontal offsets, one bit per neighbor in neighborhood mask. */
+    private static final int[] OFFSETS_X =
+    {
+        -1, 0, 1, -1, 1, -1, 0, 1
+    };
+    /** Neighbors vertical offsets, one bit per neighbor in neighborhood mask. */
+    private static final int[] OFFSETS_Y =
+    {
+        -1, -1, -1, 0, 0, 1, 1, 1
+    };
+    /** Number of neighborhood masks. */
+    private static final int MASKS = 1 << OFFSETS_X.length;
+
+    /**
+     * Resolve the fogged tile number for each visible neighbors mask, on a three tiles wide map.
+     * 
+     * @param config The fog configuration.
+     * @param tw The tile width.
+     * @param th The tile height.
+     * @return The fogged tile number by neighborhood mask.
+     */
+    private static int[] resolveTransitions(Media config, int tw, int th)
+    {
+        final Services services = new Services();
+        final MapTile map = services.create(MapTileGame.class);
+        final MapTileGroup mapGroup = map.addFeatureAndGet(new MapTileGroupModel());
+        final MapTileTransition transition = map.addFeatureAndGet(new MapTileTransitionModel(services));
+        map.create(tw, th, 3, 3);
+        for (int i = 0; i < NO_FOG; i++)
+        {
+            final String group;
+            if (i == FOG)
+            {
+                group = FOG_GROUP;
+            }
+            else
+            {
+                group = TRANSITION_GROUP;
+            }
+            mapGroup.changeGroup(new TileGame(Integer.valueOf(0), i, 0, 0, tw, th), group);
+        }
+        mapGroup.changeGroup(new TileGame(Integer.valueOf(0), NO_FOG, 0, 0, tw, th), MapTileGroupModel.NO_GROUP_NAME);
+        transition.loadTransitions(config);
+
+        final int[] numbers = new int[MASKS];
+        for (int mask = 0; mask < MASKS; mask++)
+        {
+            for (int x = 0; x < 3; x++)
+            {
+                for (int y = 0; y < 3; y++)
+                {
+                    map.setTile(new TileGame(Integer.valueOf(0), FOG, x * tw, y * th, tw, th));
+                }
+            }
+            for (int n = 0; n < OFFSETS_X.length; n++)
+            {
+                if ((mask & 1 << n) != 0)
+                {
+                    final int x = 1 + OFFSETS_X[n];
+                    final int y = 1 + OFFSETS_Y[n];
+                    map.setTile(new TileGame(Integer.valueOf(0), NO_FOG, x * tw, y * th, tw, th));
+                }
+            }
+            for (int n = 0; n < OFFSETS_X.length; n++)
+            {
+                if ((mask & 1 << n) != 0)
+                {
+                    transition.resolve(map.getTile(1 + OFFSETS_X[n], 1 + OFFSETS_Y[n]));
+                }
+            }
+            numbers[mask] = map.getTile(1, 1).getNumber();
+        }
+        return numbers;
+    }
 
-    /** Revealed tiles. */
-    private final Collection<Tile> revealed = new HashSet<Tile>();
-    /** Hidden map. */
+    /** Field of view areas applied. */
+    private final Map<Fovable, Area> areas = new HashMap<Fovable, Area>();
+    /** Fog map. */
     private final MapTile map;
-    /** Map group. */
-    private final MapTileGroup mapGroup;
-    /** Transitions. */
-    private final MapTileTransition transition;
+    /** Keep revealed tiles flag. */
+    private final boolean keepRevealed;
+    /** Fogged tile number by visible neighbors mask. */
+    private int[] transitions = new int[MASKS];
+    /** Visibility reference count per tile. */
+    private int[] visibility = new int[0];
+    /** Current tile number per tile. */
+    private int[] numbers = new int[0];
+    /** Tiles to update. */
+    private int[] dirty = new int[0];
+    /** Tiles to update flags. */
+    private boolean[] marked = new boolean[0];
+    /** Number of tiles to update. */
+    private int dirtyCount;
+    /** Update counter, used to detect removed fovables. */
+    private int updates;
 
     /**
-     * Create a fog of war.
+     * Create a fog of war, keeping tiles revealed once seen.
      */
     public MapTileFog()
+    {
+        this(true);
+    }
+
+    /**
+     * Create a fog of war.
+     * 
+     * @param keepRevealed <code>true</code> to keep tiles revealed once seen, <code>false</code> to fog them again
+     *            when out of field of view.
+     */
+    public MapTileFog(boolean keepRevealed)
     {
         final Services services = new Services();
         map = services.create(MapTileGame.class);
-        mapGroup = map.addFeatureAndGet(new MapTileGroupModel());
-        transition = map.addFeatureAndGet(new MapTileTransitionModel(services));
+        this.keepRevealed = keepRevealed;
     }
 
     /**
@@ -82,50 +186,54 @@ public class MapTileFog
         {
             this.map.loadSheets(Arrays.asList(sheet));
         }
-        for (int i = 0; i < NO_FOG; i++)
-        {
-            final String group;
-            if (i == FOG)
-            {
-                group = FOG_GROUP;
-            }
-            else
-            {
-                group = TRANSITION_GROUP;
-            }
-            mapGroup.changeGroup(new TileGame(Integer.valueOf(0), i, 0, 0, map.getTileWidth(), map.getTileHeight()),
-                                 group);
-        }
-        mapGroup.changeGroup(new TileGame(Integer.valueOf(0), NO_FOG, 0, 0, map.getTileWidth(), map.getTileHeight()),
-                             MapTileGroupModel.NO_GROUP_NAME);
-        transition.loadTransitions(config);
+        transitions = resolveTransitions(config, map.getTileWidth(), map.getTileHeight());
+
+        final int count = map.getInTileWidth() * map.getInTileHeight();
+        visibility = new int[count];
+        numbers = new int[count];
+        dirty = new int[count];
+        marked = new boolean[count];
+        dirtyCount = 0;
+        areas.clear();
 
         for (int x = 0; x < map.getInTileWidth(); x++)
         {
             for (int y = 0; y < map.getInTileHeight(); y++)
             {
-                final Tile tile = new TileGame(Integer.valueOf(0),
-                                               FOG,
-                                               x * map.getTileWidth(),
-                                               y * map.getTileHeight(),
-                                               map.getTileWidth(),
-                                               map.getTileHeight());
-                this.map.setTile(tile);
+                setTile(x, y, FOG);
             }
         }
     }
 
     /**
-     * Update fovable field of view (fog of war).
+     * Update fovable field of view (fog of war). Only fovables which moved or changed their field of view since last
+     * update are applied, and fovables not provided anymore are removed.
      * 
      * @param fovables The entities reference.
      */
     public void update(Collection<Fovable> fovables)
     {
+        updates++;
         for (final Fovable fovable : fovables)
         {
             updateFov(fovable);
         }
+
+        final Iterator<Area> iterator = areas.values().iterator();
+        while (iterator.hasNext())
+        {
+            final Area area = iterator.next();
+            if (area.update != updates)
+            {
+                if (!keepRevealed)
+                {
+                    apply(area.minX, area.minY, area.maxX, area.maxY, -1);
+                }
+                iterator.remove();
+            }
+        }
+
+        updateTiles();
     }
 
     /**
@@ -133,17 +241,18 @@ public class MapTileFog
      */
     public void reset()
     {
-        for (final Tile tile : revealed)
+        areas.clear();
+        Arrays.fill(visibility, 0);
+        for (int x = 0; x < map.getInTileWidth(); x++)
         {
-            final Tile reset = new TileGame(tile.getSheet(),
-                                            FOG,
-                                            tile.getX(),
-                                            tile.getY(),
-                                            tile.getWidth(),
-                                            tile.getHeight());
-            map.setTile(reset);
+            for (int y = 0; y < map.getInTileHeight(); y++)
+            {
+                if (numbers[x + y * map.getInTileWidth()] != FOG)
+                {
+                    setTile(x, y, FOG);
+                }
+            }
         }
-        revealed.clear();
     }
 
     /**
@@ -159,7 +268,7 @@ public class MapTileFog
     }
 
     /**
-     * Update fovable field of view (fog of war).
+     * Update fovable field of view area if changed.
      * 
      * @param fovable The fovable reference.
      */
@@ -176,28 +285,206 @@ public class MapTileFog
         final int sy = UtilMath.clamp(ty - ray - th / 2, 0, map.getInTileHeight() - 1);
         final int ey = UtilMath.clamp(ty + ray + th / 2, 0, map.getInTileHeight() - 1);
 
-        for (int x = sx + 1; x < ex; x++)
+        Area area = areas.get(fovable);
+        if (area == null)
+        {
+            apply(sx + 1, sy + 1, ex - 1, ey - 1, 1);
+            area = new Area();
+            area.set(sx + 1, sy + 1, ex - 1, ey - 1);
+            areas.put(fovable, area);
+        }
+        else if (!area.is(sx + 1, sy + 1, ex - 1, ey - 1))
+        {
+            // Add new area before removing old one, so that overlapping tiles keep their visibility
+            apply(sx + 1, sy + 1, ex - 1, ey - 1, 1);
+            if (!keepRevealed)
+            {
+                apply(area.minX, area.minY, area.maxX, area.maxY, -1);
+            }
+            area.set(sx + 1, sy + 1, ex - 1, ey - 1);
+        }
+        area.update = updates;
+    }
+
+    /**
+     * Apply visibility change on area, and mark tiles which visibility changed.
+     * 
+     * @param minX The minimum horizontal tile.
+     * @param minY The minimum vertical tile.
+     * @param maxX The maximum horizontal tile.
+     * @param maxY The maximum vertical tile.
+     * @param delta The visibility change (1 or -1).
+     */
+    private void apply(int minX, int minY, int maxX, int maxY, int delta)
+    {
+        final int width = map.getInTileWidth();
+        for (int y = minY; y <= maxY; y++)
+        {
+            for (int x = minX; x <= maxX; x++)
+            {
+                final int index = x + y * width;
+                final int old = visibility[index];
+                if (keepRevealed && old > 0)
+                {
+                    continue;
+                }
+                visibility[index] = old + delta;
+                if (old == 0 || old + delta == 0)
+                {
+                    markAround(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark tile and its neighbors to update.
+     * 
+     * @param tx The horizontal tile.
+     * @param ty The vertical tile.
+     */
+    private void markAround(int tx, int ty)
+    {
+        final int width = map.getInTileWidth();
+        final int height = map.getInTileHeight();
+        for (int y = Math.max(0, ty - 1); y <= Math.min(height - 1, ty + 1); y++)
         {
-            for (int y = sy + 1; y < ey; y++)
+            for (int x = Math.max(0, tx - 1); x <= Math.min(width - 1, tx + 1); x++)
             {
-                final Tile tile = new TileGame(Integer.valueOf(0),
-                                               NO_FOG,
-                                               x * map.getTileWidth(),
-                                               y * map.getTileHeight(),
-                                               map.getTileWidth(),
-                                               map.getTileHeight());
-                map.setTile(tile);
-                transition.resolve(getTile(x, y));
+                final int index = x + y * width;
+                if (!marked[index])
+                {
+                    marked[index] = true;
+                    dirty[dirtyCount++] = index;
+                }
             }
         }
+    }
 
-        for (int x = sx; x < ex + 1; x++)
+    /**
+     * Update marked tiles from their visibility and their neighbors visibility.
+     */
+    private void updateTiles()
+    {
+        final int width = map.getInTileWidth();
+        for (int i = 0; i < dirtyCount; i++)
         {
-            for (int y = sy; y < ey + 1; y++)
+            final int index = dirty[i];
+            marked[index] = false;
+
+            final int tx = index % width;
+            final int ty = index / width;
+            final int number;
+            if (visibility[index] > 0)
             {
-                final Tile tile = map.getTile(x, y);
-                revealed.add(tile);
+                number = NO_FOG;
             }
+            else
+            {
+                number = transitions[getNeighborhood(tx, ty)];
+            }
+            if (numbers[index] != number)
+            {
+                setTile(tx, ty, number);
+            }
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Get the visible neighbors mask.
+     * 
+     * @param tx The horizontal tile.
+     * @param ty The vertical tile.
+     * @return The visible neighbors mask.
+     */
+    private int getNeighborhood(int tx, int ty)
+    {
+        final int width = map.getInTileWidth();
+        final int height = map.getInTileHeight();
+        int mask = 0;
+        for (int n = 0; n < OFFSETS_X.length; n++)
+        {
+            final int x = tx + OFFSETS_X[n];
+            final int y = ty + OFFSETS_Y[n];
+            if (x >= 0 && y >= 0 && x < width && y < height && visibility[x + y * width] > 0)
+            {
+                mask |= 1 << n;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Set the fog tile.
+     * 
+     * @param tx The horizontal tile.
+     * @param ty The vertical tile.
+     * @param number The tile number.
+     */
+    private void setTile(int tx, int ty, int number)
+    {
+        numbers[tx + ty * map.getInTileWidth()] = number;
+        map.setTile(new TileGame(Integer.valueOf(0),
+                                 number,
+                                 tx * map.getTileWidth(),
+                                 ty * map.getTileHeight(),
+                                 map.getTileWidth(),
+                                 map.getTileHeight()));
+    }
+
+    /**
+     * Field of view area applied, in tiles (bounds included).
+     */
+    private static final class Area
+    {
+        /** Minimum horizontal tile. */
+        private int minX;
+        /** Minimum vertical tile. */
+        private int minY;
+        /** Maximum horizontal tile. */
+        private int maxX;
+        /** Maximum vertical tile. */
+        private int maxY;
+        /** Last update using this area. */
+        private int update;
+
+        /**
+         * Create area.
+         */
+        Area()
+        {
+            super();
+        }
+
+        /**
+         * Check if area has the same bounds.
+         * 
+         * @param minX The minimum horizontal tile.
+         * @param minY The minimum vertical tile.
+         * @param maxX The maximum horizontal tile.
+         * @param maxY The maximum vertical tile.
+         * @return <code>true</code> if same bounds, <code>false</code> else.
+         */
+        boolean is(int minX, int minY, int maxX, int maxY)
+        {
+            return this.minX == minX && this.minY == minY && this.maxX == maxX && this.maxY == maxY;
+        }
+
+        /**
+         * Set area bounds.
+         * 
+         * @param minX The minimum horizontal tile.
+         * @param minY The minimum vertical tile.
+         * @param maxX The maximum horizontal tile.
+         * @param maxY The maximum vertical tile.
+         */
+        void set(int minX, int minY, int maxX, int maxY)
+        {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
         }
     }
 }
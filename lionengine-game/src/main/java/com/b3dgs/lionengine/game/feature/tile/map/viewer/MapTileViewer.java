@@ -17,6 +17,7 @@
  */
 package com.b3dgs.lionengine.game.feature.tile.map.viewer;
 
+import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.game.feature.Displayable;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileRenderer;
 
@@ -43,4 +44,36 @@ public interface MapTileViewer extends Displayable
      * Remove all renderers.
      */
     void clear();
+
+    /**
+     * Set the chunk size used to cache rendered tiles. Tiles are then rendered by chunks into images, rendered again
+     * only once invalidated. A tile set on map invalidates its chunk. Renderers with an output changing without tile
+     * change must notify it with {@link #invalidate(int, int)} or {@link #invalidate()}.
+     * 
+     * @param chunkSize The chunk size in tile (superior or equal to 0, 0 to render each tile on each frame).
+     * @throws LionEngineException If invalid chunk size.
+     */
+    void setChunkSize(int chunkSize);
+
+    /**
+     * Set the maximum number of cached chunks. Once exceeded, the least recently rendered chunks are disposed, and
+     * rendered again when visible. Chunks overlapping the view are always kept, even if more than this number.
+     * 
+     * @param chunksMax The maximum number of cached chunks (superior or equal to 0).
+     * @throws LionEngineException If invalid number.
+     */
+    void setChunksMax(int chunksMax);
+
+    /**
+     * Invalidate all cached chunks, rendered again on next render. Must be called when map sheets changed.
+     */
+    void invalidate();
+
+    /**
+     * Invalidate the cached chunk containing the tile, rendered again on next render.
+     * 
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     */
+    void invalidate(int tx, int ty);
 }
@@ -20,6 +20,7 @@ package com.b3dgs.lionengine.game.feature.tile.map.viewer;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import com.b3dgs.lionengine.Check;
 import com.b3dgs.lionengine.Viewer;
 import com.b3dgs.lionengine.game.Services;
 import com.b3dgs.lionengine.game.feature.FeatureModel;
@@ -27,19 +28,62 @@ import com.b3dgs.lionengine.game.feature.tile.Tile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileRenderer;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileRendererModel;
+import com.b3dgs.lionengine.game.feature.tile.map.TileSetListener;
 import com.b3dgs.lionengine.graphic.Graphic;
+import com.b3dgs.lionengine.graphic.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.Transparency;
 
 /**
  * Map tile renderer default implementation.
+ * <p>
+ * By default, each visible tile is rendered by each renderer on each frame. With a chunk size (see
+ * {@link #setChunkSize(int)}), tiles are rendered by chunks into cached images, which are rendered again only once
+ * invalidated by a tile set on map, or by {@link #invalidate()} and {@link #invalidate(int, int)}. Each frame then
+ * only draws the chunks overlapping the view.
+ * </p>
+ * <p>
+ * Up to {@value #DEFAULT_CHUNKS_MAX} chunks are cached by default (see {@link #setChunksMax(int)}), the least
+ * recently rendered ones being disposed first.
+ * </p>
  */
 public class MapTileViewerModel extends FeatureModel implements MapTileViewer
 {
+    /** Default maximum number of cached chunks. */
+    private static final int DEFAULT_CHUNKS_MAX = 64;
+
     /** Map tiles renderers. */
     private final Collection<MapTileRenderer> renderers = new ArrayList<MapTileRenderer>();
     /** Map reference. */
     private final MapTile map;
     /** Viewer reference. */
     private final Viewer viewer;
+    /** Chunk size in tiles, 0 if cache disabled. */
+    private int chunkSize;
+    /** Cached chunks, <code>null</code> if not allocated. */
+    private Chunk[] chunks;
+    /** Horizontal chunks number. */
+    private int chunksInX;
+    /** Vertical chunks number. */
+    private int chunksInY;
+    /** Chunks allocated for this map width in tile. */
+    private int chunksMapWidth;
+    /** Chunks allocated for this map height in tile. */
+    private int chunksMapHeight;
+    /** Chunks allocated for this tile width. */
+    private int chunksTileWidth;
+    /** Chunks allocated for this tile height. */
+    private int chunksTileHeight;
+    /** Transparent pixels, used to clear chunks. */
+    private int[] blank;
+    /** Maximum number of cached chunks, unless more are visible. */
+    private int chunksMax = DEFAULT_CHUNKS_MAX;
+    /** Cached chunks number. */
+    private int chunksCount;
+    /** Most recently rendered chunk, <code>null</code> if none. */
+    private Chunk first;
+    /** Least recently rendered chunk, <code>null</code> if none. */
+    private Chunk last;
 
     /**
      * Create the viewer. It is shipped with a default renderer: {@link MapTileRendererModel}.
@@ -61,6 +105,14 @@ public class MapTileViewerModel extends FeatureModel implements MapTileViewer
         viewer = services.get(Viewer.class);
 
         renderers.add(new MapTileRendererModel());
+        map.addListener(new TileSetListener()
+        {
+            @Override
+            public void onTileSet(Tile tile)
+            {
+                invalidate(tile.getInTileX(), tile.getInTileY());
+            }
+        });
     }
 
     /**
@@ -110,6 +162,228 @@ public class MapTileViewerModel extends FeatureModel implements MapTileViewer
         }
     }
 
+    /**
+     * Render the chunks overlapping the view, rendering invalidated ones before.
+     * 
+     * @param g The graphic output.
+     * @param sy The first vertical tile location.
+     * @param ey The last vertical tile location.
+     * @param viewY The vertical view offset.
+     */
+    private void renderChunks(Graphic g, int sy, int ey, double viewY)
+    {
+        updateChunks();
+
+        final int tw = map.getTileWidth();
+        final int th = map.getTileHeight();
+        final int sx = (int) Math.floor((viewer.getX() + viewer.getViewX()) / tw);
+        final int ex = sx + (int) Math.ceil(viewer.getWidth() / (double) tw);
+        final double viewX = viewer.getX();
+
+        final int csx = Math.max(0, sx) / chunkSize;
+        final int cex = Math.min(map.getInTileWidth() - 1, ex) / chunkSize;
+        final int csy = Math.max(0, sy) / chunkSize;
+        final int cey = Math.min(map.getInTileHeight() - 1, ey) / chunkSize;
+
+        for (int cy = csy; cy <= cey; cy++)
+        {
+            for (int cx = csx; cx <= cex; cx++)
+            {
+                final Chunk chunk = getChunk(cx, cy);
+                if (chunk.dirty)
+                {
+                    renderChunk(chunk);
+                }
+                final int x = (int) (chunk.tx * tw - viewX);
+                final int y = (int) (-(chunk.ty + chunk.height) * th + viewY);
+                g.drawImage(chunk.image, x, y);
+            }
+        }
+        evictChunks(Math.max(chunksMax, (cex - csx + 1) * (cey - csy + 1)));
+    }
+
+    /**
+     * Reallocate chunks if map or tile size changed.
+     */
+    private void updateChunks()
+    {
+        final int tw = map.getTileWidth();
+        final int th = map.getTileHeight();
+        if (chunks == null
+            || chunksMapWidth != map.getInTileWidth()
+            || chunksMapHeight != map.getInTileHeight()
+            || chunksTileWidth != tw
+            || chunksTileHeight != th)
+        {
+            disposeChunks();
+            chunksMapWidth = map.getInTileWidth();
+            chunksMapHeight = map.getInTileHeight();
+            chunksTileWidth = tw;
+            chunksTileHeight = th;
+            chunksInX = (chunksMapWidth + chunkSize - 1) / chunkSize;
+            chunksInY = (chunksMapHeight + chunkSize - 1) / chunkSize;
+            chunks = new Chunk[chunksInX * chunksInY];
+            blank = new int[chunkSize * tw * chunkSize * th];
+        }
+    }
+
+    /**
+     * Get the chunk, create it if needed. Chunk becomes the most recently rendered.
+     * 
+     * @param cx The horizontal chunk index.
+     * @param cy The vertical chunk index.
+     * @return The chunk.
+     */
+    private Chunk getChunk(int cx, int cy)
+    {
+        final int index = cx + cy * chunksInX;
+        Chunk chunk = chunks[index];
+        if (chunk == null)
+        {
+            final int tx = cx * chunkSize;
+            final int ty = cy * chunkSize;
+            final int width = Math.min(chunkSize, chunksMapWidth - tx);
+            final int height = Math.min(chunkSize, chunksMapHeight - ty);
+            final ImageBuffer image = Graphics.createImageBuffer(width * chunksTileWidth,
+                                                                 height * chunksTileHeight,
+                                                                 Transparency.TRANSLUCENT);
+            chunk = new Chunk(image, index, tx, ty, width, height);
+            chunks[index] = chunk;
+            chunksCount++;
+            link(chunk);
+        }
+        else if (chunk != first)
+        {
+            unlink(chunk);
+            link(chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Link chunk as the most recently rendered.
+     * 
+     * @param chunk The chunk to link.
+     */
+    private void link(Chunk chunk)
+    {
+        chunk.previous = null;
+        chunk.next = first;
+        if (first != null)
+        {
+            first.previous = chunk;
+        }
+        else
+        {
+            last = chunk;
+        }
+        first = chunk;
+    }
+
+    /**
+     * Unlink chunk from the rendered order.
+     * 
+     * @param chunk The chunk to unlink.
+     */
+    private void unlink(Chunk chunk)
+    {
+        if (chunk.previous != null)
+        {
+            chunk.previous.next = chunk.next;
+        }
+        else
+        {
+            first = chunk.next;
+        }
+        if (chunk.next != null)
+        {
+            chunk.next.previous = chunk.previous;
+        }
+        else
+        {
+            last = chunk.previous;
+        }
+        chunk.previous = null;
+        chunk.next = null;
+    }
+
+    /**
+     * Dispose the least recently rendered chunks until cached chunks number does not exceed the maximum.
+     * 
+     * @param max The maximum number of cached chunks.
+     */
+    private void evictChunks(int max)
+    {
+        while (chunksCount > max)
+        {
+            final Chunk chunk = last;
+            unlink(chunk);
+            chunks[chunk.index] = null;
+            chunk.image.dispose();
+            chunksCount--;
+        }
+    }
+
+    /**
+     * Clear and render the chunk tiles with all renderers.
+     * 
+     * @param chunk The chunk to render.
+     */
+    private void renderChunk(Chunk chunk)
+    {
+        final ImageBuffer image = chunk.image;
+        final int width = image.getWidth();
+        image.setRgb(0, 0, width, image.getHeight(), blank, 0, width);
+
+        final Graphic g = image.createGraphic();
+        try
+        {
+            for (int ty = chunk.ty; ty < chunk.ty + chunk.height; ty++)
+            {
+                final int y = (chunk.ty + chunk.height - 1 - ty) * chunksTileHeight;
+                for (int tx = chunk.tx; tx < chunk.tx + chunk.width; tx++)
+                {
+                    final Tile tile = map.getTile(tx, ty);
+                    if (tile != null)
+                    {
+                        final int x = (tx - chunk.tx) * chunksTileWidth;
+                        for (final MapTileRenderer renderer : renderers)
+                        {
+                            renderer.renderTile(g, map, tile, x, y);
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            g.dispose();
+        }
+        image.prepare();
+        chunk.dirty = false;
+    }
+
+    /**
+     * Dispose all chunks.
+     */
+    private void disposeChunks()
+    {
+        if (chunks != null)
+        {
+            for (final Chunk chunk : chunks)
+            {
+                if (chunk != null)
+                {
+                    chunk.image.dispose();
+                }
+            }
+            chunks = null;
+        }
+        first = null;
+        last = null;
+        chunksCount = 0;
+    }
+
     /*
      * MapTileViewer
      */
@@ -118,18 +392,66 @@ public class MapTileViewerModel extends FeatureModel implements MapTileViewer
     public void addRenderer(MapTileRenderer renderer)
     {
         renderers.add(renderer);
+        invalidate();
     }
 
     @Override
     public void removeRenderer(MapTileRenderer renderer)
     {
         renderers.remove(renderer);
+        invalidate();
     }
 
     @Override
     public void clear()
     {
         renderers.clear();
+        invalidate();
+    }
+
+    @Override
+    public void setChunkSize(int chunkSize)
+    {
+        Check.superiorOrEqual(chunkSize, 0);
+
+        disposeChunks();
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void setChunksMax(int chunksMax)
+    {
+        Check.superiorOrEqual(chunksMax, 0);
+
+        this.chunksMax = chunksMax;
+    }
+
+    @Override
+    public void invalidate()
+    {
+        if (chunks != null)
+        {
+            for (final Chunk chunk : chunks)
+            {
+                if (chunk != null)
+                {
+                    chunk.dirty = true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(int tx, int ty)
+    {
+        if (chunks != null && tx >= 0 && ty >= 0 && tx < chunksMapWidth && ty < chunksMapHeight)
+        {
+            final Chunk chunk = chunks[tx / chunkSize + ty / chunkSize * chunksInX];
+            if (chunk != null)
+            {
+                chunk.dirty = true;
+            }
+        }
     }
 
     @Override
@@ -141,14 +463,66 @@ public class MapTileViewerModel extends FeatureModel implements MapTileViewer
             final int sy = (int) Math.floor((viewer.getY() - viewer.getViewY()) / map.getTileHeight());
             final double viewY = viewer.getY() - viewer.getViewY() + viewer.getScreenHeight() - viewer.getViewY();
 
-            for (int v = 0; v <= inTileHeight; v++)
+            if (chunkSize > 0)
+            {
+                renderChunks(g, sy, sy + inTileHeight, viewY);
+            }
+            else
             {
-                final int ty = v + sy;
-                if (!(ty < 0 || ty >= map.getInTileHeight()))
+                for (int v = 0; v <= inTileHeight; v++)
                 {
-                    renderHorizontal(g, ty, viewY);
+                    final int ty = v + sy;
+                    if (!(ty < 0 || ty >= map.getInTileHeight()))
+                    {
+                        renderHorizontal(g, ty, viewY);
+                    }
                 }
             }
         }
     }
+
+    /**
+     * Cached tiles chunk.
+     */
+    private static final class Chunk
+    {
+        /** Rendered tiles. */
+        private final ImageBuffer image;
+        /** Index in cached chunks. */
+        private final int index;
+        /** First horizontal tile. */
+        private final int tx;
+        /** First vertical tile. */
+        private final int ty;
+        /** Width in tile. */
+        private final int width;
+        /** Height in tile. */
+        private final int height;
+        /** Invalidated flag. */
+        private boolean dirty = true;
+        /** More recently rendered chunk, <code>null</code> if none. */
+        private Chunk previous;
+        /** Less recently rendered chunk, <code>null</code> if none. */
+        private Chunk next;
+
+        /**
+         * Create chunk.
+         * 
+         * @param image The chunk image.
+         * @param index The index in cached chunks.
+         * @param tx The first horizontal tile.
+         * @param ty The first vertical tile.
+         * @param width The width in tile.
+         * @param height The height in tile.
+         */
+        Chunk(ImageBuffer image, int index, int tx, int ty, int width, int height)
+        {
+            this.image = image;
+            this.index = index;
+            this.tx = tx;
+            this.ty = ty;
+            this.width = width;
+            this.height = height;
+        }
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.game.feature.Displayable;
+import com.b3dgs.lionengine.game.feature.FeatureModel;
+import com.b3dgs.lionengine.game.feature.Refreshable;
+
+/**
+ * Micro benchmark of the features lookup of a parent type, compared to a linear search over features.
+ * <p>
+ * Not part of the unit tests, as timings depend on the machine: run it manually with its main method.
+ * </p>
+ */
+public final class FeaturesBenchmark
+{
+    /** Lookups count per run. */
+    private static final int COUNT = 1000000;
+    /** Runs count, first ones are warm up. */
+    private static final int RUNS = 5;
+
+    /**
+     * Run the benchmark.
+     * 
+     * @param args The arguments (unused).
+     */
+    public static void main(String[] args)
+    {
+        final Features features = new Features();
+        for (int i = 0; i < 8; i++)
+        {
+            features.add(new FeatureModel()
+            {
+                // Mock
+            });
+        }
+        final FeatureLevel2 feature = new FeatureLevel2();
+        features.add(feature);
+
+        for (int run = 0; run < RUNS; run++)
+        {
+            int found = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < COUNT; i++)
+            {
+                if (features.get(Refreshable.class) == feature && !features.contains(Displayable.class))
+                {
+                    found++;
+                }
+            }
+            final long cached = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < COUNT; i++)
+            {
+                if (search(features, Refreshable.class) == feature && search(features, Displayable.class) == null)
+                {
+                    found++;
+                }
+            }
+            final long linear = System.nanoTime() - start;
+
+            Verbose.info("Features lookup: cached ",
+                         String.valueOf(cached / COUNT),
+                         "ns, linear ",
+                         String.valueOf(linear / COUNT),
+                         "ns (",
+                         String.valueOf(found),
+                         " found)");
+        }
+    }
+
+    /**
+     * Linear search of the feature, as reference.
+     * 
+     * @param features The features reference.
+     * @param type The feature type.
+     * @return The feature found, <code>null</code> if none.
+     */
+    private static Feature search(Features features, Class<?> type)
+    {
+        for (final Feature current : features.getFeatures())
+        {
+            if (type.isAssignableFrom(current.getClass()))
+            {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Private constructor.
+     */
+    private FeaturesBenchmark()
+    {
+        throw new LionEngineException(LionEngineException.ERROR_PRIVATE_CONSTRUCTOR);
+    }
+
+    /**
+     * Mock feature.
+     */
+    private static class FeatureLevel1 extends FeatureModel implements Refreshable
+    {
+        @Override
+        public void update(double extrp)
+        {
+            // Mock
+        }
+    }
+
+    /**
+     * Mock feature.
+     */
+    private static class FeatureLevel2 extends FeatureLevel1
+    {
+        // Mock
+    }
+}
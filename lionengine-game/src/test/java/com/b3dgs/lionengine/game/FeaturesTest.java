@@ -18,14 +18,24 @@
 package com.b3dgs.lionengine.game;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.game.feature.Actionable;
+import com.b3dgs.lionengine.game.feature.Actioner;
+import com.b3dgs.lionengine.game.feature.Animatable;
 import com.b3dgs.lionengine.game.feature.Displayable;
 import com.b3dgs.lionengine.game.feature.FeatureModel;
+import com.b3dgs.lionengine.game.feature.Identifiable;
+import com.b3dgs.lionengine.game.feature.Layerable;
+import com.b3dgs.lionengine.game.feature.Mirrorable;
+import com.b3dgs.lionengine.game.feature.Recyclable;
 import com.b3dgs.lionengine.game.feature.Refreshable;
+import com.b3dgs.lionengine.game.feature.Transformable;
 
 /**
  * Test the features class.
@@ -99,6 +109,63 @@ public class FeaturesTest
         Assert.assertTrue(features.contains(Refreshable.class));
     }
 
+    /**
+     * Test lookup result is updated when a feature is added.
+     */
+    @Test
+    public void testLookupAfterAdd()
+    {
+        final Features features = new Features();
+
+        Assert.assertFalse(features.contains(Refreshable.class));
+
+        final FeatureLevel2 feature = new FeatureLevel2();
+        features.add(feature);
+
+        Assert.assertTrue(features.contains(Refreshable.class));
+        Assert.assertEquals(feature, features.get(Refreshable.class));
+        Assert.assertEquals(feature, features.get(FeatureLevel1.class));
+    }
+
+    /**
+     * Test lookup of many types, found or not, growing the lookup cache.
+     */
+    @Test
+    public void testManyTypes()
+    {
+        final Features features = new Features();
+        final FeatureLevel2 feature = new FeatureLevel2();
+        features.add(feature);
+
+        final List<Class<? extends Feature>> missing = Arrays.asList(Actionable.class,
+                                                                      Actioner.class,
+                                                                      Animatable.class,
+                                                                      Displayable.class,
+                                                                      Identifiable.class,
+                                                                      Layerable.class,
+                                                                      Mirrorable.class,
+                                                                      Recyclable.class,
+                                                                      Transformable.class,
+                                                                      FeatureNotCompatible.class);
+        for (int i = 0; i < 2; i++)
+        {
+            for (final Class<? extends Feature> type : missing)
+            {
+                Assert.assertFalse(type.getName(), features.contains(type));
+            }
+            Assert.assertEquals(feature, features.get(Refreshable.class));
+            Assert.assertEquals(feature, features.get(FeatureLevel1.class));
+            Assert.assertEquals(feature, features.get(FeatureLevel2.class));
+            Assert.assertEquals(feature, features.get(Feature.class));
+        }
+
+        final FeatureNotCompatible other = new FeatureNotCompatible();
+        features.add(other);
+
+        Assert.assertEquals(other, features.get(FeatureNotCompatible.class));
+        Assert.assertFalse(features.contains(Transformable.class));
+    }
+
     /**
      * Mock feature.
      */
@@ -63,6 +63,43 @@ public class ServicesTest
         Assert.assertEquals(camera, services.get(Camera.class));
     }
 
+    /**
+     * Test the child services.
+     */
+    @Test
+    public void testChild()
+    {
+        final Services services = new Services();
+        final Camera camera = services.add(new Camera());
+        final Services child = new Services(services);
+
+        Assert.assertEquals(camera, child.get(Viewer.class));
+        Assert.assertEquals(child, child.get(Services.class));
+        Assert.assertFalse(child.has(Factory.class));
+
+        final Factory factory = services.add(new Factory(services));
+        Assert.assertEquals(factory, child.get(Factory.class));
+
+        final Camera level = child.add(new Camera());
+        Assert.assertEquals(level, child.get(Viewer.class));
+        Assert.assertEquals(camera, services.get(Viewer.class));
+    }
+
+    /**
+     * Test the service availability.
+     */
+    @Test
+    public void testHas()
+    {
+        final Services services = new Services();
+        Assert.assertFalse(services.has(Camera.class));
+        Assert.assertTrue(services.has(Services.class));
+
+        services.add(new Camera());
+        Assert.assertTrue(services.has(Camera.class));
+        Assert.assertTrue(services.has(Viewer.class));
+    }
+
     /**
      * Test the service without constructor.
      */
@@ -17,6 +17,9 @@
  */
 package com.b3dgs.lionengine.game.feature;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -170,6 +173,78 @@ public class HandlablesImplTest
         Assert.assertEquals(1, i);
     }
 
+    /**
+     * Test iteration order after removal.
+     */
+    @Test
+    public void testOrder()
+    {
+        final Featurable object1 = new ObjectComplex();
+        final Featurable object2 = new ObjectComplex();
+        featurables.add(object);
+        featurables.add(object1);
+        featurables.add(object2);
+
+        Assert.assertEquals(Arrays.asList(object, object1, object2), featurables.values());
+        Assert.assertEquals(Arrays.asList(object1, object2), featurables.get(Updatable.class));
+
+        featurables.remove(object1, object1.getFeature(Identifiable.class).getId());
+
+        Assert.assertEquals(Arrays.asList(object, object2), featurables.values());
+        Assert.assertEquals(Arrays.asList(object2), featurables.get(Updatable.class));
+
+        featurables.add(object1);
+        featurables.add(object1);
+
+        Assert.assertEquals(Arrays.asList(object2, object1), featurables.get(Updatable.class));
+
+        object1.getFeature(Identifiable.class).notifyDestroyed();
+        object2.getFeature(Identifiable.class).notifyDestroyed();
+    }
+
+    /**
+     * Test returned lists cannot be modified.
+     */
+    @Test
+    public void testUnmodifiable()
+    {
+        featurables.add(object);
+        final List<Featurable> values = featurables.values();
+        try
+        {
+            values.add(new ObjectComplex());
+            Assert.fail();
+        }
+        catch (final UnsupportedOperationException exception)
+        {
+            // Success
+            Assert.assertNotNull(exception);
+        }
+        try
+        {
+            values.remove(object);
+            Assert.fail();
+        }
+        catch (final UnsupportedOperationException exception)
+        {
+            // Success
+            Assert.assertNotNull(exception);
+        }
+        try
+        {
+            featurables.get(Featurable.class).clear();
+            Assert.fail();
+        }
+        catch (final UnsupportedOperationException exception)
+        {
+            // Success
+            Assert.assertNotNull(exception);
+        }
+
+        Assert.assertEquals(Arrays.asList(object), featurables.values());
+        Assert.assertEquals(Arrays.asList(object), featurables.get(Featurable.class));
+    }
+
     /**
      * Complex object with interface.
      */
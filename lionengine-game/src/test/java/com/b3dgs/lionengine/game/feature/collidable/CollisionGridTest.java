@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.collidable;
+
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Camera;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.Setup;
+import com.b3dgs.lionengine.game.feature.Transformable;
+import com.b3dgs.lionengine.game.feature.TransformableModel;
+import com.b3dgs.lionengine.game.feature.UtilSetup;
+import com.b3dgs.lionengine.graphic.FactoryGraphicMock;
+import com.b3dgs.lionengine.graphic.Graphics;
+
+/**
+ * Test the collision grid class.
+ */
+public class CollisionGridTest
+{
+    /** Cell size. */
+    private static final int CELL = 8;
+    /** Test configuration. */
+    private static Media config;
+
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Graphics.setFactoryGraphic(new FactoryGraphicMock());
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+        config = UtilSetup.createConfig();
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Assert.assertTrue(config.getFile().delete());
+        Graphics.setFactoryGraphic(null);
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    private final Services services = new Services();
+    private final Setup setup = new Setup(config);
+    private final CollisionGrid grid = new CollisionGrid(CELL);
+
+    /**
+     * Prepare test.
+     */
+    @Before
+    public void prepare()
+    {
+        services.add(new Camera());
+    }
+
+    /**
+     * Create object at location.
+     * 
+     * @param group The object group, accepting the other group.
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     * @return The object.
+     */
+    private ObjectSelf create(int group, double x, double y)
+    {
+        final ObjectSelf featurable = new ObjectSelf();
+        final Transformable transformable = featurable.addFeatureAndGet(new TransformableModel(setup));
+        final Collidable collidable = featurable.addFeatureAndGet(new CollidableModel(services, setup));
+        collidable.setGroup(group);
+        collidable.addAccept(1 - group);
+        collidable.addCollision(new Collision("test", 0, 0, 4, 4, false));
+        transformable.teleport(x, y);
+        return featurable;
+    }
+
+    /**
+     * Add object to grid.
+     * 
+     * @param featurable The object to add.
+     * @return The grid entry.
+     */
+    private CollisionGrid.Entry add(ObjectSelf featurable)
+    {
+        return grid.add(featurable.getFeature(Collidable.class), featurable.getFeature(Transformable.class));
+    }
+
+    /**
+     * Test cells are removed once empty, so table stays bounded when an object crosses many cells.
+     */
+    @Test
+    public void testCrossManyCells()
+    {
+        final ObjectSelf moving = create(0, 0.0, 0.0);
+        final Transformable transformable = moving.getFeature(Transformable.class);
+        final CollisionGrid.Entry entry = add(moving);
+        add(create(1, 0.0, 0.0));
+
+        final int capacity = grid.getCapacity();
+        Assert.assertEquals(1, grid.getCellsCount());
+        Assert.assertEquals(1, grid.collectPairs());
+
+        for (int i = 2; i < 1000; i++)
+        {
+            transformable.teleport(i * CELL * 0.7, -i * CELL * 0.3);
+            grid.update(entry);
+
+            Assert.assertTrue(grid.getCellsCount() <= 5);
+            Assert.assertEquals(capacity, grid.getCapacity());
+            Assert.assertEquals(0, grid.collectPairs());
+        }
+
+        transformable.teleport(0.0, 0.0);
+        grid.update(entry);
+
+        Assert.assertEquals(1, grid.getCellsCount());
+        Assert.assertEquals(1, grid.collectPairs());
+
+        grid.remove(entry);
+
+        Assert.assertEquals(1, grid.getCellsCount());
+        Assert.assertEquals(0, grid.collectPairs());
+    }
+
+    /**
+     * Test remaining cells are still found after removing cells from the table probe sequences.
+     */
+    @Test
+    public void testRemoveKeepsOtherCells()
+    {
+        final int count = 80;
+        final ObjectSelf[] objects = new ObjectSelf[count];
+        final CollisionGrid.Entry[] entries = new CollisionGrid.Entry[count];
+        for (int i = 0; i < count; i++)
+        {
+            objects[i] = create(i % 2, i / 2 * CELL * 3, i / 2 * CELL * 5);
+            entries[i] = add(objects[i]);
+        }
+        Assert.assertEquals(count / 2, grid.getCellsCount());
+        Assert.assertEquals(count / 2, grid.collectPairs());
+
+        for (int i = 0; i < count; i += 4)
+        {
+            grid.remove(entries[i]);
+            grid.remove(entries[i + 1]);
+        }
+        Assert.assertEquals(count / 4, grid.getCellsCount());
+        Assert.assertEquals(count / 4, grid.collectPairs());
+
+        for (int i = 0; i < count; i += 4)
+        {
+            entries[i] = add(objects[i]);
+            entries[i + 1] = add(objects[i + 1]);
+        }
+        Assert.assertEquals(count / 2, grid.getCellsCount());
+        Assert.assertEquals(count / 2, grid.collectPairs());
+
+        for (int i = 0; i < count; i++)
+        {
+            grid.remove(entries[i]);
+        }
+        Assert.assertEquals(0, grid.getCellsCount());
+        Assert.assertEquals(0, grid.collectPairs());
+    }
+
+    /**
+     * Test random moves collect the same pairs count as a brute force search.
+     */
+    @Test
+    public void testRandomMoves()
+    {
+        final Random random = new Random(42L);
+        final int count = 60;
+        final Transformable[] transformables = new Transformable[count];
+        final CollisionGrid.Entry[] entries = new CollisionGrid.Entry[count];
+        for (int i = 0; i < count; i++)
+        {
+            final ObjectSelf object = create(i % 2, random.nextInt(200), random.nextInt(200));
+            transformables[i] = object.getFeature(Transformable.class);
+            entries[i] = add(object);
+        }
+        for (int step = 0; step < 200; step++)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                transformables[i].teleport(random.nextInt(200) - 100, random.nextInt(200) - 100);
+                grid.update(entries[i]);
+            }
+            Assert.assertEquals(countSharedCells(transformables), grid.collectPairs());
+            Assert.assertTrue(grid.getCellsCount() <= count * 4);
+        }
+    }
+
+    /**
+     * Count pairs of different groups sharing at least one cell, by brute force.
+     * 
+     * @param transformables The objects location, group alternating.
+     * @return The pairs count.
+     */
+    private static int countSharedCells(Transformable[] transformables)
+    {
+        int pairs = 0;
+        for (int i = 0; i < transformables.length; i++)
+        {
+            for (int j = i + 1; j < transformables.length; j++)
+            {
+                if (i % 2 != j % 2
+                    && overlap(transformables[i].getX(), transformables[j].getX())
+                    && overlap(transformables[i].getY(), transformables[j].getY()))
+                {
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Check if covered cells overlap on one axis.
+     * 
+     * @param a The first location.
+     * @param b The second location.
+     * @return <code>true</code> if overlap, <code>false</code> else.
+     */
+    private static boolean overlap(double a, double b)
+    {
+        final int minA = (int) Math.floor(a / CELL);
+        final int maxA = (int) Math.floor((a + 4) / CELL);
+        final int minB = (int) Math.floor(b / CELL);
+        final int maxB = (int) Math.floor((b + 4) / CELL);
+        return minA <= maxB && minB <= maxA;
+    }
+}
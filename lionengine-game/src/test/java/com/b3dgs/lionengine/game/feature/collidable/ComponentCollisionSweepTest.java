@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.collidable;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Camera;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.Setup;
+import com.b3dgs.lionengine.game.feature.Handler;
+import com.b3dgs.lionengine.game.feature.Transformable;
+import com.b3dgs.lionengine.game.feature.TransformableModel;
+import com.b3dgs.lionengine.game.feature.UtilSetup;
+import com.b3dgs.lionengine.graphic.FactoryGraphicMock;
+import com.b3dgs.lionengine.graphic.Graphics;
+
+/**
+ * Test the sweep and prune collision component class.
+ */
+public class ComponentCollisionSweepTest
+{
+    /** Test configuration. */
+    private static Media config;
+
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Graphics.setFactoryGraphic(new FactoryGraphicMock());
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+        config = UtilSetup.createConfig();
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Assert.assertTrue(config.getFile().delete());
+        Graphics.setFactoryGraphic(null);
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    private final Services services = new Services();
+    private final Handler handler = new Handler(services);
+    private final Setup setup = new Setup(config);
+
+    private ObjectSelf bullet;
+    private Transformable transformable1;
+    private Collidable collidable1;
+
+    private ObjectSelf target;
+    private Transformable transformable2;
+    private Collidable collidable2;
+
+    /**
+     * Prepare test.
+     */
+    @Before
+    public void prepare()
+    {
+        services.add(new Camera());
+
+        bullet = new ObjectSelf();
+        transformable1 = bullet.addFeatureAndGet(new TransformableModel(setup));
+        collidable1 = bullet.addFeatureAndGet(new CollidableModel(services, setup));
+        collidable1.setGroup(1);
+        collidable1.addAccept(0);
+        collidable1.addCollision(new Collision("bullet", 0, 0, 2, 2, false));
+
+        target = new ObjectSelf();
+        transformable2 = target.addFeatureAndGet(new TransformableModel(setup));
+        collidable2 = target.addFeatureAndGet(new CollidableModel(services, setup));
+        collidable2.setGroup(0);
+        collidable2.addAccept(1);
+        collidable2.addCollision(new Collision("target", 0, 0, 1, 32, false));
+
+        handler.addComponent(new ComponentCollisionSweep());
+        handler.add(bullet);
+        handler.add(target);
+    }
+
+    /**
+     * Test collidable in normal case.
+     */
+    @Test
+    public void testCollidable()
+    {
+        transformable1.teleport(1.0, 2.0);
+        transformable2.teleport(1.0, 1.0);
+
+        handler.update(1.0);
+
+        Assert.assertEquals(collidable2, bullet.called.get());
+        Assert.assertEquals(collidable1, target.called.get());
+
+        bullet.called.set(null);
+        target.called.set(null);
+        transformable1.teleport(100.0, 100.0);
+
+        handler.update(1.0);
+
+        Assert.assertNull(bullet.called.get());
+        Assert.assertNull(target.called.get());
+    }
+
+    /**
+     * Test fast collidable crossing a thin one between two updates.
+     */
+    @Test
+    public void testSwept()
+    {
+        transformable1.teleport(0.0, 10.0);
+        transformable2.teleport(250.0, 0.0);
+
+        handler.update(1.0);
+
+        Assert.assertNull(bullet.called.get());
+
+        transformable1.moveLocation(1.0, 500.0, 0.0);
+
+        handler.update(1.0);
+
+        Assert.assertEquals(collidable2, bullet.called.get());
+    }
+
+    /**
+     * Test collidable with removed object.
+     */
+    @Test
+    public void testRemoved()
+    {
+        transformable1.teleport(1.0, 2.0);
+        transformable2.teleport(1.0, 1.0);
+        handler.update(1.0);
+
+        Assert.assertEquals(collidable2, bullet.called.get());
+
+        bullet.called.set(null);
+        handler.remove(target);
+        handler.update(1.0);
+
+        Assert.assertNull(bullet.called.get());
+    }
+}
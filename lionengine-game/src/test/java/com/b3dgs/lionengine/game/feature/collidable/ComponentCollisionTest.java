@@ -17,6 +17,9 @@
  */
 package com.b3dgs.lionengine.game.feature.collidable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.AfterClass;
@@ -26,6 +29,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.Media;
 import com.b3dgs.lionengine.core.Medias;
 import com.b3dgs.lionengine.game.Camera;
@@ -74,6 +78,7 @@ public class ComponentCollisionTest
     private final Handler handler = new Handler(services);
     private final Setup setup = new Setup(config);
     private final AtomicReference<Collidable> collide = new AtomicReference<Collidable>();
+    private final AtomicInteger count = new AtomicInteger();
 
     private final Featurable nonCollidable = new FeaturableModel();
 
@@ -133,6 +138,7 @@ public class ComponentCollisionTest
             public void notifyCollided(Collidable collidable)
             {
                 collide.set(collidable);
+                count.incrementAndGet();
             }
         };
         collidable2.addListener(listener);
@@ -201,6 +207,144 @@ public class ComponentCollisionTest
         Assert.assertEquals(collidable2, featurable1.called.get());
     }
 
+    /**
+     * Test collidables sharing several cells are notified once per update.
+     */
+    @Test
+    public void testCollidableSharedCells()
+    {
+        transformable1.teleport(ComponentCollision.REDUCE_FACTOR - 1, ComponentCollision.REDUCE_FACTOR - 1);
+        transformable2.teleport(ComponentCollision.REDUCE_FACTOR - 1, ComponentCollision.REDUCE_FACTOR - 1);
+
+        handler.update(1.0);
+
+        Assert.assertEquals(collidable1, collide.get());
+        Assert.assertEquals(1, count.get());
+
+        handler.update(1.0);
+
+        Assert.assertEquals(2, count.get());
+    }
+
+    /**
+     * Test collidables with custom cell size.
+     */
+    @Test
+    public void testCellSize()
+    {
+        final Handler custom = new Handler(services);
+        custom.addComponent(new ComponentCollision(2));
+        custom.add(featurable1);
+        custom.add(featurable2);
+
+        transformable1.teleport(1.0, 2.0);
+        transformable2.teleport(1.0, 1.0);
+        custom.update(1.0);
+
+        Assert.assertEquals(collidable1, collide.get());
+        Assert.assertEquals(1, count.get());
+
+        transformable1.teleport(ComponentCollision.REDUCE_FACTOR, ComponentCollision.REDUCE_FACTOR);
+        custom.update(1.0);
+
+        Assert.assertEquals(1, count.get());
+    }
+
+    /**
+     * Test invalid cell size.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidCellSize()
+    {
+        Assert.assertNotNull(new ComponentCollision(0));
+    }
+
+    /**
+     * Test sequential and parallel modes give the same notifications in the same order on the same scene.
+     */
+    @Test
+    public void testSequentialParallel()
+    {
+        final List<String> sequential = collideAll(new ComponentCollision(16), false);
+        final ComponentCollision component = new ComponentCollision(16, 2);
+        final List<String> parallel = collideAll(component, false);
+        component.dispose();
+
+        Assert.assertTrue(sequential.size() > 4 * 64);
+        Assert.assertEquals(sequential, parallel);
+
+        final ComponentCollision disposed = new ComponentCollision(16, 2);
+        disposed.dispose();
+
+        Assert.assertEquals(sequential, collideAll(disposed, false));
+    }
+
+    /**
+     * Test sequential and parallel modes give the same notifications with objects moving along several steps.
+     */
+    @Test
+    public void testSequentialParallelMoving()
+    {
+        final List<String> sequential = collideAll(new ComponentCollision(16), true);
+        final ComponentCollision component = new ComponentCollision(16, 2);
+        final List<String> parallel = collideAll(component, true);
+        component.dispose();
+
+        Assert.assertTrue(sequential.size() > 4 * 64);
+        Assert.assertEquals(sequential, parallel);
+    }
+
+    /**
+     * Create colliding objects, update component and get the notifications.
+     * 
+     * @param component The component to test.
+     * @param moving <code>true</code> to move objects between updates, <code>false</code> to keep them.
+     * @return The notifications as <code>id:other</code>.
+     */
+    private List<String> collideAll(ComponentCollision component, boolean moving)
+    {
+        final List<String> notified = new ArrayList<String>();
+        final int count = 128;
+        final List<Collidable> collidables = new ArrayList<Collidable>();
+        final List<Transformable> transformables = new ArrayList<Transformable>();
+        for (int i = 0; i < count; i++)
+        {
+            final ObjectSelf featurable = new ObjectSelf();
+            final Transformable transformable = featurable.addFeatureAndGet(new TransformableModel(setup));
+            final Collidable collidable = featurable.addFeatureAndGet(new CollidableModel(services, setup));
+            collidable.setGroup(i % 2);
+            collidable.addAccept(i % 3 == 0 ? 0 : 1);
+            collidable.addCollision(new Collision("test", 0, 0, 4, 4, false));
+            collidables.add(collidable);
+            final int id = i;
+            collidable.addListener(new CollidableListener()
+            {
+                @Override
+                public void notifyCollided(Collidable other)
+                {
+                    notified.add(id + ":" + collidables.indexOf(other));
+                }
+            });
+            transformable.teleport(i * 7 % 30, i * 3 % 20);
+            transformables.add(transformable);
+            component.notifyHandlableAdded(featurable);
+        }
+        component.update(1.0, null);
+        for (int step = 0; step < 4; step++)
+        {
+            if (moving)
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    transformables.get(i).moveLocation(1.0, (i % 5 - 2) * 3, (i % 3 - 1) * 5);
+                }
+            }
+            component.update(1.0, null);
+        }
+
+        return notified;
+    }
+
     /**
      * Test collidables changing map position.
      */
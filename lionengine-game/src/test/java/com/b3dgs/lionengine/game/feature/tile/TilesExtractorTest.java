@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.graphic.ColorRgba;
+import com.b3dgs.lionengine.graphic.FactoryGraphicMock;
+import com.b3dgs.lionengine.graphic.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.ImageBufferMock;
+import com.b3dgs.lionengine.graphic.Transparency;
+
+/**
+ * Test the tiles extractor class.
+ */
+public class TilesExtractorTest
+{
+    /** Tile size. */
+    private static final int TILE = 4;
+    /** First level rip. */
+    private static Media level1;
+    /** Second level rip. */
+    private static Media level2;
+
+    /**
+     * Prepare test.
+     * 
+     * @throws IOException If error.
+     */
+    @BeforeClass
+    public static void setUp() throws IOException
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+        Graphics.setFactoryGraphic(new FactoryGraphicMock()
+        {
+            @Override
+            public ImageBuffer getImageBuffer(Media media)
+            {
+                try
+                {
+                    final BufferedImage image = ImageIO.read(media.getFile());
+                    final int width = image.getWidth();
+                    final int height = image.getHeight();
+                    final ImageBuffer buffer = new ImageBufferMock(width, height, Transparency.OPAQUE);
+                    final int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+                    buffer.setRgb(0, 0, width, height, pixels, 0, width);
+                    return buffer;
+                }
+                catch (final IOException exception)
+                {
+                    throw new IllegalStateException(exception);
+                }
+            }
+        });
+
+        level1 = createLevel("level1.png", 40, 64, 7);
+        level2 = createLevel("level2.png", 24, 8, 11);
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Assert.assertTrue(level1.getFile().delete());
+        Assert.assertTrue(level2.getFile().delete());
+        Graphics.setFactoryGraphic(null);
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    /**
+     * Create a level rip, with tiles colored by a pattern, and an ignored tile.
+     * 
+     * @param name The level name.
+     * @param tilesInX The horizontal tiles.
+     * @param tilesInY The vertical tiles.
+     * @param modulo The tiles pattern modulo.
+     * @return The level media.
+     * @throws IOException If error.
+     */
+    private static Media createLevel(String name, int tilesInX, int tilesInY, int modulo) throws IOException
+    {
+        final BufferedImage image = new BufferedImage(tilesInX * TILE, tilesInY * TILE, BufferedImage.TYPE_INT_RGB);
+        for (int ty = 0; ty < tilesInY; ty++)
+        {
+            for (int tx = 0; tx < tilesInX; tx++)
+            {
+                final int value = (tx * 3 + ty * 5) % modulo;
+                final int rgb = new ColorRgba(value * 20, 255 - value * 10, value).getRgba();
+                for (int x = 0; x < TILE; x++)
+                {
+                    for (int y = 0; y < TILE; y++)
+                    {
+                        image.setRGB(tx * TILE + x, ty * TILE + y, rgb);
+                    }
+                }
+                image.setRGB(tx * TILE, ty * TILE + 1, ColorRgba.BLACK.getRgba());
+            }
+        }
+        image.setRGB(0, 0, TilesExtractor.IGNORED_COLOR_VALUE);
+
+        final Media media = Medias.create(name);
+        Assert.assertTrue(ImageIO.write(image, "png", media.getFile()));
+        return media;
+    }
+
+    /**
+     * Get the tiles top left colors.
+     * 
+     * @param tiles The tiles.
+     * @return The tiles colors.
+     */
+    private static List<Integer> getColors(Collection<ImageBuffer> tiles)
+    {
+        final List<Integer> colors = new ArrayList<Integer>();
+        for (final ImageBuffer tile : tiles)
+        {
+            colors.add(Integer.valueOf(tile.getRgb(TILE - 1, TILE - 1)));
+        }
+        return colors;
+    }
+
+    /**
+     * Test the extraction with same result on calling thread and workers.
+     */
+    @Test
+    public void testExtract()
+    {
+        final TilesExtractor extractor = new TilesExtractor(0);
+        final AtomicInteger percent = new AtomicInteger();
+        extractor.addListener(new TilesExtractor.ProgressListener()
+        {
+            @Override
+            public void notifyProgress(int progress, Collection<ImageBuffer> tiles)
+            {
+                percent.set(progress);
+            }
+        });
+        final Collection<ImageBuffer> tiles = extractor.extract(TILE, TILE, Arrays.asList(level1, level2));
+
+        Assert.assertEquals(100, percent.get());
+        Assert.assertEquals(11, tiles.size());
+        for (final ImageBuffer tile : tiles)
+        {
+            Assert.assertEquals(ColorRgba.BLACK.getRgba(), tile.getRgb(0, 1));
+        }
+
+        final Collection<ImageBuffer> shared = new TilesExtractor(3).extract(TILE, TILE, Arrays.asList(level1, level2));
+
+        Assert.assertEquals(getColors(tiles), getColors(shared));
+    }
+
+    /**
+     * Test the extraction cancel.
+     */
+    @Test
+    public void testCancel()
+    {
+        final TilesExtractor extractor = new TilesExtractor(2);
+        final Collection<ImageBuffer> tiles = extractor.extract(new TilesExtractor.Canceler()
+        {
+            @Override
+            public boolean isCanceled()
+            {
+                return true;
+            }
+        }, TILE, TILE, Arrays.asList(level1, level2));
+
+        Assert.assertTrue(tiles.isEmpty());
+    }
+}
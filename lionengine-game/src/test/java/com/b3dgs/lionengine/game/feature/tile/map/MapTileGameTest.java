@@ -19,6 +19,8 @@ package com.b3dgs.lionengine.game.feature.tile.map;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Assert;
@@ -29,6 +31,9 @@ import org.junit.rules.TemporaryFolder;
 import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.game.feature.tile.Tile;
 import com.b3dgs.lionengine.game.feature.tile.TileGame;
+import com.b3dgs.lionengine.game.feature.tile.map.collision.TileCollisionModel;
+import com.b3dgs.lionengine.game.feature.tile.map.pathfinding.TilePath;
+import com.b3dgs.lionengine.game.feature.tile.map.pathfinding.TilePathModel;
 import com.b3dgs.lionengine.geom.Geom;
 import com.b3dgs.lionengine.graphic.SpriteTiled;
 import com.b3dgs.lionengine.util.UtilTests;
@@ -352,4 +357,117 @@ public class MapTileGameTest
         map2.create(1, 2, 1, 1);
         map.append(Arrays.asList(map1, map2), 0, 0, 0, 0);
     }
+
+    /**
+     * Test the tiles hit by a move, each one found once.
+     */
+    @Test
+    public void testTilesHit()
+    {
+        map.create(2, 2, 4, 4);
+        for (int tx = 0; tx < 4; tx++)
+        {
+            map.setTile(map.createTile(Integer.valueOf(0), tx, tx * 2.0, 2.0));
+        }
+
+        final Collection<Tile> hit = map.getTilesHit(0.0, 3.0, 7.0, 3.0);
+
+        Assert.assertEquals(4, hit.size());
+        final Iterator<Tile> iterator = hit.iterator();
+        for (int tx = 0; tx < 4; tx++)
+        {
+            Assert.assertEquals(tx, iterator.next().getInTileX());
+        }
+    }
+
+    /**
+     * Test the flat storage, with tiles created on access and features shared by tile reference.
+     */
+    @Test
+    public void testFlat()
+    {
+        final MapTileGame flat = new MapTileGame(true);
+        flat.create(16, 32, 3, 2);
+        flat.setTile(flat.createTile(Integer.valueOf(1), 4, 16.0, 32.0));
+        flat.setTile(flat.createTile(Integer.valueOf(1), 4, 32.0, 0.0));
+        flat.setTile(flat.createTile(Integer.valueOf(0), 4, 0.0, 0.0));
+
+        Assert.assertEquals(3, flat.getTilesNumber());
+        Assert.assertNull(flat.getTile(0, 1));
+        Assert.assertNull(flat.getTile(3, 0));
+
+        final Tile tile = flat.getTile(1, 1);
+        Assert.assertEquals(1, tile.getSheet().intValue());
+        Assert.assertEquals(4, tile.getNumber());
+        Assert.assertEquals(16.0, tile.getX(), UtilTests.PRECISION);
+        Assert.assertEquals(32.0, tile.getY(), UtilTests.PRECISION);
+        Assert.assertEquals(1, tile.getInTileX());
+        Assert.assertEquals(1, tile.getInTileY());
+        Assert.assertEquals(16, tile.getWidth());
+        Assert.assertEquals(32, tile.getHeight());
+        Assert.assertEquals(tile, flat.getTileAt(20.0, 40.0));
+        Assert.assertEquals(tile.hashCode(), flat.getTileAt(20.0, 40.0).hashCode());
+        Assert.assertNotEquals(tile, flat.getTile(2, 0));
+        Assert.assertEquals(2, flat.getNeighbors(tile).size());
+
+        final TilePath path = new TilePathModel("ground");
+        tile.addFeature(path);
+        Assert.assertEquals(path, flat.getTile(2, 0).getFeature(TilePath.class));
+        Assert.assertFalse(flat.getTile(0, 0).hasFeature(TilePath.class));
+
+        final MapTile other = new MapTileGame(true);
+        other.create(16, 32, 3, 2);
+        other.setTile(other.createTile(Integer.valueOf(1), 4, 16.0, 32.0));
+        flat.append(other, 3, 0);
+
+        Assert.assertEquals(6, flat.getInTileWidth());
+        Assert.assertEquals(4, flat.getTilesNumber());
+        Assert.assertEquals(4, flat.getTile(4, 1).getNumber());
+        Assert.assertEquals(path, flat.getTile(4, 1).getFeature(TilePath.class));
+
+        flat.clear();
+        Assert.assertEquals(0, flat.getTilesNumber());
+        Assert.assertTrue(flat.isCreated());
+    }
+
+    /**
+     * Test the flat storage reuses created tiles until location is set again.
+     */
+    @Test
+    public void testFlatReuse()
+    {
+        final MapTileGame flat = new MapTileGame(true);
+        flat.create(16, 16, 64, 64);
+        flat.setTile(flat.createTile(Integer.valueOf(0), 1, 16.0, 16.0));
+
+        final Tile tile = flat.getTile(1, 1);
+        Assert.assertSame(tile, flat.getTile(1, 1));
+        Assert.assertSame(tile, flat.getTileAt(20.0, 20.0));
+
+        flat.setTile(flat.createTile(Integer.valueOf(0), 2, 16.0, 16.0));
+        final Tile replaced = flat.getTile(1, 1);
+
+        Assert.assertNotSame(tile, replaced);
+        Assert.assertEquals(2, replaced.getNumber());
+
+        flat.setTile(flat.createTile(Integer.valueOf(0), 3, 16.0, 272.0));
+
+        Assert.assertEquals(3, flat.getTile(1, 17).getNumber());
+        Assert.assertEquals(2, flat.getTile(1, 1).getNumber());
+        Assert.assertEquals(17, flat.getTile(1, 17).getInTileY());
+    }
+
+    /**
+     * Test the flat storage rejects features depending on tile location.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testFlatLocationFeature()
+    {
+        final MapTileGame flat = new MapTileGame(true);
+        flat.create(16, 16, 2, 2);
+        flat.setTile(flat.createTile(Integer.valueOf(0), 1, 0.0, 0.0));
+
+        final Tile tile = flat.getTile(0, 0);
+        tile.addFeature(new TileCollisionModel(tile));
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map;
+
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.core.drawable.Drawable;
+import com.b3dgs.lionengine.game.feature.tile.TileRef;
+import com.b3dgs.lionengine.game.feature.tile.TilesExtractor;
+import com.b3dgs.lionengine.graphic.ColorRgba;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
+import com.b3dgs.lionengine.graphic.ImageBufferMock;
+import com.b3dgs.lionengine.graphic.Transparency;
+
+/**
+ * Test the tile sheets index class.
+ */
+public class TileSheetsIndexTest
+{
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    /**
+     * Fill a tile with a color.
+     * 
+     * @param image The image reference.
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     * @param rgb The color value.
+     */
+    private static void fill(ImageBuffer image, int x, int y, int rgb)
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            for (int j = 0; j < 2; j++)
+            {
+                image.setRgb(x + i, y + j, rgb);
+            }
+        }
+    }
+
+    private final MapTileGame map = new MapTileGame();
+    private final ImageBuffer sheet = new ImageBufferMock(4, 4, Transparency.OPAQUE);
+
+    /**
+     * Prepare test.
+     */
+    @Before
+    public void prepare()
+    {
+        fill(sheet, 0, 0, ColorRgba.RED.getRgba());
+        fill(sheet, 2, 0, ColorRgba.GREEN.getRgba());
+        fill(sheet, 0, 2, ColorRgba.BLUE.getRgba());
+        fill(sheet, 2, 2, ColorRgba.RED.getRgba());
+        sheet.setRgb(3, 3, ColorRgba.BLACK.getRgba());
+
+        map.create(2, 2, 1, 1);
+        map.loadSheets(Arrays.asList(Drawable.loadSpriteTiled(sheet, 2, 2)));
+    }
+
+    /**
+     * Test the find.
+     */
+    @Test
+    public void testFind()
+    {
+        final TileSheetsIndex index = new TileSheetsIndex(map);
+        final ImageBuffer image = new ImageBufferMock(4, 2, Transparency.OPAQUE);
+        fill(image, 0, 0, ColorRgba.BLUE.getRgba());
+        fill(image, 2, 0, ColorRgba.YELLOW.getRgba());
+
+        Assert.assertTrue(index.isValid());
+        Assert.assertEquals(new TileRef(0, 2), index.find(image, 0, 0));
+        Assert.assertNull(index.find(image, 2, 0));
+        Assert.assertEquals(new TileRef(0, 0), index.find(sheet, 0, 0));
+        Assert.assertEquals(new TileRef(0, 3), index.find(sheet, 2, 2));
+    }
+
+    /**
+     * Test the hash consistency with tiles comparison.
+     */
+    @Test
+    public void testHash()
+    {
+        final ImageBuffer image = new ImageBufferMock(4, 2, Transparency.OPAQUE);
+        fill(image, 0, 0, ColorRgba.OPAQUE.getRgba());
+        fill(image, 2, 0, ColorRgba.TRANSPARENT.getRgba());
+
+        Assert.assertTrue(TilesExtractor.compareTile(2, 2, image, 0, 0, image, 2, 0));
+        Assert.assertEquals(TilesExtractor.hashTile(2, 2, image, 0, 0), TilesExtractor.hashTile(2, 2, image, 2, 0));
+        Assert.assertNotEquals(TilesExtractor.hashTile(2, 2, sheet, 0, 0), TilesExtractor.hashTile(2, 2, sheet, 2, 2));
+    }
+
+    /**
+     * Test the save and load.
+     */
+    @Test
+    public void testSaveLoad()
+    {
+        final Media media = Medias.create("index.tsi");
+        try
+        {
+            final TileSheetsIndex created = TileSheetsIndex.create(map, media);
+            Assert.assertTrue(media.exists());
+            Assert.assertEquals(new TileRef(0, 1), created.find(sheet, 2, 0));
+
+            final TileSheetsIndex loaded = TileSheetsIndex.create(map, media);
+            Assert.assertTrue(loaded.isValid());
+            Assert.assertEquals(new TileRef(0, 1), loaded.find(sheet, 2, 0));
+            Assert.assertEquals(new TileRef(0, 3), loaded.find(sheet, 2, 2));
+
+            final MapTileGame other = new MapTileGame();
+            other.create(1, 1, 1, 1);
+            other.loadSheets(Arrays.asList(Drawable.loadSpriteTiled(sheet, 1, 1)));
+            final TileSheetsIndex rebuilt = TileSheetsIndex.create(other, media);
+            Assert.assertTrue(rebuilt.isValid());
+            Assert.assertEquals(new TileRef(0, 15), rebuilt.find(sheet, 3, 3));
+        }
+        finally
+        {
+            Assert.assertTrue(media.getFile().delete());
+        }
+    }
+}
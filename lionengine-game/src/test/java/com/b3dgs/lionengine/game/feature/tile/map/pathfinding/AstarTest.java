@@ -56,6 +56,19 @@ public class AstarTest
         Assert.assertNotNull(Astar.createPathFinder(map, 1, new HeuristicClosest()));
     }
 
+    /**
+     * Test the create heap path finder.
+     */
+    @Test
+    public void testCreatePathFinderHeap()
+    {
+        final Services services = new Services();
+        final MapTile map = services.add(new MapTileGame());
+        map.addFeature(new MapTileGroupModel());
+        map.addFeature(new MapTilePathModel(services));
+        Assert.assertNotNull(Astar.createPathFinderHeap(map, 1, new HeuristicClosest()));
+    }
+
     /**
      * Test the create heuristic closest.
      */
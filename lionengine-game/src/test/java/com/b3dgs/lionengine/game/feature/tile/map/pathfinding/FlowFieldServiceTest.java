@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+
+/**
+ * Test the flow field service.
+ */
+public class FlowFieldServiceTest
+{
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    /**
+     * Create a pathfindable counting its calls.
+     * 
+     * @param mover The mover reference.
+     * @param calls The calls counter.
+     * @return The counting pathfindable.
+     */
+    private static Pathfindable createCounting(final Pathfindable mover, final AtomicInteger calls)
+    {
+        return (Pathfindable) Proxy.newProxyInstance(Pathfindable.class.getClassLoader(), new Class<?>[]
+        {
+            Pathfindable.class
+        }, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                calls.incrementAndGet();
+                try
+                {
+                    return method.invoke(mover, args);
+                }
+                catch (final InvocationTargetException exception)
+                {
+                    throw exception.getCause();
+                }
+            }
+        });
+    }
+
+    private final Services services = new Services();
+    private final MapTile map = UtilPathfinding.createMap(services,
+                                                          "..........",
+                                                          "..######..",
+                                                          ".......#..",
+                                                          "######.#..",
+                                                          ".......#..",
+                                                          ".#######..",
+                                                          "..........",
+                                                          "########.#",
+                                                          "..........",
+                                                          "..........");
+    private final Pathfindable mover = UtilPathfinding.createPathfindable(services, 0, 0);
+
+    /**
+     * Test the invalid capacity.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidCapacity()
+    {
+        Assert.assertNotNull(new FlowFieldService(services, 0, 1));
+    }
+
+    /**
+     * Test the movements lead to destination.
+     */
+    @Test
+    public void testMovement()
+    {
+        final FlowFieldService service = new FlowFieldService(services);
+        final FlowField field = service.getComplete(mover, 0, 9);
+
+        Assert.assertTrue(field.isComplete());
+        Assert.assertEquals(0, field.getDestinationX());
+        Assert.assertEquals(9, field.getDestinationY());
+        Assert.assertNull(field.getMovement(0, 9));
+        Assert.assertEquals(0.0, field.getCost(0, 9), 0.0);
+        Assert.assertFalse(field.isReachable(0, 7));
+        Assert.assertNull(field.getMovement(0, 7));
+        Assert.assertEquals(Double.POSITIVE_INFINITY, field.getCost(0, 7), 0.0);
+
+        final Path expected = Astar.createPathFinderHeap(map, 100, new HeuristicClosest()).findPath(mover, 0, 9, true);
+        Assert.assertTrue(field.getCost(0, 0) <= expected.getLength() - 1);
+
+        int tx = 0;
+        int ty = 0;
+        int steps = 0;
+        MovementTile movement = field.getMovement(tx, ty);
+        while (movement != null)
+        {
+            tx += movement.getX();
+            ty += movement.getY();
+            steps++;
+            movement = field.getMovement(tx, ty);
+        }
+        Assert.assertEquals(0, tx);
+        Assert.assertEquals(9, ty);
+        Assert.assertEquals(field.getCost(0, 0), steps, 0.0);
+    }
+
+    /**
+     * Test the field computed over several updates.
+     */
+    @Test
+    public void testAmortized()
+    {
+        final FlowFieldService service = new FlowFieldService(services, 2, 5);
+        final FlowField field = service.get(mover, 0, 9);
+
+        Assert.assertFalse(field.isComplete());
+        Assert.assertFalse(field.isReachable(0, 9));
+
+        service.update(1.0);
+        Assert.assertFalse(field.isComplete());
+        Assert.assertTrue(field.isReachable(0, 9));
+        Assert.assertFalse(field.isReachable(0, 0));
+
+        int loops = 0;
+        while (!field.isComplete() && loops < 100)
+        {
+            service.update(1.0);
+            loops++;
+        }
+        Assert.assertTrue(field.isComplete());
+        Assert.assertTrue(loops > 1);
+        Assert.assertTrue(field.isReachable(0, 0));
+    }
+
+    /**
+     * Test the field computed without querying the requesting mover after creation.
+     */
+    @Test
+    public void testProfileCopied()
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        final FlowFieldService service = new FlowFieldService(services, 2, 5);
+        final FlowField field = service.get(createCounting(mover, calls), 0, 9);
+        final int created = calls.get();
+
+        Assert.assertTrue(created > 0);
+
+        int loops = 0;
+        while (!field.isComplete() && loops < 100)
+        {
+            service.update(1.0);
+            loops++;
+        }
+        Assert.assertTrue(field.isComplete());
+        Assert.assertTrue(field.isReachable(0, 0));
+        Assert.assertEquals(created, calls.get());
+        Assert.assertSame(field, service.get(mover, 0, 9));
+    }
+
+    /**
+     * Test the fields shared, evicted and invalidated.
+     */
+    @Test
+    public void testCache()
+    {
+        final FlowFieldService service = new FlowFieldService(services, 2, 5);
+        final Pathfindable other = UtilPathfinding.createPathfindable(services, 9, 9);
+
+        final FlowField first = service.get(mover, 0, 9);
+        Assert.assertSame(first, service.get(other, 0, 9));
+        Assert.assertEquals(1, service.getCount());
+
+        final FlowField second = service.get(mover, 9, 0);
+        Assert.assertSame(first, service.get(mover, 0, 9));
+        Assert.assertNotNull(service.get(mover, 5, 5));
+        Assert.assertEquals(2, service.getCount());
+        Assert.assertNotSame(second, service.get(mover, 9, 0));
+        Assert.assertNotSame(first, service.get(mover, 0, 9));
+
+        final Tile tile = map.createTile(UtilPathfinding.SHEET, UtilPathfinding.TILE_TREE, 8, 7);
+        tile.addFeature(new TilePathModel(UtilPathfinding.TREE));
+        map.setTile(tile);
+        Assert.assertEquals(0, service.getCount());
+
+        Assert.assertFalse(service.getComplete(mover, 0, 9).isReachable(0, 0));
+        service.invalidate();
+        Assert.assertEquals(0, service.getCount());
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+
+/**
+ * Test the hierarchical path model.
+ */
+public class MapTilePathHierarchicalModelTest
+{
+    /** Map size. */
+    private static final int SIZE = 40;
+    /** Wall horizontal location. */
+    private static final int WALL = 20;
+    /** Wall gap vertical location. */
+    private static final int GAP = 5;
+    /** Cluster size. */
+    private static final int CLUSTER = 8;
+    /** Enclosed cluster exit horizontal location, on the cluster right border. */
+    private static final int EXIT_X = 15;
+    /** Enclosed cluster exit vertical location. */
+    private static final int EXIT_Y = 35;
+
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    /**
+     * Create the map rows, with a vertical wall with a single gap.
+     * 
+     * @return The map rows.
+     */
+    private static String[] createRows()
+    {
+        final String[] rows = new String[SIZE];
+        for (int ty = 0; ty < SIZE; ty++)
+        {
+            final StringBuilder row = new StringBuilder(SIZE);
+            for (int tx = 0; tx < SIZE; tx++)
+            {
+                row.append(tx == WALL && ty != GAP ? '#' : '.');
+            }
+            rows[ty] = row.toString();
+        }
+        return rows;
+    }
+
+    /**
+     * Create the map rows, with a vertical wall with a single gap, and the cluster containing the exit enclosed, its
+     * only exit being on its right border.
+     * 
+     * @return The map rows.
+     */
+    private static String[] createEnclosedRows()
+    {
+        final String[] rows = createRows();
+        final int minX = EXIT_X - CLUSTER + 1;
+        final int minY = EXIT_Y / CLUSTER * CLUSTER;
+        for (int ty = minY - 1; ty < SIZE; ty++)
+        {
+            final char[] row = rows[ty].toCharArray();
+            for (int tx = minX - 1; tx <= EXIT_X + 1; tx++)
+            {
+                final boolean border = ty == minY - 1 || tx == minX - 1 || tx == EXIT_X + 1;
+                if (border && (tx != EXIT_X + 1 || ty != EXIT_Y))
+                {
+                    row[tx] = '#';
+                }
+            }
+            rows[ty] = String.valueOf(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Create a pathfindable delegating to the mover, counting its blocking checks.
+     * 
+     * @param mover The mover reference.
+     * @param checks The blocking checks counter.
+     * @return The counting pathfindable.
+     */
+    private static Pathfindable createCounting(final Pathfindable mover, final AtomicInteger checks)
+    {
+        return (Pathfindable) Proxy.newProxyInstance(Pathfindable.class.getClassLoader(), new Class<?>[]
+        {
+            Pathfindable.class
+        }, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                if ("isBlocking".equals(method.getName()))
+                {
+                    checks.incrementAndGet();
+                }
+                try
+                {
+                    return method.invoke(mover, args);
+                }
+                catch (final InvocationTargetException exception)
+                {
+                    throw exception.getCause();
+                }
+            }
+        });
+    }
+
+    private final Services services = new Services();
+    private final MapTile map = UtilPathfinding.createMap(services, createRows());
+    private final MapTilePathHierarchical hierarchical = map.addFeatureAndGet(new MapTilePathHierarchicalModel(services,
+                                                                                                                8));
+    private final Pathfindable mover = UtilPathfinding.createPathfindable(services, 0, 0);
+
+    /**
+     * Check the path is continuous and only on walkable tiles.
+     * 
+     * @param path The path to check.
+     */
+    private void assertValid(Path path)
+    {
+        final MapTilePath mapPath = map.getFeature(MapTilePath.class);
+        for (int i = 1; i < path.getLength(); i++)
+        {
+            Assert.assertTrue(Math.abs(path.getX(i) - path.getX(i - 1)) <= 1);
+            Assert.assertTrue(Math.abs(path.getY(i) - path.getY(i - 1)) <= 1);
+            Assert.assertFalse(mapPath.isBlocked(mover, path.getX(i), path.getY(i), false));
+        }
+    }
+
+    /**
+     * Test the invalid cluster size.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidClusterSize()
+    {
+        Assert.assertNotNull(new MapTilePathHierarchicalModel(services, 1));
+    }
+
+    /**
+     * Test the long range path found through the abstract graph.
+     */
+    @Test
+    public void testFindPath()
+    {
+        Assert.assertEquals(8, hierarchical.getClusterSize());
+
+        final Path flat = Astar.createPathFinder(map, SIZE * SIZE, new HeuristicClosest())
+                               .findPath(mover, SIZE - 1, SIZE - 1, false);
+        final Path path = hierarchical.findPath(mover, SIZE - 1, SIZE - 1, false);
+
+        Assert.assertNotNull(path);
+        Assert.assertEquals(0, path.getX(0));
+        Assert.assertEquals(0, path.getY(0));
+        Assert.assertEquals(SIZE - 1, path.getX(path.getLength() - 1));
+        Assert.assertEquals(SIZE - 1, path.getY(path.getLength() - 1));
+        Assert.assertTrue(path.contains(WALL, GAP));
+        Assert.assertTrue(path.getLength() >= flat.getLength());
+        Assert.assertTrue(path.getLength() <= flat.getLength() * 3 / 2);
+        assertValid(path);
+
+        final Path again = hierarchical.findPath(mover, SIZE - 1, SIZE - 1, false);
+        Assert.assertEquals(path.getLength(), again.getLength());
+    }
+
+    /**
+     * Test the path found through the abstract graph when the start is an entrance of its cluster, and its only exit,
+     * without falling back to a flat search.
+     */
+    @Test
+    public void testFindPathStartEntrance()
+    {
+        final Services services = new Services();
+        final MapTile map = UtilPathfinding.createMap(services, createEnclosedRows());
+        final MapTilePathHierarchical hierarchical = map.addFeatureAndGet(new MapTilePathHierarchicalModel(services,
+                                                                                                          CLUSTER));
+        final AtomicInteger checks = new AtomicInteger();
+        final Pathfindable exited = UtilPathfinding.createPathfindable(services, EXIT_X, EXIT_Y);
+        final Pathfindable mover = createCounting(exited, checks);
+
+        Assert.assertNotNull(hierarchical.findPath(mover, SIZE - 1, SIZE - 1, false));
+
+        checks.set(0);
+        final Path flat = Astar.createPathFinder(map, SIZE * SIZE, new HeuristicClosest())
+                               .findPath(mover, SIZE - 1, SIZE - 1, false);
+        final int flatChecks = checks.getAndSet(0);
+        final Path path = hierarchical.findPath(mover, SIZE - 1, SIZE - 1, false);
+
+        Assert.assertNotNull(flat);
+        Assert.assertNotNull(path);
+        Assert.assertTrue(checks.get() < flatChecks);
+        Assert.assertEquals(EXIT_X, path.getX(0));
+        Assert.assertEquals(EXIT_Y, path.getY(0));
+        Assert.assertEquals(EXIT_X + 1, path.getX(1));
+        Assert.assertEquals(SIZE - 1, path.getX(path.getLength() - 1));
+        Assert.assertEquals(SIZE - 1, path.getY(path.getLength() - 1));
+        Assert.assertTrue(path.contains(WALL, GAP));
+    }
+
+    /**
+     * Test the short range path found without abstraction.
+     */
+    @Test
+    public void testFindPathShort()
+    {
+        final Path path = hierarchical.findPath(mover, 3, 4, false);
+
+        Assert.assertNotNull(path);
+        Assert.assertEquals(5, path.getLength());
+        assertValid(path);
+    }
+
+    /**
+     * Test the path update after a tile change.
+     */
+    @Test
+    public void testInvalidate()
+    {
+        Assert.assertNotNull(hierarchical.findPath(mover, SIZE - 1, 0, false));
+
+        final Tile tile = map.createTile(UtilPathfinding.SHEET, UtilPathfinding.TILE_TREE, WALL, GAP);
+        tile.addFeature(new TilePathModel(UtilPathfinding.TREE));
+        map.setTile(tile);
+
+        Assert.assertNull(hierarchical.findPath(mover, SIZE - 1, 0, false));
+
+        hierarchical.invalidate();
+        Assert.assertNull(hierarchical.findPath(mover, SIZE - 1, 0, false));
+    }
+
+    /**
+     * Test the pathfindable uses the hierarchical path when available.
+     */
+    @Test
+    public void testPathfindable()
+    {
+        Assert.assertTrue(mover.setDestination(SIZE - 1, SIZE - 1));
+        Assert.assertTrue(mover.isPathAvailable(SIZE - 1, SIZE - 1));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+
+/**
+ * Test the heap path finder.
+ */
+public class PathFinderHeapTest
+{
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    private final Services services = new Services();
+    private final MapTile map = UtilPathfinding.createMap(services,
+                                                          "..........",
+                                                          "..######..",
+                                                          ".......#..",
+                                                          "######.#..",
+                                                          ".......#..",
+                                                          ".#######..",
+                                                          "..........",
+                                                          "########.#",
+                                                          "..........",
+                                                          "..........");
+    private final Pathfindable mover = UtilPathfinding.createPathfindable(services, 0, 0);
+
+    /**
+     * Test the path found is the same as the default implementation one.
+     */
+    @Test
+    public void testSameAsDefault()
+    {
+        final PathFinder heap = Astar.createPathFinderHeap(map, 100, new HeuristicClosest());
+        final PathFinder impl = Astar.createPathFinder(map, 100, new HeuristicClosest());
+
+        final Path expected = impl.findPath(mover, 0, 9, false);
+        final Path path = heap.findPath(mover, 0, 9, false);
+
+        Assert.assertNotNull(path);
+        Assert.assertEquals(expected.getLength(), path.getLength());
+        Assert.assertEquals(0, path.getX(0));
+        Assert.assertEquals(0, path.getY(0));
+        Assert.assertEquals(0, path.getX(path.getLength() - 1));
+        Assert.assertEquals(9, path.getY(path.getLength() - 1));
+        Assert.assertTrue(path.contains(8, 7));
+    }
+
+    /**
+     * Test the finder reuse its nodes between searches without reset.
+     */
+    @Test
+    public void testReuse()
+    {
+        final PathFinder heap = Astar.createPathFinderHeap(map, 100, new HeuristicClosest());
+
+        final Path first = heap.findPath(mover, 0, 9, false);
+        Assert.assertNotNull(heap.findPath(mover, 9, 0, false));
+        Assert.assertNotNull(heap.findPath(mover, 5, 4, false));
+        final Path second = heap.findPath(mover, 0, 9, false);
+
+        Assert.assertEquals(first.getLength(), second.getLength());
+        for (int i = 0; i < first.getLength(); i++)
+        {
+            Assert.assertEquals(first.getX(i), second.getX(i));
+            Assert.assertEquals(first.getY(i), second.getY(i));
+        }
+    }
+
+    /**
+     * Test no path found.
+     */
+    @Test
+    public void testNoPath()
+    {
+        final PathFinder heap = Astar.createPathFinderHeap(map, 100, new HeuristicClosest());
+
+        Assert.assertNull(heap.findPath(mover, 0, 0, false));
+        Assert.assertNull(Astar.createPathFinderHeap(map, 2, new HeuristicClosest()).findPath(mover, 0, 9, false));
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.Constant;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.feature.tile.Tile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+
+/**
+ * Test the path request service.
+ */
+public class PathRequestServiceTest
+{
+    /** Maximum update loops. */
+    private static final int MAX_LOOPS = 1000;
+
+    /**
+     * Prepare test.
+     */
+    @BeforeClass
+    public static void setUp()
+    {
+        Medias.setResourcesDirectory(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Clean up test.
+     */
+    @AfterClass
+    public static void cleanUp()
+    {
+        Medias.setResourcesDirectory(Constant.EMPTY_STRING);
+    }
+
+    private final Services services = new Services();
+    private final MapTile map = UtilPathfinding.createMap(services,
+                                                          "..........",
+                                                          "..######..",
+                                                          ".......#..",
+                                                          "######.#..",
+                                                          ".......#..",
+                                                          ".#######..",
+                                                          "..........",
+                                                          "########.#",
+                                                          "..........",
+                                                          "..........");
+    private final Pathfindable mover = UtilPathfinding.createPathfindable(services, 0, 0);
+
+    /**
+     * Request a path and get the delivered one.
+     * 
+     * @param service The service reference.
+     * @param dtx The horizontal destination tile.
+     * @param dty The vertical destination tile.
+     * @return The delivered path.
+     */
+    private Path request(PathRequestService service, int dtx, int dty)
+    {
+        final Listener listener = new Listener();
+        service.request(listener, mover, dtx, dty);
+        service.update(1.0);
+        service.update(1.0);
+
+        Assert.assertEquals(1, listener.paths.size());
+        return listener.paths.get(0);
+    }
+
+    /**
+     * Check the paths are the same.
+     * 
+     * @param expected The expected path.
+     * @param path The path to check.
+     */
+    private static void assertPath(Path expected, Path path)
+    {
+        Assert.assertEquals(expected.getLength(), path.getLength());
+        for (int i = 0; i < path.getLength(); i++)
+        {
+            Assert.assertEquals(expected.getX(i), path.getX(i));
+            Assert.assertEquals(expected.getY(i), path.getY(i));
+        }
+    }
+
+    /**
+     * Test the invalid workers count.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidWorkers()
+    {
+        Assert.assertNotNull(new PathRequestService(services, -1, 1.0));
+    }
+
+    /**
+     * Test the path delivered on update, same as the synchronous one.
+     */
+    @Test
+    public void testRequest()
+    {
+        final PathRequestService service = new PathRequestService(services, 0, 1.0);
+        final Listener listener = new Listener();
+
+        service.request(listener, mover, 0, 9);
+        Assert.assertTrue(service.isPending(listener));
+        Assert.assertTrue(listener.paths.isEmpty());
+
+        service.update(1.0);
+        service.update(1.0);
+
+        Assert.assertFalse(service.isPending(listener));
+        Assert.assertEquals(1, listener.paths.size());
+
+        final Path expected = Astar.createPathFinderHeap(map, 100, new HeuristicClosest()).findPath(mover, 0, 9, true);
+        final Path path = listener.paths.get(0);
+        Assert.assertEquals(expected.getLength(), path.getLength());
+        for (int i = 0; i < path.getLength(); i++)
+        {
+            Assert.assertEquals(expected.getX(i), path.getX(i));
+            Assert.assertEquals(expected.getY(i), path.getY(i));
+        }
+    }
+
+    /**
+     * Test the path to a blocked destination leads to the closest available tile, same as the synchronous one.
+     */
+    @Test
+    public void testRequestBlocked()
+    {
+        final PathRequestService service = new PathRequestService(services, 0, 1.0);
+        final PathFinder finder = Astar.createPathFinderHeap(map, 100, new HeuristicClosest());
+
+        assertPath(finder.findPath(mover, 4, 1, true), request(service, 4, 1));
+        assertPath(finder.findPath(mover, 7, 3, true), request(service, 7, 3));
+    }
+
+    /**
+     * Test the maximum search distance, same as the synchronous one.
+     */
+    @Test
+    public void testMaxSearchDistance()
+    {
+        final PathRequestService service = new PathRequestService(services, 0, 1.0);
+        service.setMaxSearchDistance(4);
+
+        Assert.assertNull(Astar.createPathFinderHeap(map, 4, new HeuristicClosest()).findPath(mover, 0, 9, true));
+        Assert.assertNull(request(service, 0, 9));
+
+        final Path expected = Astar.createPathFinderHeap(map, 4, new HeuristicClosest()).findPath(mover, 4, 0, true);
+        Assert.assertNotNull(expected);
+        assertPath(expected, request(service, 4, 0));
+    }
+
+    /**
+     * Test the invalid maximum search distance.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidMaxSearchDistance()
+    {
+        new PathRequestService(services, 0, 1.0).setMaxSearchDistance(0);
+    }
+
+    /**
+     * Test the identical requests solved once, and the request replaced.
+     */
+    @Test
+    public void testDedupe()
+    {
+        final PathRequestService service = new PathRequestService(services, 0, 1.0);
+        final Pathfindable other = UtilPathfinding.createPathfindable(services, 0, 0);
+        final Listener first = new Listener();
+        final Listener second = new Listener();
+
+        service.request(first, mover, 9, 0);
+        service.request(first, mover, 9, 9);
+        service.request(first, mover, 9, 9);
+        service.request(second, other, 9, 9);
+        Assert.assertEquals(1, service.getPendingCount());
+
+        service.update(1.0);
+        service.update(1.0);
+
+        Assert.assertEquals(1, first.paths.size());
+        Assert.assertEquals(1, second.paths.size());
+        Assert.assertSame(first.paths.get(0), second.paths.get(0));
+        Assert.assertEquals(9, first.paths.get(0).getY(first.paths.get(0).getLength() - 1));
+        Assert.assertEquals(0, service.getPendingCount());
+    }
+
+    /**
+     * Test the cancelled request not delivered.
+     */
+    @Test
+    public void testCancel()
+    {
+        final PathRequestService service = new PathRequestService(services, 0, 1.0);
+        final Listener listener = new Listener();
+
+        service.request(listener, mover, 9, 9);
+        service.cancel(listener);
+        service.update(1.0);
+        service.update(1.0);
+
+        Assert.assertTrue(listener.paths.isEmpty());
+        Assert.assertEquals(0, service.getPendingCount());
+    }
+
+    /**
+     * Test the snapshot refreshed after a tile change.
+     */
+    @Test
+    public void testSnapshot()
+    {
+        final PathRequestService service = new PathRequestService(services, 0, 1.0);
+        final Listener listener = new Listener();
+
+        final Tile tile = map.createTile(UtilPathfinding.SHEET, UtilPathfinding.TILE_TREE, 8, 7);
+        tile.addFeature(new TilePathModel(UtilPathfinding.TREE));
+        map.setTile(tile);
+
+        service.request(listener, mover, 0, 9);
+        service.update(1.0);
+        service.update(1.0);
+
+        Assert.assertEquals(1, listener.paths.size());
+        Assert.assertNull(listener.paths.get(0));
+    }
+
+    /**
+     * Test the requests solved by workers.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testWorkers() throws InterruptedException
+    {
+        final PathRequestService service = new PathRequestService(services, 2, 1.0);
+        final Listener first = new Listener();
+        final Listener second = new Listener();
+
+        service.request(first, mover, 0, 9);
+        service.request(second, mover, 9, 9);
+
+        int loops = 0;
+        while ((first.paths.isEmpty() || second.paths.isEmpty()) && loops < MAX_LOOPS)
+        {
+            service.update(1.0);
+            Thread.sleep(1L);
+            loops++;
+        }
+        service.dispose();
+
+        Assert.assertEquals(1, first.paths.size());
+        Assert.assertEquals(1, second.paths.size());
+        Assert.assertNotNull(first.paths.get(0));
+        Assert.assertNotNull(second.paths.get(0));
+    }
+
+    /**
+     * Test the pathfindable moving with requested paths.
+     */
+    @Test
+    public void testPathfindable()
+    {
+        final PathRequestService service = services.add(new PathRequestService(services, 0, 1.0));
+        final Pathfindable pathfindable = UtilPathfinding.createPathfindable(services, 0, 0);
+
+        Assert.assertTrue(pathfindable.setDestination(0, 9));
+        pathfindable.update(1.0);
+        Assert.assertFalse(pathfindable.isMoving());
+
+        int loops = 0;
+        while (!(pathfindable.getInTileX() == 0 && pathfindable.getInTileY() == 9) && loops < MAX_LOOPS)
+        {
+            service.update(1.0);
+            pathfindable.update(1.0);
+            if (loops == 10)
+            {
+                Assert.assertFalse(pathfindable.setDestination(0, 9));
+                Assert.assertTrue(pathfindable.isMoving());
+            }
+            loops++;
+        }
+
+        Assert.assertEquals(0, pathfindable.getInTileX());
+        Assert.assertEquals(9, pathfindable.getInTileY());
+    }
+
+    /**
+     * Listener storing received paths.
+     */
+    private static final class Listener implements PathRequestListener
+    {
+        private final List<Path> paths = new ArrayList<Path>();
+
+        @Override
+        public void notifyPathFound(Path path)
+        {
+            paths.add(path);
+        }
+    }
+}
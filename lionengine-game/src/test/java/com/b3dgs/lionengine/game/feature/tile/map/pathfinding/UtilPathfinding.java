@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.game.feature.tile.map.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+
+import com.b3dgs.lionengine.Media;
+import com.b3dgs.lionengine.core.Medias;
+import com.b3dgs.lionengine.game.Camera;
+import com.b3dgs.lionengine.game.Featurable;
+import com.b3dgs.lionengine.game.FeaturableConfig;
+import com.b3dgs.lionengine.game.FeaturableModel;
+import com.b3dgs.lionengine.game.Services;
+import com.b3dgs.lionengine.game.Setup;
+import com.b3dgs.lionengine.game.SizeConfig;
+import com.b3dgs.lionengine.game.feature.TransformableModel;
+import com.b3dgs.lionengine.game.feature.tile.TileGroup;
+import com.b3dgs.lionengine.game.feature.tile.TileGroupType;
+import com.b3dgs.lionengine.game.feature.tile.TileGroupsConfig;
+import com.b3dgs.lionengine.game.feature.tile.TileRef;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGroup;
+import com.b3dgs.lionengine.game.feature.tile.map.MapTileGroupModel;
+import com.b3dgs.lionengine.io.Xml;
+
+/**
+ * Utility related to pathfinding tests.
+ */
+public class UtilPathfinding
+{
+    /** Ground tile number. */
+    public static final int TILE_GROUND = 0;
+    /** Tree tile number. */
+    public static final int TILE_TREE = 1;
+    /** Ground group and category name. */
+    public static final String GROUND = "ground";
+    /** Tree group and category name. */
+    public static final String TREE = "tree";
+    /** Sheet ID. */
+    public static final Integer SHEET = Integer.valueOf(0);
+    /** Blocking tile character in map layout. */
+    private static final char BLOCK = '#';
+
+    /**
+     * Create a pathfinding map from a text layout, where <code>#</code> is a tree and any other character is a ground.
+     * First row is the vertical tile index <code>0</code>. Tile size is <code>1</code>.
+     * 
+     * @param services The services reference, where map and a viewer will be added.
+     * @param rows The map rows.
+     * @return The created map, with the {@link MapTilePath} feature loaded.
+     */
+    public static MapTile createMap(Services services, String... rows)
+    {
+        services.add(new Camera());
+
+        final MapTileGame map = services.add(new MapTileGame());
+        final MapTileGroup mapGroup = map.addFeatureAndGet(new MapTileGroupModel());
+        map.create(1, 1, rows[0].length(), rows.length);
+
+        for (int ty = 0; ty < rows.length; ty++)
+        {
+            for (int tx = 0; tx < rows[ty].length(); tx++)
+            {
+                final int number = rows[ty].charAt(tx) == BLOCK ? TILE_TREE : TILE_GROUND;
+                map.setTile(map.createTile(SHEET, number, tx, ty));
+            }
+        }
+
+        final Collection<TileGroup> groups = new ArrayList<TileGroup>();
+        groups.add(new TileGroup(GROUND, TileGroupType.NONE, Arrays.asList(new TileRef(SHEET, TILE_GROUND))));
+        groups.add(new TileGroup(TREE, TileGroupType.NONE, Arrays.asList(new TileRef(SHEET, TILE_TREE))));
+
+        final Media configGroups = Medias.create("groups.xml");
+        TileGroupsConfig.exports(configGroups, groups);
+        mapGroup.loadGroups(configGroups);
+        Assert.assertTrue(configGroups.getFile().delete());
+
+        final Media configPathfinding = Medias.create(PathfindingConfig.FILENAME);
+        final Xml root = new Xml(PathfindingConfig.PATHFINDING);
+        for (final String category : Arrays.asList(GROUND, TREE))
+        {
+            final Xml node = root.createChild(PathfindingConfig.TILE_PATH);
+            node.writeString(PathfindingConfig.CATEGORY, category);
+            node.createChild(TileGroupsConfig.NODE_GROUP).setText(category);
+        }
+        root.save(configPathfinding);
+
+        final MapTilePath mapPath = map.addFeatureAndGet(new MapTilePathModel(services));
+        mapPath.loadPathfinding(configPathfinding);
+        Assert.assertTrue(configPathfinding.getFile().delete());
+
+        return map;
+    }
+
+    /**
+     * Create a pathfindable object of one tile, allowed to move in any direction on ground, blocked by trees.
+     * 
+     * @param services The services reference (must contain the {@link MapTile} and a viewer).
+     * @param tx The horizontal tile location.
+     * @param ty The vertical tile location.
+     * @return The created pathfindable.
+     */
+    public static Pathfindable createPathfindable(Services services, int tx, int ty)
+    {
+        final Map<String, PathData> categories = new HashMap<String, PathData>();
+        categories.put(GROUND, new PathData(GROUND, 1.0, false, EnumSet.allOf(MovementTile.class)));
+        categories.put(TREE, new PathData(TREE, 0.0, true, EnumSet.noneOf(MovementTile.class)));
+
+        final Media media = Medias.create("pathfindable.xml");
+        final Xml root = new Xml("test");
+        root.add(FeaturableConfig.exportClass(FeaturableModel.class.getName()));
+        root.add(SizeConfig.exports(new SizeConfig(1, 1)));
+        root.add(PathfindableConfig.exports(categories));
+        root.save(media);
+
+        try
+        {
+            final Setup setup = new Setup(media);
+            final Featurable featurable = new FeaturableModel();
+            featurable.addFeature(new TransformableModel(setup));
+            final Pathfindable pathfindable = featurable.addFeatureAndGet(new PathfindableModel(services, setup));
+            pathfindable.setLocation(tx, ty);
+            return pathfindable;
+        }
+        finally
+        {
+            Assert.assertTrue(media.getFile().delete());
+        }
+    }
+}
@@ -19,7 +19,9 @@ package com.b3dgs.lionengine.game.feature.tile.map.persister;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -34,7 +36,10 @@ import com.b3dgs.lionengine.game.Services;
 import com.b3dgs.lionengine.game.feature.tile.Tile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
+import com.b3dgs.lionengine.game.feature.tile.map.TileSetListener;
 import com.b3dgs.lionengine.game.feature.tile.map.TileSheetsConfig;
+import com.b3dgs.lionengine.io.FileWriting;
+import com.b3dgs.lionengine.util.UtilStream;
 import com.b3dgs.lionengine.util.UtilTests;
 
 /**
@@ -168,6 +173,169 @@ public class MapTilePersisterModelTest
         Assert.assertTrue(levelFile.delete());
     }
 
+    /**
+     * Test the load of a map saved in previous format.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testLoadLegacy() throws IOException
+    {
+        final File levelFile = folder.newFile();
+        final Media level = Medias.get(levelFile);
+        final FileWriting output = new FileWriting(level);
+        try
+        {
+            output.writeInteger(16);
+            output.writeInteger(32);
+            output.writeInteger(300);
+            output.writeInteger(2);
+            output.writeBoolean(false);
+            output.writeShort((short) 2);
+            output.writeShort((short) 1);
+            output.writeInteger(0);
+            output.writeInteger(5);
+            output.writeInteger(3);
+            output.writeInteger(1);
+            output.writeShort((short) 1);
+            output.writeInteger(0);
+            output.writeInteger(7);
+            output.writeInteger(10);
+            output.writeInteger(0);
+        }
+        finally
+        {
+            UtilStream.safeClose(output);
+        }
+
+        final Services services = new Services();
+        final MapTile map = services.create(MapTileGame.class);
+        final MapTilePersisterModel persister = new MapTilePersisterModel(services);
+        persister.load(level);
+
+        Assert.assertEquals(300, map.getInTileWidth());
+        Assert.assertEquals(2, map.getTilesNumber());
+        Assert.assertEquals(5, map.getTile(3, 1).getNumber());
+        Assert.assertEquals(7, map.getTile(266, 0).getNumber());
+        Assert.assertEquals(266 * 16, map.getTile(266, 0).getX(), UtilTests.PRECISION);
+    }
+
+    /**
+     * Test the memory mapped load, with chunks loaded on demand.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testLoadMapped() throws IOException
+    {
+        final Services services = new Services();
+        final MapTile map = services.create(MapTileGame.class);
+        map.addFeature(new MapTilePersisterModel(services));
+        map.create(16, 16, 40, 20);
+        for (int tx = 0; tx < map.getInTileWidth(); tx++)
+        {
+            for (int ty = 1; ty < map.getInTileHeight(); ty++)
+            {
+                map.setTile(map.createTile(Integer.valueOf(0), tx / 4 + ty, tx * 16.0, ty * 16.0));
+            }
+        }
+        final Media level = Medias.get(folder.newFile());
+        UtilMapTilePersister.saveMap(map, level);
+
+        final Services servicesLoaded = new Services();
+        final MapTile mapLoaded = servicesLoaded.create(MapTileGame.class);
+        final MapTilePersisterModel persister = new MapTilePersisterModel(servicesLoaded);
+        final AtomicInteger set = new AtomicInteger();
+        mapLoaded.addListener(new TileSetListener()
+        {
+            @Override
+            public void onTileSet(Tile tile)
+            {
+                set.incrementAndGet();
+            }
+        });
+        persister.load(level);
+
+        Assert.assertEquals(40, mapLoaded.getInTileWidth());
+        Assert.assertEquals(20, mapLoaded.getInTileHeight());
+        Assert.assertEquals(0, set.get());
+
+        Assert.assertEquals(20 / 4 + 5, mapLoaded.getTile(20, 5).getNumber());
+        Assert.assertEquals(16 * 15, set.get());
+
+        mapLoaded.setTile(mapLoaded.createTile(Integer.valueOf(0), 99, 35 * 16.0, 18 * 16.0));
+        Assert.assertEquals(16 * 15 + 8 * 4 + 1, set.get());
+        Assert.assertEquals(99, mapLoaded.getTile(35, 18).getNumber());
+
+        for (int tx = 0; tx < map.getInTileWidth(); tx++)
+        {
+            for (int ty = 0; ty < map.getInTileHeight(); ty++)
+            {
+                final Tile tile = mapLoaded.getTile(tx, ty);
+                if (ty == 0)
+                {
+                    Assert.assertNull(tile);
+                }
+                else if (tx != 35 || ty != 18)
+                {
+                    Assert.assertEquals(map.getTile(tx, ty).getNumber(), tile.getNumber());
+                    Assert.assertEquals(ty * 16.0, tile.getY(), UtilTests.PRECISION);
+                }
+            }
+        }
+        Assert.assertEquals(map.getTilesNumber(), mapLoaded.getTilesNumber());
+    }
+
+    /**
+     * Test the memory mapped load of a truncated file, in its chunks data and in its header.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testLoadMappedTruncated() throws IOException
+    {
+        final Services services = new Services();
+        final MapTile map = services.create(MapTileGame.class);
+        map.addFeature(new MapTilePersisterModel(services));
+        map.create(16, 16, 40, 20);
+        for (int tx = 0; tx < map.getInTileWidth(); tx++)
+        {
+            map.setTile(map.createTile(Integer.valueOf(0), tx, tx * 16.0, 0.0));
+        }
+        final Media level = Medias.get(folder.newFile());
+        UtilMapTilePersister.saveMap(map, level);
+
+        final RandomAccessFile file = new RandomAccessFile(level.getFile(), "rw");
+        final long length = file.length();
+        try
+        {
+            for (final long truncated : new long[]
+            {
+                length - 1L, 10L
+            })
+            {
+                file.setLength(truncated);
+                final Services servicesLoaded = new Services();
+                servicesLoaded.create(MapTileGame.class);
+                final MapTilePersisterModel persister = new MapTilePersisterModel(servicesLoaded);
+                try
+                {
+                    persister.load(level);
+                    Assert.fail();
+                }
+                catch (final IOException exception)
+                {
+                    // Success
+                    Assert.assertNotNull(exception);
+                }
+            }
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
     /**
      * Test the constructor with services with map.
      */
@@ -112,4 +112,61 @@ public class MapTileFogTest
         Assert.assertEquals(16, fog.getTile(3, 3).getNumber());
         Assert.assertEquals(16, fog.getTile(4, 3).getNumber());
     }
+
+    /**
+     * Test the fog update when field of view moves or is removed.
+     */
+    @Test
+    public void testFogIncremental()
+    {
+        final Services services = new Services();
+        final MapTile map = UtilMap.createMap(7);
+        services.add(map);
+
+        final FovableModel fovable = new FovableModel(services);
+
+        final Setup setup = new Setup(UtilSetup.createConfig());
+        final FeaturableModel object = new FeaturableModel();
+        final Transformable transformable = object.addFeatureAndGet(new TransformableModel(setup));
+        transformable.teleport(3, 3);
+        fovable.prepare(object);
+        fovable.setFov(1);
+
+        final MapTileFog fog = new MapTileFog(false);
+        final MapTileFog hidden = new MapTileFog(true);
+        Medias.setLoadFromJar(MapTileFog.class);
+        fog.create(map, Medias.create("fog.xml"), null);
+        hidden.create(map, Medias.create("fog.xml"), null);
+        Medias.setLoadFromJar(null);
+
+        fog.update(new ArrayList<Fovable>(Arrays.asList(fovable)));
+        hidden.update(new ArrayList<Fovable>(Arrays.asList(fovable)));
+
+        Assert.assertEquals(17, fog.getTile(3, 3).getNumber());
+        Assert.assertEquals(2, fog.getTile(2, 3).getNumber());
+
+        fovable.setFov(2);
+        fog.update(new ArrayList<Fovable>(Arrays.asList(fovable)));
+
+        Assert.assertEquals(17, fog.getTile(2, 3).getNumber());
+        Assert.assertEquals(2, fog.getTile(1, 3).getNumber());
+
+        fovable.setFov(1);
+        transformable.teleport(5, 5);
+        fog.update(new ArrayList<Fovable>(Arrays.asList(fovable)));
+        hidden.update(new ArrayList<Fovable>(Arrays.asList(fovable)));
+
+        Assert.assertEquals(16, fog.getTile(2, 3).getNumber());
+        Assert.assertEquals(16, fog.getTile(3, 3).getNumber());
+        Assert.assertEquals(17, fog.getTile(5, 5).getNumber());
+        Assert.assertEquals(17, hidden.getTile(3, 3).getNumber());
+        Assert.assertEquals(17, hidden.getTile(5, 5).getNumber());
+
+        fog.update(new ArrayList<Fovable>());
+        hidden.update(new ArrayList<Fovable>());
+
+        Assert.assertEquals(16, fog.getTile(5, 5).getNumber());
+        Assert.assertEquals(16, fog.getTile(4, 5).getNumber());
+        Assert.assertEquals(17, hidden.getTile(5, 5).getNumber());
+    }
 }
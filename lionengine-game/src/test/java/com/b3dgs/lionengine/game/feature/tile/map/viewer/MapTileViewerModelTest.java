@@ -19,6 +19,7 @@ package com.b3dgs.lionengine.game.feature.tile.map.viewer;
 
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -32,8 +33,11 @@ import com.b3dgs.lionengine.game.feature.tile.Tile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTile;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileGame;
 import com.b3dgs.lionengine.game.feature.tile.map.MapTileRenderer;
+import com.b3dgs.lionengine.graphic.FactoryGraphicMock;
 import com.b3dgs.lionengine.graphic.Graphic;
 import com.b3dgs.lionengine.graphic.GraphicMock;
+import com.b3dgs.lionengine.graphic.Graphics;
+import com.b3dgs.lionengine.graphic.ImageBuffer;
 import com.b3dgs.lionengine.graphic.ImageBufferMock;
 import com.b3dgs.lionengine.graphic.Transparency;
 
@@ -109,4 +113,184 @@ public class MapTileViewerModelTest
 
         Assert.assertFalse(rendered.get());
     }
+
+    /**
+     * Test the chunks cache, rendering only invalidated chunks.
+     */
+    @Test
+    public void testChunks()
+    {
+        Graphics.setFactoryGraphic(new FactoryGraphicMock());
+        try
+        {
+            final MapTileGame map = new MapTileGame();
+            map.create(16, 16, 30, 20);
+            map.loadSheets(Arrays.asList(Drawable.loadSpriteTiled(new ImageBufferMock(16, 16, Transparency.OPAQUE),
+                                                                  16,
+                                                                  16)));
+            for (int tx = 0; tx < map.getInTileWidth(); tx++)
+            {
+                for (int ty = 0; ty < map.getInTileHeight(); ty++)
+                {
+                    map.setTile(map.createTile(Integer.valueOf(0), 0, tx * 16.0, ty * 16.0));
+                }
+            }
+            final Services services = new Services();
+            services.add(new ViewerMock());
+            services.add(map);
+
+            final MapTileViewer viewer = new MapTileViewerModel(services);
+            final AtomicInteger rendered = new AtomicInteger();
+            viewer.clear();
+            viewer.addRenderer(new MapTileRenderer()
+            {
+                @Override
+                public void renderTile(Graphic g, MapTile map, Tile tile, int x, int y)
+                {
+                    rendered.incrementAndGet();
+                }
+            });
+            viewer.setChunkSize(8);
+            final Graphic g = new GraphicMock();
+
+            viewer.render(g);
+
+            Assert.assertEquals(6 * 64, rendered.getAndSet(0));
+
+            viewer.render(g);
+
+            Assert.assertEquals(0, rendered.getAndSet(0));
+
+            map.setTile(map.createTile(Integer.valueOf(0), 0, 9 * 16.0, 9 * 16.0));
+            viewer.render(g);
+
+            Assert.assertEquals(64, rendered.getAndSet(0));
+
+            viewer.invalidate(20, 15);
+            viewer.render(g);
+
+            Assert.assertEquals(64, rendered.getAndSet(0));
+
+            viewer.invalidate();
+            viewer.render(g);
+
+            Assert.assertEquals(6 * 64, rendered.getAndSet(0));
+
+            viewer.setChunkSize(0);
+            viewer.render(g);
+
+            Assert.assertEquals(21 * 16, rendered.getAndSet(0));
+        }
+        finally
+        {
+            Graphics.setFactoryGraphic(null);
+        }
+    }
+
+    /**
+     * Test the chunks cache limit, disposing the least recently rendered chunks.
+     */
+    @Test
+    public void testChunksMax()
+    {
+        final AtomicInteger disposed = new AtomicInteger();
+        Graphics.setFactoryGraphic(new FactoryGraphicMock()
+        {
+            @Override
+            public ImageBuffer createImageBuffer(int width, int height, Transparency transparency)
+            {
+                return new ImageBufferMock(width, height, transparency)
+                {
+                    @Override
+                    public void dispose()
+                    {
+                        disposed.incrementAndGet();
+                    }
+                };
+            }
+        });
+        try
+        {
+            final MapTileGame map = new MapTileGame();
+            map.create(16, 16, 30, 20);
+            map.loadSheets(Arrays.asList(Drawable.loadSpriteTiled(new ImageBufferMock(16, 16, Transparency.OPAQUE),
+                                                                  16,
+                                                                  16)));
+            for (int tx = 0; tx < map.getInTileWidth(); tx++)
+            {
+                for (int ty = 0; ty < map.getInTileHeight(); ty++)
+                {
+                    map.setTile(map.createTile(Integer.valueOf(0), 0, tx * 16.0, ty * 16.0));
+                }
+            }
+            final Camera camera = new Camera();
+            camera.setView(0, 0, 64, 64, 64);
+            final Services services = new Services();
+            services.add(camera);
+            services.add(map);
+
+            final MapTileViewer viewer = new MapTileViewerModel(services);
+            final AtomicInteger rendered = new AtomicInteger();
+            viewer.clear();
+            viewer.addRenderer(new MapTileRenderer()
+            {
+                @Override
+                public void renderTile(Graphic g, MapTile map, Tile tile, int x, int y)
+                {
+                    rendered.incrementAndGet();
+                }
+            });
+            viewer.setChunkSize(8);
+            viewer.setChunksMax(2);
+            final Graphic g = new GraphicMock();
+
+            for (final int x : new int[]
+            {
+                0, 128, 256
+            })
+            {
+                camera.teleport(x, 0.0);
+                viewer.render(g);
+
+                Assert.assertEquals(64, rendered.getAndSet(0));
+            }
+            Assert.assertEquals(1, disposed.get());
+
+            camera.teleport(128.0, 0.0);
+            viewer.render(g);
+
+            Assert.assertEquals(0, rendered.getAndSet(0));
+
+            camera.teleport(0.0, 0.0);
+            viewer.render(g);
+
+            Assert.assertEquals(64, rendered.getAndSet(0));
+            Assert.assertEquals(2, disposed.get());
+
+            camera.teleport(128.0, 0.0);
+            viewer.render(g);
+
+            Assert.assertEquals(0, rendered.getAndSet(0));
+
+            camera.teleport(256.0, 0.0);
+            viewer.render(g);
+
+            Assert.assertEquals(64, rendered.getAndSet(0));
+            Assert.assertEquals(3, disposed.get());
+
+            viewer.setChunksMax(0);
+            viewer.render(g);
+
+            Assert.assertEquals(0, rendered.getAndSet(0));
+            Assert.assertEquals(4, disposed.get());
+
+            viewer.setChunkSize(0);
+
+            Assert.assertEquals(5, disposed.get());
+        }
+        finally
+        {
+            Graphics.setFactoryGraphic(null);
+        }
+    }
 }
@@ -67,4 +67,11 @@ interface Client extends Networker<ConnectionListener>
      * @return The client id.
      */
     byte getId();
+
+    /**
+     * Get the secret received from server on connection, used to authenticate on another transport.
+     * 
+     * @return The client secret.
+     */
+    int getSecret();
 }
@@ -0,0 +1,571 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network;
+
+import java.io.IOException;
+import java.io.ObjectStreamConstants;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.b3dgs.lionengine.Verbose;
+
+/**
+ * Client channel (bridge between non blocking server and client), with its direct read and write buffers.
+ * <p>
+ * Data are exchanged as the length prefixed block data records of the object streams used by {@link ClientImpl}, so
+ * that clients are not aware of the server implementation. Received records are unwrapped and split into system
+ * messages by the server I/O thread, and queued for the game thread. Messages queued by the game thread are framed and
+ * written by the server I/O thread. Queued data are limited to {@link #QUEUE_MAX} bytes: a client not reading them fast
+ * enough is disconnected on next write.
+ * </p>
+ * <p>
+ * Received messages are limited to {@link #MESSAGE_MAX} bytes, and received messages waiting for the game thread to
+ * {@link #QUEUE_MAX} bytes: a client exceeding them is disconnected. Received messages are copied in a buffer swapped
+ * with the game thread one, so no memory is allocated per message.
+ * </p>
+ */
+final class ClientChannel
+{
+    /** Maximum queued bytes to send or to receive. */
+    static final int QUEUE_MAX = 1 << 20;
+    /** Maximum received message length. */
+    static final int MESSAGE_MAX = 1 << 16;
+    /** Direct buffers size. */
+    private static final int BUFFER_SIZE = 16384;
+    /** Maximum length of a short block data record. */
+    private static final int BLOCK_SHORT_MAX = 0xFF;
+    /** Unsigned byte mask. */
+    private static final int UNSIGNED_BYTE = 0xFF;
+    /** Long block data record header size. */
+    private static final int BLOCK_LONG_HEADER = 5;
+    /** Integer size. */
+    private static final int INT_SIZE = 4;
+    /** Message system id and source id size. */
+    private static final int MESSAGE_HEADER = 2;
+    /** Message with name header size. */
+    private static final int NAME_HEADER = 3;
+    /** User message header size. */
+    private static final int USER_HEADER = 8;
+    /** Invalid stream header error. */
+    private static final String ERROR_HEADER = "Invalid stream header !";
+    /** Invalid record error. */
+    private static final String ERROR_RECORD = "Invalid record: ";
+    /** Invalid message error. */
+    private static final String ERROR_MESSAGE = "Invalid message: ";
+    /** Queue overflow error. */
+    private static final String ERROR_OVERFLOW = "Too many queued bytes, disconnected !";
+    /** Message size error. */
+    private static final String ERROR_SIZE = "Invalid message size, disconnected: ";
+
+    /**
+     * Get the length of the first message of buffer, from its header.
+     * 
+     * @param buffer The unwrapped data buffer, ready to be read.
+     * @return The message length, <code>-1</code> if header is not yet fully received.
+     * @throws IOException If invalid message or size above {@link #MESSAGE_MAX}.
+     */
+    private static int getMessageLength(ByteBuffer buffer) throws IOException
+    {
+        final int position = buffer.position();
+        final int remaining = buffer.remaining();
+        if (remaining < MESSAGE_HEADER)
+        {
+            return -1;
+        }
+        final byte id = buffer.get(position);
+        int length = -1;
+        switch (id)
+        {
+            case NetworkMessageSystemId.CONNECTING:
+            case NetworkMessageSystemId.OTHER_CLIENT_RENAMED:
+                if (remaining >= NAME_HEADER)
+                {
+                    length = NAME_HEADER + (buffer.get(position + MESSAGE_HEADER) & UNSIGNED_BYTE);
+                }
+                break;
+            case NetworkMessageSystemId.CONNECTED:
+            case NetworkMessageSystemId.PING:
+            case NetworkMessageSystemId.OTHER_CLIENT_DISCONNECTED:
+                length = MESSAGE_HEADER;
+                break;
+            case NetworkMessageSystemId.USER_MESSAGE:
+                if (remaining >= USER_HEADER)
+                {
+                    final int size = buffer.getInt(position + USER_HEADER - INT_SIZE);
+                    if (size < 0 || size > MESSAGE_MAX - USER_HEADER)
+                    {
+                        throw new IOException(ERROR_SIZE + size);
+                    }
+                    length = USER_HEADER + size;
+                }
+                break;
+            default:
+                throw new IOException(ERROR_MESSAGE + id);
+        }
+        if (length != -1 && length < MESSAGE_HEADER)
+        {
+            throw new IOException(ERROR_MESSAGE + id);
+        }
+        return length;
+    }
+
+    /** Socket channel. */
+    private final SocketChannel channel;
+    /** Received raw data. */
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Data to write. */
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** Messages to send, from game thread to I/O thread. */
+    private final Queue<byte[]> toSend = new ConcurrentLinkedQueue<byte[]>();
+    /** Queued bytes to send. */
+    private final AtomicInteger queued = new AtomicInteger();
+    /** Waiting for I/O thread to write flag. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /** Received unwrapped data, grown to the largest message. */
+    private ByteBuffer data = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Received messages each prefixed by its length, from I/O thread to game thread (guarded by this). */
+    private ByteBuffer received = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Received messages taken by game thread, ready to be read. */
+    private ByteBuffer taken = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Taken messages end. */
+    private int takenEnd;
+    /** Next taken message position. */
+    private int next;
+    /** Message being written (<code>null</code> if none). */
+    private byte[] sending;
+    /** Message written length. */
+    private int sent;
+    /** Remaining length of the current received record. */
+    private int record;
+    /** Stream header received flag. */
+    private boolean header;
+    /** Channel closed flag. */
+    private volatile boolean closed;
+    /** Close requested flag. */
+    private volatile boolean closing;
+    /** Queue overflow flag. */
+    private volatile boolean overflow;
+    /** Client id. */
+    private byte clientId;
+    /** State. */
+    private StateConnection state;
+    /** Name. */
+    private String name;
+    /** Secret sent on connection. */
+    private int secret;
+
+    /**
+     * Internal constructor.
+     * 
+     * @param channel The accepted channel.
+     */
+    ClientChannel(SocketChannel channel)
+    {
+        this.channel = channel;
+        clientId = -1;
+        out.putShort(ObjectStreamConstants.STREAM_MAGIC);
+        out.putShort(ObjectStreamConstants.STREAM_VERSION);
+    }
+
+    /**
+     * Read available data and queue the received messages. Called by I/O thread.
+     * 
+     * @return <code>true</code> if still open, <code>false</code> if end of stream reached.
+     * @throws IOException If error on reading or invalid data.
+     */
+    boolean read() throws IOException
+    {
+        final int read = channel.read(in);
+        in.flip();
+        unwrap();
+        in.compact();
+
+        data.flip();
+        int length = getMessageLength(data);
+        while (length != -1 && data.remaining() >= length)
+        {
+            receive(length);
+            length = getMessageLength(data);
+        }
+        data.compact();
+
+        return read != -1;
+    }
+
+    /**
+     * Write queued messages as long as channel accepts data. Called by I/O thread.
+     * 
+     * @return <code>true</code> if all written, <code>false</code> if remaining data.
+     * @throws IOException If error on writing, or if queued data overflowed.
+     */
+    boolean write() throws IOException
+    {
+        if (overflow)
+        {
+            throw new IOException(ERROR_OVERFLOW);
+        }
+        scheduled.set(false);
+        boolean written = true;
+        while (written)
+        {
+            fill();
+            out.flip();
+            written = out.hasRemaining() && channel.write(out) > 0;
+            out.compact();
+        }
+        return out.position() == 0 && sending == null && toSend.isEmpty();
+    }
+
+    /**
+     * Close channel. Called by I/O thread.
+     */
+    void terminate()
+    {
+        closed = true;
+        try
+        {
+            channel.close();
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception);
+        }
+    }
+
+    /**
+     * Queue message to send, unless overflowing. Called by game thread.
+     * 
+     * @param message The message data.
+     * @return <code>true</code> if client has to be scheduled for writing, <code>false</code> if already scheduled.
+     */
+    boolean send(byte[] message)
+    {
+        if (overflow)
+        {
+            return false;
+        }
+        if (queued.addAndGet(message.length) > QUEUE_MAX)
+        {
+            overflow = true;
+            toSend.clear();
+        }
+        else
+        {
+            toSend.add(message);
+        }
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Get next received message. Called by game thread.
+     * 
+     * @return The message data from position to limit, valid until next call, <code>null</code> if none.
+     */
+    ByteBuffer poll()
+    {
+        taken.limit(takenEnd);
+        taken.position(next);
+        if (!taken.hasRemaining())
+        {
+            synchronized (this)
+            {
+                final ByteBuffer messages = received;
+                taken.clear();
+                received = taken;
+                taken = messages;
+            }
+            taken.flip();
+            takenEnd = taken.limit();
+            next = 0;
+            if (!taken.hasRemaining())
+            {
+                return null;
+            }
+        }
+        final int length = taken.getInt();
+        next = taken.position() + length;
+        taken.limit(next);
+        return taken;
+    }
+
+    /**
+     * Request channel closing once queued messages are written. Called by game thread.
+     */
+    void close()
+    {
+        closing = true;
+        state = StateConnection.DISCONNECTED;
+    }
+
+    /**
+     * Check if close has been requested.
+     * 
+     * @return <code>true</code> if closing, <code>false</code> else.
+     */
+    boolean isClosing()
+    {
+        return closing;
+    }
+
+    /**
+     * Check if channel is closed.
+     * 
+     * @return <code>true</code> if closed, <code>false</code> else.
+     */
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Get the socket channel.
+     * 
+     * @return The socket channel.
+     */
+    SocketChannel getChannel()
+    {
+        return channel;
+    }
+
+    /**
+     * Set the client id.
+     * 
+     * @param id The client id.
+     */
+    void setId(byte id)
+    {
+        clientId = id;
+    }
+
+    /**
+     * Get the client id.
+     * 
+     * @return The client id.
+     */
+    byte getId()
+    {
+        return clientId;
+    }
+
+    /**
+     * Set the secret sent on connection.
+     * 
+     * @param secret The client secret.
+     */
+    void setSecret(int secret)
+    {
+        this.secret = secret;
+    }
+
+    /**
+     * Get the secret sent on connection.
+     * 
+     * @return The client secret.
+     */
+    int getSecret()
+    {
+        return secret;
+    }
+
+    /**
+     * Set the connection state.
+     * 
+     * @param state The connection state.
+     */
+    void setState(StateConnection state)
+    {
+        this.state = state;
+    }
+
+    /**
+     * Get the current connection state.
+     * 
+     * @return The connection state.
+     */
+    StateConnection getState()
+    {
+        return state;
+    }
+
+    /**
+     * Set the client name.
+     * 
+     * @param name The client name.
+     */
+    void setName(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Get the client name.
+     * 
+     * @return The client name.
+     */
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Queue the first message of data for the game thread.
+     * 
+     * @param length The message length.
+     * @throws IOException If too many received bytes are waiting for the game thread.
+     */
+    private void receive(int length) throws IOException
+    {
+        final int limit = data.limit();
+        data.limit(data.position() + length);
+        synchronized (this)
+        {
+            final int size = received.position() + INT_SIZE + length;
+            if (size > QUEUE_MAX)
+            {
+                throw new IOException(ERROR_OVERFLOW);
+            }
+            if (received.capacity() < size)
+            {
+                final ByteBuffer grown = ByteBuffer.allocate(Math.max(received.capacity() * 2, size));
+                received.flip();
+                grown.put(received);
+                received = grown;
+            }
+            received.putInt(length);
+            received.put(data);
+        }
+        data.limit(limit);
+    }
+
+    /**
+     * Unwrap received records data.
+     * 
+     * @throws IOException If invalid data.
+     */
+    private void unwrap() throws IOException
+    {
+        if (!header)
+        {
+            if (in.remaining() < INT_SIZE)
+            {
+                return;
+            }
+            if (in.getShort() != ObjectStreamConstants.STREAM_MAGIC
+                || in.getShort() != ObjectStreamConstants.STREAM_VERSION)
+            {
+                throw new IOException(ERROR_HEADER);
+            }
+            header = true;
+        }
+        while (in.hasRemaining() && (record > 0 || readRecordHeader()))
+        {
+            final int length = Math.min(record, in.remaining());
+            if (data.remaining() < length)
+            {
+                final ByteBuffer grown = ByteBuffer.allocate(Math.max(data.capacity() * 2, data.position() + length));
+                data.flip();
+                grown.put(data);
+                data = grown;
+            }
+            final int limit = in.limit();
+            in.limit(in.position() + length);
+            data.put(in);
+            in.limit(limit);
+            record -= length;
+        }
+    }
+
+    /**
+     * Read the next record header.
+     * 
+     * @return <code>true</code> if read, <code>false</code> if not yet fully received.
+     * @throws IOException If invalid record.
+     */
+    private boolean readRecordHeader() throws IOException
+    {
+        in.mark();
+        final byte tag = in.get();
+        if (tag == ObjectStreamConstants.TC_BLOCKDATA && in.hasRemaining())
+        {
+            record = in.get() & BLOCK_SHORT_MAX;
+        }
+        else if (tag == ObjectStreamConstants.TC_BLOCKDATALONG && in.remaining() >= INT_SIZE)
+        {
+            record = in.getInt();
+        }
+        else if (tag == ObjectStreamConstants.TC_BLOCKDATA || tag == ObjectStreamConstants.TC_BLOCKDATALONG)
+        {
+            in.reset();
+            return false;
+        }
+        else
+        {
+            throw new IOException(ERROR_RECORD + tag);
+        }
+        if (record < 0)
+        {
+            throw new IOException(ERROR_RECORD + record);
+        }
+        return true;
+    }
+
+    /**
+     * Fill write buffer with queued messages, each one framed in a block data record.
+     */
+    private void fill()
+    {
+        while (out.hasRemaining())
+        {
+            if (sending == null)
+            {
+                if (out.remaining() < BLOCK_LONG_HEADER)
+                {
+                    break;
+                }
+                sending = toSend.poll();
+                if (sending == null)
+                {
+                    break;
+                }
+                queued.addAndGet(-sending.length);
+                sent = 0;
+                if (sending.length <= BLOCK_SHORT_MAX)
+                {
+                    out.put(ObjectStreamConstants.TC_BLOCKDATA);
+                    out.put((byte) sending.length);
+                }
+                else
+                {
+                    out.put(ObjectStreamConstants.TC_BLOCKDATALONG);
+                    out.putInt(sending.length);
+                }
+            }
+            final int length = Math.min(out.remaining(), sending.length - sent);
+            out.put(sending, sent, length);
+            sent += length;
+            if (sent == sending.length)
+            {
+                sending = null;
+            }
+        }
+    }
+}
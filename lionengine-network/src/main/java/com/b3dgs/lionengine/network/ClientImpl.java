@@ -17,15 +17,13 @@
  */
 package com.b3dgs.lionengine.network;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 
 import com.b3dgs.lionengine.Check;
 import com.b3dgs.lionengine.Constant;
@@ -56,6 +54,8 @@ final class ClientImpl extends NetworkModel<ConnectionListener> implements Clien
     private byte clientId;
     /** Client name. */
     private String clientName;
+    /** Client secret received on connection. */
+    private int clientSecret;
     /** Disconnect flag. */
     private boolean connected;
     /** Ping. */
@@ -91,7 +91,7 @@ final class ClientImpl extends NetworkModel<ConnectionListener> implements Clien
         {
             return;
         }
-        messagesIn.clear();
+        clearMessages();
         messagesOut.clear();
         try
         {
@@ -209,17 +209,19 @@ final class ClientImpl extends NetworkModel<ConnectionListener> implements Clien
 
     /**
      * Update the connected case.
-     *
+     * 
      * @throws IOException If error when writing data.
      */
     private void updateConnected() throws IOException
     {
         byte cid = in.readByte();
+        final int secret = in.readInt();
         // Ensure the client id is the same
         if (cid != clientId)
         {
             return;
         }
+        clientSecret = secret;
         for (final ConnectionListener listener : listeners)
         {
             listener.notifyConnectionEstablished(Byte.valueOf(clientId), clientName);
@@ -309,26 +311,9 @@ final class ClientImpl extends NetworkModel<ConnectionListener> implements Clien
         final int size = in.readInt();
         if (size > 0)
         {
-            final byte[] data = new byte[size];
-            if (in.read(data) != -1)
-            {
-                final DataInputStream buffer = new DataInputStream(new ByteArrayInputStream(data));
-                try
-                {
-                    decodeMessage(type, from, dest, buffer);
-                }
-                finally
-                {
-                    try
-                    {
-                        buffer.close();
-                    }
-                    catch (final IOException exception)
-                    {
-                        Verbose.exception(exception);
-                    }
-                }
-            }
+            final ByteBuffer buffer = getInput(size);
+            in.readFully(buffer.array(), 0, size);
+            decodeMessage(type, from, dest, buffer);
         }
         final int headerSize = 4;
         bandwidth += headerSize + size;
@@ -341,42 +326,26 @@ final class ClientImpl extends NetworkModel<ConnectionListener> implements Clien
      */
     private void sendMessage(NetworkMessage message)
     {
-        ByteArrayOutputStream encode = null;
         try
         {
-            encode = message.encode();
-            final byte[] encoded = encode.toByteArray();
+            final ByteBuffer encoded = encodeMessage(message);
             // Message header
             out.writeByte(NetworkMessageSystemId.USER_MESSAGE);
             out.writeByte(message.getClientId());
             out.writeByte(message.getClientDestId());
             out.writeByte(message.getType());
             // Message content
-            out.writeInt(encoded.length);
-            out.write(encoded);
+            out.writeInt(encoded.limit());
+            out.write(encoded.array(), 0, encoded.limit());
             out.flush();
 
             final int headerSize = 8;
-            bandwidth += headerSize + encoded.length;
+            bandwidth += headerSize + encoded.limit();
         }
         catch (final IOException exception)
         {
             Verbose.exception(exception, "Unable to send the message for client: ", String.valueOf(clientId));
         }
-        finally
-        {
-            try
-            {
-                if (encode != null)
-                {
-                    encode.close();
-                }
-            }
-            catch (final IOException exception)
-            {
-                Verbose.exception(exception);
-            }
-        }
     }
 
     /*
@@ -459,6 +428,12 @@ final class ClientImpl extends NetworkModel<ConnectionListener> implements Clien
         return clientId;
     }
 
+    @Override
+    public int getSecret()
+    {
+        return clientSecret;
+    }
+
     /*
      * Network
      */
@@ -533,7 +508,7 @@ final class ClientImpl extends NetworkModel<ConnectionListener> implements Clien
         {
             return;
         }
-        messagesIn.clear();
+        clearMessages();
         try
         {
             if (in.available() == 0)
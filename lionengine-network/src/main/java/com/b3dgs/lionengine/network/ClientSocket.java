@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 import com.b3dgs.lionengine.LionEngineException;
 import com.b3dgs.lionengine.Verbose;
@@ -42,6 +43,8 @@ final class ClientSocket
     private StateConnection state;
     /** Name. */
     private String name;
+    /** Secret sent on connection. */
+    private int secret;
 
     /**
      * Internal constructor.
@@ -139,34 +142,34 @@ final class ClientSocket
     }
 
     /**
-     * Receive messages data from the client.
+     * Get the size of data which can be received without blocking.
      * 
-     * @return The messages data.
+     * @return The available data size.
      */
-    public byte[] receiveMessages()
+    public int available()
     {
         try
         {
-            final byte[] data;
-            final int size = in.available();
-            if (size <= 0)
-            {
-                data = null;
-            }
-            else
-            {
-                data = new byte[size];
-                in.readFully(data);
-            }
-            return data;
+            return in.available();
         }
         catch (final IOException exception)
         {
             Verbose.exception(exception);
-            return new byte[0];
+            return 0;
         }
     }
 
+    /**
+     * Receive messages data from the client, without intermediate copy.
+     * 
+     * @param buffer The buffer to fill from its position to its limit, backed by an array.
+     * @throws IOException If error on reading.
+     */
+    public void receiveMessages(ByteBuffer buffer) throws IOException
+    {
+        in.readFully(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
     /**
      * Send message to the client.
      * 
@@ -232,4 +235,24 @@ final class ClientSocket
     {
         return clientId;
     }
+
+    /**
+     * Set the secret sent on connection.
+     * 
+     * @param secret The client secret.
+     */
+    public void setSecret(int secret)
+    {
+        this.secret = secret;
+    }
+
+    /**
+     * Get the secret sent on connection.
+     * 
+     * @return The client secret.
+     */
+    public int getSecret()
+    {
+        return secret;
+    }
 }
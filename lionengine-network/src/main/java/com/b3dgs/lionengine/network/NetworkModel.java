@@ -17,21 +17,48 @@
  */
 package com.b3dgs.lionengine.network;
 
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 
 import com.b3dgs.lionengine.network.message.NetworkMessage;
 import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
+import com.b3dgs.lionengine.network.message.NetworkMessagePool;
 
 /**
  * Network base implementation.
+ * <p>
+ * Messages are encoded to and decoded from buffers kept between messages. Received messages are released on
+ * {@link #clearMessages()} if decoder is a {@link NetworkMessagePool}.
+ * </p>
  * 
  * @param <L> Client listener type used.
  */
 abstract class NetworkModel<L extends ClientListener> implements Networker<L>
 {
+    /** Initial buffers size. */
+    private static final int BUFFER_SIZE = 1024;
+
+    /**
+     * Read a name prefixed by its length.
+     * 
+     * @param buffer The buffer to read, backed by an array.
+     * @return The name read, <code>null</code> if empty.
+     */
+    protected static String readString(ByteBuffer buffer)
+    {
+        final int size = buffer.get() & 0xFF;
+        if (size == 0)
+        {
+            return null;
+        }
+        final int position = buffer.position();
+        buffer.position(position + size);
+        return new String(buffer.array(), buffer.arrayOffset() + position, size, NetworkMessage.CHARSET);
+    }
+
     /** Messages list. */
     protected final Collection<NetworkMessage> messagesOut;
     /** Messages list. */
@@ -40,6 +67,12 @@ abstract class NetworkModel<L extends ClientListener> implements Networker<L>
     protected final NetworkMessageDecoder decoder;
     /** The client connection listener. */
     protected final Collection<L> listeners;
+    /** Messages pool (<code>null</code> if none). */
+    private final NetworkMessagePool pool;
+    /** Encoding buffer. */
+    private ByteBuffer output;
+    /** Decoding buffer. */
+    private ByteBuffer input;
 
     /**
      * Internal constructor.
@@ -52,27 +85,108 @@ abstract class NetworkModel<L extends ClientListener> implements Networker<L>
         messagesOut = new ArrayList<NetworkMessage>();
         messagesIn = new ArrayList<NetworkMessage>();
         listeners = new ArrayList<L>(1);
+        if (decoder instanceof NetworkMessagePool)
+        {
+            pool = (NetworkMessagePool) decoder;
+        }
+        else
+        {
+            pool = null;
+        }
+        output = ByteBuffer.allocate(BUFFER_SIZE);
+        input = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Clear received messages, and release them to pool if has.
+     */
+    protected void clearMessages()
+    {
+        if (pool != null)
+        {
+            for (final NetworkMessage message : messagesIn)
+            {
+                pool.release(message);
+            }
+        }
+        messagesIn.clear();
+    }
+
+    /**
+     * Encode message to the encoding buffer, grown if necessary.
+     * 
+     * @param message The message to encode.
+     * @return The encoding buffer, ready to be read, valid until next call.
+     * @throws IOException Error on writing.
+     */
+    protected ByteBuffer encodeMessage(NetworkMessage message) throws IOException
+    {
+        while (true)
+        {
+            output.clear();
+            try
+            {
+                message.write(output);
+                output.flip();
+                return output;
+            }
+            catch (@SuppressWarnings("unused") final BufferOverflowException exception)
+            {
+                output = ByteBuffer.allocate(output.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Get the decoding buffer, grown if necessary.
+     * 
+     * @param size The data size to receive.
+     * @return The decoding buffer, with size as limit, valid until next call.
+     */
+    protected ByteBuffer getInput(int size)
+    {
+        if (input.capacity() < size)
+        {
+            input = ByteBuffer.allocate(Math.max(input.capacity() * 2, size));
+        }
+        input.clear();
+        input.limit(size);
+        return input;
     }
 
     /**
-     * Decode a message from its type.
+     * Decode a message from its type. Message is released to pool if has and not decoded.
      * 
      * @param type The message type.
      * @param from The client id source.
      * @param dest The client id destination (-1 if all).
-     * @param buffer The data.
+     * @param buffer The data, from position to limit, read without copy.
      * @throws IOException Error on reading.
      */
-    protected void decodeMessage(byte type, byte from, byte dest, DataInputStream buffer) throws IOException
+    protected void decodeMessage(byte type, byte from, byte dest, ByteBuffer buffer) throws IOException
     {
         final NetworkMessage message = decoder.getNetworkMessageFromType(type);
-        if (message != null)
+        if (message == null)
         {
-            final int skip = 3;
-            if (buffer.skipBytes(skip) == skip)
+            return;
+        }
+        final int skip = 3;
+        boolean decoded = false;
+        try
+        {
+            if (buffer.remaining() >= skip)
             {
-                message.decode(type, from, dest, buffer);
+                buffer.position(buffer.position() + skip);
+                message.read(type, from, dest, buffer);
                 messagesIn.add(message);
+                decoded = true;
+            }
+        }
+        finally
+        {
+            if (!decoded && pool != null)
+            {
+                pool.release(type, message);
             }
         }
     }
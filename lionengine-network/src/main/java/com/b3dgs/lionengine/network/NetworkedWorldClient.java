@@ -60,4 +60,11 @@ public interface NetworkedWorldClient extends NetworkedWorld, ConnectionListener
      * @return The network id.
      */
     byte getId();
+
+    /**
+     * Get the secret received on connection, to connect a {@link UdpTransport} with.
+     * 
+     * @return The client secret.
+     */
+    int getSecret();
 }
@@ -30,7 +30,7 @@ import com.b3dgs.lionengine.network.purview.Networkable;
  * @param <L> Listener type.
  * @param <N> Network implementation.
  */
-abstract class NetworkedWorldModel<L extends ClientListener, N extends NetworkModel<L>> implements NetworkedWorld
+abstract class NetworkedWorldModel<L extends ClientListener, N extends Networker<L>> implements NetworkedWorld
 {
     /** List of networkable objects. */
     protected final Collection<Networkable> networkables;
@@ -40,6 +40,8 @@ abstract class NetworkedWorldModel<L extends ClientListener, N extends NetworkMo
     protected final Collection<L> listeners;
     /** The network. */
     protected final N network;
+    /** Datagram transport (<code>null</code> if none). */
+    private UdpTransport transport;
     /** Will add. */
     private boolean willAdd;
 
@@ -77,6 +79,60 @@ abstract class NetworkedWorldModel<L extends ClientListener, N extends NetworkMo
         listeners.remove(listener);
     }
 
+    /**
+     * Set the datagram transport used beside the network for its routed message types. Other messages are still sent
+     * by the network. Transport must be started or connected by caller, and is disconnected with the world.
+     * 
+     * @param transport The transport reference (<code>null</code> if none).
+     */
+    public void setTransport(UdpTransport transport)
+    {
+        this.transport = transport;
+    }
+
+    /**
+     * Get the datagram transport.
+     * 
+     * @return The transport reference (<code>null</code> if none).
+     */
+    protected UdpTransport getTransport()
+    {
+        return transport;
+    }
+
+    /**
+     * Add message to the transport if its type is routed, else to the network.
+     * 
+     * @param message The message to send.
+     */
+    private void route(NetworkMessage message)
+    {
+        if (transport != null && transport.isRouted(message.getType()))
+        {
+            transport.addMessage(message);
+        }
+        else
+        {
+            network.addMessage(message);
+        }
+    }
+
+    /**
+     * Apply received messages to networkables.
+     * 
+     * @param messages The received messages.
+     */
+    private void apply(Collection<NetworkMessage> messages)
+    {
+        for (final NetworkMessage message : messages)
+        {
+            for (final Networkable networkable : networkables)
+            {
+                networkable.applyMessage(message);
+            }
+        }
+    }
+
     /*
      * NetworkedWorld
      */
@@ -85,6 +141,10 @@ abstract class NetworkedWorldModel<L extends ClientListener, N extends NetworkMo
     public void disconnect()
     {
         network.disconnect();
+        if (transport != null)
+        {
+            transport.disconnect();
+        }
         for (final L listener : listeners)
         {
             network.removeListener(listener);
@@ -108,13 +168,16 @@ abstract class NetworkedWorldModel<L extends ClientListener, N extends NetworkMo
     @Override
     public void addMessage(NetworkMessage message)
     {
-        network.addMessage(message);
+        route(message);
     }
 
     @Override
     public void addMessages(Collection<NetworkMessage> messages)
     {
-        network.addMessages(messages);
+        for (final NetworkMessage message : messages)
+        {
+            route(message);
+        }
     }
 
     @Override
@@ -122,10 +185,14 @@ abstract class NetworkedWorldModel<L extends ClientListener, N extends NetworkMo
     {
         for (final Networkable networkable : networkables)
         {
-            network.addMessages(networkable.getNetworkMessages());
+            addMessages(networkable.getNetworkMessages());
             networkable.clearNetworkMessages();
         }
         network.sendMessages();
+        if (transport != null)
+        {
+            transport.sendMessages();
+        }
     }
 
     @Override
@@ -141,18 +208,21 @@ abstract class NetworkedWorldModel<L extends ClientListener, N extends NetworkMo
             willAdd = false;
         }
         network.receiveMessages();
-        for (final NetworkMessage message : network.getMessages())
+        apply(network.getMessages());
+        if (transport != null)
         {
-            for (final Networkable networkable : networkables)
-            {
-                networkable.applyMessage(message);
-            }
+            transport.receiveMessages();
+            apply(transport.getMessages());
         }
     }
 
     @Override
     public int getBandwidth()
     {
+        if (transport != null)
+        {
+            return network.getBandwidth() + transport.getBandwidth();
+        }
         return network.getBandwidth();
     }
 
@@ -81,6 +81,12 @@ public class NetworkedWorldModelClient extends NetworkedWorldModel<ConnectionLis
         return network.getId();
     }
 
+    @Override
+    public int getSecret()
+    {
+        return network.getSecret();
+    }
+
     /*
      * ConnectionListener
      */
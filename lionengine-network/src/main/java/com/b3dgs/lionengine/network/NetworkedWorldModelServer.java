@@ -22,17 +22,45 @@ import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
 /**
  * Networkable world implementation server side.
  */
-public class NetworkedWorldModelServer extends NetworkedWorldModel<ClientListener, ServerImpl>
+public class NetworkedWorldModelServer extends NetworkedWorldModel<ClientListener, Server>
                                        implements NetworkedWorldServer
 {
     /**
-     * Constructor.
+     * Create the server implementation.
+     * 
+     * @param decoder The decoder reference.
+     * @param nio <code>true</code> for non blocking server, <code>false</code> for blocking server.
+     * @return The server implementation.
+     */
+    private static Server createServer(NetworkMessageDecoder decoder, boolean nio)
+    {
+        if (nio)
+        {
+            return new ServerNio(decoder);
+        }
+        return new ServerImpl(decoder);
+    }
+
+    /**
+     * Create the server based on blocking sockets.
      * 
      * @param decoder The decoder reference.
      */
     public NetworkedWorldModelServer(NetworkMessageDecoder decoder)
     {
-        super(new ServerImpl(decoder));
+        this(decoder, false);
+    }
+
+    /**
+     * Create the server.
+     * 
+     * @param decoder The decoder reference.
+     * @param nio <code>true</code> to use a single non blocking I/O thread for all clients, <code>false</code> to use
+     *            blocking sockets.
+     */
+    public NetworkedWorldModelServer(NetworkMessageDecoder decoder, boolean nio)
+    {
+        super(createServer(decoder, nio));
     }
 
     /*
@@ -57,4 +85,28 @@ public class NetworkedWorldModelServer extends NetworkedWorldModel<ClientListene
         super.disconnect();
         network.removeListener(this);
     }
+
+    /*
+     * ClientListener
+     */
+
+    @Override
+    public void notifyClientConnected(Byte id, String name)
+    {
+        final UdpTransport transport = getTransport();
+        if (transport != null)
+        {
+            transport.allow(id.byteValue(), network.getSecret(id.byteValue()));
+        }
+    }
+
+    @Override
+    public void notifyClientDisconnected(Byte id, String name)
+    {
+        final UdpTransport transport = getTransport();
+        if (transport != null)
+        {
+            transport.revoke(id.byteValue());
+        }
+    }
 }
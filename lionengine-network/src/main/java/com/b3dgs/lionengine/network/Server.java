@@ -47,6 +47,15 @@ interface Server extends Networker<ClientListener>
      */
     void removeClient(Byte clientId);
 
+    /**
+     * Get the secret sent to a client on connection, used to authenticate it on another transport.
+     * 
+     * @param clientId The client id.
+     * @return The client secret.
+     * @throws LionEngineException If unknown client.
+     */
+    int getSecret(byte clientId);
+
     /**
      * Get the number of client.
      * 
@@ -17,12 +17,12 @@
  */
 package com.b3dgs.lionengine.network;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -34,13 +34,17 @@ import com.b3dgs.lionengine.Timing;
 import com.b3dgs.lionengine.Verbose;
 import com.b3dgs.lionengine.network.message.NetworkMessage;
 import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
-import com.b3dgs.lionengine.util.UtilStream;
 
 /**
  * Server implementation.
  */
 final class ServerImpl extends NetworkModel<ClientListener> implements Server
 {
+    /** Unknown client error. */
+    private static final String ERROR_CLIENT = "Unknown client: ";
+    /** Invalid message size error. */
+    private static final String ERROR_SIZE = "Invalid message size: ";
+
     /**
      * Send the id and the name to the client.
      * 
@@ -78,6 +82,8 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
     private final Collection<ClientSocket> toRemove;
     /** Average bandwidth. */
     private final Timing bandwidthTimer;
+    /** Clients secret generator. */
+    private final SecureRandom random;
     /** Connection listener. */
     private ClientConnecter clientConnectionListener;
     /** Server socket. */
@@ -110,6 +116,7 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
         clients = new HashMap<Byte, ClientSocket>(1);
         toRemove = new HashSet<ClientSocket>(1);
         bandwidthTimer = new Timing();
+        random = new SecureRandom();
         willRemove = false;
         clientsNumber = 0;
         messageOfTheDay = null;
@@ -200,23 +207,20 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
      * @param expected The expected client state.
      * @throws IOException If error.
      */
-    private void receiveConnecting(ClientSocket client, DataInputStream buffer, byte from, StateConnection expected)
+    private void receiveConnecting(ClientSocket client, ByteBuffer buffer, byte from, StateConnection expected)
             throws IOException
     {
         if (ServerImpl.checkValidity(client, from, expected))
         {
             // Receive the name
-            final byte[] name = new byte[buffer.readByte()];
-            if (buffer.read(name) == -1)
-            {
-                throw new IOException("Unable to read client name !");
-            }
-            client.setName(new String(name, NetworkMessage.CHARSET));
+            client.setName(readString(buffer));
 
             // Send new state
             client.setState(StateConnection.CONNECTED);
+            client.setSecret(random.nextInt());
             client.getOut().writeByte(NetworkMessageSystemId.CONNECTED);
             client.getOut().writeByte(client.getId());
+            client.getOut().writeInt(client.getSecret());
             client.getOut().writeByte(clientsNumber - 1);
 
             // Send the list of other clients
@@ -315,18 +319,13 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
      * @param expected The expected client state.
      * @throws IOException If error.
      */
-    private void receiveRenamed(ClientSocket client, DataInputStream buffer, byte from, StateConnection expected)
+    private void receiveRenamed(ClientSocket client, ByteBuffer buffer, byte from, StateConnection expected)
             throws IOException
     {
         if (ServerImpl.checkValidity(client, from, expected))
         {
             // Receive the name
-            final byte[] name = new byte[buffer.readByte()];
-            if (buffer.read(name) == -1)
-            {
-                throw new IOException("Unable to read client name on rename !");
-            }
-            final String newName = new String(name, NetworkMessage.CHARSET);
+            final String newName = readString(buffer);
             Verbose.info("Server: ", client.getName(), " rennamed to ", newName);
             client.setName(newName);
 
@@ -354,22 +353,26 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
      * @param expected The expected client state.
      * @throws IOException If error.
      */
-    private void receiveMessage(ClientSocket client, DataInputStream buffer, byte from, StateConnection expected)
+    private void receiveMessage(ClientSocket client, ByteBuffer buffer, byte from, StateConnection expected)
             throws IOException
     {
         if (ServerImpl.checkValidity(client, from, expected))
         {
-            final byte dest = buffer.readByte();
-            final byte type = buffer.readByte();
-            final int size = buffer.readInt();
+            final byte dest = buffer.get();
+            final byte type = buffer.get();
+            final int size = buffer.getInt();
+            if (size < 0 || size > buffer.remaining())
+            {
+                throw new IOException(ERROR_SIZE + size);
+            }
             if (size > 0)
             {
-                final byte[] clientData = new byte[size];
-                if (buffer.read(clientData) != -1)
-                {
-                    final DataInputStream clientBuffer = new DataInputStream(new ByteArrayInputStream(clientData));
-                    decodeMessage(type, from, dest, clientBuffer);
-                }
+                final int start = buffer.position();
+                final int limit = buffer.limit();
+                buffer.limit(start + size);
+                decodeMessage(type, from, dest, buffer);
+                buffer.limit(limit);
+                buffer.position(start + size);
             }
             final int headerSize = 4;
             bandwidth += headerSize + size;
@@ -385,7 +388,7 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
      * @param from The source ID.
      * @throws IOException If error when reading.
      */
-    private void updateMessage(ClientSocket client, DataInputStream buffer, byte messageSystemId, byte from)
+    private void updateMessage(ClientSocket client, ByteBuffer buffer, byte messageSystemId, byte from)
             throws IOException
     {
         switch (messageSystemId)
@@ -452,6 +455,17 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
         removeClient(clients.get(clientId));
     }
 
+    @Override
+    public int getSecret(byte clientId)
+    {
+        final ClientSocket client = clients.get(Byte.valueOf(clientId));
+        if (client == null)
+        {
+            throw new LionEngineException(ERROR_CLIENT, String.valueOf(clientId));
+        }
+        return client.getSecret();
+    }
+
     @Override
     public int getNumberOfClients()
     {
@@ -528,16 +542,20 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
     @Override
     public void receiveMessages()
     {
-        messagesIn.clear();
+        clearMessages();
         for (final ClientSocket client : clients.values())
         {
             // Get client data from socket
-            final byte[] data = client.receiveMessages();
-            final DataInputStream buffer = new DataInputStream(new ByteArrayInputStream(data));
+            final ByteBuffer buffer = getInput(client.available());
+            if (!buffer.hasRemaining())
+            {
+                continue;
+            }
             try
             {
-                final byte messageSystemId = buffer.readByte();
-                final byte from = buffer.readByte();
+                client.receiveMessages(buffer);
+                final byte messageSystemId = buffer.get();
+                final byte from = buffer.get();
 
                 // Check id
                 if (from != client.getId())
@@ -551,9 +569,9 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
             {
                 Verbose.exception(exception, "Error on updating server");
             }
-            finally
+            catch (final BufferUnderflowException exception)
             {
-                UtilStream.safeClose(buffer);
+                Verbose.exception(exception, "Error on updating server");
             }
         }
         // Remove deleted clients
@@ -575,29 +593,38 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
         messagesOut.addAll(messagesIn);
         for (final NetworkMessage message : messagesOut)
         {
+            final ByteBuffer encoded;
+            try
+            {
+                encoded = encodeMessage(message);
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception,
+                                  "Unable to encode the message of type: ",
+                                  String.valueOf(message.getType()));
+                continue;
+            }
             for (final ClientSocket client : clients.values())
             {
                 if (!(message.getClientDestId() == client.getId() || message.getClientDestId() == -1))
                 {
                     continue;
                 }
-                ByteArrayOutputStream encode = null;
                 try
                 {
-                    encode = message.encode();
-                    final byte[] encoded = encode.toByteArray();
                     // Message header
                     client.getOut().writeByte(NetworkMessageSystemId.USER_MESSAGE);
                     client.getOut().writeByte(message.getClientId());
                     client.getOut().writeByte(message.getClientDestId());
                     client.getOut().writeByte(message.getType());
                     // Message content
-                    client.getOut().writeInt(encoded.length);
-                    client.getOut().write(encoded);
+                    client.getOut().writeInt(encoded.limit());
+                    client.getOut().write(encoded.array(), 0, encoded.limit());
                     client.getOut().flush();
 
                     final int headerSize = 4;
-                    bandwidth += headerSize + encoded.length;
+                    bandwidth += headerSize + encoded.limit();
                 }
                 catch (final IOException exception)
                 {
@@ -605,10 +632,6 @@ final class ServerImpl extends NetworkModel<ClientListener> implements Server
                                       "Unable to send the messages for client: ",
                                       String.valueOf(client.getId()));
                 }
-                finally
-                {
-                    UtilStream.safeClose(encode);
-                }
             }
         }
         final long bandwidthMilli = 1000L;
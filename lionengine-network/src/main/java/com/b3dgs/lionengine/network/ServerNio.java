@@ -0,0 +1,903 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Timing;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
+
+/**
+ * Non blocking server implementation, compatible with {@link ClientImpl}.
+ * <p>
+ * A single I/O thread accepts connections and reads and writes all clients {@link ClientChannel} with a selector,
+ * instead of a thread and blocking streams per client. Received messages are handed to the game thread through lock
+ * free queues, and processed on {@link #receiveMessages()}, so that listeners and decoder are called on the game
+ * thread as with {@link ServerImpl}.
+ * </p>
+ */
+final class ServerNio extends NetworkModel<ClientListener> implements Server
+{
+    /** Maximum client id. */
+    private static final int MAX_ID = 127;
+    /** User message header size. */
+    private static final int USER_HEADER = 8;
+    /** Server creation error. */
+    private static final String ERROR_CREATE = "Cannot create the server !";
+    /** Unknown client error. */
+    private static final String ERROR_CLIENT = "Unknown client: ";
+
+    /**
+     * Check if the client is in a valid state.
+     * 
+     * @param client The client to test.
+     * @param from The client id.
+     * @param expected The expected client state.
+     * @return <code>true</code> if valid, <code>false</code> else.
+     */
+    private static boolean checkValidity(ClientChannel client, byte from, StateConnection expected)
+    {
+        return from >= 0 && client.getState() == expected;
+    }
+
+    /** Client list, used by game thread only. */
+    private final Map<Byte, ClientChannel> clients = new HashMap<Byte, ClientChannel>(1);
+    /** Remove list. */
+    private final Collection<ClientChannel> toRemove = new ArrayList<ClientChannel>(1);
+    /** Accepted clients, from I/O thread to game thread. */
+    private final Queue<ClientChannel> accepted = new ConcurrentLinkedQueue<ClientChannel>();
+    /** Clients with messages to write, from game thread to I/O thread. */
+    private final Queue<ClientChannel> toWrite = new ConcurrentLinkedQueue<ClientChannel>();
+    /** I/O thread wake up requested flag, cleared by I/O thread before writing. */
+    private final AtomicBoolean awaken = new AtomicBoolean();
+    /** Message being built. */
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    /** Message writer. */
+    private final DataOutputStream out = new DataOutputStream(frame);
+    /** Average bandwidth. */
+    private final Timing bandwidthTimer = new Timing();
+    /** Clients secret generator. */
+    private final SecureRandom random = new SecureRandom();
+    /** I/O thread. */
+    private Dispatcher dispatcher;
+    /** Current port. */
+    private int port;
+    /** Message of the day. */
+    private String messageOfTheDay;
+    /** Number of clients. */
+    private int clientsNumber;
+    /** Started flag. */
+    private boolean started;
+    /** Last id. */
+    private byte lastId;
+    /** Bandwidth size. */
+    private int bandwidth;
+    /** Bandwidth per second. */
+    private int bandwidthPerSecond;
+
+    /**
+     * Internal constructor.
+     * 
+     * @param decoder The message decoder.
+     */
+    ServerNio(NetworkMessageDecoder decoder)
+    {
+        super(decoder);
+        port = -1;
+    }
+
+    /**
+     * Get the built message and prepare next one.
+     * 
+     * @return The message data.
+     */
+    private byte[] flush()
+    {
+        final byte[] message = frame.toByteArray();
+        frame.reset();
+        return message;
+    }
+
+    /**
+     * Queue message to client.
+     * 
+     * @param client The client to send to.
+     * @param message The message data.
+     */
+    private void send(ClientChannel client, byte[] message)
+    {
+        if (client.send(message))
+        {
+            toWrite.add(client);
+        }
+    }
+
+    /**
+     * Write the id and the name to the message being built.
+     * 
+     * @param id The id to write.
+     * @param name The name to write.
+     * @throws IOException In case of error.
+     */
+    private void writeIdAndName(int id, String name) throws IOException
+    {
+        out.writeByte(id);
+        final byte[] data = name.getBytes(NetworkMessage.CHARSET);
+        out.writeByte(data.length);
+        out.write(data);
+    }
+
+    /**
+     * Send client id and name to other connected clients.
+     * 
+     * @param client The client reference.
+     * @param messageSystemId The message system ID.
+     * @throws IOException In case of error.
+     */
+    private void notifyOthers(ClientChannel client, byte messageSystemId) throws IOException
+    {
+        out.writeByte(messageSystemId);
+        writeIdAndName(client.getId(), client.getName());
+        final byte[] message = flush();
+        for (final ClientChannel other : clients.values())
+        {
+            if (other != client && other.getState() == StateConnection.CONNECTED)
+            {
+                send(other, message);
+            }
+        }
+    }
+
+    /**
+     * Add an accepted client and send its id.
+     * 
+     * @param client The accepted client.
+     */
+    private void accept(ClientChannel client)
+    {
+        int secure = 0;
+        while (clients.containsKey(Byte.valueOf(lastId)) && secure <= MAX_ID)
+        {
+            lastId++;
+            if (lastId < 0)
+            {
+                lastId = 0;
+            }
+            secure++;
+        }
+        if (secure > MAX_ID)
+        {
+            Verbose.warning(Server.class, "accept", "Error on adding client: no more id available");
+            client.close();
+            toWrite.add(client);
+            return;
+        }
+        client.setId(lastId);
+        client.setState(StateConnection.CONNECTING);
+        frame.write(NetworkMessageSystemId.CONNECTING);
+        frame.write(lastId);
+        send(client, flush());
+
+        clients.put(Byte.valueOf(lastId), client);
+        clientsNumber++;
+    }
+
+    /**
+     * Remove a client from the server.
+     * 
+     * @param client The client to remove.
+     */
+    private void removeClient(ClientChannel client)
+    {
+        if (client != null && !client.isClosing())
+        {
+            client.close();
+            toWrite.add(client);
+            toRemove.add(client);
+            clientsNumber--;
+            Verbose.info("Server: ", client.getName(), " disconnected");
+        }
+    }
+
+    /**
+     * Remove a client which closed its connection.
+     * 
+     * @param client The closed client.
+     * @throws IOException If error.
+     */
+    private void drop(ClientChannel client) throws IOException
+    {
+        if (client.getState() == StateConnection.CONNECTED)
+        {
+            client.setState(StateConnection.DISCONNECTED);
+            for (final ClientListener listener : listeners)
+            {
+                listener.notifyClientDisconnected(Byte.valueOf(client.getId()), client.getName());
+            }
+            notifyOthers(client, NetworkMessageSystemId.OTHER_CLIENT_DISCONNECTED);
+        }
+        removeClient(client);
+    }
+
+    /**
+     * Handle a received message.
+     * 
+     * @param client The client source.
+     * @param buffer The message data, from position to limit.
+     */
+    private void receive(ClientChannel client, ByteBuffer buffer)
+    {
+        try
+        {
+            final byte messageSystemId = buffer.get();
+            final byte from = buffer.get();
+
+            // Check id
+            if (from == client.getId())
+            {
+                updateMessage(client, buffer, messageSystemId, from);
+            }
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception, "Error on updating server");
+        }
+        catch (final BufferUnderflowException exception)
+        {
+            Verbose.exception(exception, "Error on updating server");
+        }
+    }
+
+    /**
+     * Update the receive connecting state.
+     * 
+     * @param client The current client.
+     * @param buffer The data buffer.
+     * @param from The id from.
+     * @param expected The expected client state.
+     * @throws IOException If error.
+     */
+    private void receiveConnecting(ClientChannel client, ByteBuffer buffer, byte from, StateConnection expected)
+            throws IOException
+    {
+        if (checkValidity(client, from, expected))
+        {
+            // Receive the name
+            client.setName(readString(buffer));
+
+            // Send new state
+            client.setState(StateConnection.CONNECTED);
+            client.setSecret(random.nextInt());
+            out.writeByte(NetworkMessageSystemId.CONNECTED);
+            out.writeByte(client.getId());
+            out.writeInt(client.getSecret());
+
+            // Send the list of other clients
+            final Collection<ClientChannel> others = new ArrayList<ClientChannel>(clients.size());
+            for (final ClientChannel other : clients.values())
+            {
+                if (other != client && other.getState() == StateConnection.CONNECTED)
+                {
+                    others.add(other);
+                }
+            }
+            out.writeByte(others.size());
+            for (final ClientChannel other : others)
+            {
+                writeIdAndName(other.getId(), other.getName());
+            }
+            // Send message of the day if has
+            if (messageOfTheDay != null)
+            {
+                final byte[] motd = messageOfTheDay.getBytes(NetworkMessage.CHARSET);
+                out.writeByte(motd.length);
+                out.write(motd);
+            }
+            send(client, flush());
+        }
+    }
+
+    /**
+     * Update the receive connected state.
+     * 
+     * @param client The current client.
+     * @param from The id from.
+     * @param expected The expected client state.
+     * @throws IOException If error.
+     */
+    private void receiveConnected(ClientChannel client, byte from, StateConnection expected) throws IOException
+    {
+        if (checkValidity(client, from, expected))
+        {
+            // Terminate last connection step and accept it
+            Verbose.info("Server: ", client.getName(), " connected");
+            for (final ClientListener listener : listeners)
+            {
+                listener.notifyClientConnected(Byte.valueOf(client.getId()), client.getName());
+            }
+            notifyOthers(client, NetworkMessageSystemId.OTHER_CLIENT_CONNECTED);
+        }
+    }
+
+    /**
+     * Update the receive disconnected state.
+     * 
+     * @param client The current client.
+     * @param from The id from.
+     * @param expected The expected client state.
+     * @throws IOException If error.
+     */
+    private void receiveDisconnected(ClientChannel client, byte from, StateConnection expected) throws IOException
+    {
+        if (checkValidity(client, from, expected))
+        {
+            drop(client);
+        }
+    }
+
+    /**
+     * Update the receive renamed state.
+     * 
+     * @param client The current client.
+     * @param buffer The data buffer.
+     * @param from The id from.
+     * @param expected The expected client state.
+     * @throws IOException If error.
+     */
+    private void receiveRenamed(ClientChannel client, ByteBuffer buffer, byte from, StateConnection expected)
+            throws IOException
+    {
+        if (checkValidity(client, from, expected))
+        {
+            // Receive the name
+            final String newName = readString(buffer);
+            Verbose.info("Server: ", client.getName(), " rennamed to ", newName);
+            client.setName(newName);
+
+            for (final ClientListener listener : listeners)
+            {
+                listener.notifyClientNameChanged(Byte.valueOf(client.getId()), client.getName());
+            }
+
+            // Notify all clients
+            out.writeByte(NetworkMessageSystemId.OTHER_CLIENT_RENAMED);
+            writeIdAndName(client.getId(), client.getName());
+            final byte[] message = flush();
+            for (final ClientChannel other : clients.values())
+            {
+                if (other.getState() == StateConnection.CONNECTED)
+                {
+                    send(other, message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the receive standard message state.
+     * 
+     * @param client The client to test.
+     * @param buffer The data buffer.
+     * @param from The id from.
+     * @param expected The expected client state.
+     * @throws IOException If error.
+     */
+    private void receiveMessage(ClientChannel client, ByteBuffer buffer, byte from, StateConnection expected)
+            throws IOException
+    {
+        if (checkValidity(client, from, expected))
+        {
+            final byte dest = buffer.get();
+            final byte type = buffer.get();
+            final int size = buffer.getInt();
+            if (size > 0)
+            {
+                decodeMessage(type, from, dest, buffer);
+            }
+            bandwidth += USER_HEADER + size;
+        }
+    }
+
+    /**
+     * Update the message depending of its ID.
+     * 
+     * @param client The client channel.
+     * @param buffer The buffer input.
+     * @param messageSystemId The message system ID.
+     * @param from The source ID.
+     * @throws IOException If error when reading.
+     */
+    private void updateMessage(ClientChannel client, ByteBuffer buffer, byte messageSystemId, byte from)
+            throws IOException
+    {
+        switch (messageSystemId)
+        {
+            case NetworkMessageSystemId.CONNECTING:
+                receiveConnecting(client, buffer, from, StateConnection.CONNECTING);
+                break;
+            case NetworkMessageSystemId.CONNECTED:
+                receiveConnected(client, from, StateConnection.CONNECTED);
+                break;
+            case NetworkMessageSystemId.PING:
+                out.writeByte(NetworkMessageSystemId.PING);
+                send(client, flush());
+                bandwidth += 1;
+                break;
+            case NetworkMessageSystemId.OTHER_CLIENT_DISCONNECTED:
+                receiveDisconnected(client, from, StateConnection.CONNECTED);
+                break;
+            case NetworkMessageSystemId.OTHER_CLIENT_RENAMED:
+                receiveRenamed(client, buffer, from, StateConnection.CONNECTED);
+                break;
+            case NetworkMessageSystemId.USER_MESSAGE:
+                receiveMessage(client, buffer, from, StateConnection.CONNECTED);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Wake up the I/O thread if there are messages to write, and if not already requested since its last write.
+     */
+    private void wakeup()
+    {
+        if (!toWrite.isEmpty() && awaken.compareAndSet(false, true))
+        {
+            dispatcher.wakeup();
+        }
+    }
+
+    /*
+     * Server
+     */
+
+    @Override
+    public void setMessageOfTheDay(String message)
+    {
+        messageOfTheDay = message;
+    }
+
+    @Override
+    public void start(String name, int port)
+    {
+        if (!started)
+        {
+            try
+            {
+                final Selector selector = Selector.open();
+                final ServerSocketChannel channel = ServerSocketChannel.open();
+                channel.configureBlocking(false);
+                channel.socket().bind(new InetSocketAddress(port));
+                channel.register(selector, SelectionKey.OP_ACCEPT);
+                dispatcher = new Dispatcher(selector, channel);
+                dispatcher.start();
+                this.port = port;
+                bandwidthTimer.start();
+                started = true;
+            }
+            catch (final IOException exception)
+            {
+                throw new LionEngineException(exception, ERROR_CREATE);
+            }
+        }
+    }
+
+    @Override
+    public void removeClient(Byte clientId)
+    {
+        removeClient(clients.get(clientId));
+        wakeup();
+    }
+
+    @Override
+    public int getSecret(byte clientId)
+    {
+        final ClientChannel client = clients.get(Byte.valueOf(clientId));
+        if (client == null)
+        {
+            throw new LionEngineException(ERROR_CLIENT, String.valueOf(clientId));
+        }
+        return client.getSecret();
+    }
+
+    @Override
+    public int getNumberOfClients()
+    {
+        return clientsNumber;
+    }
+
+    @Override
+    public int getBandwidth()
+    {
+        return bandwidthPerSecond;
+    }
+
+    @Override
+    public int getPort()
+    {
+        return port;
+    }
+
+    /*
+     * Networker
+     */
+
+    @Override
+    public void disconnect()
+    {
+        if (!started)
+        {
+            return;
+        }
+        receiveMessages();
+
+        // Disconnect all clients
+        for (final ClientChannel client : clients.values())
+        {
+            try
+            {
+                if (client.getState() == StateConnection.CONNECTED)
+                {
+                    notifyOthers(client, NetworkMessageSystemId.OTHER_CLIENT_DISCONNECTED);
+                }
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception);
+            }
+        }
+        final byte[] kicked =
+        {
+            NetworkMessageSystemId.KICKED
+        };
+        for (final ClientChannel client : clients.values())
+        {
+            send(client, kicked);
+            removeClient(client);
+        }
+        toRemove.clear();
+        clients.clear();
+        dispatcher.terminate();
+        started = false;
+    }
+
+    @Override
+    public void receiveMessages()
+    {
+        clearMessages();
+        for (ClientChannel client = accepted.poll(); client != null; client = accepted.poll())
+        {
+            accept(client);
+        }
+        for (final ClientChannel client : clients.values())
+        {
+            for (ByteBuffer data = client.poll(); data != null; data = client.poll())
+            {
+                receive(client, data);
+            }
+            if (client.isClosed())
+            {
+                try
+                {
+                    drop(client);
+                }
+                catch (final IOException exception)
+                {
+                    Verbose.exception(exception, "Error on updating server");
+                }
+            }
+        }
+        // Remove deleted clients
+        for (final ClientChannel client : toRemove)
+        {
+            clients.remove(Byte.valueOf(client.getId()));
+        }
+        toRemove.clear();
+        wakeup();
+    }
+
+    @Override
+    public void sendMessages()
+    {
+        messagesOut.addAll(messagesIn);
+        for (final NetworkMessage message : messagesOut)
+        {
+            try
+            {
+                final ByteBuffer encoded = encodeMessage(message);
+                // Message header
+                out.writeByte(NetworkMessageSystemId.USER_MESSAGE);
+                out.writeByte(message.getClientId());
+                out.writeByte(message.getClientDestId());
+                out.writeByte(message.getType());
+                // Message content
+                out.writeInt(encoded.limit());
+                out.write(encoded.array(), 0, encoded.limit());
+                final byte[] data = flush();
+
+                for (final ClientChannel client : clients.values())
+                {
+                    if (client.getState() == StateConnection.CONNECTED
+                        && (message.getClientDestId() == client.getId() || message.getClientDestId() == -1))
+                    {
+                        send(client, data);
+                        bandwidth += data.length;
+                    }
+                }
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception, "Unable to send the message of type: ", String.valueOf(message.getType()));
+            }
+        }
+        final long bandwidthMilli = 1000L;
+        if (bandwidthTimer.elapsed(bandwidthMilli))
+        {
+            bandwidthPerSecond = bandwidth;
+            bandwidth = 0;
+            bandwidthTimer.restart();
+        }
+        messagesOut.clear();
+        wakeup();
+    }
+
+    /**
+     * I/O thread, accepting clients and reading and writing their channels.
+     */
+    private final class Dispatcher extends Thread
+    {
+        /** Selector. */
+        private final Selector selector;
+        /** Server channel. */
+        private final ServerSocketChannel server;
+        /** Running flag. */
+        private volatile boolean isRunning;
+
+        /**
+         * Internal constructor.
+         * 
+         * @param selector The selector, with server channel registered.
+         * @param server The server channel.
+         */
+        Dispatcher(Selector selector, ServerSocketChannel server)
+        {
+            super("Server Dispatcher");
+            this.selector = selector;
+            this.server = server;
+            setDaemon(true);
+            isRunning = true;
+        }
+
+        /**
+         * Wake up the selector to write queued messages.
+         */
+        void wakeup()
+        {
+            selector.wakeup();
+        }
+
+        /**
+         * Terminate the thread, after a last attempt to write queued messages.
+         */
+        void terminate()
+        {
+            isRunning = false;
+            selector.wakeup();
+            try
+            {
+                join();
+            }
+            catch (final InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                Verbose.exception(exception);
+            }
+        }
+
+        /**
+         * Handle a selected key.
+         * 
+         * @param key The selected key.
+         * @throws IOException If error on server channel.
+         */
+        private void handle(SelectionKey key) throws IOException
+        {
+            if (key.isAcceptable())
+            {
+                final SocketChannel channel = server.accept();
+                if (channel != null)
+                {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    final ClientChannel client = new ClientChannel(channel);
+                    channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, client);
+                    accepted.add(client);
+                }
+                return;
+            }
+            final ClientChannel client = (ClientChannel) key.attachment();
+            try
+            {
+                if (key.isReadable() && !client.read())
+                {
+                    close(key, client);
+                }
+                else if (key.isValid() && key.isWritable())
+                {
+                    write(client);
+                }
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception, "Error on client: ", String.valueOf(client.getId()));
+                close(key, client);
+            }
+        }
+
+        /**
+         * Write client queued messages, and wait for channel to be writable if remaining.
+         * 
+         * @param client The client reference.
+         * @throws IOException If error on writing.
+         */
+        private void write(ClientChannel client) throws IOException
+        {
+            final SelectionKey key = client.getChannel().keyFor(selector);
+            if (key == null || !key.isValid())
+            {
+                return;
+            }
+            if (client.write())
+            {
+                if (client.isClosing())
+                {
+                    close(key, client);
+                }
+                else
+                {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+            else
+            {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        /**
+         * Close client.
+         * 
+         * @param key The client key (can be <code>null</code>).
+         * @param client The client reference.
+         */
+        private void close(SelectionKey key, ClientChannel client)
+        {
+            if (key != null)
+            {
+                key.cancel();
+            }
+            client.terminate();
+        }
+
+        /**
+         * Write queued messages of clients requesting it.
+         */
+        private void writeQueued()
+        {
+            for (ClientChannel client = toWrite.poll(); client != null; client = toWrite.poll())
+            {
+                try
+                {
+                    write(client);
+                }
+                catch (final IOException exception)
+                {
+                    Verbose.exception(exception, "Error on client: ", String.valueOf(client.getId()));
+                    close(client.getChannel().keyFor(selector), client);
+                }
+            }
+        }
+
+        /**
+         * Close all channels and selector.
+         */
+        private void closeAll()
+        {
+            writeQueued();
+            for (final SelectionKey key : selector.keys())
+            {
+                if (key.attachment() instanceof ClientChannel)
+                {
+                    close(key, (ClientChannel) key.attachment());
+                }
+            }
+            try
+            {
+                server.close();
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception, "Error on closing server");
+            }
+            try
+            {
+                selector.close();
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception, "Error on closing selector");
+            }
+        }
+
+        /*
+         * Thread
+         */
+
+        @Override
+        public void run()
+        {
+            while (isRunning)
+            {
+                try
+                {
+                    selector.select();
+                    awaken.set(false);
+                    writeQueued();
+                    final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext())
+                    {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid())
+                        {
+                            handle(key);
+                        }
+                    }
+                }
+                catch (final IOException exception)
+                {
+                    Verbose.exception(exception);
+                    isRunning = false;
+                }
+            }
+            closeAll();
+        }
+    }
+}
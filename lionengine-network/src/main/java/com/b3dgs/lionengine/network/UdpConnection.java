@@ -0,0 +1,555 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remote end point of a {@link UdpTransport}, with its packets and messages sequences.
+ * <p>
+ * Each packet has a sequence number, and acknowledges the last received remote packet sequence and the previous
+ * {@link #ACK_BITS} ones with a bit field. Reliable messages are kept until a packet containing them is acknowledged,
+ * and sent again in a new packet after a delay depending of the round trip time.
+ * </p>
+ */
+final class UdpConnection
+{
+    /** Sequences mask (sequences are 16 bits and wrap). */
+    static final int MASK = 0xFFFF;
+    /** Acknowledged packets bit field size. */
+    static final int ACK_BITS = 32;
+    /** Maximum reliable messages received in advance. */
+    static final int EARLY_MAX = 1024;
+    /** Half of sequences range. */
+    private static final int HALF = 0x8000;
+    /** Number of message types. */
+    private static final int TYPES = 256;
+    /** Sent packets history used for round trip time. */
+    private static final int HISTORY = 256;
+    /** Initial round trip time in milli second. */
+    private static final double DEFAULT_RTT = 100.0;
+    /** Round trip time smoothing factor. */
+    private static final double RTT_SMOOTH = 0.1;
+    /** Minimum delay before sending again a reliable message in milli second. */
+    private static final long RESEND_MIN = 30L;
+
+    /**
+     * Check if sequence is more recent than the other one, by handling wrapping.
+     * 
+     * @param sequence The sequence to test.
+     * @param other The sequence to compare to.
+     * @return <code>true</code> if more recent, <code>false</code> if same or older.
+     */
+    static boolean isNewer(int sequence, int other)
+    {
+        final int diff = sequence - other & MASK;
+        return diff != 0 && diff < HALF;
+    }
+
+    /**
+     * Check if packet is acknowledged.
+     * 
+     * @param packet The packet sequence.
+     * @param ack The last acknowledged packet sequence.
+     * @param bits The previous packets acknowledged bit field.
+     * @return <code>true</code> if acknowledged, <code>false</code> else.
+     */
+    private static boolean isAcked(int packet, int ack, int bits)
+    {
+        final int diff = ack - packet & MASK;
+        return diff == 0 || diff <= ACK_BITS && (bits >>> diff - 1 & 1) != 0;
+    }
+
+    /** Reliable messages waiting for acknowledge, in sending order. */
+    private final List<Outgoing> pending = new ArrayList<Outgoing>();
+    /** Not reliable messages to send. */
+    private final List<Outgoing> outgoing = new ArrayList<Outgoing>();
+    /** Reliable messages received in advance, by sequence. */
+    private final Map<Integer, byte[]> early = new HashMap<Integer, byte[]>();
+    /** Sent packets sequence by history index. */
+    private final int[] sentSequences = new int[HISTORY];
+    /** Sent packets time by history index. */
+    private final long[] sentTimes = new long[HISTORY];
+    /** Next sequenced message sequence by type. */
+    private final int[] sequencedOut = new int[TYPES];
+    /** Last sequenced message sequence received by type (-1 if none). */
+    private final int[] sequencedIn = new int[TYPES];
+    /** Remote address. */
+    private final SocketAddress address;
+    /** Client id (-1 if not yet accepted). */
+    private byte id;
+    /** Handshake done flag. */
+    private boolean connected;
+    /** Next packet sequence. */
+    private int localSequence;
+    /** Last received packet sequence (-1 if none). */
+    private int remoteSequence;
+    /** Previously received packets bit field. */
+    private int ackBits;
+    /** Received packets not yet acknowledged flag. */
+    private boolean ackPending;
+    /** Next reliable message sequence. */
+    private int reliableOut;
+    /** Next expected reliable message sequence. */
+    private int reliableIn;
+    /** Last received packet time. */
+    private long lastReceived;
+    /** Last sent packet time. */
+    private long lastSent;
+    /** Smoothed round trip time in milli second. */
+    private double rtt;
+
+    /**
+     * Internal constructor.
+     * 
+     * @param address The remote address.
+     * @param now The current time in milli second.
+     */
+    UdpConnection(SocketAddress address, long now)
+    {
+        this.address = address;
+        id = -1;
+        remoteSequence = -1;
+        lastReceived = now;
+        lastSent = now;
+        rtt = DEFAULT_RTT;
+        Arrays.fill(sentSequences, -1);
+        Arrays.fill(sequencedIn, -1);
+    }
+
+    /**
+     * Set handshake as done.
+     * 
+     * @param id The client id.
+     */
+    void setConnected(byte id)
+    {
+        this.id = id;
+        connected = true;
+    }
+
+    /**
+     * Queue a message to send.
+     * 
+     * @param reliability The message reliability.
+     * @param type The message type.
+     * @param data The encoded message, not modified until sent.
+     */
+    void queue(Reliability reliability, byte type, byte[] data)
+    {
+        if (Reliability.RELIABLE_ORDERED == reliability)
+        {
+            pending.add(new Outgoing(reliability, reliableOut, data));
+            reliableOut = reliableOut + 1 & MASK;
+        }
+        else if (Reliability.UNRELIABLE_SEQUENCED == reliability)
+        {
+            final int index = type & 0xFF;
+            outgoing.add(new Outgoing(reliability, sequencedOut[index], data));
+            sequencedOut[index] = sequencedOut[index] + 1 & MASK;
+        }
+        else
+        {
+            outgoing.add(new Outgoing(reliability, 0, data));
+        }
+    }
+
+    /**
+     * Start a new packet.
+     * 
+     * @param now The current time in milli second.
+     * @return The packet sequence.
+     */
+    int nextPacket(long now)
+    {
+        final int sequence = localSequence;
+        final int index = sequence % HISTORY;
+        sentSequences[index] = sequence;
+        sentTimes[index] = now;
+        localSequence = localSequence + 1 & MASK;
+        lastSent = now;
+        ackPending = false;
+        return sequence;
+    }
+
+    /**
+     * Update received packets and handle remote acknowledges.
+     * 
+     * @param sequence The received packet sequence.
+     * @param ack The last packet sequence acknowledged by remote.
+     * @param bits The previous packets acknowledged by remote.
+     * @param now The current time in milli second.
+     * @return <code>true</code> if packet is new, <code>false</code> if duplicated or too old.
+     */
+    boolean receivePacket(int sequence, int ack, int bits, long now)
+    {
+        lastReceived = now;
+        if (remoteSequence < 0 || isNewer(sequence, remoteSequence))
+        {
+            if (remoteSequence >= 0)
+            {
+                final int shift = sequence - remoteSequence & MASK;
+                if (shift < ACK_BITS)
+                {
+                    ackBits = ackBits << shift | 1 << shift - 1;
+                }
+                else if (shift == ACK_BITS)
+                {
+                    ackBits = 1 << ACK_BITS - 1;
+                }
+                else
+                {
+                    ackBits = 0;
+                }
+            }
+            remoteSequence = sequence;
+        }
+        else
+        {
+            final int diff = remoteSequence - sequence & MASK;
+            if (diff == 0 || diff > ACK_BITS || (ackBits >>> diff - 1 & 1) != 0)
+            {
+                return false;
+            }
+            ackBits |= 1 << diff - 1;
+        }
+        ackPending = true;
+        acknowledge(ack, bits, now);
+        return true;
+    }
+
+    /**
+     * Check if sequenced message is more recent than the last received of its type, and keep it as last if so.
+     * 
+     * @param type The message type.
+     * @param sequence The message sequence.
+     * @return <code>true</code> if more recent, <code>false</code> if it has to be dropped.
+     */
+    boolean acceptSequenced(byte type, int sequence)
+    {
+        final int index = type & 0xFF;
+        if (sequencedIn[index] < 0 || isNewer(sequence, sequencedIn[index]))
+        {
+            sequencedIn[index] = sequence;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the reliable message order relatively to the next expected one.
+     * 
+     * @param sequence The message sequence.
+     * @return <code>0</code> if expected, positive if received in advance, negative if already received.
+     */
+    int getReliableOrder(int sequence)
+    {
+        if (sequence == reliableIn)
+        {
+            return 0;
+        }
+        if (isNewer(sequence, reliableIn))
+        {
+            return 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Notify that expected reliable message has been delivered.
+     */
+    void delivered()
+    {
+        reliableIn = reliableIn + 1 & MASK;
+    }
+
+    /**
+     * Keep reliable message received in advance until the previous ones are delivered.
+     * 
+     * @param sequence The message sequence.
+     * @param data The message data copy.
+     * @return <code>true</code> if stored, <code>false</code> if {@link #EARLY_MAX} messages are already waiting.
+     */
+    boolean store(int sequence, byte[] data)
+    {
+        final Integer key = Integer.valueOf(sequence);
+        if (early.size() >= EARLY_MAX && !early.containsKey(key))
+        {
+            return false;
+        }
+        early.put(key, data);
+        return true;
+    }
+
+    /**
+     * Get the next expected reliable message if it has been received in advance, and set it as delivered.
+     * 
+     * @return The message data, <code>null</code> if not received.
+     */
+    byte[] pollEarly()
+    {
+        if (early.isEmpty())
+        {
+            return null;
+        }
+        final byte[] data = early.remove(Integer.valueOf(reliableIn));
+        if (data != null)
+        {
+            delivered();
+        }
+        return data;
+    }
+
+    /**
+     * Get the reliable messages waiting for acknowledge.
+     * 
+     * @return The pending messages.
+     */
+    List<Outgoing> getPending()
+    {
+        return pending;
+    }
+
+    /**
+     * Get the not reliable messages to send.
+     * 
+     * @return The messages, to be cleared once sent.
+     */
+    List<Outgoing> getOutgoing()
+    {
+        return outgoing;
+    }
+
+    /**
+     * Get the delay before sending again a not acknowledged reliable message.
+     * 
+     * @return The delay in milli second.
+     */
+    long getResendDelay()
+    {
+        return Math.max(RESEND_MIN, (long) (rtt * 2.0));
+    }
+
+    /**
+     * Get the remote address.
+     * 
+     * @return The remote address.
+     */
+    SocketAddress getAddress()
+    {
+        return address;
+    }
+
+    /**
+     * Get the client id.
+     * 
+     * @return The client id (-1 if not yet accepted).
+     */
+    byte getId()
+    {
+        return id;
+    }
+
+    /**
+     * Check if handshake is done.
+     * 
+     * @return <code>true</code> if connected, <code>false</code> else.
+     */
+    boolean isConnected()
+    {
+        return connected;
+    }
+
+    /**
+     * Get the last received packet sequence.
+     * 
+     * @return The last received packet sequence (-1 if none).
+     */
+    int getRemoteSequence()
+    {
+        return remoteSequence;
+    }
+
+    /**
+     * Get the previously received packets bit field.
+     * 
+     * @return The acknowledge bit field.
+     */
+    int getAckBits()
+    {
+        return ackBits;
+    }
+
+    /**
+     * Check if received packets have to be acknowledged.
+     * 
+     * @return <code>true</code> if acknowledge pending, <code>false</code> else.
+     */
+    boolean isAckPending()
+    {
+        return ackPending;
+    }
+
+    /**
+     * Get the last received packet time.
+     * 
+     * @return The time in milli second.
+     */
+    long getLastReceived()
+    {
+        return lastReceived;
+    }
+
+    /**
+     * Get the last sent packet time.
+     * 
+     * @return The time in milli second.
+     */
+    long getLastSent()
+    {
+        return lastSent;
+    }
+
+    /**
+     * Get the round trip time.
+     * 
+     * @return The smoothed round trip time in milli second.
+     */
+    int getPing()
+    {
+        return (int) rtt;
+    }
+
+    /**
+     * Remove acknowledged reliable messages and update round trip time.
+     * 
+     * @param ack The last packet sequence acknowledged by remote.
+     * @param bits The previous packets acknowledged by remote.
+     * @param now The current time in milli second.
+     */
+    private void acknowledge(int ack, int bits, long now)
+    {
+        final int index = ack % HISTORY;
+        if (sentSequences[index] == ack)
+        {
+            sentSequences[index] = -1;
+            rtt += (now - sentTimes[index] - rtt) * RTT_SMOOTH;
+        }
+        final Iterator<Outgoing> iterator = pending.iterator();
+        while (iterator.hasNext())
+        {
+            final Outgoing message = iterator.next();
+            if (message.packet >= 0 && isAcked(message.packet, ack, bits))
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Message to send.
+     */
+    static final class Outgoing
+    {
+        /** Message reliability. */
+        private final Reliability reliability;
+        /** Message sequence. */
+        private final int sequence;
+        /** Encoded message. */
+        private final byte[] data;
+        /** Last packet containing the message (-1 if not sent). */
+        private int packet;
+        /** Last sent time. */
+        private long time;
+
+        /**
+         * Create message.
+         * 
+         * @param reliability The message reliability.
+         * @param sequence The message sequence.
+         * @param data The encoded message.
+         */
+        Outgoing(Reliability reliability, int sequence, byte[] data)
+        {
+            this.reliability = reliability;
+            this.sequence = sequence;
+            this.data = data;
+            packet = -1;
+        }
+
+        /**
+         * Check if message has to be sent.
+         * 
+         * @param now The current time in milli second.
+         * @param delay The delay before sending again.
+         * @return <code>true</code> if never sent or not acknowledged since delay, <code>false</code> else.
+         */
+        boolean isDue(long now, long delay)
+        {
+            return packet < 0 || now - time >= delay;
+        }
+
+        /**
+         * Set the packet containing the message.
+         * 
+         * @param packet The packet sequence.
+         * @param time The current time in milli second.
+         */
+        void setSent(int packet, long time)
+        {
+            this.packet = packet;
+            this.time = time;
+        }
+
+        /**
+         * Get the message reliability.
+         * 
+         * @return The message reliability.
+         */
+        Reliability getReliability()
+        {
+            return reliability;
+        }
+
+        /**
+         * Get the message sequence.
+         * 
+         * @return The message sequence.
+         */
+        int getSequence()
+        {
+            return sequence;
+        }
+
+        /**
+         * Get the encoded message.
+         * 
+         * @return The encoded message.
+         */
+        byte[] getData()
+        {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,917 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Timing;
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
+
+/**
+ * Datagram transport, used beside the stream connection of a {@link NetworkedWorld} for the message types which
+ * {@link Reliability} has been set with {@link #setReliability(byte, Reliability)}.
+ * <p>
+ * The transport is either started as server with {@link #start(int)}, or connected to a server with
+ * {@link #connect(String, int, byte, int)}, with the id and the secret given by the stream connection handshake.
+ * Server only accepts a client id allowed with {@link #allow(byte, int)} and requested with its secret, and not
+ * already bound to another address: other requests are rejected. Connection is requested until accepted, and closed
+ * if nothing is received during {@link #TIMEOUT}. As with {@link ServerImpl}, server relays received messages to their
+ * destination clients.
+ * </p>
+ * <p>
+ * Packets are sent on {@link #sendMessages()}, at most one per connection unless messages do not fit in
+ * {@link #PACKET_SIZE}, and contain the acknowledges of the received packets. A message must fit in a single packet.
+ * Packet loss and latency can be simulated with {@link #setSimulation(double, int)} to test on loopback.
+ * </p>
+ * <p>
+ * Packet format:
+ * </p>
+ * 
+ * <pre>
+ * <code>(byte)</code> kind: connect, accept, data, disconnect
+ * connect: <code>(integer)</code> protocol, <code>(byte)</code> client id, <code>(integer)</code> client secret
+ * accept: <code>(byte)</code> client id
+ * data: <code>(short)</code> sequence, <code>(short)</code> last received sequence, <code>(integer)</code> previous
+ *       received bit field, then messages:
+ *   <code>(byte)</code> reliability
+ *   <code>(short)</code> message sequence
+ *   <code>(short)</code> message size
+ *   message data as written by {@link NetworkMessage#write(ByteBuffer)}
+ * </pre>
+ */
+public final class UdpTransport extends NetworkModel<ClientListener>
+{
+    /** Maximum packet size, below common path MTU. */
+    public static final int PACKET_SIZE = 1200;
+    /** Connection timeout in milli second. */
+    public static final long TIMEOUT = 5000L;
+    /** Protocol identifier. */
+    private static final int PROTOCOL = 0x4C455544;
+    /** Connect packet kind. */
+    private static final byte CONNECT = 1;
+    /** Accept packet kind. */
+    private static final byte ACCEPT = 2;
+    /** Data packet kind. */
+    private static final byte DATA = 3;
+    /** Disconnect packet kind. */
+    private static final byte DISCONNECT = 4;
+    /** Data packet header size. */
+    private static final int DATA_HEADER = 9;
+    /** Message header size. */
+    private static final int MESSAGE_HEADER = 5;
+    /** Maximum message size. */
+    private static final int MESSAGE_MAX = PACKET_SIZE - DATA_HEADER - MESSAGE_HEADER;
+    /** User message header size (type, from, dest). */
+    private static final int USER_HEADER = 3;
+    /** Connect request delay in milli second. */
+    private static final long CONNECT_DELAY = 200L;
+    /** Empty packet delay when nothing to send, to keep connection alive. */
+    private static final long KEEP_ALIVE = 500L;
+    /** Nano second in milli second. */
+    private static final long NANO_MILLI = 1000000L;
+    /** Reliability by ordinal. */
+    private static final Reliability[] RELIABILITIES = Reliability.values();
+    /** Transport already opened error. */
+    private static final String ERROR_OPENED = "Transport already opened !";
+    /** Transport opening error. */
+    private static final String ERROR_OPEN = "Cannot open the transport !";
+    /** Message too big error. */
+    private static final String ERROR_SIZE = "Message too big for a packet, dropped: ";
+    /** Invalid client id error. */
+    private static final String ERROR_ID = "Invalid client id: ";
+    /** Connection rejected error. */
+    private static final String ERROR_REJECTED = "Connection rejected: ";
+    /** Too many reliable messages received in advance error. */
+    private static final String ERROR_EARLY = "Too many messages received in advance, disconnected: ";
+
+    /**
+     * Get the current time.
+     * 
+     * @return The current time in milli second.
+     */
+    private static long now()
+    {
+        return System.nanoTime() / NANO_MILLI;
+    }
+
+    /** Connections by remote address. */
+    private final Map<SocketAddress, UdpConnection> connections = new HashMap<SocketAddress, UdpConnection>();
+    /** Remove list. */
+    private final Collection<UdpConnection> toRemove = new ArrayList<UdpConnection>(1);
+    /** Messages ready to be sent to a connection. */
+    private final List<UdpConnection.Outgoing> ready = new ArrayList<UdpConnection.Outgoing>();
+    /** Delayed packets when latency is simulated. */
+    private final List<Delayed> delayed = new ArrayList<Delayed>();
+    /** Allowed client secret by id on server side. */
+    private final Map<Byte, Integer> secrets = new HashMap<Byte, Integer>();
+    /** Reliability by message type (<code>null</code> if not routed). */
+    private final Reliability[] reliabilities = new Reliability[256];
+    /** Packet being written. */
+    private final ByteBuffer packet = ByteBuffer.allocate(PACKET_SIZE);
+    /** Packet being read. */
+    private final ByteBuffer datagram = ByteBuffer.allocate(PACKET_SIZE * 2);
+    /** Simulation random. */
+    private final Random random = new Random();
+    /** Average bandwidth. */
+    private final Timing bandwidthTimer = new Timing();
+    /** Datagram channel (<code>null</code> if not opened). */
+    private DatagramChannel channel;
+    /** Server connection on client side (<code>null</code> if server). */
+    private UdpConnection server;
+    /** Requested id on client side. */
+    private byte requestedId;
+    /** Client secret on client side. */
+    private int secret;
+    /** Last connect request time. */
+    private long lastConnect;
+    /** Simulated packet loss ratio. */
+    private double loss;
+    /** Simulated latency in milli second. */
+    private int latency;
+    /** Bandwidth size. */
+    private int bandwidth;
+    /** Bandwidth per second. */
+    private int bandwidthPerSecond;
+
+    /**
+     * Create transport.
+     * 
+     * @param decoder The message decoder.
+     */
+    public UdpTransport(NetworkMessageDecoder decoder)
+    {
+        super(decoder);
+    }
+
+    /**
+     * Start as server.
+     * 
+     * @param port The port number.
+     * @throws LionEngineException If already opened or unable to bind port.
+     */
+    public void start(int port)
+    {
+        open(new InetSocketAddress(port), null);
+        bandwidthTimer.start();
+    }
+
+    /**
+     * Connect to a server. Connection is requested on each {@link #receiveMessages()} until accepted, and closed if
+     * rejected.
+     * 
+     * @param ip The server ip.
+     * @param port The server port.
+     * @param id The client id given by the stream connection.
+     * @param secret The client secret given by the stream connection.
+     * @throws LionEngineException If invalid id, already opened or unable to open.
+     */
+    public void connect(String ip, int port, byte id, int secret)
+    {
+        checkId(id);
+
+        final InetSocketAddress address = new InetSocketAddress(ip, port);
+        open(new InetSocketAddress(0), address);
+        server = new UdpConnection(address, now());
+        connections.put(address, server);
+        requestedId = id;
+        this.secret = secret;
+        lastConnect = now() - CONNECT_DELAY;
+        bandwidthTimer.start();
+    }
+
+    /**
+     * Allow a client to connect on server side, usually when connected to the stream connection.
+     * 
+     * @param id The client id.
+     * @param secret The client secret, given to the client by the stream connection.
+     * @throws LionEngineException If invalid id.
+     */
+    public void allow(byte id, int secret)
+    {
+        checkId(id);
+
+        secrets.put(Byte.valueOf(id), Integer.valueOf(secret));
+    }
+
+    /**
+     * Revoke a client on server side, usually when disconnected from the stream connection. Its connection is closed.
+     * 
+     * @param id The client id.
+     */
+    public void revoke(byte id)
+    {
+        secrets.remove(Byte.valueOf(id));
+        for (final UdpConnection connection : connections.values())
+        {
+            if (connection.getId() == id)
+            {
+                toRemove.add(connection);
+            }
+        }
+        for (final UdpConnection connection : toRemove)
+        {
+            remove(connection);
+        }
+        toRemove.clear();
+    }
+
+    /**
+     * Route the message type with this transport.
+     * 
+     * @param type The message type.
+     * @param reliability The reliability used for this type (<code>null</code> to not route it).
+     */
+    public void setReliability(byte type, Reliability reliability)
+    {
+        reliabilities[type & 0xFF] = reliability;
+    }
+
+    /**
+     * Check if message type is routed with this transport.
+     * 
+     * @param type The message type.
+     * @return <code>true</code> if routed, <code>false</code> else.
+     */
+    public boolean isRouted(byte type)
+    {
+        return reliabilities[type & 0xFF] != null;
+    }
+
+    /**
+     * Simulate packet loss and latency on sending, for testing purpose.
+     * 
+     * @param loss The packet loss ratio, between 0.0 and 1.0.
+     * @param latency The added latency in milli second.
+     * @throws LionEngineException If invalid arguments.
+     */
+    public void setSimulation(double loss, int latency)
+    {
+        Check.superiorOrEqual(loss, 0.0);
+        Check.inferiorOrEqual(loss, 1.0);
+        Check.superiorOrEqual(latency, 0);
+
+        this.loss = loss;
+        this.latency = latency;
+    }
+
+    /**
+     * Check if connected to server on client side, or started on server side.
+     * 
+     * @return <code>true</code> if connected, <code>false</code> else.
+     */
+    public boolean isConnected()
+    {
+        if (server == null)
+        {
+            return channel != null;
+        }
+        return server.isConnected();
+    }
+
+    /**
+     * Get the client id given by server on client side.
+     * 
+     * @return The client id (-1 if not connected or server).
+     */
+    public byte getId()
+    {
+        if (server == null)
+        {
+            return -1;
+        }
+        return server.getId();
+    }
+
+    /**
+     * Get the round trip time to server on client side.
+     * 
+     * @return The round trip time in milli second (0 if server).
+     */
+    public int getPing()
+    {
+        if (server == null)
+        {
+            return 0;
+        }
+        return server.getPing();
+    }
+
+    /**
+     * Get the connected clients number on server side.
+     * 
+     * @return The clients number.
+     */
+    public int getNumberOfClients()
+    {
+        if (server != null)
+        {
+            return 0;
+        }
+        return connections.size();
+    }
+
+    /**
+     * Check the client id range.
+     * 
+     * @param id The client id.
+     * @throws LionEngineException If invalid id.
+     */
+    private static void checkId(byte id)
+    {
+        if (id < 0)
+        {
+            throw new LionEngineException(ERROR_ID, String.valueOf(id));
+        }
+    }
+
+    /**
+     * Open channel.
+     * 
+     * @param local The local address.
+     * @param remote The remote address (<code>null</code> if server).
+     * @throws LionEngineException If already opened or unable to open.
+     */
+    private void open(InetSocketAddress local, InetSocketAddress remote)
+    {
+        if (channel != null)
+        {
+            throw new LionEngineException(ERROR_OPENED);
+        }
+        try
+        {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().bind(local);
+            if (remote != null)
+            {
+                channel.connect(remote);
+            }
+        }
+        catch (final IOException exception)
+        {
+            close();
+            throw new LionEngineException(exception, ERROR_OPEN);
+        }
+    }
+
+    /**
+     * Close channel.
+     */
+    private void close()
+    {
+        if (channel != null)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Send the packet, or simulate its loss or latency.
+     * 
+     * @param address The remote address.
+     * @param now The current time in milli second.
+     */
+    private void transmit(SocketAddress address, long now)
+    {
+        packet.flip();
+        bandwidth += packet.remaining();
+        if (loss > 0.0 && random.nextDouble() < loss)
+        {
+            return;
+        }
+        if (latency > 0)
+        {
+            final byte[] data = new byte[packet.remaining()];
+            packet.get(data);
+            delayed.add(new Delayed(address, data, now + latency));
+            return;
+        }
+        write(address, packet);
+    }
+
+    /**
+     * Send the delayed packets which latency elapsed.
+     * 
+     * @param now The current time in milli second.
+     */
+    private void flushDelayed(long now)
+    {
+        final Iterator<Delayed> iterator = delayed.iterator();
+        while (iterator.hasNext())
+        {
+            final Delayed current = iterator.next();
+            if (now >= current.time)
+            {
+                write(current.address, ByteBuffer.wrap(current.data));
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Write packet to channel.
+     * 
+     * @param address The remote address.
+     * @param buffer The packet data.
+     */
+    private void write(SocketAddress address, ByteBuffer buffer)
+    {
+        try
+        {
+            channel.send(buffer, address);
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception);
+        }
+    }
+
+    /**
+     * Send a control packet.
+     * 
+     * @param connection The remote connection.
+     * @param kind The packet kind.
+     * @param now The current time in milli second.
+     */
+    private void sendControl(UdpConnection connection, byte kind, long now)
+    {
+        packet.clear();
+        packet.put(kind);
+        if (CONNECT == kind)
+        {
+            packet.putInt(PROTOCOL);
+            packet.put(requestedId);
+            packet.putInt(secret);
+        }
+        else if (ACCEPT == kind)
+        {
+            packet.put(connection.getId());
+        }
+        transmit(connection.getAddress(), now);
+    }
+
+    /**
+     * Send the connection messages and acknowledges.
+     * 
+     * @param connection The remote connection.
+     * @param now The current time in milli second.
+     */
+    private void flush(UdpConnection connection, long now)
+    {
+        final long delay = connection.getResendDelay();
+        for (final UdpConnection.Outgoing message : connection.getPending())
+        {
+            if (message.isDue(now, delay))
+            {
+                ready.add(message);
+            }
+        }
+        ready.addAll(connection.getOutgoing());
+        connection.getOutgoing().clear();
+
+        if (ready.isEmpty() && !connection.isAckPending() && now - connection.getLastSent() < KEEP_ALIVE)
+        {
+            return;
+        }
+        int i = 0;
+        do
+        {
+            final int sequence = connection.nextPacket(now);
+            packet.clear();
+            packet.put(DATA);
+            packet.putShort((short) sequence);
+            packet.putShort((short) connection.getRemoteSequence());
+            packet.putInt(connection.getAckBits());
+            while (i < ready.size() && ready.get(i).getData().length + MESSAGE_HEADER <= packet.remaining())
+            {
+                final UdpConnection.Outgoing message = ready.get(i);
+                packet.put((byte) message.getReliability().ordinal());
+                packet.putShort((short) message.getSequence());
+                packet.putShort((short) message.getData().length);
+                packet.put(message.getData());
+                message.setSent(sequence, now);
+                i++;
+            }
+            transmit(connection.getAddress(), now);
+        }
+        while (i < ready.size());
+        ready.clear();
+    }
+
+    /**
+     * Handle received packet.
+     * 
+     * @param address The remote address.
+     * @param buffer The packet data.
+     * @param now The current time in milli second.
+     */
+    private void handle(SocketAddress address, ByteBuffer buffer, long now)
+    {
+        final byte kind = buffer.get();
+        UdpConnection connection = connections.get(address);
+        if (CONNECT == kind && server == null && buffer.getInt() == PROTOCOL)
+        {
+            final byte id = buffer.get();
+            final int key = buffer.getInt();
+            if (connection == null)
+            {
+                connection = accept(address, id, key, now);
+            }
+            else if (connection.getId() != id)
+            {
+                connection = null;
+            }
+            if (connection != null)
+            {
+                sendControl(connection, ACCEPT, now);
+            }
+            else
+            {
+                Verbose.warning(ERROR_REJECTED, address.toString());
+                packet.clear();
+                packet.put(DISCONNECT);
+                transmit(address, now);
+            }
+        }
+        else if (ACCEPT == kind && connection != null && !connection.isConnected())
+        {
+            final byte id = buffer.get();
+            connection.setConnected(id);
+            for (final ClientListener listener : listeners)
+            {
+                listener.notifyClientConnected(Byte.valueOf(id), null);
+            }
+        }
+        else if (DATA == kind && connection != null && connection.isConnected())
+        {
+            receive(connection, buffer, now);
+        }
+        else if (DISCONNECT == kind && connection != null)
+        {
+            toRemove.add(connection);
+        }
+    }
+
+    /**
+     * Accept a new client.
+     * 
+     * @param address The client address.
+     * @param id The requested id.
+     * @param key The client secret.
+     * @param now The current time in milli second.
+     * @return The client connection, <code>null</code> if id is not allowed with this secret or already bound.
+     */
+    private UdpConnection accept(SocketAddress address, byte id, int key, long now)
+    {
+        final Integer expected = secrets.get(Byte.valueOf(id));
+        if (expected == null || expected.intValue() != key)
+        {
+            return null;
+        }
+        for (final UdpConnection connection : connections.values())
+        {
+            if (connection.getId() == id)
+            {
+                return null;
+            }
+        }
+        final UdpConnection connection = new UdpConnection(address, now);
+        connection.setConnected(id);
+        connections.put(address, connection);
+        for (final ClientListener listener : listeners)
+        {
+            listener.notifyClientConnected(Byte.valueOf(connection.getId()), null);
+        }
+        return connection;
+    }
+
+    /**
+     * Receive data packet messages.
+     * 
+     * @param connection The remote connection.
+     * @param buffer The packet data.
+     * @param now The current time in milli second.
+     */
+    private void receive(UdpConnection connection, ByteBuffer buffer, long now)
+    {
+        final int sequence = buffer.getShort() & UdpConnection.MASK;
+        final int ack = buffer.getShort() & UdpConnection.MASK;
+        final int bits = buffer.getInt();
+        if (!connection.receivePacket(sequence, ack, bits, now))
+        {
+            return;
+        }
+        while (buffer.remaining() >= MESSAGE_HEADER)
+        {
+            final Reliability reliability = RELIABILITIES[(buffer.get() & 0xFF) % RELIABILITIES.length];
+            final int message = buffer.getShort() & UdpConnection.MASK;
+            final int size = buffer.getShort() & UdpConnection.MASK;
+            final int end = buffer.position() + size;
+            if (end > buffer.limit())
+            {
+                return;
+            }
+            if (Reliability.RELIABLE_ORDERED == reliability)
+            {
+                final int order = connection.getReliableOrder(message);
+                if (order == 0)
+                {
+                    connection.delivered();
+                    deliver(connection, buffer, end);
+                    for (byte[] data = connection.pollEarly(); data != null; data = connection.pollEarly())
+                    {
+                        deliver(connection, ByteBuffer.wrap(data), data.length);
+                    }
+                }
+                else if (order > 0)
+                {
+                    final byte[] data = new byte[end - buffer.position()];
+                    buffer.get(data);
+                    if (!connection.store(message, data))
+                    {
+                        Verbose.warning(ERROR_EARLY, connection.getAddress().toString());
+                        toRemove.add(connection);
+                        return;
+                    }
+                }
+            }
+            else if (Reliability.UNRELIABLE == reliability
+                     || connection.acceptSequenced(buffer.get(buffer.position()), message))
+            {
+                deliver(connection, buffer, end);
+            }
+            buffer.position(end);
+        }
+    }
+
+    /**
+     * Decode received message.
+     * 
+     * @param connection The remote connection.
+     * @param buffer The packet data, positioned on message.
+     * @param end The message end position.
+     */
+    private void deliver(UdpConnection connection, ByteBuffer buffer, int end)
+    {
+        final int position = buffer.position();
+        final int limit = buffer.limit();
+        if (end - position >= USER_HEADER)
+        {
+            final byte type = buffer.get(position);
+            final byte from = buffer.get(position + 1);
+            final byte dest = buffer.get(position + 2);
+            if (server != null || from == connection.getId())
+            {
+                buffer.limit(end);
+                try
+                {
+                    decodeMessage(type, from, dest, buffer);
+                }
+                catch (final IOException exception)
+                {
+                    Verbose.exception(exception);
+                }
+                buffer.limit(limit);
+            }
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Remove connection if not already removed, and notify listeners.
+     * 
+     * @param connection The connection to remove.
+     */
+    private void remove(UdpConnection connection)
+    {
+        if (connections.remove(connection.getAddress()) == null)
+        {
+            return;
+        }
+        if (connection.isConnected())
+        {
+            for (final ClientListener listener : listeners)
+            {
+                listener.notifyClientDisconnected(Byte.valueOf(connection.getId()), null);
+            }
+        }
+        if (connection == server)
+        {
+            close();
+        }
+    }
+
+    /*
+     * Networker
+     */
+
+    @Override
+    public void disconnect()
+    {
+        if (channel != null)
+        {
+            final long now = now();
+            flushDelayed(Long.MAX_VALUE);
+            for (final UdpConnection connection : connections.values())
+            {
+                sendControl(connection, DISCONNECT, now);
+            }
+            flushDelayed(Long.MAX_VALUE);
+        }
+        connections.clear();
+        secrets.clear();
+        delayed.clear();
+        server = null;
+        close();
+    }
+
+    @Override
+    public void sendMessages()
+    {
+        if (channel == null)
+        {
+            messagesOut.clear();
+            return;
+        }
+        if (server == null)
+        {
+            messagesOut.addAll(messagesIn);
+        }
+        final long now = now();
+        for (final NetworkMessage message : messagesOut)
+        {
+            final byte type = message.getType();
+            Reliability reliability = reliabilities[type & 0xFF];
+            if (reliability == null)
+            {
+                reliability = Reliability.RELIABLE_ORDERED;
+            }
+            try
+            {
+                final ByteBuffer encoded = encodeMessage(message);
+                if (encoded.remaining() > MESSAGE_MAX)
+                {
+                    Verbose.warning(ERROR_SIZE, String.valueOf(type));
+                    continue;
+                }
+                final byte[] data = new byte[encoded.remaining()];
+                encoded.get(data);
+                final byte dest = message.getClientDestId();
+                for (final UdpConnection connection : connections.values())
+                {
+                    if (server != null || dest == -1 || dest == connection.getId())
+                    {
+                        connection.queue(reliability, type, data);
+                    }
+                }
+            }
+            catch (final IOException exception)
+            {
+                Verbose.exception(exception);
+            }
+        }
+        messagesOut.clear();
+        for (final UdpConnection connection : connections.values())
+        {
+            if (connection.isConnected())
+            {
+                flush(connection, now);
+            }
+        }
+        flushDelayed(now);
+
+        final long bandwidthMilli = 1000L;
+        if (bandwidthTimer.elapsed(bandwidthMilli))
+        {
+            bandwidthPerSecond = bandwidth;
+            bandwidth = 0;
+            bandwidthTimer.restart();
+        }
+    }
+
+    @Override
+    public void receiveMessages()
+    {
+        clearMessages();
+        if (channel == null)
+        {
+            return;
+        }
+        final long now = now();
+        flushDelayed(now);
+        try
+        {
+            datagram.clear();
+            SocketAddress address = channel.receive(datagram);
+            while (address != null)
+            {
+                datagram.flip();
+                try
+                {
+                    handle(address, datagram, now);
+                }
+                catch (final BufferUnderflowException exception)
+                {
+                    Verbose.exception(exception);
+                }
+                datagram.clear();
+                address = channel.receive(datagram);
+            }
+        }
+        catch (final IOException exception)
+        {
+            Verbose.exception(exception);
+        }
+        for (final UdpConnection connection : connections.values())
+        {
+            if (now - connection.getLastReceived() > TIMEOUT)
+            {
+                toRemove.add(connection);
+            }
+        }
+        for (final UdpConnection connection : toRemove)
+        {
+            remove(connection);
+        }
+        toRemove.clear();
+
+        if (channel != null && server != null && !server.isConnected() && now - lastConnect >= CONNECT_DELAY)
+        {
+            lastConnect = now;
+            sendControl(server, CONNECT, now);
+            flushDelayed(now);
+        }
+    }
+
+    @Override
+    public int getBandwidth()
+    {
+        return bandwidthPerSecond;
+    }
+
+    /**
+     * Packet delayed by simulated latency.
+     */
+    private static final class Delayed
+    {
+        /** Remote address. */
+        private final SocketAddress address;
+        /** Packet data. */
+        private final byte[] data;
+        /** Sending time. */
+        private final long time;
+
+        /**
+         * Create delayed packet.
+         * 
+         * @param address The remote address.
+         * @param data The packet data.
+         * @param time The sending time in milli second.
+         */
+        Delayed(SocketAddress address, byte[] data, long time)
+        {
+            this.address = address;
+            this.data = data;
+            this.time = time;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package com.b3dgs.lionengine.network.message;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 
@@ -27,6 +28,12 @@ import com.b3dgs.lionengine.Verbose;
 
 /**
  * Network message description.
+ * <p>
+ * Messages can be encoded to and decoded from a pooled buffer with {@link #write(ByteBuffer)} and
+ * {@link #read(byte, byte, byte, ByteBuffer)}, without intermediate allocation. Implementations may override
+ * {@link #encode(ByteBuffer)} and {@link #decode(ByteBuffer)} to access buffer directly, else their stream based
+ * encoding and decoding are used, writing to and reading from the buffer.
+ * </p>
  */
 public abstract class NetworkMessage
 {
@@ -58,6 +65,12 @@ public abstract class NetworkMessage
     private byte clientId;
     /** Id of the client to sent this message. */
     private byte clientDestId;
+    /** Buffer output, created on first use. */
+    private NetworkMessageOutput output;
+    /** Buffer input, created on first use. */
+    private NetworkMessageInput input;
+    /** Buffer data input, created on first use. */
+    private DataInputStream data;
 
     /**
      * Constructor base.
@@ -108,6 +121,39 @@ public abstract class NetworkMessage
      */
     protected abstract void decode(DataInputStream buffer) throws IOException;
 
+    /**
+     * Encode the message to buffer. Uses {@link #encode(ByteArrayOutputStream)} by default.
+     * 
+     * @param buffer The buffer to write, from its position.
+     * @throws IOException Error on writing.
+     */
+    protected void encode(ByteBuffer buffer) throws IOException
+    {
+        if (output == null)
+        {
+            output = new NetworkMessageOutput();
+        }
+        output.setBuffer(buffer);
+        encode(output);
+    }
+
+    /**
+     * Decode the message from buffer. Uses {@link #decode(DataInputStream)} by default.
+     * 
+     * @param buffer The buffer to read, from its position to its limit.
+     * @throws IOException Error on reading.
+     */
+    protected void decode(ByteBuffer buffer) throws IOException
+    {
+        if (data == null)
+        {
+            input = new NetworkMessageInput();
+            data = new DataInputStream(input);
+        }
+        input.setBuffer(buffer);
+        decode(data);
+    }
+
     /**
      * Get the message type.
      * 
@@ -156,6 +202,21 @@ public abstract class NetworkMessage
         return buffer;
     }
 
+    /**
+     * Encode the message to buffer, without allocating.
+     * 
+     * @param buffer The buffer to write, from its position.
+     * @throws IOException Error on writing.
+     * @throws java.nio.BufferOverflowException If buffer is too small.
+     */
+    public final void write(ByteBuffer buffer) throws IOException
+    {
+        buffer.put(type);
+        buffer.put(clientId);
+        buffer.put(clientDestId);
+        encode(buffer);
+    }
+
     /**
      * Decode the message from the data.
      * 
@@ -172,4 +233,21 @@ public abstract class NetworkMessage
         clientDestId = dest;
         decode(buffer);
     }
+
+    /**
+     * Decode the message from buffer, without copying.
+     * 
+     * @param type The message type.
+     * @param from The client id from.
+     * @param dest The client id destination.
+     * @param buffer The buffer to read, from its position to its limit.
+     * @throws IOException Error on reading.
+     */
+    public final void read(byte type, byte from, byte dest, ByteBuffer buffer) throws IOException
+    {
+        this.type = type;
+        clientId = from;
+        clientDestId = dest;
+        decode(buffer);
+    }
 }
@@ -20,6 +20,7 @@ package com.b3dgs.lionengine.network.message;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Message chat implementation.
@@ -90,4 +91,21 @@ public class NetworkMessageChat extends NetworkMessage
         buffer.readFully(msg);
         message = new String(msg, NetworkMessage.CHARSET);
     }
+
+    @Override
+    protected void decode(ByteBuffer buffer) throws IOException
+    {
+        if (buffer.hasArray())
+        {
+            message = new String(buffer.array(),
+                                 buffer.arrayOffset() + buffer.position(),
+                                 buffer.remaining(),
+                                 NetworkMessage.CHARSET);
+            buffer.position(buffer.limit());
+        }
+        else
+        {
+            super.decode(buffer);
+        }
+    }
 }
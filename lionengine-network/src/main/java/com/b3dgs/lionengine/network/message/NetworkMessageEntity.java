@@ -24,7 +24,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
-import com.b3dgs.lionengine.util.UtilConversion;
+import com.b3dgs.lionengine.Constant;
 
 /**
  * Standard entity message.
@@ -269,7 +269,8 @@ public abstract class NetworkMessageEntity<M extends Enum<M>> extends NetworkMes
     @Override
     protected void encode(ByteArrayOutputStream buffer) throws IOException
     {
-        buffer.write(UtilConversion.shortToByteArray(entityId));
+        buffer.write(entityId >>> Constant.BYTE_2);
+        buffer.write(entityId);
         final Collection<M> keys = actions.keySet();
 
         // Fill the data
@@ -290,6 +291,7 @@ public abstract class NetworkMessageEntity<M extends Enum<M>> extends NetworkMes
     @Override
     protected void decode(DataInputStream buffer) throws IOException
     {
+        actions.clear();
         entityId = buffer.readShort();
         final int number = buffer.readByte();
         for (int i = 0; i < number; i++)
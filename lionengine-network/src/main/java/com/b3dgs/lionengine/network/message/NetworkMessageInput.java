@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.message;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream reading directly from a buffer, allowing {@link NetworkMessage#decode(java.io.DataInputStream)}
+ * implementations to decode from a received buffer without intermediate copy.
+ */
+final class NetworkMessageInput extends InputStream
+{
+    /** Byte mask. */
+    private static final int MASK = 0xFF;
+
+    /** Current buffer. */
+    private ByteBuffer buffer;
+
+    /**
+     * Internal constructor.
+     */
+    NetworkMessageInput()
+    {
+        super();
+    }
+
+    /**
+     * Set the buffer to read from, between its current position and its limit.
+     * 
+     * @param buffer The buffer reference.
+     */
+    void setBuffer(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+    }
+
+    /*
+     * InputStream
+     */
+
+    @Override
+    public int read()
+    {
+        if (buffer.hasRemaining())
+        {
+            return buffer.get() & MASK;
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!buffer.hasRemaining())
+        {
+            return -1;
+        }
+        final int read = Math.min(len, buffer.remaining());
+        buffer.get(b, off, read);
+        return read;
+    }
+
+    @Override
+    public long skip(long n)
+    {
+        final int skipped = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available()
+    {
+        return buffer.remaining();
+    }
+}
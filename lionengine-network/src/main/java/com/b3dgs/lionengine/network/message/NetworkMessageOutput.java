@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Output stream writing directly to a buffer, allowing {@link NetworkMessage#encode(ByteArrayOutputStream)}
+ * implementations to encode to a pooled buffer without intermediate copy. Size and content are the written part of
+ * buffer since {@link #setBuffer(ByteBuffer)}.
+ */
+final class NetworkMessageOutput extends ByteArrayOutputStream
+{
+    /** Current buffer. */
+    private ByteBuffer buffer;
+    /** Buffer position on set. */
+    private int start;
+
+    /**
+     * Internal constructor.
+     */
+    NetworkMessageOutput()
+    {
+        super(0);
+    }
+
+    /**
+     * Set the buffer to write to, from its current position.
+     * 
+     * @param buffer The buffer reference.
+     */
+    void setBuffer(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        start = buffer.position();
+    }
+
+    /*
+     * ByteArrayOutputStream
+     */
+
+    @Override
+    public void write(int b)
+    {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+    {
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public int size()
+    {
+        return buffer.position() - start;
+    }
+
+    @Override
+    public void reset()
+    {
+        buffer.position(start);
+    }
+
+    @Override
+    public byte[] toByteArray()
+    {
+        final ByteBuffer written = buffer.duplicate();
+        written.flip();
+        written.position(start);
+        final byte[] data = new byte[written.remaining()];
+        written.get(data);
+        return data;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.message;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Network message decoder keeping released messages by type, so that receiving messages does not create any instance
+ * once each type has been received enough. Messages are created by the wrapped decoder when none is available.
+ * <p>
+ * Networks using this decoder release received messages on next receive: they must not be kept after, and their
+ * {@link NetworkMessage#decode(java.io.DataInputStream)} must overwrite all previous content.
+ * </p>
+ * <p>
+ * Usage: <code>new NetworkedWorldModelServer(new NetworkMessagePool(decoder));</code>
+ * </p>
+ */
+public final class NetworkMessagePool implements NetworkMessageDecoder
+{
+    /** Released messages by type. */
+    private final Map<Integer, Deque<NetworkMessage>> pool = new HashMap<Integer, Deque<NetworkMessage>>();
+    /** Wrapped decoder. */
+    private final NetworkMessageDecoder decoder;
+
+    /**
+     * Create pool.
+     * 
+     * @param decoder The decoder creating messages.
+     */
+    public NetworkMessagePool(NetworkMessageDecoder decoder)
+    {
+        this.decoder = decoder;
+    }
+
+    /**
+     * Release message, which will be returned by {@link #getNetworkMessageFromType(int)} for its type.
+     * 
+     * @param message The message to release.
+     */
+    public void release(NetworkMessage message)
+    {
+        release(message.getType(), message);
+    }
+
+    /**
+     * Release message for the requested type, which may not have been decoded.
+     * 
+     * @param type The type the message was requested for.
+     * @param message The message to release.
+     */
+    public void release(int type, NetworkMessage message)
+    {
+        final Integer key = Integer.valueOf(type);
+        Deque<NetworkMessage> released = pool.get(key);
+        if (released == null)
+        {
+            released = new ArrayDeque<NetworkMessage>();
+            pool.put(key, released);
+        }
+        released.push(message);
+    }
+
+    /*
+     * NetworkMessageDecoder
+     */
+
+    @Override
+    public NetworkMessage getNetworkMessageFromType(int type)
+    {
+        final Deque<NetworkMessage> released = pool.get(Integer.valueOf(type));
+        if (released == null || released.isEmpty())
+        {
+            return decoder.getNetworkMessageFromType(type);
+        }
+        return released.pop();
+    }
+}
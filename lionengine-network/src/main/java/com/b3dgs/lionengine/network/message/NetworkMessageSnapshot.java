@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * State replication message. Snapshots are sent by server to a single client, with entities state packed as deltas
+ * against a baseline snapshot acknowledged by the client. Acknowledges are sent by client to server only, with the
+ * last snapshot received and the client viewpoint.
+ */
+public class NetworkMessageSnapshot extends NetworkMessage
+{
+    /** Destination id of messages for server only, which are not relayed to clients. */
+    public static final byte SERVER_ID = -2;
+
+    /** Acknowledge flag. */
+    private boolean ack;
+    /** Snapshot sequence. */
+    private int sequence;
+    /** Baseline sequence (-1 if none). */
+    private int baseline;
+    /** Viewpoint horizontal location. */
+    private int viewX;
+    /** Viewpoint vertical location. */
+    private int viewY;
+    /** Packed data, reused on decoding. */
+    private byte[] data;
+    /** Packed data length. */
+    private int length;
+
+    /**
+     * Constructor (used in decoding case).
+     */
+    public NetworkMessageSnapshot()
+    {
+        super();
+        data = new byte[0];
+    }
+
+    /**
+     * Create a snapshot (used for the server case).
+     * 
+     * @param type The message type.
+     * @param clientDestId The client destination.
+     * @param sequence The snapshot sequence.
+     * @param baseline The baseline sequence (-1 if none).
+     * @param data The packed data, copied.
+     * @param length The packed data length.
+     */
+    public NetworkMessageSnapshot(byte type, byte clientDestId, int sequence, int baseline, byte[] data, int length)
+    {
+        super(type, (byte) -1, clientDestId);
+        this.sequence = sequence;
+        this.baseline = baseline;
+        this.data = new byte[length];
+        this.length = length;
+        System.arraycopy(data, 0, this.data, 0, length);
+    }
+
+    /**
+     * Create an acknowledge (used for the client case).
+     * 
+     * @param type The message type.
+     * @param clientId The client id.
+     * @param sequence The last snapshot sequence received (-1 if none).
+     * @param viewX The viewpoint horizontal location.
+     * @param viewY The viewpoint vertical location.
+     */
+    public NetworkMessageSnapshot(byte type, byte clientId, int sequence, int viewX, int viewY)
+    {
+        super(type, clientId, SERVER_ID);
+        ack = true;
+        this.sequence = sequence;
+        this.viewX = viewX;
+        this.viewY = viewY;
+        data = new byte[0];
+    }
+
+    /**
+     * Check if message is an acknowledge.
+     * 
+     * @return <code>true</code> if acknowledge, <code>false</code> if snapshot.
+     */
+    public boolean isAck()
+    {
+        return ack;
+    }
+
+    /**
+     * Get the snapshot sequence.
+     * 
+     * @return The snapshot sequence.
+     */
+    public int getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Get the baseline sequence.
+     * 
+     * @return The baseline sequence (-1 if none).
+     */
+    public int getBaseline()
+    {
+        return baseline;
+    }
+
+    /**
+     * Get the viewpoint horizontal location.
+     * 
+     * @return The viewpoint horizontal location.
+     */
+    public int getViewX()
+    {
+        return viewX;
+    }
+
+    /**
+     * Get the viewpoint vertical location.
+     * 
+     * @return The viewpoint vertical location.
+     */
+    public int getViewY()
+    {
+        return viewY;
+    }
+
+    /**
+     * Get the packed data.
+     * 
+     * @return The packed data, of at least {@link #getLength()} length.
+     */
+    public byte[] getData()
+    {
+        return data;
+    }
+
+    /**
+     * Get the packed data length.
+     * 
+     * @return The packed data length.
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Prepare data array for decoding.
+     * 
+     * @param length The data length.
+     */
+    private void prepare(int length)
+    {
+        if (data.length < length)
+        {
+            data = new byte[length];
+        }
+        this.length = length;
+    }
+
+    /*
+     * NetworkMessage
+     */
+
+    @Override
+    protected void encode(ByteArrayOutputStream buffer) throws IOException
+    {
+        final DataOutputStream output = new DataOutputStream(buffer);
+        output.writeBoolean(ack);
+        output.writeInt(sequence);
+        if (ack)
+        {
+            output.writeInt(viewX);
+            output.writeInt(viewY);
+        }
+        else
+        {
+            output.writeInt(baseline);
+            output.write(data, 0, length);
+        }
+    }
+
+    @Override
+    protected void decode(DataInputStream buffer) throws IOException
+    {
+        ack = buffer.readBoolean();
+        sequence = buffer.readInt();
+        if (ack)
+        {
+            viewX = buffer.readInt();
+            viewY = buffer.readInt();
+            length = 0;
+        }
+        else
+        {
+            baseline = buffer.readInt();
+            prepare(buffer.available());
+            buffer.readFully(data, 0, length);
+        }
+    }
+
+    @Override
+    protected void encode(ByteBuffer buffer) throws IOException
+    {
+        if (ack)
+        {
+            buffer.put((byte) 1);
+            buffer.putInt(sequence);
+            buffer.putInt(viewX);
+            buffer.putInt(viewY);
+        }
+        else
+        {
+            buffer.put((byte) 0);
+            buffer.putInt(sequence);
+            buffer.putInt(baseline);
+            buffer.put(data, 0, length);
+        }
+    }
+
+    @Override
+    protected void decode(ByteBuffer buffer) throws IOException
+    {
+        ack = buffer.get() != 0;
+        sequence = buffer.getInt();
+        if (ack)
+        {
+            viewX = buffer.getInt();
+            viewY = buffer.getInt();
+            length = 0;
+        }
+        else
+        {
+            baseline = buffer.getInt();
+            prepare(buffer.remaining());
+            buffer.get(data, 0, length);
+        }
+    }
+}
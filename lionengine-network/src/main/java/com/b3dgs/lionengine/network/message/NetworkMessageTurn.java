@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Lock step turn message, sent by each player once per turn to all others. It contains the player commands batch to
+ * execute on a future turn, and the player state checksum of an executed turn.
+ */
+public class NetworkMessageTurn extends NetworkMessage
+{
+    /** Command size. */
+    private static final int COMMAND_SIZE = 4;
+
+    /** Turn where commands are executed. */
+    private int turn;
+    /** Checksum turn (-1 if none). */
+    private int checkedTurn;
+    /** State checksum. */
+    private int checksum;
+    /** Commands, reused on decoding. */
+    private int[] commands;
+    /** Commands number. */
+    private int count;
+
+    /**
+     * Constructor (used in decoding case).
+     */
+    public NetworkMessageTurn()
+    {
+        super();
+        commands = new int[0];
+    }
+
+    /**
+     * Create a turn message.
+     * 
+     * @param type The message type.
+     * @param clientId The client id.
+     * @param turn The turn where commands are executed.
+     * @param checkedTurn The checksum turn (-1 if none).
+     * @param checksum The state checksum.
+     * @param commands The commands, copied.
+     * @param count The commands number.
+     */
+    public NetworkMessageTurn(byte type,
+                              byte clientId,
+                              int turn,
+                              int checkedTurn,
+                              int checksum,
+                              int[] commands,
+                              int count)
+    {
+        super(type, clientId);
+        this.turn = turn;
+        this.checkedTurn = checkedTurn;
+        this.checksum = checksum;
+        this.commands = new int[count];
+        this.count = count;
+        System.arraycopy(commands, 0, this.commands, 0, count);
+    }
+
+    /**
+     * Get the turn where commands are executed.
+     * 
+     * @return The turn number.
+     */
+    public int getTurn()
+    {
+        return turn;
+    }
+
+    /**
+     * Get the checksum turn.
+     * 
+     * @return The checksum turn (-1 if none).
+     */
+    public int getCheckedTurn()
+    {
+        return checkedTurn;
+    }
+
+    /**
+     * Get the state checksum.
+     * 
+     * @return The state checksum of {@link #getCheckedTurn()}.
+     */
+    public int getChecksum()
+    {
+        return checksum;
+    }
+
+    /**
+     * Get the commands.
+     * 
+     * @return The commands, of at least {@link #getCount()} length.
+     */
+    public int[] getCommands()
+    {
+        return commands;
+    }
+
+    /**
+     * Get the commands number.
+     * 
+     * @return The commands number.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Prepare commands array for decoding.
+     * 
+     * @param count The commands number.
+     */
+    private void prepare(int count)
+    {
+        if (commands.length < count)
+        {
+            commands = new int[count];
+        }
+        this.count = count;
+    }
+
+    /*
+     * NetworkMessage
+     */
+
+    @Override
+    protected void encode(ByteArrayOutputStream buffer) throws IOException
+    {
+        final DataOutputStream output = new DataOutputStream(buffer);
+        output.writeInt(turn);
+        output.writeInt(checkedTurn);
+        output.writeInt(checksum);
+        for (int i = 0; i < count; i++)
+        {
+            output.writeInt(commands[i]);
+        }
+    }
+
+    @Override
+    protected void decode(DataInputStream buffer) throws IOException
+    {
+        turn = buffer.readInt();
+        checkedTurn = buffer.readInt();
+        checksum = buffer.readInt();
+        prepare(buffer.available() / COMMAND_SIZE);
+        for (int i = 0; i < count; i++)
+        {
+            commands[i] = buffer.readInt();
+        }
+    }
+
+    @Override
+    protected void encode(ByteBuffer buffer) throws IOException
+    {
+        buffer.putInt(turn);
+        buffer.putInt(checkedTurn);
+        buffer.putInt(checksum);
+        for (int i = 0; i < count; i++)
+        {
+            buffer.putInt(commands[i]);
+        }
+    }
+
+    @Override
+    protected void decode(ByteBuffer buffer) throws IOException
+    {
+        turn = buffer.getInt();
+        checkedTurn = buffer.getInt();
+        checksum = buffer.getInt();
+        prepare(buffer.remaining() / COMMAND_SIZE);
+        for (int i = 0; i < count; i++)
+        {
+            commands[i] = buffer.getInt();
+        }
+    }
+}
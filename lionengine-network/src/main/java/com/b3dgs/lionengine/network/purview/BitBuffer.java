@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.nio.BufferUnderflowException;
+import java.util.Arrays;
+
+import com.b3dgs.lionengine.LionEngineException;
+
+/**
+ * Bits packed buffer, values being written and read with their most significant bit first.
+ * <p>
+ * Values are either unsigned, or signed with two's complement, and must fit in their number of bits.
+ * </p>
+ */
+final class BitBuffer
+{
+    /** Bits per byte. */
+    private static final int BYTE = 8;
+    /** Bit index in byte mask. */
+    private static final int BIT_MASK = 7;
+    /** First bit in byte. */
+    private static final int FIRST_BIT = 0x80;
+    /** Bits per integer. */
+    private static final int INT = 32;
+    /** Value out of range error. */
+    private static final String ERROR_RANGE = "Value does not fit in bits: ";
+
+    /**
+     * Check the number of bits.
+     * 
+     * @param bits The number of bits.
+     * @throws LionEngineException If not between 1 and 32.
+     */
+    private static void checkBits(int bits)
+    {
+        if (bits < 1 || bits > INT)
+        {
+            throw new LionEngineException(ERROR_RANGE, String.valueOf(bits));
+        }
+    }
+
+    /** Data. */
+    private byte[] data;
+    /** Written bits. */
+    private int size;
+    /** Read bits. */
+    private int position;
+
+    /**
+     * Create buffer.
+     * 
+     * @param capacity The initial capacity in bytes.
+     */
+    BitBuffer(int capacity)
+    {
+        data = new byte[capacity];
+    }
+
+    /**
+     * Clear buffer for writing.
+     */
+    void clear()
+    {
+        Arrays.fill(data, 0, getSize(), (byte) 0);
+        size = 0;
+        position = 0;
+    }
+
+    /**
+     * Use data for reading, without copy. Buffer must not be cleared after.
+     * 
+     * @param data The data to read.
+     * @param length The data length in bytes.
+     */
+    void wrap(byte[] data, int length)
+    {
+        this.data = data;
+        size = length * BYTE;
+        position = 0;
+    }
+
+    /**
+     * Write unsigned value.
+     * 
+     * @param value The value to write, between 0 and 2^bits - 1 (any value on 32 bits).
+     * @param bits The number of bits to write, from 1 to 32.
+     * @throws LionEngineException If value does not fit in bits.
+     */
+    void write(int value, int bits)
+    {
+        checkBits(bits);
+        if (bits < INT && value >>> bits != 0)
+        {
+            throw new LionEngineException(ERROR_RANGE, String.valueOf(value), "/", String.valueOf(bits));
+        }
+        put(value, bits);
+    }
+
+    /**
+     * Write signed value.
+     * 
+     * @param value The value to write, between -2^(bits - 1) and 2^(bits - 1) - 1.
+     * @param bits The number of bits to write, from 1 to 32.
+     * @throws LionEngineException If value does not fit in bits.
+     */
+    void writeSigned(int value, int bits)
+    {
+        checkBits(bits);
+        if (value << INT - bits >> INT - bits != value)
+        {
+            throw new LionEngineException(ERROR_RANGE, String.valueOf(value), "/", String.valueOf(bits));
+        }
+        put(value, bits);
+    }
+
+    /**
+     * Write value lowest bits.
+     * 
+     * @param value The value to write.
+     * @param bits The number of bits to write.
+     */
+    private void put(int value, int bits)
+    {
+        final int needed = (size + bits + BIT_MASK) / BYTE;
+        if (needed > data.length)
+        {
+            data = Arrays.copyOf(data, Math.max(needed, data.length * 2));
+        }
+        for (int i = bits - 1; i >= 0; i--)
+        {
+            if ((value >>> i & 1) != 0)
+            {
+                data[size / BYTE] |= FIRST_BIT >>> (size & BIT_MASK);
+            }
+            size++;
+        }
+    }
+
+    /**
+     * Write flag.
+     * 
+     * @param flag The flag to write.
+     */
+    void write(boolean flag)
+    {
+        if (flag)
+        {
+            write(1, 1);
+        }
+        else
+        {
+            write(0, 1);
+        }
+    }
+
+    /**
+     * Read unsigned value.
+     * 
+     * @param bits The number of bits to read, from 1 to 32.
+     * @return The value read.
+     * @throws BufferUnderflowException If not enough remaining bits.
+     */
+    int read(int bits)
+    {
+        if (bits > size - position)
+        {
+            throw new BufferUnderflowException();
+        }
+        int value = 0;
+        for (int i = 0; i < bits; i++)
+        {
+            final int bit = data[position / BYTE] >>> BIT_MASK - (position & BIT_MASK) & 1;
+            value = value << 1 | bit;
+            position++;
+        }
+        return value;
+    }
+
+    /**
+     * Read signed value, sign extended from its highest bit.
+     * 
+     * @param bits The number of bits to read, from 1 to 32.
+     * @return The value read.
+     * @throws BufferUnderflowException If not enough remaining bits.
+     */
+    int readSigned(int bits)
+    {
+        return read(bits) << INT - bits >> INT - bits;
+    }
+
+    /**
+     * Read flag.
+     * 
+     * @return The flag read.
+     * @throws BufferUnderflowException If no remaining bit.
+     */
+    boolean readFlag()
+    {
+        return read(1) != 0;
+    }
+
+    /**
+     * Check if there are bits to read.
+     * 
+     * @return <code>true</code> if remaining bits, <code>false</code> else.
+     */
+    boolean hasRemaining()
+    {
+        return position < size;
+    }
+
+    /**
+     * Get the written data.
+     * 
+     * @return The data, of at least {@link #getSize()} length.
+     */
+    byte[] getData()
+    {
+        return data;
+    }
+
+    /**
+     * Get the written size in bytes.
+     * 
+     * @return The written size.
+     */
+    int getSize()
+    {
+        return (size + BIT_MASK) / BYTE;
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.Updatable;
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageTurn;
+import com.b3dgs.lionengine.util.UtilChecksum;
+
+/**
+ * Lock step simulation, where players exchange their commands instead of the simulation state, so bandwidth depends of
+ * the players number and not of the simulated objects number.
+ * <p>
+ * Time is split in turns of {@link #setTurnTicks(int)} simulation steps. Commands added during a turn, with
+ * {@link #addCommand(int)} or by key events, are sent as a single batch at the end of the turn, and executed by all
+ * players at the turn start {@link #setInputDelay(int)} turns later. A turn is started only once all players batches
+ * are received, else simulation is stalled until they are.
+ * </p>
+ * <p>
+ * Each player sends with its batch the checksum of its simulation state at the end of a turn every
+ * {@link #setChecksumInterval(int)} turns, computed with {@link UtilChecksum}, so that desync is detected by all
+ * players.
+ * </p>
+ * <p>
+ * {@link #update(double)} performs one simulation step, and must be called at a fixed rate, such as by the game frame
+ * with a frame skipping loop, between the networked world messages reception and sending.
+ * </p>
+ */
+public class LockStep extends NetworkedInput implements Updatable
+{
+    /** Key command flag. */
+    public static final int KEY = 1 << 30;
+    /** Default input delay in turn. */
+    private static final int DEFAULT_INPUT_DELAY = 2;
+    /** Default turn ticks. */
+    private static final int DEFAULT_TURN_TICKS = 4;
+    /** Checksums history. */
+    private static final int HISTORY = 128;
+    /** Client id missing error. */
+    private static final String ERROR_CLIENT_ID = "Client id must be set before start !";
+
+    /**
+     * Check if command has been added by a key event.
+     * 
+     * @param command The command value.
+     * @return <code>true</code> if key command, <code>false</code> else.
+     */
+    public static boolean isKeyCommand(int command)
+    {
+        return (command & KEY) != 0;
+    }
+
+    /**
+     * Get the key code of a key command.
+     * 
+     * @param command The key command value.
+     * @return The key code.
+     */
+    public static int getKeyCode(int command)
+    {
+        return (command & ~KEY) >> 1;
+    }
+
+    /**
+     * Get the key pressed state of a key command.
+     * 
+     * @param command The key command value.
+     * @return <code>true</code> if pressed, <code>false</code> if released.
+     */
+    public static boolean isKeyPressed(int command)
+    {
+        return (command & 1) != 0;
+    }
+
+    /** Commands batches by turn, by ascending player id. */
+    private final Map<Integer, SortedMap<Byte, int[]>> batches = new HashMap<Integer, SortedMap<Byte, int[]>>();
+    /** Players id. */
+    private final SortedSet<Byte> players = new TreeSet<Byte>();
+    /** Checksums turn by history index (-1 if none). */
+    private final int[] checksumTurns = new int[HISTORY];
+    /** Checksums by history index. */
+    private final int[] checksums = new int[HISTORY];
+    /** Checksums first player by history index. */
+    private final byte[] checksumPlayers = new byte[HISTORY];
+    /** Simulation reference. */
+    private final LockStepSimulation simulation;
+    /** Message type. */
+    private final byte type;
+    /** Current turn commands. */
+    private int[] commands = new int[16];
+    /** Current turn commands number. */
+    private int count;
+    /** Input delay in turn. */
+    private int inputDelay = DEFAULT_INPUT_DELAY;
+    /** Simulation steps per turn. */
+    private int turnTicks = DEFAULT_TURN_TICKS;
+    /** Checksum interval in turn. */
+    private int checksumInterval = 1;
+    /** Current turn. */
+    private int turn;
+    /** Current turn step. */
+    private int tick;
+    /** Started flag. */
+    private boolean started;
+    /** Stalled flag. */
+    private boolean stalled;
+
+    /**
+     * Create lock step.
+     * 
+     * @param type The turn message type.
+     * @param simulation The simulation reference.
+     */
+    public LockStep(byte type, LockStepSimulation simulation)
+    {
+        super();
+        this.type = type;
+        this.simulation = simulation;
+        Arrays.fill(checksumTurns, -1);
+    }
+
+    /**
+     * Set the delay between the turn where commands are added and the turn where they are executed. It must cover the
+     * players latency to not stall simulation, but increases commands response time.
+     * 
+     * @param turns The delay in turn, strictly positive.
+     * @throws LionEngineException If invalid delay.
+     */
+    public void setInputDelay(int turns)
+    {
+        Check.superiorStrict(turns, 0);
+        inputDelay = turns;
+    }
+
+    /**
+     * Set the turn duration.
+     * 
+     * @param ticks The simulation steps per turn, strictly positive.
+     * @throws LionEngineException If invalid ticks.
+     */
+    public void setTurnTicks(int ticks)
+    {
+        Check.superiorStrict(ticks, 0);
+        turnTicks = ticks;
+    }
+
+    /**
+     * Set the state checksum interval.
+     * 
+     * @param turns The interval in turn, strictly positive.
+     * @throws LionEngineException If invalid interval.
+     */
+    public void setChecksumInterval(int turns)
+    {
+        Check.superiorStrict(turns, 0);
+        checksumInterval = turns;
+    }
+
+    /**
+     * Start simulation on the first turn. All players must start with the same simulation state and settings.
+     * 
+     * @param ids The players id, including the local one.
+     * @throws LionEngineException If client id not assigned.
+     */
+    public void start(Collection<Byte> ids)
+    {
+        if (getClientId() == null || getClientId().byteValue() < 0)
+        {
+            throw new LionEngineException(ERROR_CLIENT_ID);
+        }
+        players.clear();
+        players.addAll(ids);
+        players.add(getClientId());
+        turn = 0;
+        tick = 0;
+        started = true;
+    }
+
+    /**
+     * Remove a player, for example on disconnection, so that its batches are not waited anymore.
+     * 
+     * @param id The player id.
+     */
+    public void removePlayer(Byte id)
+    {
+        players.remove(id);
+    }
+
+    /**
+     * Add a command to the current turn batch.
+     * 
+     * @param command The command value, positive and lower than {@link #KEY} for game commands.
+     */
+    public void addCommand(int command)
+    {
+        if (count == commands.length)
+        {
+            commands = Arrays.copyOf(commands, count * 2);
+        }
+        commands[count] = command;
+        count++;
+    }
+
+    /**
+     * Get the current turn.
+     * 
+     * @return The current turn.
+     */
+    public int getTurn()
+    {
+        return turn;
+    }
+
+    /**
+     * Check if simulation is waiting for players batches.
+     * 
+     * @return <code>true</code> if stalled, <code>false</code> else.
+     */
+    public boolean isStalled()
+    {
+        return stalled;
+    }
+
+    /**
+     * Apply turn commands if all players batches are received.
+     * 
+     * @return <code>true</code> if applied, <code>false</code> if missing batches.
+     */
+    private boolean startTurn()
+    {
+        final Integer key = Integer.valueOf(turn);
+        final SortedMap<Byte, int[]> batch = batches.get(key);
+        if (turn < inputDelay && batch == null)
+        {
+            return true;
+        }
+        if (batch == null || !batch.keySet().containsAll(players))
+        {
+            return false;
+        }
+        batches.remove(key);
+        for (final Map.Entry<Byte, int[]> entry : batch.entrySet())
+        {
+            if (players.contains(entry.getKey()))
+            {
+                final byte player = entry.getKey().byteValue();
+                for (final int command : entry.getValue())
+                {
+                    simulation.applyCommand(player, command);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute turn checksum and send current batch.
+     */
+    private void endTurn()
+    {
+        int checkedTurn = -1;
+        int checksum = 0;
+        if (turn % checksumInterval == 0)
+        {
+            checkedTurn = turn;
+            checksum = UtilChecksum.getSha256(simulation.getState()).hashCode();
+            check(turn, getClientId().byteValue(), checksum);
+        }
+        final int target = turn + inputDelay;
+        addBatch(target, getClientId(), Arrays.copyOf(commands, count));
+        addNetworkMessage(new NetworkMessageTurn(type,
+                                                 getClientId().byteValue(),
+                                                 target,
+                                                 checkedTurn,
+                                                 checksum,
+                                                 commands,
+                                                 count));
+        count = 0;
+    }
+
+    /**
+     * Store player batch.
+     * 
+     * @param target The batch turn.
+     * @param player The player id.
+     * @param batch The player commands.
+     */
+    private void addBatch(int target, Byte player, int[] batch)
+    {
+        final Integer key = Integer.valueOf(target);
+        SortedMap<Byte, int[]> turnBatches = batches.get(key);
+        if (turnBatches == null)
+        {
+            turnBatches = new TreeMap<Byte, int[]>();
+            batches.put(key, turnBatches);
+        }
+        turnBatches.put(player, batch);
+    }
+
+    /**
+     * Compare player checksum with the first one received for the turn.
+     * 
+     * @param checkedTurn The checksum turn.
+     * @param player The player id.
+     * @param checksum The player checksum.
+     */
+    private void check(int checkedTurn, byte player, int checksum)
+    {
+        final int index = checkedTurn % HISTORY;
+        if (checksumTurns[index] != checkedTurn)
+        {
+            checksumTurns[index] = checkedTurn;
+            checksums[index] = checksum;
+            checksumPlayers[index] = player;
+        }
+        else if (checksums[index] != checksum)
+        {
+            if (player == getClientId().byteValue())
+            {
+                simulation.notifyDesync(checkedTurn, checksumPlayers[index]);
+            }
+            else
+            {
+                simulation.notifyDesync(checkedTurn, player);
+            }
+        }
+    }
+
+    /*
+     * Updatable
+     */
+
+    @Override
+    public void update(double extrp)
+    {
+        if (!started)
+        {
+            return;
+        }
+        if (tick == 0)
+        {
+            stalled = !startTurn();
+            if (stalled)
+            {
+                return;
+            }
+        }
+        simulation.step();
+        tick++;
+        if (tick == turnTicks)
+        {
+            endTurn();
+            tick = 0;
+            turn++;
+        }
+    }
+
+    /*
+     * NetworkedInput
+     */
+
+    @Override
+    protected void sendKey(int code, boolean pressed)
+    {
+        if (pressed)
+        {
+            addCommand(KEY | code << 1 | 1);
+        }
+        else
+        {
+            addCommand(KEY | code << 1);
+        }
+    }
+
+    @Override
+    public void applyMessage(NetworkMessage message)
+    {
+        if (message.getType() != type || !(message instanceof NetworkMessageTurn))
+        {
+            return;
+        }
+        final NetworkMessageTurn batch = (NetworkMessageTurn) message;
+        final byte player = batch.getClientId();
+        if (getClientId() == null || player == getClientId().byteValue())
+        {
+            return;
+        }
+        addBatch(batch.getTurn(), Byte.valueOf(player), Arrays.copyOf(batch.getCommands(), batch.getCount()));
+        if (batch.getCheckedTurn() >= 0)
+        {
+            check(batch.getCheckedTurn(), player, batch.getChecksum());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+/**
+ * Deterministic simulation driven by {@link LockStep}. Given the same commands, all players simulation must reach the
+ * same state, without depending on time, random not seeded the same way, or floating point computation varying between
+ * machines.
+ */
+public interface LockStepSimulation
+{
+    /**
+     * Apply a player command, on turn start, by ascending player id and in player commands order.
+     * 
+     * @param player The player id.
+     * @param command The command value.
+     */
+    void applyCommand(byte player, int command);
+
+    /**
+     * Update simulation by one fixed step.
+     */
+    void step();
+
+    /**
+     * Get the simulation state, used to compute its checksum at the end of the checked turns.
+     * 
+     * @return The state data, same for all players if simulation is in sync.
+     */
+    byte[] getState();
+
+    /**
+     * Notify that a player state checksum differs from the other ones.
+     * 
+     * @param turn The turn where simulation diverged.
+     * @param player The player id with a different checksum.
+     */
+    void notifyDesync(int turn, byte player);
+}
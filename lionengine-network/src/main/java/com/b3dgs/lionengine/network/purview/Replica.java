@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.util.Arrays;
+
+import com.b3dgs.lionengine.game.feature.Transformable;
+
+/**
+ * Replicated entity, with its last captured or received values.
+ */
+final class Replica
+{
+    /** Entity id. */
+    private final short id;
+    /** Transformable reference (<code>null</code> if none). */
+    private final Transformable transformable;
+    /** Fields reference (<code>null</code> if none). */
+    private final ReplicaFields fields;
+    /** Fields values. */
+    private final int[] custom;
+    /** Captured values. */
+    private final int[] captured;
+    /** Current values, never modified once set. */
+    private int[] values;
+    /** Distance to viewpoint. */
+    private double distance;
+
+    /**
+     * Create replica.
+     * 
+     * @param id The entity id.
+     * @param transformable The transformable reference (<code>null</code> if none).
+     * @param fields The fields reference (<code>null</code> if none).
+     * @param count The number of fields.
+     */
+    Replica(short id, Transformable transformable, ReplicaFields fields, int count)
+    {
+        this.id = id;
+        this.transformable = transformable;
+        this.fields = fields;
+        custom = new int[count];
+        captured = new int[Replication.POSITION + count];
+        values = new int[captured.length];
+    }
+
+    /**
+     * Capture current values, with location quantized.
+     * 
+     * @param precision The location steps per unit.
+     * @return <code>true</code> if values changed, <code>false</code> else.
+     */
+    boolean capture(double precision)
+    {
+        if (transformable != null)
+        {
+            captured[0] = (int) Math.round(transformable.getX() * precision);
+            captured[1] = (int) Math.round(transformable.getY() * precision);
+        }
+        if (fields != null)
+        {
+            fields.capture(custom);
+            System.arraycopy(custom, 0, captured, Replication.POSITION, custom.length);
+        }
+        if (Arrays.equals(captured, values))
+        {
+            return false;
+        }
+        values = captured.clone();
+        return true;
+    }
+
+    /**
+     * Apply received values.
+     * 
+     * @param values The received values, never modified after.
+     * @param precision The location steps per unit.
+     */
+    void apply(int[] values, double precision)
+    {
+        this.values = values;
+        if (transformable != null)
+        {
+            transformable.teleport(values[0] / precision, values[1] / precision);
+        }
+        if (fields != null)
+        {
+            System.arraycopy(values, Replication.POSITION, custom, 0, custom.length);
+            fields.apply(custom);
+        }
+    }
+
+    /**
+     * Set the distance to the current viewpoint.
+     * 
+     * @param distance The squared distance.
+     */
+    void setDistance(double distance)
+    {
+        this.distance = distance;
+    }
+
+    /**
+     * Get the distance to the current viewpoint.
+     * 
+     * @return The squared distance.
+     */
+    double getDistance()
+    {
+        return distance;
+    }
+
+    /**
+     * Get the entity id.
+     * 
+     * @return The entity id.
+     */
+    short getId()
+    {
+        return id;
+    }
+
+    /**
+     * Get the current values.
+     * 
+     * @return The current values, location first.
+     */
+    int[] getValues()
+    {
+        return values;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+/**
+ * Replicated fields of an entity, in addition to its location. Each field is a signed integer sent with two's
+ * complement on the number of bits declared for it, and must fit in it.
+ * 
+ * @see ReplicationServer
+ * @see ReplicationClient
+ */
+public interface ReplicaFields
+{
+    /**
+     * Store the current fields value (server side).
+     * 
+     * @param values The values to fill, one per declared field.
+     */
+    void capture(int[] values);
+
+    /**
+     * Apply the received fields value (client side).
+     * 
+     * @param values The received values, one per declared field.
+     */
+    void apply(int[] values);
+}
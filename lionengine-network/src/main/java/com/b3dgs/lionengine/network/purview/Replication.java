@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.nio.BufferUnderflowException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.game.feature.Transformable;
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageSnapshot;
+
+/**
+ * Entities state replication base, sharing the snapshot format between server and client.
+ * <p>
+ * A snapshot is a sequence of entity entries, each one preceded by a set bit, and terminated by an unset bit. An entry
+ * is the entity id, a removed flag, and if not removed, for each value a changed flag followed by the value on its
+ * declared bits if changed. Values are compared to the baseline snapshot values, or to zero if entity was not in it.
+ * The first two values are the entity location, quantized with the replication precision. Entity id is unsigned, and
+ * values are signed with two's complement: they must fit in their declared bits.
+ * </p>
+ */
+abstract class Replication implements Networkable
+{
+    /** Number of location values. */
+    static final int POSITION = 2;
+    /** Entity id bits. */
+    static final int ID_BITS = 16;
+    /** Entity id mask. */
+    static final int ID_MASK = 0xFFFF;
+    /** Number of snapshots kept. */
+    static final int HISTORY = 32;
+
+    /**
+     * Check if value changed from baseline.
+     * 
+     * @param baseline The baseline values (<code>null</code> if none).
+     * @param values The current values.
+     * @param i The value index.
+     * @return <code>true</code> if changed, <code>false</code> else.
+     */
+    private static boolean isChanged(int[] baseline, int[] values, int i)
+    {
+        if (baseline == null)
+        {
+            return values[i] != 0;
+        }
+        return values[i] != baseline[i];
+    }
+
+    /** Replicated entities. */
+    protected final Map<Short, Replica> replicas = new HashMap<Short, Replica>();
+    /** Values bits, location first. */
+    protected final int[] bits;
+    /** Location steps per unit. */
+    protected final double precision;
+    /** Message type. */
+    protected final byte type;
+    /** Networkable model. */
+    private final NetworkableModel networkable = new NetworkableModel();
+
+    /**
+     * Create replication.
+     * 
+     * @param type The message type.
+     * @param precision The location steps per unit (1 for unit precision, 16 for 1/16 unit...).
+     * @param positionBits The bits of each quantized location axis.
+     * @param fieldsBits The bits of each field of {@link ReplicaFields}.
+     */
+    Replication(byte type, double precision, int positionBits, int... fieldsBits)
+    {
+        Check.superiorStrict(precision, 0.0);
+        Check.superiorStrict(positionBits, 0);
+        Check.inferiorOrEqual(positionBits, Integer.SIZE);
+
+        this.type = type;
+        this.precision = precision;
+        bits = new int[POSITION + fieldsBits.length];
+        bits[0] = positionBits;
+        bits[1] = positionBits;
+        for (int i = 0; i < fieldsBits.length; i++)
+        {
+            Check.superiorStrict(fieldsBits[i], 0);
+            Check.inferiorOrEqual(fieldsBits[i], Integer.SIZE);
+            bits[POSITION + i] = fieldsBits[i];
+        }
+    }
+
+    /**
+     * Apply a received replication message.
+     * 
+     * @param message The message of replication type.
+     */
+    protected abstract void apply(NetworkMessageSnapshot message);
+
+    /**
+     * Add an entity to replicate.
+     * 
+     * @param id The entity id, same on server and clients.
+     * @param transformable The entity location (<code>null</code> if none).
+     * @param fields The entity fields (<code>null</code> if none).
+     */
+    public void addReplica(short id, Transformable transformable, ReplicaFields fields)
+    {
+        replicas.put(Short.valueOf(id), new Replica(id, transformable, fields, bits.length - POSITION));
+    }
+
+    /**
+     * Remove a replicated entity.
+     * 
+     * @param id The entity id.
+     */
+    public void removeReplica(short id)
+    {
+        replicas.remove(Short.valueOf(id));
+    }
+
+    /**
+     * Get the number of bits needed to write entity entry.
+     * 
+     * @param baseline The baseline values (<code>null</code> if none).
+     * @param values The entity values.
+     * @return The number of bits, including entry flag.
+     */
+    int getBits(int[] baseline, int[] values)
+    {
+        int count = 2 + ID_BITS + values.length;
+        for (int i = 0; i < values.length; i++)
+        {
+            if (isChanged(baseline, values, i))
+            {
+                count += bits[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Write entity entry.
+     * 
+     * @param buffer The buffer to write.
+     * @param id The entity id.
+     * @param baseline The baseline values (<code>null</code> if none).
+     * @param values The entity values (<code>null</code> if removed).
+     * @throws LionEngineException If a value does not fit in its declared bits.
+     */
+    void write(BitBuffer buffer, short id, int[] baseline, int[] values)
+    {
+        buffer.write(true);
+        buffer.write(id & ID_MASK, ID_BITS);
+        buffer.write(values == null);
+        if (values != null)
+        {
+            for (int i = 0; i < values.length; i++)
+            {
+                final boolean changed = isChanged(baseline, values, i);
+                buffer.write(changed);
+                if (changed)
+                {
+                    buffer.writeSigned(values[i], bits[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read entity values, after its id and removed flag.
+     * 
+     * @param buffer The buffer to read.
+     * @param baseline The baseline values (<code>null</code> if none).
+     * @return The entity values.
+     * @throws BufferUnderflowException If truncated entry.
+     */
+    int[] read(BitBuffer buffer, int[] baseline)
+    {
+        final int[] values = new int[bits.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            if (buffer.readFlag())
+            {
+                values[i] = buffer.readSigned(bits[i]);
+            }
+            else if (baseline != null)
+            {
+                values[i] = baseline[i];
+            }
+        }
+        return values;
+    }
+
+    /*
+     * Networkable
+     */
+
+    @Override
+    public void applyMessage(NetworkMessage message)
+    {
+        if (message.getType() == type && message instanceof NetworkMessageSnapshot)
+        {
+            apply((NetworkMessageSnapshot) message);
+        }
+    }
+
+    @Override
+    public void addNetworkMessage(NetworkMessage message)
+    {
+        networkable.addNetworkMessage(message);
+    }
+
+    @Override
+    public Collection<NetworkMessage> getNetworkMessages()
+    {
+        return networkable.getNetworkMessages();
+    }
+
+    @Override
+    public void clearNetworkMessages()
+    {
+        networkable.clearNetworkMessages();
+    }
+
+    @Override
+    public void setClientId(Byte id)
+    {
+        networkable.setClientId(id);
+    }
+
+    @Override
+    public Byte getClientId()
+    {
+        return networkable.getClientId();
+    }
+
+    /**
+     * Last snapshots by sequence, each one being the entities values by id.
+     */
+    static final class History
+    {
+        /** Snapshots sequence. */
+        private final int[] sequences = new int[HISTORY];
+        /** Snapshots values. */
+        private final List<Map<Short, int[]>> states = new ArrayList<Map<Short, int[]>>(HISTORY);
+
+        /**
+         * Create history.
+         */
+        History()
+        {
+            Arrays.fill(sequences, -1);
+            for (int i = 0; i < HISTORY; i++)
+            {
+                states.add(null);
+            }
+        }
+
+        /**
+         * Store snapshot, replacing the oldest one.
+         * 
+         * @param sequence The snapshot sequence.
+         * @param state The snapshot values, never modified after.
+         */
+        void put(int sequence, Map<Short, int[]> state)
+        {
+            final int index = sequence % HISTORY;
+            sequences[index] = sequence;
+            states.set(index, state);
+        }
+
+        /**
+         * Get snapshot.
+         * 
+         * @param sequence The snapshot sequence.
+         * @return The snapshot values, <code>null</code> if unknown.
+         */
+        Map<Short, int[]> get(int sequence)
+        {
+            if (sequence < 0)
+            {
+                return null;
+            }
+            final int index = sequence % HISTORY;
+            if (sequences[index] == sequence)
+            {
+                return states.get(index);
+            }
+            return null;
+        }
+    }
+}
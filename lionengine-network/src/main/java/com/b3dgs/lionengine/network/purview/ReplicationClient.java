@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.nio.BufferUnderflowException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Verbose;
+import com.b3dgs.lionengine.Viewer;
+import com.b3dgs.lionengine.game.feature.Transformable;
+import com.b3dgs.lionengine.network.message.NetworkMessageSnapshot;
+
+/**
+ * Entities state replication, client side.
+ * <p>
+ * Received snapshots are applied to the added entities, by teleporting them and applying their fields. Values of
+ * entities not yet added are kept and applied when added. On each {@link #send()}, the last received snapshot is
+ * acknowledged to the server with the viewer center location. A truncated snapshot is dropped without being applied.
+ * </p>
+ * <p>
+ * Must be added to the client world as networkable, with the same configuration as the server replication. Client id
+ * must be set once connected, as acknowledges are sent from it.
+ * </p>
+ * 
+ * @see ReplicationServer
+ */
+public class ReplicationClient extends Replication
+{
+    /** Truncated snapshot error. */
+    private static final String ERROR_TRUNCATED = "Truncated snapshot dropped: ";
+
+    /** Received snapshots. */
+    private final History history = new History();
+    /** Snapshot reader. */
+    private final BitBuffer buffer = new BitBuffer(1);
+    /** Entities read from current snapshot. */
+    private final List<Short> read = new ArrayList<Short>();
+    /** Viewer reference (<code>null</code> if none). */
+    private Viewer viewer;
+    /** Last received sequence. */
+    private int received = -1;
+
+    /**
+     * Create replication.
+     * 
+     * @param type The message type.
+     * @param precision The location steps per unit (1 for unit precision, 16 for 1/16 unit...).
+     * @param positionBits The bits of each quantized location axis.
+     * @param fieldsBits The bits of each field of {@link ReplicaFields}.
+     */
+    public ReplicationClient(byte type, double precision, int positionBits, int... fieldsBits)
+    {
+        super(type, precision, positionBits, fieldsBits);
+    }
+
+    /**
+     * Set the viewer used to prioritize nearest entities.
+     * 
+     * @param viewer The viewer reference (<code>null</code> if none).
+     */
+    public void setViewer(Viewer viewer)
+    {
+        this.viewer = viewer;
+    }
+
+    /**
+     * Queue the acknowledge of the last received snapshot.
+     */
+    public void send()
+    {
+        int viewX = 0;
+        int viewY = 0;
+        if (viewer != null)
+        {
+            viewX = (int) Math.round((viewer.getX() + viewer.getWidth() / 2.0) * precision);
+            viewY = (int) Math.round((viewer.getY() + viewer.getHeight() / 2.0) * precision);
+        }
+        addNetworkMessage(new NetworkMessageSnapshot(type, getClientId().byteValue(), received, viewX, viewY));
+    }
+
+    /*
+     * Replication
+     */
+
+    @Override
+    public void addReplica(short id, Transformable transformable, ReplicaFields fields)
+    {
+        super.addReplica(id, transformable, fields);
+
+        final Map<Short, int[]> state = history.get(received);
+        if (state != null)
+        {
+            final Short key = Short.valueOf(id);
+            final int[] values = state.get(key);
+            if (values != null)
+            {
+                replicas.get(key).apply(values, precision);
+            }
+        }
+    }
+
+    @Override
+    protected void apply(NetworkMessageSnapshot message)
+    {
+        if (message.isAck() || message.getSequence() <= received)
+        {
+            return;
+        }
+        Map<Short, int[]> baseline = history.get(message.getBaseline());
+        if (baseline == null)
+        {
+            if (message.getBaseline() != -1)
+            {
+                return;
+            }
+            baseline = Collections.emptyMap();
+        }
+        final Map<Short, int[]> state = new HashMap<Short, int[]>(baseline);
+        read.clear();
+        buffer.wrap(message.getData(), message.getLength());
+        try
+        {
+            while (buffer.readFlag())
+            {
+                final Short id = Short.valueOf((short) buffer.read(ID_BITS));
+                if (buffer.readFlag())
+                {
+                    state.remove(id);
+                }
+                else
+                {
+                    state.put(id, read(buffer, baseline.get(id)));
+                    read.add(id);
+                }
+            }
+        }
+        catch (final BufferUnderflowException exception)
+        {
+            Verbose.warning(ERROR_TRUNCATED, String.valueOf(message.getSequence()));
+            return;
+        }
+        for (final Short id : read)
+        {
+            final Replica replica = replicas.get(id);
+            if (replica != null)
+            {
+                replica.apply(state.get(id), precision);
+            }
+        }
+        received = message.getSequence();
+        history.put(received, state);
+    }
+}
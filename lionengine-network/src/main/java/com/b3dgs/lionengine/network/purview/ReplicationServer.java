@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.b3dgs.lionengine.Check;
+import com.b3dgs.lionengine.network.message.NetworkMessageSnapshot;
+
+/**
+ * Entities state replication, server side.
+ * <p>
+ * On each {@link #send()}, a {@link NetworkMessageSnapshot} is sent to each client having acknowledged, with only the
+ * entities values changed since the last snapshot it acknowledged. Entities are sorted by distance to the client
+ * viewpoint, and the farthest are delayed to the next snapshots if the client budget is exceeded.
+ * </p>
+ * <p>
+ * Must be added to the server world as networkable, in order to receive acknowledges. Clients are known from their
+ * first acknowledge, and must be removed with {@link #removeClient(Byte)} on disconnection.
+ * </p>
+ * 
+ * @see ReplicationClient
+ */
+public class ReplicationServer extends Replication
+{
+    /** Default budget in bytes. */
+    private static final int DEFAULT_BUDGET = 1024;
+    /** Bits per byte. */
+    private static final int BYTE = 8;
+    /** Sort by distance to viewpoint. */
+    private static final Comparator<Replica> DISTANCE = new Comparator<Replica>()
+    {
+        @Override
+        public int compare(Replica a, Replica b)
+        {
+            return Double.compare(a.getDistance(), b.getDistance());
+        }
+    };
+
+    /** Clients by id. */
+    private final Map<Byte, Remote> clients = new HashMap<Byte, Remote>();
+    /** Changed entities for current client. */
+    private final List<Replica> changed = new ArrayList<Replica>();
+    /** Snapshot buffer. */
+    private final BitBuffer buffer = new BitBuffer(DEFAULT_BUDGET);
+    /** Snapshot budget per client in bytes. */
+    private int budget = DEFAULT_BUDGET;
+
+    /**
+     * Create replication.
+     * 
+     * @param type The message type.
+     * @param precision The location steps per unit (1 for unit precision, 16 for 1/16 unit...).
+     * @param positionBits The bits of each quantized location axis.
+     * @param fieldsBits The bits of each field of {@link ReplicaFields}.
+     */
+    public ReplicationServer(byte type, double precision, int positionBits, int... fieldsBits)
+    {
+        super(type, precision, positionBits, fieldsBits);
+    }
+
+    /**
+     * Set the snapshot budget per client. Removed entities and the nearest changed entity are always sent.
+     * 
+     * @param bytes The maximum snapshot data size in bytes.
+     */
+    public void setBudget(int bytes)
+    {
+        Check.superiorStrict(bytes, 0);
+        budget = bytes;
+    }
+
+    /**
+     * Forget a client replication state.
+     * 
+     * @param id The client id.
+     */
+    public void removeClient(Byte id)
+    {
+        clients.remove(id);
+    }
+
+    /**
+     * Capture entities values and queue a snapshot for each client.
+     */
+    public void send()
+    {
+        for (final Replica replica : replicas.values())
+        {
+            replica.capture(precision);
+        }
+        for (final Remote remote : clients.values())
+        {
+            send(remote);
+        }
+    }
+
+    /**
+     * Queue a snapshot for client if entities changed since its acknowledged snapshot.
+     * 
+     * @param remote The client reference.
+     */
+    private void send(Remote remote)
+    {
+        Map<Short, int[]> baseline = remote.history.get(remote.acked);
+        int baselineSequence = remote.acked;
+        if (baseline == null)
+        {
+            baseline = Collections.emptyMap();
+            baselineSequence = -1;
+        }
+        final Map<Short, int[]> state = new HashMap<Short, int[]>(baseline);
+        buffer.clear();
+
+        int entries = 0;
+        for (final Short id : baseline.keySet())
+        {
+            if (!replicas.containsKey(id))
+            {
+                write(buffer, id.shortValue(), null, null);
+                state.remove(id);
+                entries++;
+            }
+        }
+
+        changed.clear();
+        for (final Replica replica : replicas.values())
+        {
+            final int[] values = replica.getValues();
+            if (!Arrays.equals(baseline.get(Short.valueOf(replica.getId())), values))
+            {
+                final double dx = values[0] - (double) remote.viewX;
+                final double dy = values[1] - (double) remote.viewY;
+                replica.setDistance(dx * dx + dy * dy);
+                changed.add(replica);
+            }
+        }
+        Collections.sort(changed, DISTANCE);
+
+        final int max = budget * BYTE;
+        int size = 0;
+        for (final Replica replica : changed)
+        {
+            final Short id = Short.valueOf(replica.getId());
+            final int[] base = baseline.get(id);
+            final int[] values = replica.getValues();
+            size += getBits(base, values);
+            if (size > max && entries > 0)
+            {
+                break;
+            }
+            write(buffer, replica.getId(), base, values);
+            state.put(id, values);
+            entries++;
+        }
+
+        if (entries > 0)
+        {
+            buffer.write(false);
+            remote.sequence++;
+            remote.history.put(remote.sequence, state);
+            addNetworkMessage(new NetworkMessageSnapshot(type,
+                                                         remote.id,
+                                                         remote.sequence,
+                                                         baselineSequence,
+                                                         buffer.getData(),
+                                                         buffer.getSize()));
+        }
+    }
+
+    /*
+     * Replication
+     */
+
+    @Override
+    protected void apply(NetworkMessageSnapshot message)
+    {
+        if (message.isAck())
+        {
+            final Byte id = Byte.valueOf(message.getClientId());
+            Remote remote = clients.get(id);
+            if (remote == null)
+            {
+                remote = new Remote(message.getClientId());
+                clients.put(id, remote);
+            }
+            if (message.getSequence() > remote.acked && remote.history.get(message.getSequence()) != null)
+            {
+                remote.acked = message.getSequence();
+            }
+            remote.viewX = message.getViewX();
+            remote.viewY = message.getViewY();
+        }
+    }
+
+    /**
+     * Client replication state.
+     */
+    private static final class Remote
+    {
+        /** Sent snapshots. */
+        private final History history = new History();
+        /** Client id. */
+        private final byte id;
+        /** Last sent sequence. */
+        private int sequence = -1;
+        /** Last acknowledged sequence. */
+        private int acked = -1;
+        /** Quantized viewpoint horizontal location. */
+        private int viewX;
+        /** Quantized viewpoint vertical location. */
+        private int viewY;
+
+        /**
+         * Create client state.
+         * 
+         * @param id The client id.
+         */
+        Remote(byte id)
+        {
+            this.id = id;
+        }
+    }
+}
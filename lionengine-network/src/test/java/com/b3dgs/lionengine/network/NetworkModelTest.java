@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageChat;
+import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
+import com.b3dgs.lionengine.network.message.NetworkMessagePool;
+import com.b3dgs.lionengine.network.message.NetworkMessageTurn;
+
+/**
+ * Test network model buffers and pooled messages release.
+ */
+public class NetworkModelTest
+{
+    /** Chat type. */
+    private static final byte CHAT = 0;
+    /** Turn type. */
+    private static final byte TURN = 1;
+
+    /** Created messages count. */
+    private int created;
+    /** Network tested. */
+    private Network network;
+
+    /**
+     * Prepare test.
+     */
+    @Before
+    public void prepare()
+    {
+        created = 0;
+        network = new Network(new NetworkMessagePool(new NetworkMessageDecoder()
+        {
+            @Override
+            public NetworkMessage getNetworkMessageFromType(int type)
+            {
+                created++;
+                if (type == CHAT)
+                {
+                    return new NetworkMessageChat();
+                }
+                if (type == TURN)
+                {
+                    return new NetworkMessageTurn();
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Encode message and copy it to the decoding buffer, as received.
+     * 
+     * @param message The message to encode.
+     * @return The decoding buffer.
+     * @throws IOException If error.
+     */
+    private ByteBuffer receive(NetworkMessage message) throws IOException
+    {
+        final ByteBuffer encoded = network.encodeMessage(message);
+        final ByteBuffer buffer = network.getInput(encoded.remaining());
+        buffer.put(encoded);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Test received messages are released on clear and reused.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testReleaseOnClear() throws IOException
+    {
+        network.decodeMessage(CHAT, (byte) 1, (byte) -1, receive(new NetworkMessageChat(CHAT, (byte) 1, "first")));
+        Assert.assertEquals(1, network.getMessages().size());
+        final NetworkMessage first = network.getMessages().iterator().next();
+
+        network.clearMessages();
+        Assert.assertTrue(network.getMessages().isEmpty());
+
+        network.decodeMessage(CHAT, (byte) 1, (byte) -1, receive(new NetworkMessageChat(CHAT, (byte) 1, "second")));
+        final NetworkMessageChat second = (NetworkMessageChat) network.getMessages().iterator().next();
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals("second", second.getMessage());
+        Assert.assertEquals(1, created);
+    }
+
+    /**
+     * Test message is released when data is shorter than header.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testReleaseOnShortData() throws IOException
+    {
+        final ByteBuffer buffer = network.getInput(2);
+        network.decodeMessage(CHAT, (byte) 1, (byte) -1, buffer);
+        network.decodeMessage(CHAT, (byte) 1, (byte) -1, buffer);
+
+        Assert.assertTrue(network.getMessages().isEmpty());
+        Assert.assertEquals(1, created);
+    }
+
+    /**
+     * Test message is released when decoding fails.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testReleaseOnDecodeError() throws IOException
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            final ByteBuffer buffer = receive(new NetworkMessageTurn(TURN, (byte) 1, 0, -1, 0, new int[0], 0));
+            buffer.limit(buffer.limit() - 1);
+            try
+            {
+                network.decodeMessage(TURN, (byte) 1, (byte) -1, buffer);
+                Assert.fail();
+            }
+            catch (final BufferUnderflowException exception)
+            {
+                Assert.assertNotNull(exception);
+            }
+        }
+        Assert.assertTrue(network.getMessages().isEmpty());
+        Assert.assertEquals(1, created);
+
+        network.decodeMessage(TURN, (byte) 1, (byte) -1, receive(new NetworkMessageTurn(TURN,
+                                                                                         (byte) 1,
+                                                                                         4,
+                                                                                         -1,
+                                                                                         0,
+                                                                                         new int[0],
+                                                                                         0)));
+        Assert.assertEquals(4, ((NetworkMessageTurn) network.getMessages().iterator().next()).getTurn());
+        Assert.assertEquals(1, created);
+    }
+
+    /**
+     * Test unknown type does not decode.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testUnknownType() throws IOException
+    {
+        network.decodeMessage(Byte.MAX_VALUE, (byte) 1, (byte) -1, network.getInput(8));
+
+        Assert.assertTrue(network.getMessages().isEmpty());
+    }
+
+    /**
+     * Test buffers are kept between messages, and grown when too small.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testBuffers() throws IOException
+    {
+        final ByteBuffer small = network.encodeMessage(new NetworkMessageChat(CHAT, (byte) 1, "a"));
+        Assert.assertSame(small, network.encodeMessage(new NetworkMessageChat(CHAT, (byte) 1, "b")));
+
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++)
+        {
+            text.append('x');
+        }
+        final ByteBuffer large = network.encodeMessage(new NetworkMessageChat(CHAT, (byte) 1, text.toString()));
+        Assert.assertEquals(3003, large.remaining());
+        Assert.assertSame(large, network.encodeMessage(new NetworkMessageChat(CHAT, (byte) 1, "c")));
+
+        final ByteBuffer input = network.getInput(16);
+        Assert.assertEquals(16, input.limit());
+        Assert.assertSame(input, network.getInput(8));
+        Assert.assertTrue(network.getInput(5000).capacity() >= 5000);
+    }
+
+    /**
+     * Network model without connection.
+     */
+    private static final class Network extends NetworkModel<ClientListener>
+    {
+        /**
+         * Create network.
+         * 
+         * @param decoder The message decoder.
+         */
+        Network(NetworkMessageDecoder decoder)
+        {
+            super(decoder);
+        }
+
+        /*
+         * Networker
+         */
+
+        @Override
+        public void disconnect()
+        {
+            // Nothing to do
+        }
+
+        @Override
+        public void sendMessages()
+        {
+            // Nothing to do
+        }
+
+        @Override
+        public void receiveMessages()
+        {
+            clearMessages();
+        }
+
+        @Override
+        public int getBandwidth()
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageChat;
+import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
+
+/**
+ * Test non blocking server with clients.
+ */
+public class ServerNioTest
+{
+    /** Message type. */
+    private static final byte TYPE = 2;
+    /** Maximum wait duration in milli second. */
+    private static final long DURATION = 10000L;
+    /** Stream header and connecting message size. */
+    private static final int CONNECTING_SIZE = 8;
+    /** Message decoder. */
+    private static final NetworkMessageDecoder DECODER = new NetworkMessageDecoder()
+    {
+        @Override
+        public NetworkMessage getNetworkMessageFromType(int type)
+        {
+            return new NetworkMessageChat();
+        }
+    };
+
+    /**
+     * Get a free port.
+     * 
+     * @return The port number.
+     * @throws IOException If error.
+     */
+    private static int getFreePort() throws IOException
+    {
+        final ServerSocket socket = new ServerSocket(0);
+        try
+        {
+            return socket.getLocalPort();
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    /**
+     * Create a name.
+     * 
+     * @param length The name length.
+     * @return The name.
+     */
+    private static String createName(int length)
+    {
+        final char[] name = new char[length];
+        Arrays.fill(name, 'n');
+        return new String(name);
+    }
+
+    /**
+     * Get the chat messages content.
+     * 
+     * @param networker The networker reference.
+     * @param received The received messages content.
+     */
+    private static void collect(Networker<?> networker, List<String> received)
+    {
+        for (final NetworkMessage message : networker.getMessages())
+        {
+            received.add(((NetworkMessageChat) message).getMessage());
+        }
+    }
+
+    /**
+     * Check wait duration.
+     * 
+     * @param end The wait end time.
+     * @throws InterruptedException If interrupted.
+     */
+    private static void waitUntil(long end) throws InterruptedException
+    {
+        Assert.assertTrue(System.currentTimeMillis() < end);
+        Thread.sleep(1L);
+    }
+
+    /** Raw sockets. */
+    private final List<Socket> sockets = new ArrayList<Socket>();
+    /** Server listener. */
+    private final Recorder recorder = new Recorder();
+    /** Server. */
+    private ServerNio server;
+    /** Server port. */
+    private int port;
+
+    /**
+     * Prepare test.
+     * 
+     * @throws IOException If error.
+     */
+    @Before
+    public void prepare() throws IOException
+    {
+        port = getFreePort();
+        server = new ServerNio(DECODER);
+        server.addListener(recorder);
+        server.start("server", port);
+    }
+
+    /**
+     * Clean test.
+     * 
+     * @throws IOException If error.
+     */
+    @After
+    public void clean() throws IOException
+    {
+        server.disconnect();
+        for (final Socket socket : sockets)
+        {
+            socket.close();
+        }
+    }
+
+    /**
+     * Update server and clients once.
+     * 
+     * @param clients The clients to update.
+     */
+    private void update(ClientImpl... clients)
+    {
+        server.receiveMessages();
+        server.sendMessages();
+        for (final ClientImpl client : clients)
+        {
+            client.receiveMessages();
+            client.sendMessages();
+        }
+    }
+
+    /**
+     * Connect a client, and wait until connection is established.
+     * 
+     * @param name The client name.
+     * @param listener The client listener.
+     * @return The connected client.
+     * @throws InterruptedException If interrupted.
+     */
+    private ClientImpl connect(String name, Recorder listener) throws InterruptedException
+    {
+        final ClientImpl client = new ClientImpl(DECODER);
+        client.setName(name);
+        client.addListener(listener);
+        final Thread connecter = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                client.connect("127.0.0.1", port);
+            }
+        };
+        connecter.start();
+        final long end = System.currentTimeMillis() + DURATION;
+        while (connecter.isAlive())
+        {
+            update();
+            waitUntil(end);
+        }
+        while (listener.established == null)
+        {
+            update(client);
+            waitUntil(end);
+        }
+        return client;
+    }
+
+    /**
+     * Connect a raw client, sending its handshake byte per byte if split.
+     * 
+     * @param name The client name.
+     * @param split <code>true</code> to send one byte at a time, <code>false</code> to send all at once.
+     * @return The client id.
+     * @throws IOException If error.
+     * @throws InterruptedException If interrupted.
+     */
+    private byte connectRaw(String name, boolean split) throws IOException, InterruptedException
+    {
+        final Socket socket = new Socket("127.0.0.1", port);
+        sockets.add(socket);
+        final long end = System.currentTimeMillis() + DURATION;
+        while (socket.getInputStream().available() < CONNECTING_SIZE)
+        {
+            update();
+            waitUntil(end);
+        }
+        final ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+        Assert.assertEquals(NetworkMessageSystemId.CONNECTING, in.readByte());
+        final byte id = in.readByte();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream handshake = new ObjectOutputStream(bytes);
+        final byte[] data = name.getBytes(NetworkMessage.CHARSET);
+        handshake.writeByte(NetworkMessageSystemId.CONNECTING);
+        handshake.writeByte(id);
+        handshake.writeByte(data.length);
+        handshake.write(data);
+        handshake.flush();
+        handshake.writeByte(NetworkMessageSystemId.CONNECTED);
+        handshake.writeByte(id);
+        handshake.flush();
+
+        final OutputStream out = socket.getOutputStream();
+        if (split)
+        {
+            for (final byte value : bytes.toByteArray())
+            {
+                out.write(value);
+                out.flush();
+                update();
+                Thread.sleep(1L);
+            }
+        }
+        else
+        {
+            out.write(bytes.toByteArray());
+            out.flush();
+        }
+        while (!recorder.connected.contains(Byte.valueOf(id)))
+        {
+            update();
+            waitUntil(end);
+        }
+        return id;
+    }
+
+    /**
+     * Test two clients connect and exchange messages through server.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testTwoClients() throws InterruptedException
+    {
+        final Recorder listener1 = new Recorder();
+        final Recorder listener2 = new Recorder();
+        final ClientImpl client1 = connect("one", listener1);
+        final ClientImpl client2 = connect("two", listener2);
+        try
+        {
+            final long end = System.currentTimeMillis() + DURATION;
+            while (!listener1.names.contains("two"))
+            {
+                update(client1, client2);
+                waitUntil(end);
+            }
+
+            Assert.assertEquals(2, server.getNumberOfClients());
+            Assert.assertEquals(Arrays.asList("one", "two"), recorder.names);
+            Assert.assertTrue(listener2.names.contains("one"));
+            Assert.assertTrue(client1.getId() != client2.getId());
+            Assert.assertEquals(server.getSecret(client1.getId()), client1.getSecret());
+            Assert.assertEquals(server.getSecret(client2.getId()), client2.getSecret());
+
+            client1.addMessage(new NetworkMessageChat(TYPE, client1.getId(), "all"));
+            client2.addMessage(new NetworkMessageChat(TYPE, client2.getId(), client1.getId(), "private"));
+
+            final List<String> received1 = new ArrayList<String>();
+            final List<String> received2 = new ArrayList<String>();
+            while (!received1.contains("private") || !received2.contains("all"))
+            {
+                update(client1, client2);
+                collect(client1, received1);
+                collect(client2, received2);
+                waitUntil(end);
+            }
+
+            Assert.assertFalse(received2.contains("private"));
+        }
+        finally
+        {
+            client1.disconnect();
+            client2.disconnect();
+        }
+    }
+
+    /**
+     * Test messages received by parts, with a name longer than a signed byte.
+     * 
+     * @throws IOException If error.
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testPartialReads() throws IOException, InterruptedException
+    {
+        final String name = createName(200);
+        final byte id = connectRaw(name, true);
+
+        Assert.assertEquals(Arrays.asList(name), recorder.names);
+        Assert.assertEquals(Arrays.asList(Byte.valueOf(id)), recorder.connected);
+        Assert.assertEquals(1, server.getNumberOfClients());
+    }
+
+    /**
+     * Test several messages received in a single read.
+     * 
+     * @throws IOException If error.
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testFraming() throws IOException, InterruptedException
+    {
+        final String name = createName(255);
+        connectRaw(name, false);
+
+        Assert.assertEquals(Arrays.asList(name), recorder.names);
+    }
+
+    /**
+     * Test clean and abrupt disconnection.
+     * 
+     * @throws IOException If error.
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testDisconnect() throws IOException, InterruptedException
+    {
+        final Recorder listener = new Recorder();
+        final ClientImpl client = connect("one", listener);
+        final ClientImpl other = connect("two", new Recorder());
+        final byte raw = connectRaw("raw", false);
+
+        other.disconnect();
+        final long end = System.currentTimeMillis() + DURATION;
+        while (!listener.disconnected.contains(Byte.valueOf(other.getId())))
+        {
+            update(client);
+            waitUntil(end);
+        }
+
+        Assert.assertEquals(Arrays.asList(Byte.valueOf(other.getId())), recorder.disconnected);
+        Assert.assertEquals(2, server.getNumberOfClients());
+
+        sockets.get(0).close();
+        while (!listener.disconnected.contains(Byte.valueOf(raw)))
+        {
+            update(client);
+            waitUntil(end);
+        }
+
+        Assert.assertEquals(Arrays.asList(Byte.valueOf(other.getId()), Byte.valueOf(raw)), recorder.disconnected);
+        Assert.assertEquals(1, server.getNumberOfClients());
+
+        client.disconnect();
+    }
+
+    /**
+     * Test client not reading its messages is disconnected once its queue overflows.
+     * 
+     * @throws IOException If error.
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testQueueOverflow() throws IOException, InterruptedException
+    {
+        final byte id = connectRaw("slow", false);
+        final String content = createName(ClientChannel.QUEUE_MAX / 16);
+        final long end = System.currentTimeMillis() + DURATION;
+        while (!recorder.disconnected.contains(Byte.valueOf(id)))
+        {
+            server.addMessage(new NetworkMessageChat(TYPE, (byte) -1, id, content));
+            update();
+            waitUntil(end);
+        }
+
+        Assert.assertEquals(0, server.getNumberOfClients());
+    }
+
+    /**
+     * Test client sending a message larger than the maximum size is disconnected.
+     * 
+     * @throws IOException If error.
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testMessageTooLarge() throws IOException, InterruptedException
+    {
+        final byte id = connectRaw("large", false);
+        final ByteBuffer header = ByteBuffer.allocate(10);
+        header.put(ObjectStreamConstants.TC_BLOCKDATA);
+        header.put((byte) 8);
+        header.put(NetworkMessageSystemId.USER_MESSAGE);
+        header.put(id);
+        header.put((byte) -1);
+        header.put(TYPE);
+        header.putInt(Integer.MAX_VALUE - 8);
+
+        final OutputStream out = sockets.get(0).getOutputStream();
+        out.write(header.array());
+        out.flush();
+
+        final long end = System.currentTimeMillis() + DURATION;
+        while (!recorder.disconnected.contains(Byte.valueOf(id)))
+        {
+            update();
+            waitUntil(end);
+        }
+
+        Assert.assertEquals(0, server.getNumberOfClients());
+    }
+
+    /**
+     * Connection events recorder.
+     */
+    private static final class Recorder implements ConnectionListener
+    {
+        /** Connected clients. */
+        private final List<Byte> connected = new ArrayList<Byte>();
+        /** Disconnected clients. */
+        private final List<Byte> disconnected = new ArrayList<Byte>();
+        /** Connected clients name. */
+        private final List<String> names = new ArrayList<String>();
+        /** Established connection id (<code>null</code> if not established). */
+        private Byte established;
+
+        /**
+         * Create recorder.
+         */
+        Recorder()
+        {
+            super();
+        }
+
+        @Override
+        public void notifyClientConnected(Byte id, String name)
+        {
+            connected.add(id);
+            names.add(name);
+        }
+
+        @Override
+        public void notifyClientDisconnected(Byte id, String name)
+        {
+            disconnected.add(id);
+        }
+
+        @Override
+        public void notifyClientNameChanged(Byte id, String name)
+        {
+            // Nothing to do
+        }
+
+        @Override
+        public void notifyConnectionEstablished(Byte id, String name)
+        {
+            established = id;
+        }
+
+        @Override
+        public void notifyMessageOfTheDay(String messageOfTheDay)
+        {
+            // Nothing to do
+        }
+
+        @Override
+        public void notifyConnectionTerminated(Byte id)
+        {
+            // Nothing to do
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageChat;
+import com.b3dgs.lionengine.network.message.NetworkMessageDecoder;
+
+/**
+ * Test datagram transport on loopback.
+ */
+public class UdpTransportTest
+{
+    /** Message type. */
+    private static final byte TYPE = 1;
+    /** Client id. */
+    private static final byte ID = 3;
+    /** Client secret. */
+    private static final int SECRET = 0x5EC2E7;
+    /** Messages number. */
+    private static final int COUNT = 100;
+    /** Maximum test duration in milli second. */
+    private static final long DURATION = 10000L;
+    /** Message decoder. */
+    private static final NetworkMessageDecoder DECODER = new NetworkMessageDecoder()
+    {
+        @Override
+        public NetworkMessage getNetworkMessageFromType(int type)
+        {
+            return new NetworkMessageChat();
+        }
+    };
+
+    /**
+     * Get a free port.
+     * 
+     * @return The port number.
+     * @throws IOException If error.
+     */
+    private static int getFreePort() throws IOException
+    {
+        final DatagramSocket socket = new DatagramSocket(0);
+        try
+        {
+            return socket.getLocalPort();
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    /**
+     * Update transports once.
+     * 
+     * @param transports The transports to update.
+     * @throws InterruptedException If interrupted.
+     */
+    private static void update(UdpTransport... transports) throws InterruptedException
+    {
+        for (final UdpTransport transport : transports)
+        {
+            transport.receiveMessages();
+        }
+        for (final UdpTransport transport : transports)
+        {
+            transport.sendMessages();
+        }
+        Thread.sleep(2L);
+    }
+
+    /**
+     * Update transports during a delay.
+     * 
+     * @param delay The delay in milli second.
+     * @param transports The transports to update.
+     * @throws InterruptedException If interrupted.
+     */
+    private static void update(long delay, UdpTransport... transports) throws InterruptedException
+    {
+        final long end = System.currentTimeMillis() + delay;
+        while (System.currentTimeMillis() < end)
+        {
+            update(transports);
+        }
+    }
+
+    /**
+     * Get the received messages content.
+     * 
+     * @param transport The transport reference.
+     * @param received The received messages content.
+     */
+    private static void collect(UdpTransport transport, List<Integer> received)
+    {
+        for (final NetworkMessage message : transport.getMessages())
+        {
+            received.add(Integer.valueOf(((NetworkMessageChat) message).getMessage()));
+        }
+    }
+
+    /** Server transport. */
+    private UdpTransport server;
+    /** Client transport. */
+    private UdpTransport client;
+    /** Server port. */
+    private int port;
+
+    /**
+     * Prepare test.
+     * 
+     * @throws IOException If error.
+     */
+    @Before
+    public void prepare() throws IOException
+    {
+        port = getFreePort();
+        server = new UdpTransport(DECODER);
+        server.start(port);
+        server.allow(ID, SECRET);
+        client = new UdpTransport(DECODER);
+    }
+
+    /**
+     * Clean test.
+     */
+    @After
+    public void clean()
+    {
+        client.disconnect();
+        server.disconnect();
+    }
+
+    /**
+     * Connect client and wait for handshake.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    private void connect() throws InterruptedException
+    {
+        client.connect("127.0.0.1", port, ID, SECRET);
+        final long end = System.currentTimeMillis() + DURATION;
+        while (!client.isConnected() || server.getNumberOfClients() == 0)
+        {
+            Assert.assertTrue(System.currentTimeMillis() < end);
+            update(server, client);
+        }
+        Assert.assertEquals(ID, client.getId());
+    }
+
+    /**
+     * Send messages from client to server, one per packet.
+     * 
+     * @param reliability The messages reliability.
+     * @param wanted The expected received messages number.
+     * @return The received messages content.
+     * @throws InterruptedException If interrupted.
+     */
+    private List<Integer> send(Reliability reliability, int wanted) throws InterruptedException
+    {
+        server.setReliability(TYPE, reliability);
+        client.setReliability(TYPE, reliability);
+
+        final List<Integer> received = new ArrayList<Integer>();
+        for (int i = 0; i < COUNT; i++)
+        {
+            client.addMessage(new NetworkMessageChat(TYPE, ID, String.valueOf(i)));
+            update(server, client);
+            collect(server, received);
+        }
+        final long end = System.currentTimeMillis() + DURATION;
+        while (received.size() < wanted && System.currentTimeMillis() < end)
+        {
+            update(server, client);
+            collect(server, received);
+        }
+        final long drain = System.currentTimeMillis() + 200L;
+        while (System.currentTimeMillis() < drain)
+        {
+            update(server, client);
+            collect(server, received);
+        }
+        return received;
+    }
+
+    /**
+     * Test reliable messages are received exactly once and in order, despite loss and latency.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testReliableOrdered() throws InterruptedException
+    {
+        server.setSimulation(0.3, 20);
+        client.setSimulation(0.3, 20);
+        connect();
+
+        final List<Integer> received = send(Reliability.RELIABLE_ORDERED, COUNT);
+
+        Assert.assertEquals(COUNT, received.size());
+        for (int i = 0; i < COUNT; i++)
+        {
+            Assert.assertEquals(i, received.get(i).intValue());
+        }
+    }
+
+    /**
+     * Test unreliable messages may be dropped, but are never duplicated.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testUnreliable() throws InterruptedException
+    {
+        connect();
+        server.setSimulation(0.5, 0);
+        client.setSimulation(0.5, 0);
+
+        final List<Integer> received = send(Reliability.UNRELIABLE, 0);
+
+        Assert.assertTrue(received.size() < COUNT);
+        Assert.assertEquals(received.size(), new HashSet<Integer>(received).size());
+    }
+
+    /**
+     * Test sequenced messages may be dropped, but older ones are never received after newer ones.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testUnreliableSequenced() throws InterruptedException
+    {
+        connect();
+        server.setSimulation(0.5, 10);
+        client.setSimulation(0.5, 10);
+
+        final List<Integer> received = send(Reliability.UNRELIABLE_SEQUENCED, 0);
+
+        Assert.assertTrue(received.size() < COUNT);
+        for (int i = 1; i < received.size(); i++)
+        {
+            Assert.assertTrue(received.get(i).intValue() > received.get(i - 1).intValue());
+        }
+    }
+
+    /**
+     * Test client with wrong secret is rejected.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testWrongSecret() throws InterruptedException
+    {
+        client.connect("127.0.0.1", port, ID, SECRET + 1);
+        update(300L, server, client);
+
+        Assert.assertFalse(client.isConnected());
+        Assert.assertEquals(0, server.getNumberOfClients());
+    }
+
+    /**
+     * Test client id not allowed is rejected.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testNotAllowed() throws InterruptedException
+    {
+        client.connect("127.0.0.1", port, (byte) (ID + 1), SECRET);
+        update(300L, server, client);
+
+        Assert.assertFalse(client.isConnected());
+        Assert.assertEquals(0, server.getNumberOfClients());
+    }
+
+    /**
+     * Test client id already bound to another address is rejected, and not given another id.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testAlreadyBound() throws InterruptedException
+    {
+        connect();
+
+        final UdpTransport other = new UdpTransport(DECODER);
+        try
+        {
+            other.connect("127.0.0.1", port, ID, SECRET);
+            update(300L, server, client, other);
+
+            Assert.assertFalse(other.isConnected());
+            Assert.assertEquals(-1, other.getId());
+            Assert.assertEquals(1, server.getNumberOfClients());
+        }
+        finally
+        {
+            other.disconnect();
+        }
+    }
+
+    /**
+     * Test revoked client is disconnected and cannot connect again.
+     * 
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testRevoke() throws InterruptedException
+    {
+        connect();
+        server.revoke(ID);
+
+        Assert.assertEquals(0, server.getNumberOfClients());
+
+        client.disconnect();
+        client.connect("127.0.0.1", port, ID, SECRET);
+        update(300L, server, client);
+
+        Assert.assertFalse(client.isConnected());
+        Assert.assertEquals(0, server.getNumberOfClients());
+    }
+
+    /**
+     * Test acknowledge bit field retires a message sent again in a later packet.
+     */
+    @Test
+    public void testAckRetiresResent()
+    {
+        final UdpConnection connection = new UdpConnection(new InetSocketAddress(0), 0L);
+        connection.queue(Reliability.RELIABLE_ORDERED, TYPE, new byte[1]);
+        final UdpConnection.Outgoing message = connection.getPending().get(0);
+
+        message.setSent(connection.nextPacket(0L), 0L);
+        final long delay = connection.getResendDelay();
+
+        Assert.assertFalse(message.isDue(delay - 1L, delay));
+        Assert.assertTrue(message.isDue(delay, delay));
+
+        message.setSent(connection.nextPacket(delay), delay);
+        for (int i = 0; i < 4; i++)
+        {
+            connection.nextPacket(delay);
+        }
+
+        Assert.assertTrue(connection.receivePacket(0, 0, 0, delay));
+        Assert.assertEquals(1, connection.getPending().size());
+
+        Assert.assertTrue(connection.receivePacket(1, 5, 1 << 3, delay));
+        Assert.assertTrue(connection.getPending().isEmpty());
+
+        Assert.assertFalse(connection.receivePacket(1, 5, 1 << 3, delay));
+    }
+
+    /**
+     * Test messages received in advance are bounded.
+     */
+    @Test
+    public void testEarlyBounded()
+    {
+        final UdpConnection connection = new UdpConnection(new InetSocketAddress(0), 0L);
+        for (int i = 1; i <= UdpConnection.EARLY_MAX; i++)
+        {
+            Assert.assertTrue(connection.store(i, new byte[1]));
+        }
+
+        Assert.assertFalse(connection.store(UdpConnection.EARLY_MAX + 1, new byte[1]));
+        Assert.assertTrue(connection.store(1, new byte[1]));
+        Assert.assertNull(connection.pollEarly());
+
+        connection.delivered();
+
+        Assert.assertNotNull(connection.pollEarly());
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test pooled messages encoding and decoding.
+ */
+public class NetworkMessagePoolTest
+{
+    /** Chat type. */
+    private static final byte CHAT = 0;
+    /** Entity type. */
+    private static final byte ENTITY = 1;
+    /** Snapshot type. */
+    private static final byte SNAPSHOT = 2;
+    /** Turn type. */
+    private static final byte TURN = 3;
+    /** Header size, skipped before decoding. */
+    private static final int HEADER = 3;
+
+    /**
+     * Encode message to a buffer, as sent.
+     * 
+     * @param message The message to encode.
+     * @return The encoded buffer, positioned after header.
+     * @throws IOException If error.
+     */
+    private static ByteBuffer write(NetworkMessage message) throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(256);
+        message.write(buffer);
+        buffer.flip();
+        Assert.assertEquals(message.getType(), buffer.get(0));
+        Assert.assertEquals(message.getClientId(), buffer.get(1));
+        Assert.assertEquals(message.getClientDestId(), buffer.get(2));
+        buffer.position(HEADER);
+        return buffer;
+    }
+
+    /** Created messages count. */
+    private int created;
+    /** Pool tested. */
+    private NetworkMessagePool pool;
+
+    /**
+     * Prepare test.
+     */
+    @Before
+    public void prepare()
+    {
+        created = 0;
+        pool = new NetworkMessagePool(new NetworkMessageDecoder()
+        {
+            @Override
+            public NetworkMessage getNetworkMessageFromType(int type)
+            {
+                created++;
+                switch (type)
+                {
+                    case CHAT:
+                        return new NetworkMessageChat();
+                    case ENTITY:
+                        return new Entity();
+                    case SNAPSHOT:
+                        return new NetworkMessageSnapshot();
+                    case TURN:
+                        return new NetworkMessageTurn();
+                    default:
+                        return null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Decode buffer into a message taken from pool.
+     * 
+     * @param type The message type.
+     * @param buffer The encoded buffer.
+     * @param from The source client.
+     * @param dest The destination client.
+     * @return The decoded message.
+     * @throws IOException If error.
+     */
+    private NetworkMessage read(byte type, ByteBuffer buffer, byte from, byte dest) throws IOException
+    {
+        final NetworkMessage pooled = pool.getNetworkMessageFromType(type);
+        pooled.read(type, from, dest, buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        Assert.assertEquals(type, pooled.getType());
+        Assert.assertEquals(from, pooled.getClientId());
+        Assert.assertEquals(dest, pooled.getClientDestId());
+        return pooled;
+    }
+
+    /**
+     * Test chat round trip, overwriting previous content.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testChat() throws IOException
+    {
+        final NetworkMessageChat first = (NetworkMessageChat) read(CHAT,
+                                                                   write(new NetworkMessageChat(CHAT,
+                                                                                                (byte) 1,
+                                                                                                "h\u00e9llo world")),
+                                                                   (byte) 1,
+                                                                   (byte) -1);
+        Assert.assertEquals("h\u00e9llo world", first.getMessage());
+
+        pool.release(first);
+        final NetworkMessageChat second = (NetworkMessageChat) read(CHAT,
+                                                                    write(new NetworkMessageChat(CHAT,
+                                                                                                 (byte) 2,
+                                                                                                 (byte) 3,
+                                                                                                 "hi")),
+                                                                    (byte) 2,
+                                                                    (byte) 3);
+        Assert.assertSame(first, second);
+        Assert.assertEquals("hi", second.getMessage());
+        Assert.assertEquals(1, created);
+    }
+
+    /**
+     * Test entity round trip, clearing previous actions.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testEntity() throws IOException
+    {
+        final Entity sent = new Entity((short) 300);
+        sent.addAction(Action.MOVE, 42);
+        sent.addAction(Action.JUMP, true);
+
+        final Entity first = (Entity) read(ENTITY, write(sent), (byte) -1, (byte) -1);
+        Assert.assertEquals(300, first.getEntityId());
+        Assert.assertEquals(42, first.getActionInteger(Action.MOVE));
+        Assert.assertTrue(first.getActionBoolean(Action.JUMP));
+
+        pool.release(first);
+        final Entity other = new Entity((short) 7);
+        other.addAction(Action.MOVE, -1);
+        final Entity second = (Entity) read(ENTITY, write(other), (byte) -1, (byte) -1);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(7, second.getEntityId());
+        Assert.assertEquals(-1, second.getActionInteger(Action.MOVE));
+        Assert.assertFalse(second.hasAction(Action.JUMP));
+        Assert.assertEquals(1, created);
+    }
+
+    /**
+     * Test snapshot round trip, for data and acknowledge.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testSnapshot() throws IOException
+    {
+        final byte[] data = new byte[]
+        {
+            1, 2, 3, 4, 5
+        };
+        final NetworkMessageSnapshot first = (NetworkMessageSnapshot) read(SNAPSHOT,
+                                                                           write(new NetworkMessageSnapshot(SNAPSHOT,
+                                                                                                            (byte) 2,
+                                                                                                            10,
+                                                                                                            8,
+                                                                                                            data,
+                                                                                                            4)),
+                                                                           (byte) -1,
+                                                                           (byte) 2);
+        Assert.assertFalse(first.isAck());
+        Assert.assertEquals(10, first.getSequence());
+        Assert.assertEquals(8, first.getBaseline());
+        Assert.assertEquals(4, first.getLength());
+        for (int i = 0; i < first.getLength(); i++)
+        {
+            Assert.assertEquals(data[i], first.getData()[i]);
+        }
+
+        pool.release(first);
+        final NetworkMessageSnapshot ack = new NetworkMessageSnapshot(SNAPSHOT, (byte) 2, 10, 320, -64);
+        final NetworkMessageSnapshot second = (NetworkMessageSnapshot) read(SNAPSHOT, write(ack), (byte) 2, (byte) 0);
+
+        Assert.assertSame(first, second);
+        Assert.assertTrue(second.isAck());
+        Assert.assertEquals(10, second.getSequence());
+        Assert.assertEquals(320, second.getViewX());
+        Assert.assertEquals(-64, second.getViewY());
+        Assert.assertEquals(0, second.getLength());
+        Assert.assertEquals(1, created);
+    }
+
+    /**
+     * Test turn round trip, shrinking commands.
+     * 
+     * @throws IOException If error.
+     */
+    @Test
+    public void testTurn() throws IOException
+    {
+        final int[] commands = new int[]
+        {
+            1, -2, 3
+        };
+        final NetworkMessageTurn first = (NetworkMessageTurn) read(TURN,
+                                                                   write(new NetworkMessageTurn(TURN,
+                                                                                                (byte) 1,
+                                                                                                5,
+                                                                                                3,
+                                                                                                0xCAFE,
+                                                                                                commands,
+                                                                                                3)),
+                                                                   (byte) 1,
+                                                                   (byte) -1);
+        Assert.assertEquals(5, first.getTurn());
+        Assert.assertEquals(3, first.getCheckedTurn());
+        Assert.assertEquals(0xCAFE, first.getChecksum());
+        Assert.assertEquals(3, first.getCount());
+        Assert.assertEquals(-2, first.getCommands()[1]);
+
+        pool.release(first);
+        final NetworkMessageTurn second = (NetworkMessageTurn) read(TURN,
+                                                                    write(new NetworkMessageTurn(TURN,
+                                                                                                 (byte) 1,
+                                                                                                 6,
+                                                                                                 -1,
+                                                                                                 0,
+                                                                                                 commands,
+                                                                                                 1)),
+                                                                    (byte) 1,
+                                                                    (byte) -1);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(6, second.getTurn());
+        Assert.assertEquals(-1, second.getCheckedTurn());
+        Assert.assertEquals(1, second.getCount());
+        Assert.assertEquals(1, second.getCommands()[0]);
+        Assert.assertEquals(1, created);
+    }
+
+    /**
+     * Test pool keeps released messages by requested type, even not decoded, and creates when empty.
+     */
+    @Test
+    public void testReuse()
+    {
+        final NetworkMessage chat = pool.getNetworkMessageFromType(CHAT);
+        final NetworkMessage turn = pool.getNetworkMessageFromType(TURN);
+        Assert.assertEquals(2, created);
+
+        pool.release(CHAT, chat);
+        pool.release(TURN, turn);
+
+        Assert.assertSame(turn, pool.getNetworkMessageFromType(TURN));
+        Assert.assertSame(chat, pool.getNetworkMessageFromType(CHAT));
+        Assert.assertNotSame(chat, pool.getNetworkMessageFromType(CHAT));
+        Assert.assertEquals(3, created);
+        Assert.assertNull(pool.getNetworkMessageFromType(Byte.MAX_VALUE));
+    }
+
+    /**
+     * Entity actions.
+     */
+    private enum Action
+    {
+        /** Integer action. */
+        MOVE,
+        /** Boolean action. */
+        JUMP;
+    }
+
+    /**
+     * Entity message.
+     */
+    private static final class Entity extends NetworkMessageEntity<Action>
+    {
+        /**
+         * Create for decoding.
+         */
+        Entity()
+        {
+            super();
+        }
+
+        /**
+         * Create for encoding.
+         * 
+         * @param id The entity id.
+         */
+        Entity(short id)
+        {
+            super(ENTITY, id);
+        }
+
+        /*
+         * NetworkMessageEntity
+         */
+
+        @Override
+        protected void encode(ByteArrayOutputStream buffer, Action key) throws IOException
+        {
+            buffer.write(key.ordinal());
+            if (key == Action.MOVE)
+            {
+                final int value = getActionInteger(key);
+                buffer.write(value >>> 24);
+                buffer.write(value >>> 16);
+                buffer.write(value >>> 8);
+                buffer.write(value);
+            }
+            else
+            {
+                buffer.write(getActionBoolean(key) ? 1 : 0);
+            }
+        }
+
+        @Override
+        protected void decode(DataInputStream buffer, int i) throws IOException
+        {
+            final Action key = Action.values()[buffer.readByte()];
+            if (key == Action.MOVE)
+            {
+                addAction(key, buffer.readInt());
+            }
+            else
+            {
+                addAction(key, buffer.readBoolean());
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.nio.BufferUnderflowException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.LionEngineException;
+
+/**
+ * Test bits packed buffer.
+ */
+public class BitBufferTest
+{
+    /**
+     * Write then read back values.
+     * 
+     * @param values The values to write.
+     * @param bits The number of bits of each value.
+     * @param signed <code>true</code> for signed values, <code>false</code> for unsigned values.
+     */
+    private static void assertRoundTrip(int[] values, int bits, boolean signed)
+    {
+        final BitBuffer buffer = new BitBuffer(1);
+        for (final int value : values)
+        {
+            buffer.write(true);
+            if (signed)
+            {
+                buffer.writeSigned(value, bits);
+            }
+            else
+            {
+                buffer.write(value, bits);
+            }
+        }
+
+        final BitBuffer reader = new BitBuffer(1);
+        reader.wrap(buffer.getData(), buffer.getSize());
+        for (final int value : values)
+        {
+            Assert.assertTrue(reader.readFlag());
+            if (signed)
+            {
+                Assert.assertEquals(value, reader.readSigned(bits));
+            }
+            else
+            {
+                Assert.assertEquals(value, reader.read(bits));
+            }
+        }
+    }
+
+    /**
+     * Test unsigned values round trip, for each number of bits.
+     */
+    @Test
+    public void testUnsigned()
+    {
+        for (int bits = 1; bits <= Integer.SIZE; bits++)
+        {
+            final int max = (int) ((1L << bits) - 1L);
+            assertRoundTrip(new int[]
+            {
+                0, 1, max >>> 1, max
+            }, bits, false);
+        }
+    }
+
+    /**
+     * Test signed values round trip, for each number of bits.
+     */
+    @Test
+    public void testSigned()
+    {
+        for (int bits = 1; bits <= Integer.SIZE; bits++)
+        {
+            final int min = (int) -(1L << bits - 1);
+            final int max = (int) ((1L << bits - 1) - 1L);
+            assertRoundTrip(new int[]
+            {
+                min, max, 0, -1, min / 2
+            }, bits, true);
+        }
+    }
+
+    /**
+     * Test unsigned read of signed value is not sign extended.
+     */
+    @Test
+    public void testUnsignedNotExtended()
+    {
+        final BitBuffer buffer = new BitBuffer(1);
+        buffer.writeSigned(-1, 4);
+        buffer.writeSigned(-1, 4);
+        buffer.wrap(buffer.getData(), buffer.getSize());
+
+        Assert.assertEquals(0xF, buffer.read(4));
+        Assert.assertEquals(-1, buffer.readSigned(4));
+    }
+
+    /**
+     * Test unsigned value too big.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testUnsignedOverflow()
+    {
+        new BitBuffer(1).write(16, 4);
+    }
+
+    /**
+     * Test negative unsigned value.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testUnsignedNegative()
+    {
+        new BitBuffer(1).write(-1, 31);
+    }
+
+    /**
+     * Test signed value too big.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testSignedOverflow()
+    {
+        new BitBuffer(1).writeSigned(8, 4);
+    }
+
+    /**
+     * Test signed value too small.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testSignedUnderflow()
+    {
+        new BitBuffer(1).writeSigned(-9, 4);
+    }
+
+    /**
+     * Test invalid number of bits.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testInvalidBits()
+    {
+        new BitBuffer(1).write(0, Integer.SIZE + 1);
+    }
+
+    /**
+     * Test read after written data.
+     */
+    @Test(expected = BufferUnderflowException.class)
+    public void testReadPastLength()
+    {
+        final BitBuffer buffer = new BitBuffer(4);
+        buffer.write(3, 2);
+        buffer.wrap(buffer.getData(), buffer.getSize());
+
+        Assert.assertEquals(3 << 6, buffer.read(8));
+        Assert.assertFalse(buffer.hasRemaining());
+
+        buffer.readFlag();
+    }
+
+    /**
+     * Test cleared buffer is reused.
+     */
+    @Test
+    public void testClear()
+    {
+        final BitBuffer buffer = new BitBuffer(1);
+        buffer.write(0xFFFF, 16);
+        buffer.clear();
+        buffer.write(1, 3);
+
+        Assert.assertEquals(1, buffer.getSize());
+        Assert.assertEquals(1 << 5, buffer.getData()[0]);
+        Assert.assertEquals(0, buffer.getData()[1]);
+    }
+}
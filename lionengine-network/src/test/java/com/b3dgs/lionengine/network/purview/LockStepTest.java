@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+
+/**
+ * Test lock step turn scheduling.
+ */
+public class LockStepTest
+{
+    /** Message type. */
+    private static final byte TYPE = 1;
+    /** First player id. */
+    private static final Byte FIRST = Byte.valueOf((byte) 1);
+    /** Second player id. */
+    private static final Byte SECOND = Byte.valueOf((byte) 2);
+    /** Input delay in turns. */
+    private static final int DELAY = 2;
+    /** Ticks per turn. */
+    private static final int TICKS = 2;
+
+    /**
+     * Forward pending messages from a player to another.
+     * 
+     * @param from The sender.
+     * @param to The receiver.
+     */
+    private static void forward(LockStep from, LockStep to)
+    {
+        for (final NetworkMessage message : from.getNetworkMessages())
+        {
+            to.applyMessage(message);
+        }
+        from.clearNetworkMessages();
+    }
+
+    /**
+     * Create a started lock step.
+     * 
+     * @param id The local player id.
+     * @param other The other player id.
+     * @param simulation The simulation.
+     * @return The lock step.
+     */
+    private static LockStep create(Byte id, Byte other, Simulation simulation)
+    {
+        final LockStep lockStep = new LockStep(TYPE, simulation);
+        lockStep.setInputDelay(DELAY);
+        lockStep.setTurnTicks(TICKS);
+        lockStep.setClientId(id);
+        lockStep.start(Arrays.asList(other));
+        return lockStep;
+    }
+
+    /** First player simulation. */
+    private Simulation firstSimulation;
+    /** Second player simulation. */
+    private Simulation secondSimulation;
+    /** First player. */
+    private LockStep first;
+    /** Second player. */
+    private LockStep second;
+
+    /**
+     * Prepare test.
+     */
+    @Before
+    public void prepare()
+    {
+        firstSimulation = new Simulation(false);
+        secondSimulation = new Simulation(false);
+        first = create(FIRST, SECOND, firstSimulation);
+        second = create(SECOND, FIRST, secondSimulation);
+    }
+
+    /**
+     * Update both players and exchange their messages.
+     * 
+     * @param ticks The number of ticks.
+     */
+    private void run(int ticks)
+    {
+        for (int i = 0; i < ticks; i++)
+        {
+            first.update(1.0);
+            second.update(1.0);
+            forward(first, second);
+            forward(second, first);
+        }
+    }
+
+    /**
+     * Test commands are applied on every player at the same turn and in player order.
+     */
+    @Test
+    public void testScheduling()
+    {
+        second.addCommand(20);
+        second.addCommand(21);
+        first.addCommand(10);
+
+        run(TICKS * DELAY);
+
+        Assert.assertEquals(DELAY, first.getTurn());
+        Assert.assertTrue(firstSimulation.applied.isEmpty());
+        Assert.assertTrue(secondSimulation.applied.isEmpty());
+
+        run(1);
+
+        final List<String> expected = Arrays.asList("1:10@4", "2:20@4", "2:21@4");
+        Assert.assertEquals(expected, firstSimulation.applied);
+        Assert.assertEquals(expected, secondSimulation.applied);
+
+        first.addCommand(11);
+        run(TICKS * DELAY + 1);
+
+        Assert.assertEquals(firstSimulation.applied, secondSimulation.applied);
+        Assert.assertEquals("1:11@8", firstSimulation.applied.get(3));
+        Assert.assertFalse(first.isStalled());
+        Assert.assertFalse(second.isStalled());
+        Assert.assertTrue(firstSimulation.desyncs.isEmpty());
+        Assert.assertTrue(secondSimulation.desyncs.isEmpty());
+    }
+
+    /**
+     * Test turn stalls while a player batch is missing, and resumes once received.
+     */
+    @Test
+    public void testStall()
+    {
+        for (int i = 0; i < TICKS * DELAY; i++)
+        {
+            first.update(1.0);
+            second.update(1.0);
+        }
+        first.update(1.0);
+        first.update(1.0);
+
+        Assert.assertTrue(first.isStalled());
+        Assert.assertEquals(DELAY, first.getTurn());
+        Assert.assertEquals(TICKS * DELAY, firstSimulation.steps);
+
+        forward(second, first);
+        first.update(1.0);
+
+        Assert.assertFalse(first.isStalled());
+        Assert.assertEquals(TICKS * DELAY + 1, firstSimulation.steps);
+    }
+
+    /**
+     * Test stall is released when the missing player leaves.
+     */
+    @Test
+    public void testStallRemovePlayer()
+    {
+        for (int i = 0; i <= TICKS * DELAY; i++)
+        {
+            first.update(1.0);
+        }
+        Assert.assertTrue(first.isStalled());
+
+        first.removePlayer(SECOND);
+        first.update(1.0);
+
+        Assert.assertFalse(first.isStalled());
+        Assert.assertEquals(TICKS * DELAY + 1, firstSimulation.steps);
+    }
+
+    /**
+     * Test desync is detected on both sides when checksums differ.
+     */
+    @Test
+    public void testDesync()
+    {
+        secondSimulation = new Simulation(true);
+        second = create(SECOND, FIRST, secondSimulation);
+        first.addCommand(Simulation.DIVERGE);
+
+        run(TICKS * (DELAY + 1));
+
+        Assert.assertEquals(Arrays.asList("2@" + DELAY), firstSimulation.desyncs);
+        Assert.assertEquals(Arrays.asList("1@" + DELAY), secondSimulation.desyncs);
+    }
+
+    /**
+     * Test checksum interval skips unchecked turns.
+     */
+    @Test
+    public void testChecksumInterval()
+    {
+        secondSimulation = new Simulation(true);
+        second = create(SECOND, FIRST, secondSimulation);
+        first.setChecksumInterval(4);
+        second.setChecksumInterval(4);
+        first.addCommand(Simulation.DIVERGE);
+
+        run(TICKS * (DELAY + 1));
+
+        Assert.assertTrue(firstSimulation.desyncs.isEmpty());
+
+        run(TICKS * 2);
+
+        Assert.assertEquals(Arrays.asList("2@4"), firstSimulation.desyncs);
+        Assert.assertEquals(Arrays.asList("1@4"), secondSimulation.desyncs);
+    }
+
+    /**
+     * Test key command encoding.
+     */
+    @Test
+    public void testKeyCommand()
+    {
+        first.keyPressed(42, 'a');
+        first.keyReleased(42, 'a');
+        first.addCommand(7);
+        run(TICKS * DELAY + 1);
+
+        Assert.assertEquals(3, secondSimulation.commands.size());
+        final int pressed = secondSimulation.commands.get(0).intValue();
+        final int released = secondSimulation.commands.get(1).intValue();
+
+        Assert.assertTrue(LockStep.isKeyCommand(pressed));
+        Assert.assertEquals(42, LockStep.getKeyCode(pressed));
+        Assert.assertTrue(LockStep.isKeyPressed(pressed));
+        Assert.assertTrue(LockStep.isKeyCommand(released));
+        Assert.assertEquals(42, LockStep.getKeyCode(released));
+        Assert.assertFalse(LockStep.isKeyPressed(released));
+        Assert.assertFalse(LockStep.isKeyCommand(secondSimulation.commands.get(2).intValue()));
+    }
+
+    /**
+     * Test start without client id.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testStartWithoutClientId()
+    {
+        new LockStep(TYPE, new Simulation(false)).start(Arrays.asList(FIRST));
+    }
+
+    /**
+     * Recording simulation.
+     */
+    private static final class Simulation implements LockStepSimulation
+    {
+        /** Command handled differently by a faulty simulation. */
+        static final int DIVERGE = 99;
+
+        /** Applied commands, as player:command@step. */
+        final List<String> applied = new ArrayList<String>();
+        /** Applied commands values. */
+        final List<Integer> commands = new ArrayList<Integer>();
+        /** Desyncs, as player@turn. */
+        final List<String> desyncs = new ArrayList<String>();
+        /** Faulty flag. */
+        private final boolean faulty;
+        /** Steps count. */
+        int steps;
+        /** Simulation state. */
+        private int state;
+
+        /**
+         * Create simulation.
+         * 
+         * @param faulty <code>true</code> to diverge on {@link #DIVERGE}, <code>false</code> else.
+         */
+        Simulation(boolean faulty)
+        {
+            this.faulty = faulty;
+        }
+
+        /*
+         * LockStepSimulation
+         */
+
+        @Override
+        public void applyCommand(byte player, int command)
+        {
+            applied.add(player + ":" + command + "@" + steps);
+            commands.add(Integer.valueOf(command));
+            state = state * 31 + player * 1000 + command;
+            if (faulty && command == DIVERGE)
+            {
+                state++;
+            }
+        }
+
+        @Override
+        public void step()
+        {
+            steps++;
+        }
+
+        @Override
+        public byte[] getState()
+        {
+            return new byte[]
+            {
+                (byte) (state >>> 24), (byte) (state >>> 16), (byte) (state >>> 8), (byte) state
+            };
+        }
+
+        @Override
+        public void notifyDesync(int turn, byte player)
+        {
+            desyncs.add(player + "@" + turn);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2013-2017 Byron 3D Games Studio (www.b3dgs.com) Pierre-Alexandre (contact@b3dgs.com)
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package com.b3dgs.lionengine.network.purview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.b3dgs.lionengine.LionEngineException;
+import com.b3dgs.lionengine.game.feature.Transformable;
+import com.b3dgs.lionengine.game.feature.TransformableModel;
+import com.b3dgs.lionengine.network.message.NetworkMessage;
+import com.b3dgs.lionengine.network.message.NetworkMessageSnapshot;
+
+/**
+ * Test replication between server and client.
+ */
+public class ReplicationTest
+{
+    /** Message type. */
+    private static final byte TYPE = 1;
+    /** Client id. */
+    private static final byte CLIENT = 1;
+    /** Location bits. */
+    private static final int POSITION_BITS = 16;
+    /** Field bits. */
+    private static final int FIELD_BITS = 8;
+
+    /**
+     * Create transformable.
+     * 
+     * @param x The horizontal location.
+     * @param y The vertical location.
+     * @return The transformable.
+     */
+    private static Transformable createTransformable(double x, double y)
+    {
+        final Transformable transformable = new TransformableModel();
+        transformable.teleport(x, y);
+        return transformable;
+    }
+
+    /** Server replication. */
+    private ReplicationServer server;
+    /** Client replication. */
+    private ReplicationClient client;
+    /** Sent snapshots. */
+    private List<NetworkMessageSnapshot> sent;
+
+    /**
+     * Prepare test.
+     */
+    @Before
+    public void prepare()
+    {
+        server = new ReplicationServer(TYPE, 1.0, POSITION_BITS, FIELD_BITS);
+        client = new ReplicationClient(TYPE, 1.0, POSITION_BITS, FIELD_BITS);
+        client.setClientId(Byte.valueOf(CLIENT));
+        sent = new ArrayList<NetworkMessageSnapshot>();
+    }
+
+    /**
+     * Capture server state and get the queued snapshots.
+     * 
+     * @return The snapshots sent (empty if nothing changed).
+     */
+    private List<NetworkMessageSnapshot> send()
+    {
+        server.send();
+        final List<NetworkMessageSnapshot> snapshots = new ArrayList<NetworkMessageSnapshot>();
+        for (final NetworkMessage message : server.getNetworkMessages())
+        {
+            snapshots.add((NetworkMessageSnapshot) message);
+        }
+        server.clearNetworkMessages();
+        sent.addAll(snapshots);
+        return snapshots;
+    }
+
+    /**
+     * Send snapshot to client.
+     * 
+     * @param snapshots The snapshots to receive.
+     */
+    private void receive(List<NetworkMessageSnapshot> snapshots)
+    {
+        for (final NetworkMessageSnapshot snapshot : snapshots)
+        {
+            client.applyMessage(snapshot);
+        }
+    }
+
+    /**
+     * Send client acknowledge to server.
+     * 
+     * @return The acknowledge sent.
+     */
+    private NetworkMessageSnapshot ack()
+    {
+        client.send();
+        final NetworkMessageSnapshot ack = (NetworkMessageSnapshot) client.getNetworkMessages().iterator().next();
+        client.clearNetworkMessages();
+        server.applyMessage(ack);
+        return ack;
+    }
+
+    /**
+     * Test full snapshot then delta against acknowledged baseline.
+     */
+    @Test
+    public void testBaseline()
+    {
+        final Transformable source = createTransformable(10.0, -20.0);
+        final Fields sourceFields = new Fields(-5);
+        server.addReplica((short) 1, source, sourceFields);
+        final Transformable target = createTransformable(0.0, 0.0);
+        final Fields targetFields = new Fields(0);
+        client.addReplica((short) 1, target, targetFields);
+
+        Assert.assertTrue(send().isEmpty());
+
+        ack();
+        final List<NetworkMessageSnapshot> full = send();
+        receive(full);
+
+        Assert.assertEquals(1, full.size());
+        Assert.assertEquals(-1, full.get(0).getBaseline());
+        Assert.assertEquals(10.0, target.getX(), 0.0);
+        Assert.assertEquals(-20.0, target.getY(), 0.0);
+        Assert.assertEquals(-5, targetFields.value);
+
+        ack();
+        Assert.assertTrue(send().isEmpty());
+
+        sourceFields.value = 3;
+        final List<NetworkMessageSnapshot> delta = send();
+        receive(delta);
+
+        Assert.assertEquals(full.get(0).getSequence(), delta.get(0).getBaseline());
+        Assert.assertTrue(delta.get(0).getLength() < full.get(0).getLength());
+        Assert.assertEquals(10.0, target.getX(), 0.0);
+        Assert.assertEquals(-20.0, target.getY(), 0.0);
+        Assert.assertEquals(3, targetFields.value);
+    }
+
+    /**
+     * Test entity received before being added, then removed.
+     */
+    @Test
+    public void testRemoval()
+    {
+        server.addReplica((short) 2, createTransformable(4.0, 5.0), null);
+        ack();
+        receive(send());
+
+        final Transformable late = createTransformable(0.0, 0.0);
+        client.addReplica((short) 2, late, null);
+
+        Assert.assertEquals(4.0, late.getX(), 0.0);
+
+        ack();
+        server.removeReplica((short) 2);
+        final List<NetworkMessageSnapshot> removed = send();
+        receive(removed);
+
+        Assert.assertEquals(1, removed.size());
+
+        final Transformable after = createTransformable(0.0, 0.0);
+        client.addReplica((short) 2, after, null);
+
+        Assert.assertEquals(0.0, after.getX(), 0.0);
+
+        ack();
+        Assert.assertTrue(send().isEmpty());
+    }
+
+    /**
+     * Test entities exceeding budget are delayed, nearest first.
+     */
+    @Test
+    public void testBudget()
+    {
+        final Transformable[] targets = new Transformable[3];
+        for (int i = 0; i < targets.length; i++)
+        {
+            server.addReplica((short) i, createTransformable(100.0 * (targets.length - i), 0.0), null);
+            targets[i] = createTransformable(0.0, 0.0);
+            client.addReplica((short) i, targets[i], null);
+        }
+        server.setBudget(1);
+
+        for (int i = targets.length - 1; i >= 0; i--)
+        {
+            ack();
+            receive(send());
+
+            for (int j = 0; j < targets.length; j++)
+            {
+                if (j >= i)
+                {
+                    Assert.assertEquals(100.0 * (targets.length - j), targets[j].getX(), 0.0);
+                }
+                else
+                {
+                    Assert.assertEquals(0.0, targets[j].getX(), 0.0);
+                }
+            }
+        }
+        ack();
+        Assert.assertTrue(send().isEmpty());
+    }
+
+    /**
+     * Test missing and out of order acknowledges and snapshots.
+     */
+    @Test
+    public void testOutOfOrder()
+    {
+        final Transformable source = createTransformable(1.0, 0.0);
+        server.addReplica((short) 1, source, null);
+        final Transformable target = createTransformable(0.0, 0.0);
+        client.addReplica((short) 1, target, null);
+
+        ack();
+        receive(send());
+        final NetworkMessageSnapshot first = ack();
+
+        source.teleportX(2.0);
+        final List<NetworkMessageSnapshot> second = send();
+        source.teleportX(3.0);
+        final List<NetworkMessageSnapshot> third = send();
+
+        Assert.assertEquals(first.getSequence(), second.get(0).getBaseline());
+        Assert.assertEquals(first.getSequence(), third.get(0).getBaseline());
+
+        receive(third);
+        Assert.assertEquals(3.0, target.getX(), 0.0);
+
+        receive(second);
+        Assert.assertEquals(3.0, target.getX(), 0.0);
+
+        final NetworkMessageSnapshot newest = ack();
+        server.applyMessage(first);
+        source.teleportX(4.0);
+        final List<NetworkMessageSnapshot> fourth = send();
+
+        Assert.assertEquals(newest.getSequence(), fourth.get(0).getBaseline());
+
+        receive(fourth);
+        Assert.assertEquals(4.0, target.getX(), 0.0);
+
+        source.teleportX(5.0);
+        final NetworkMessageSnapshot unknown = send().get(0);
+        final ReplicationClient fresh = new ReplicationClient(TYPE, 1.0, POSITION_BITS, FIELD_BITS);
+        final Transformable other = createTransformable(0.0, 0.0);
+        fresh.addReplica((short) 1, other, null);
+        fresh.applyMessage(unknown);
+
+        Assert.assertEquals(0.0, other.getX(), 0.0);
+    }
+
+    /**
+     * Test truncated snapshot is dropped without being applied.
+     */
+    @Test
+    public void testTruncated()
+    {
+        final Transformable target = createTransformable(0.0, 0.0);
+        client.addReplica((short) 1, target, null);
+
+        final BitBuffer buffer = new BitBuffer(1);
+        buffer.write(true);
+        buffer.write(1, Replication.ID_BITS);
+        buffer.write(false);
+        buffer.write(true);
+        client.applyMessage(new NetworkMessageSnapshot(TYPE, CLIENT, 0, -1, buffer.getData(), buffer.getSize()));
+
+        Assert.assertEquals(0.0, target.getX(), 0.0);
+
+        client.send();
+        final NetworkMessageSnapshot ack = (NetworkMessageSnapshot) client.getNetworkMessages().iterator().next();
+
+        Assert.assertEquals(-1, ack.getSequence());
+    }
+
+    /**
+     * Test value not fitting in its declared bits.
+     */
+    @Test(expected = LionEngineException.class)
+    public void testValueOverflow()
+    {
+        server.addReplica((short) 1, null, new Fields(1 << FIELD_BITS - 1));
+        ack();
+        send();
+    }
+
+    /**
+     * Replicated fields mock.
+     */
+    private static final class Fields implements ReplicaFields
+    {
+        /** Field value. */
+        private int value;
+
+        /**
+         * Create fields.
+         * 
+         * @param value The field value.
+         */
+        Fields(int value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public void capture(int[] values)
+        {
+            values[0] = value;
+        }
+
+        @Override
+        public void apply(int[] values)
+        {
+            value = values[0];
+        }
+    }
+}